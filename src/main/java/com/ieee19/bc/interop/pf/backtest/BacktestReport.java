@@ -0,0 +1,163 @@
+package com.ieee19.bc.interop.pf.backtest;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This class represents the result of replaying the recorded histories with the settings of a
+ * {@link BacktestScenario}: the switchovers that have been suggested and the costs of each of them.
+ */
+public class BacktestReport {
+
+    private final BacktestScenario scenario;
+    private final List<Switchover> switchovers = new ArrayList<>();
+    private String initialBlockchain;
+    private String finalBlockchain;
+    private Duration simulatedTime = Duration.ZERO;
+    private Duration elapsedTime = Duration.ZERO;
+
+    public BacktestReport(BacktestScenario scenario) {
+        this.scenario = scenario;
+    }
+
+    public BacktestScenario getScenario() {
+        return scenario;
+    }
+
+    public List<Switchover> getSwitchovers() {
+        return Collections.unmodifiableList(switchovers);
+    }
+
+    void addSwitchover(Switchover switchover) {
+        switchovers.add(switchover);
+    }
+
+    /**
+     * @return the sum of the costs of all switchovers
+     */
+    public BigDecimal getTotalCosts() {
+        return switchovers.stream()
+                .map(Switchover::getCosts)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    public String getInitialBlockchain() {
+        return initialBlockchain;
+    }
+
+    void setInitialBlockchain(String initialBlockchain) {
+        this.initialBlockchain = initialBlockchain;
+    }
+
+    public String getFinalBlockchain() {
+        return finalBlockchain;
+    }
+
+    void setFinalBlockchain(String finalBlockchain) {
+        this.finalBlockchain = finalBlockchain;
+    }
+
+    /**
+     * @return the time span of the replayed histories
+     */
+    public Duration getSimulatedTime() {
+        return simulatedTime;
+    }
+
+    void setSimulatedTime(Duration simulatedTime) {
+        this.simulatedTime = simulatedTime;
+    }
+
+    /**
+     * @return the wall-clock time the backtest took
+     */
+    public Duration getElapsedTime() {
+        return elapsedTime;
+    }
+
+    void setElapsedTime(Duration elapsedTime) {
+        this.elapsedTime = elapsedTime;
+    }
+
+    /**
+     * @return how many times faster than real time the histories have been replayed
+     */
+    public double getSpeedup() {
+        return (double) simulatedTime.toMillis() / Math.max(1, elapsedTime.toMillis());
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        report.append("Scenario ").append(scenario.getName())
+                .append(": ").append(switchovers.size()).append(" switchover(s)")
+                .append(", total costs ").append(getTotalCosts())
+                .append(", ").append(initialBlockchain).append(" -> ").append(finalBlockchain)
+                .append(", replayed ").append(simulatedTime).append(" in ").append(elapsedTime)
+                .append(System.lineSeparator());
+        for (Switchover switchover : switchovers) {
+            report.append("  ").append(switchover).append(System.lineSeparator());
+        }
+        return report.toString();
+    }
+
+    /**
+     * A switchover that has been suggested during a backtest.
+     */
+    public static class Switchover {
+
+        private final ZonedDateTime time;
+        private final String fromBlockchain;
+        private final String toBlockchain;
+        private final int score;
+        private final BigDecimal costs;
+
+        /**
+         * @param time           the (replayed) time of the suggestion
+         * @param fromBlockchain the identifier of the blockchain that has been used until then
+         * @param toBlockchain   the identifier of the suggested blockchain
+         * @param score          the overall weighted score of the suggested blockchain
+         * @param costs          the costs of reading the data from <i>fromBlockchain</i> and writing it to
+         *                       <i>toBlockchain</i> at the time of the suggestion
+         */
+        public Switchover(ZonedDateTime time, String fromBlockchain, String toBlockchain, int score,
+                          BigDecimal costs) {
+            this.time = time;
+            this.fromBlockchain = fromBlockchain;
+            this.toBlockchain = toBlockchain;
+            this.score = score;
+            this.costs = costs;
+        }
+
+        public ZonedDateTime getTime() {
+            return time;
+        }
+
+        public String getFromBlockchain() {
+            return fromBlockchain;
+        }
+
+        public String getToBlockchain() {
+            return toBlockchain;
+        }
+
+        public int getScore() {
+            return score;
+        }
+
+        public BigDecimal getCosts() {
+            return costs;
+        }
+
+        @Override
+        public String toString() {
+            return time + ": " + fromBlockchain + " -> " + toBlockchain + " (score " + score + ", costs " + costs + ")";
+        }
+
+    }
+
+}
@@ -0,0 +1,87 @@
+package com.ieee19.bc.interop.pf.backtest;
+
+import com.ieee19.bc.interop.pf.core.model.ThresholdValidationSettings;
+import com.ieee19.bc.interop.pf.core.model.WeightedRankingSettings;
+
+import java.math.BigDecimal;
+
+/**
+ * This class represents one combination of settings that is evaluated by the {@link Backtester}. The functions of the
+ * settings may be called from the thread of any backtest and must therefore be free of shared state.
+ */
+public class BacktestScenario {
+
+    private String name;
+    private WeightedRankingSettings rankingSettings;
+    private ThresholdValidationSettings thresholdValidationSettings;
+    private String initialBlockchain;
+    private BigDecimal amountOfDataInKb = BigDecimal.ZERO;
+
+    public BacktestScenario() {
+    }
+
+    public BacktestScenario(String name, WeightedRankingSettings rankingSettings,
+                            ThresholdValidationSettings thresholdValidationSettings) {
+        this.name = name;
+        this.rankingSettings = rankingSettings;
+        this.thresholdValidationSettings = thresholdValidationSettings;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public WeightedRankingSettings getRankingSettings() {
+        return rankingSettings;
+    }
+
+    public void setRankingSettings(WeightedRankingSettings rankingSettings) {
+        this.rankingSettings = rankingSettings;
+    }
+
+    public ThresholdValidationSettings getThresholdValidationSettings() {
+        return thresholdValidationSettings;
+    }
+
+    public void setThresholdValidationSettings(ThresholdValidationSettings thresholdValidationSettings) {
+        this.thresholdValidationSettings = thresholdValidationSettings;
+    }
+
+    public String getInitialBlockchain() {
+        return initialBlockchain;
+    }
+
+    /**
+     * @param initialBlockchain the identifier of the blockchain that is used at the start of the history. If it isn't
+     *                          set, the first suggested blockchain is used without a switchover.
+     */
+    public void setInitialBlockchain(String initialBlockchain) {
+        this.initialBlockchain = initialBlockchain;
+    }
+
+    public BigDecimal getAmountOfDataInKb() {
+        return amountOfDataInKb;
+    }
+
+    /**
+     * @param amountOfDataInKb the amount of data that is moved to the next blockchain on a switchover, from which the
+     *                         costs of a switchover are calculated
+     */
+    public void setAmountOfDataInKb(BigDecimal amountOfDataInKb) {
+        this.amountOfDataInKb = amountOfDataInKb;
+    }
+
+    @Override
+    public String toString() {
+        return "BacktestScenario{" +
+                "name='" + name + '\'' +
+                ", initialBlockchain='" + initialBlockchain + '\'' +
+                ", amountOfDataInKb=" + amountOfDataInKb +
+                '}';
+    }
+
+}
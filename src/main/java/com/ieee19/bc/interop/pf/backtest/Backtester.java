@@ -0,0 +1,204 @@
+package com.ieee19.bc.interop.pf.backtest;
+
+import com.ieee19.bc.interop.pf.core.BlockchainManager;
+import com.ieee19.bc.interop.pf.core.Utils;
+import com.ieee19.bc.interop.pf.core.model.BlockchainCalculationResult;
+import com.ieee19.bc.interop.pf.core.model.BlockchainMetaData;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.schedulers.TestScheduler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * This class evaluates {@link BacktestScenario}s by replaying recorded {@link BlockchainHistory}s through the
+ * {@link BlockchainManager}, i.e. through the same ranking, threshold validation and throttling as in live operation.
+ * <p>
+ * Each backtest runs in virtual time on its own {@link TestScheduler}: the manager, the metric collectors and their
+ * windows only advance when a recorded block or sample is due, so days of history are replayed in seconds. The
+ * suggested switchovers are followed as if they had been performed, such that later suggestions refer to the
+ * blockchain that would have been used. Since backtests share nothing but the (read-only) histories, several scenarios
+ * are evaluated in parallel, one per thread.
+ */
+public class Backtester {
+
+    private static final Logger LOG = LoggerFactory.getLogger(Backtester.class);
+
+    /**
+     * The default time between two evictions of the blocks of a window. Evictions only happen in virtual time, a
+     * shorter tick makes the replayed metrics more precise but the backtest slower.
+     */
+    public static final Duration DEFAULT_TICK = Duration.ofMinutes(1);
+
+    private final Map<String, BlockchainHistory> histories = new LinkedHashMap<>();
+    private final ZonedDateTime start;
+    private final ZonedDateTime end;
+    private Duration tick = DEFAULT_TICK;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * @param histories the recorded histories of the blockchains, which must not be changed during a backtest
+     */
+    public Backtester(Collection<BlockchainHistory> histories) {
+        histories.forEach(history -> this.histories.put(history.getIdentifier(), history));
+        start = histories.stream()
+                .map(BlockchainHistory::getStart)
+                .filter(Objects::nonNull)
+                .min(Comparator.naturalOrder())
+                .orElseThrow(() -> new IllegalArgumentException("No history recorded"));
+        end = histories.stream()
+                .map(BlockchainHistory::getEnd)
+                .filter(Objects::nonNull)
+                .max(Comparator.naturalOrder())
+                .orElseThrow(() -> new IllegalArgumentException("No history recorded"));
+    }
+
+    public Backtester setTick(Duration tick) {
+        this.tick = tick;
+        return this;
+    }
+
+    /**
+     * @param parallelism the max. number of scenarios that are evaluated at the same time, the number of processors by
+     *                    default
+     */
+    public Backtester setParallelism(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism " + parallelism + " is not positive");
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Evaluates the scenarios in parallel.
+     *
+     * @param scenarios the scenarios to evaluate
+     * @return the reports in the order of the scenarios
+     * @throws Exception the error of a failed backtest
+     */
+    public List<BacktestReport> runAll(List<BacktestScenario> scenarios) throws Exception {
+        ExecutorService executorService = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, scenarios.size())));
+        try {
+            List<CompletableFuture<BacktestReport>> futures = new ArrayList<>();
+            for (BacktestScenario scenario : scenarios) {
+                futures.add(CompletableFuture.supplyAsync(() -> run(scenario), executorService));
+            }
+            List<BacktestReport> reports = new ArrayList<>();
+            for (CompletableFuture<BacktestReport> future : futures) {
+                reports.add(Utils.await(future));
+            }
+            return reports;
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Evaluates a scenario on the calling thread.
+     *
+     * @param scenario the scenario to evaluate
+     * @return the report of the backtest
+     */
+    public BacktestReport run(BacktestScenario scenario) {
+        long startedAt = System.nanoTime();
+        TestScheduler scheduler = new TestScheduler();
+        // before anything is scheduled, such that no ticks are run for the time before the histories
+        scheduler.advanceTimeTo(start.toInstant().toEpochMilli(), TimeUnit.MILLISECONDS);
+
+        BlockchainManager manager = BlockchainManager
+                .newInstance()
+                .setRankingSettings(scenario.getRankingSettings())
+                .setThresholdValidationSettings(scenario.getThresholdValidationSettings())
+                .setScheduler(scheduler);
+        Map<String, BlockchainMetaData> blockchains = new LinkedHashMap<>();
+        for (BlockchainHistory history : histories.values()) {
+            BlockchainMetaData blockchain = new BlockchainMetaData(history.getIdentifier(),
+                    new ReplayMetricCollector(history, scheduler, tick), null,
+                    history.getNumberOfRequiredConfirmations(), history.getReputation());
+            blockchains.put(history.getIdentifier(), blockchain);
+            manager.addBlockchain(blockchain);
+        }
+        if (scenario.getInitialBlockchain() != null) {
+            if (!blockchains.containsKey(scenario.getInitialBlockchain())) {
+                throw new IllegalArgumentException("No history of " + scenario.getInitialBlockchain() + " recorded");
+            }
+            manager.preSelectBlockchain(blockchains.get(scenario.getInitialBlockchain()));
+        }
+        manager.build();
+
+        BacktestReport report = new BacktestReport(scenario);
+        report.setInitialBlockchain(scenario.getInitialBlockchain());
+        AtomicReference<String> currentBlockchain = new AtomicReference<>(scenario.getInitialBlockchain());
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        Disposable subscription = manager.getSwitchoverSuggestionObservable().subscribe(suggestion -> {
+            BlockchainCalculationResult nextResult = suggestion.getNextBlockchainResult();
+            String nextBlockchain = nextResult.getBlockchain().getIdentifier();
+            if (nextBlockchain.equals(currentBlockchain.get())) {
+                return;
+            }
+            if (currentBlockchain.get() == null) {
+                report.setInitialBlockchain(nextBlockchain);
+            } else {
+                ZonedDateTime time = ZonedDateTime.ofInstant(
+                        Instant.ofEpochMilli(scheduler.now(TimeUnit.MILLISECONDS)), ZoneOffset.UTC);
+                report.addSwitchover(new BacktestReport.Switchover(time, currentBlockchain.get(), nextBlockchain,
+                        nextResult.getOverallWeightedScore(),
+                        calculateSwitchoverCosts(scenario, currentBlockchain.get(), nextBlockchain, time)));
+            }
+            currentBlockchain.set(nextBlockchain);
+            manager.preSelectBlockchain(nextResult.getBlockchain());
+        }, error::set);
+
+        scheduler.advanceTimeTo(end.toInstant().toEpochMilli(), TimeUnit.MILLISECONDS);
+        subscription.dispose();
+        if (error.get() != null) {
+            throw new IllegalStateException("Backtest of " + scenario + " failed", error.get());
+        }
+
+        report.setFinalBlockchain(currentBlockchain.get());
+        report.setSimulatedTime(Duration.between(start, end));
+        report.setElapsedTime(Duration.ofNanos(System.nanoTime() - startedAt));
+        LOG.info("Backtest of " + scenario + " finished: " + report.getSwitchovers().size() + " switchover(s), " +
+                String.format("%.0f", report.getSpeedup()) + " times faster than real time");
+        return report;
+    }
+
+    /**
+     * @return the costs of reading the data of the scenario from <i>fromBlockchain</i> and writing it to
+     * <i>toBlockchain</i>, according to the costs recorded until <i>time</i>
+     */
+    private BigDecimal calculateSwitchoverCosts(BacktestScenario scenario, String fromBlockchain, String toBlockchain,
+                                                ZonedDateTime time) {
+        BigDecimal costsForRetrievingData = BlockchainHistory.getValueAt(
+                histories.get(fromBlockchain).getCostsForRetrievingData(), time);
+        BigDecimal costsForWritingData = BlockchainHistory.getValueAt(
+                histories.get(toBlockchain).getCostsForWritingData(), time);
+        BigDecimal costsPerKb = BigDecimal.ZERO;
+        if (costsForRetrievingData != null) {
+            costsPerKb = costsPerKb.add(costsForRetrievingData);
+        }
+        if (costsForWritingData != null) {
+            costsPerKb = costsPerKb.add(costsForWritingData);
+        }
+        return costsPerKb.multiply(scenario.getAmountOfDataInKb());
+    }
+
+}
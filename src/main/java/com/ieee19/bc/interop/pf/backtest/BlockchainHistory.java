@@ -0,0 +1,180 @@
+package com.ieee19.bc.interop.pf.backtest;
+
+import com.ieee19.bc.interop.pf.core.model.Block;
+
+import java.math.BigDecimal;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * This class represents the recorded history of a blockchain that is replayed by the {@link Backtester}: the mined
+ * blocks and the samples of the exchange rate and of the costs, each with the time it has been recorded at. The costs
+ * are given in the fiat currency as provided by the metric collectors, i.e. per KB of data.
+ * <p>
+ * A history is only read while it is replayed, such that it can be shared by backtests running in parallel once it has
+ * been recorded. This class is not thread-safe.
+ */
+public class BlockchainHistory {
+
+    private final String identifier;
+    private int numberOfRequiredConfirmations = 0;
+    private int reputation = 0;
+    private double hashesPerDifficulty = 1;
+    private final List<Block> blocks = new ArrayList<>();
+    private final NavigableMap<ZonedDateTime, BigDecimal> exchangeRates = new TreeMap<>();
+    private final NavigableMap<ZonedDateTime, BigDecimal> costsForWritingData = new TreeMap<>();
+    private final NavigableMap<ZonedDateTime, BigDecimal> costsForRetrievingData = new TreeMap<>();
+    private final NavigableMap<ZonedDateTime, BigDecimal> storageFees = new TreeMap<>();
+
+    public BlockchainHistory(String identifier) {
+        this.identifier = identifier;
+    }
+
+    public String getIdentifier() {
+        return identifier;
+    }
+
+    public int getNumberOfRequiredConfirmations() {
+        return numberOfRequiredConfirmations;
+    }
+
+    public BlockchainHistory setNumberOfRequiredConfirmations(int numberOfRequiredConfirmations) {
+        this.numberOfRequiredConfirmations = numberOfRequiredConfirmations;
+        return this;
+    }
+
+    public int getReputation() {
+        return reputation;
+    }
+
+    /**
+     * @param reputation indicates trust in a blockchain. 0 <= <i>reputation</i> <= 10
+     */
+    public BlockchainHistory setReputation(int reputation) {
+        this.reputation = reputation;
+        return this;
+    }
+
+    public double getHashesPerDifficulty() {
+        return hashesPerDifficulty;
+    }
+
+    /**
+     * @param hashesPerDifficulty the expected number of hashes per unit of difficulty, e.g. 2^32 for Bitcoin and 1 for
+     *                            Ethereum, from which the network hashrate is derived
+     */
+    public BlockchainHistory setHashesPerDifficulty(double hashesPerDifficulty) {
+        this.hashesPerDifficulty = hashesPerDifficulty;
+        return this;
+    }
+
+    /**
+     * Adds a mined block. The blocks may be added in any order.
+     *
+     * @param block the block
+     */
+    public BlockchainHistory addBlock(Block block) {
+        // blocks are usually recorded in order, i.e. appended
+        int index = blocks.size();
+        while (index > 0 && blocks.get(index - 1).getTimestamp().isAfter(block.getTimestamp())) {
+            index--;
+        }
+        blocks.add(index, block);
+        return this;
+    }
+
+    public BlockchainHistory addExchangeRate(ZonedDateTime time, BigDecimal exchangeRate) {
+        exchangeRates.put(time, exchangeRate);
+        return this;
+    }
+
+    public BlockchainHistory addCostsForWritingData(ZonedDateTime time, BigDecimal costs) {
+        costsForWritingData.put(time, costs);
+        return this;
+    }
+
+    public BlockchainHistory addCostsForRetrievingData(ZonedDateTime time, BigDecimal costs) {
+        costsForRetrievingData.put(time, costs);
+        return this;
+    }
+
+    public BlockchainHistory addStorageFee(ZonedDateTime time, BigDecimal fee) {
+        storageFees.put(time, fee);
+        return this;
+    }
+
+    /**
+     * @return the blocks ordered by their timestamps
+     */
+    public List<Block> getBlocks() {
+        return Collections.unmodifiableList(blocks);
+    }
+
+    public NavigableMap<ZonedDateTime, BigDecimal> getExchangeRates() {
+        return Collections.unmodifiableNavigableMap(exchangeRates);
+    }
+
+    public NavigableMap<ZonedDateTime, BigDecimal> getCostsForWritingData() {
+        return Collections.unmodifiableNavigableMap(costsForWritingData);
+    }
+
+    public NavigableMap<ZonedDateTime, BigDecimal> getCostsForRetrievingData() {
+        return Collections.unmodifiableNavigableMap(costsForRetrievingData);
+    }
+
+    public NavigableMap<ZonedDateTime, BigDecimal> getStorageFees() {
+        return Collections.unmodifiableNavigableMap(storageFees);
+    }
+
+    /**
+     * @param samples one of the recorded series
+     * @param time    a point in time
+     * @return the latest sample recorded until <i>time</i>, or <i>null</i> if there is none
+     */
+    public static BigDecimal getValueAt(NavigableMap<ZonedDateTime, BigDecimal> samples, ZonedDateTime time) {
+        Map.Entry<ZonedDateTime, BigDecimal> sample = samples.floorEntry(time);
+        return sample == null ? null : sample.getValue();
+    }
+
+    /**
+     * @return the time of the earliest recorded block or sample, or <i>null</i> if nothing has been recorded
+     */
+    public ZonedDateTime getStart() {
+        return getRecordedTimes().min(Comparator.naturalOrder()).orElse(null);
+    }
+
+    /**
+     * @return the time of the latest recorded block or sample, or <i>null</i> if nothing has been recorded
+     */
+    public ZonedDateTime getEnd() {
+        return getRecordedTimes().max(Comparator.naturalOrder()).orElse(null);
+    }
+
+    private Stream<ZonedDateTime> getRecordedTimes() {
+        return Stream.of(
+                blocks.stream().map(Block::getTimestamp),
+                exchangeRates.keySet().stream(),
+                costsForWritingData.keySet().stream(),
+                costsForRetrievingData.keySet().stream(),
+                storageFees.keySet().stream()
+        ).flatMap(times -> times);
+    }
+
+    @Override
+    public String toString() {
+        return "BlockchainHistory{" +
+                "identifier='" + identifier + '\'' +
+                ", numberOfBlocks=" + blocks.size() +
+                ", start=" + getStart() +
+                ", end=" + getEnd() +
+                '}';
+    }
+
+}
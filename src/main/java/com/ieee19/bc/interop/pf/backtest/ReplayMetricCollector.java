@@ -0,0 +1,194 @@
+package com.ieee19.bc.interop.pf.backtest;
+
+import com.ieee19.bc.interop.pf.core.IBlockStatistics;
+import com.ieee19.bc.interop.pf.core.IMetricCollector;
+import com.ieee19.bc.interop.pf.core.SlidingBlockWindow;
+import com.ieee19.bc.interop.pf.core.TimeEvictionBuffer;
+import com.ieee19.bc.interop.pf.core.model.Block;
+import com.ieee19.bc.interop.pf.core.model.BlockEvent;
+import com.ieee19.bc.interop.pf.core.model.ConfidenceInterval;
+import com.ieee19.bc.interop.pf.core.model.MetricSnapshot;
+import com.ieee19.bc.interop.pf.core.model.MiningDistribution;
+import io.reactivex.Flowable;
+import io.reactivex.Observable;
+import io.reactivex.Scheduler;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class implements the {@link IMetricCollector} interface by replaying the recorded {@link BlockchainHistory} of
+ * a blockchain: every block and every sample is emitted at the time it has been recorded at according to the clock of
+ * the given scheduler. The block based metrics are computed like by the live metric collectors, i.e. from the
+ * {@link SlidingBlockWindow}s of a {@link TimeEvictionBuffer}, which evicts the blocks on the same scheduler.
+ * <p>
+ * On a {@link io.reactivex.schedulers.TestScheduler} a history is replayed in virtual time, i.e. as fast as the metrics
+ * can be computed. The clock of the scheduler has to be set to the start of the history before the observables are
+ * subscribed, otherwise everything recorded before the current time of the scheduler is emitted at once.
+ */
+public class ReplayMetricCollector implements IMetricCollector {
+
+    private final BlockchainHistory history;
+    private final Scheduler scheduler;
+    private final Observable<Map<Duration, IBlockStatistics>> statisticsObservable;
+    private final Map<Duration, Observable<MetricSnapshot>> metricSnapshotObservables = new HashMap<>();
+    private final Observable<BigDecimal> exchangeRateObservable;
+    private final Observable<BigDecimal> costsForWritingDataObservable;
+    private final Observable<BigDecimal> costsForRetrievingDataObservable;
+    private final Observable<BigDecimal> storageFeeObservable;
+
+    /**
+     * @param history   the history to replay
+     * @param scheduler the scheduler the history is replayed on
+     * @param tick      the time between two evictions of the blocks
+     */
+    public ReplayMetricCollector(BlockchainHistory history, Scheduler scheduler, Duration tick) {
+        this.history = history;
+        this.scheduler = scheduler;
+        statisticsObservable = replayBlocks(history.getBlocks())
+                .compose(new TimeEvictionBuffer(HORIZONS, scheduler, tick)
+                        .setClockTolerance(null)  // the recorded timestamps are the time of the replay
+                        .forBlockEventsAsWindows())
+                .map(snapshots -> {
+                    Map<Duration, IBlockStatistics> statisticsPerHorizon = new HashMap<>();
+                    for (Map.Entry<Duration, SlidingBlockWindow.Snapshot> snapshot : snapshots.entrySet()) {
+                        statisticsPerHorizon.put(snapshot.getKey(), snapshot.getValue());
+                    }
+                    return statisticsPerHorizon;
+                })
+                .toObservable()
+                .share()    // multicast
+                .replay(1)
+                .autoConnect();
+        for (Duration horizon : HORIZONS) {
+            metricSnapshotObservables.put(horizon, getBlockStatisticsObservable(horizon)
+                    .filter(statistics -> statistics.getNumberOfBlocks() > 0)
+                    .map(statistics -> createMetricSnapshot(horizon, statistics))
+                    .share()    // multicast
+                    .replay(1)
+                    .autoConnect());
+        }
+        exchangeRateObservable = replaySamples(history.getExchangeRates());
+        costsForWritingDataObservable = replaySamples(history.getCostsForWritingData());
+        costsForRetrievingDataObservable = replaySamples(history.getCostsForRetrievingData());
+        storageFeeObservable = replaySamples(history.getStorageFees());
+    }
+
+    /**
+     * @return the blocks, each one emitted at its timestamp
+     */
+    private Flowable<BlockEvent> replayBlocks(List<Block> blocks) {
+        return Flowable
+                .fromIterable(blocks)
+                .concatMap(block -> Flowable
+                        .just(BlockEvent.add(block))
+                        .delay(getDelay(block.getTimestamp()), TimeUnit.MILLISECONDS, scheduler));
+    }
+
+    /**
+     * @return the samples, each one emitted at the time it has been recorded at
+     */
+    private Observable<BigDecimal> replaySamples(NavigableMap<ZonedDateTime, BigDecimal> samples) {
+        return Observable
+                .fromIterable(samples.entrySet())
+                .concatMap(sample -> Observable
+                        .just(sample.getValue())
+                        .delay(getDelay(sample.getKey()), TimeUnit.MILLISECONDS, scheduler))
+                .share()    // multicast
+                .replay(1)
+                .autoConnect();
+    }
+
+    /**
+     * @return the time in milliseconds until <i>time</i> according to the clock of the scheduler, at least 0
+     */
+    private long getDelay(ZonedDateTime time) {
+        return Math.max(0, time.toInstant().toEpochMilli() - scheduler.now(TimeUnit.MILLISECONDS));
+    }
+
+    private MetricSnapshot createMetricSnapshot(Duration horizon, IBlockStatistics statistics) {
+        double hashesPerDifficulty = history.getHashesPerDifficulty();
+        return new MetricSnapshot(horizon, statistics.getVersion(), statistics.getNumberOfBlocks(),
+                statistics.isApproximate(),
+                1 / statistics.getBlockRate(), statistics.getBlockRateInterval().reciprocal(),
+                statistics.getTransactionRate(), statistics.getTransactionRateInterval(),
+                statistics.getDifficultyRate() * hashesPerDifficulty,
+                ConfidenceInterval.exact(statistics.getDifficultyRate() * hashesPerDifficulty),
+                statistics.getMiningDistribution(false));
+    }
+
+    @Override
+    public Observable<List<Block>> getBlockObservable(Duration horizon) {
+        return getBlockStatisticsObservable(horizon)
+                .map(statistics -> ((SlidingBlockWindow.Snapshot) statistics).getBlocks());
+    }
+
+    @Override
+    public Observable<IBlockStatistics> getBlockStatisticsObservable(Duration horizon) {
+        if (!HORIZONS.contains(horizon)) {
+            throw new IllegalArgumentException("Unsupported horizon: " + horizon);
+        }
+        return statisticsObservable
+                .map(statisticsPerHorizon -> statisticsPerHorizon.get(horizon))
+                .distinctUntilChanged();
+    }
+
+    @Override
+    public Observable<MetricSnapshot> getMetricSnapshotObservable(Duration horizon) {
+        if (!HORIZONS.contains(horizon)) {
+            throw new IllegalArgumentException("Unsupported horizon: " + horizon);
+        }
+        return metricSnapshotObservables.get(horizon);
+    }
+
+    @Override
+    public Observable<Double> getAvgBlockTimeObservable(Duration horizon) {
+        return getMetricSnapshotObservable(horizon)
+                .map(MetricSnapshot::getAvgBlockTime);
+    }
+
+    @Override
+    public Observable<Double> getTransactionThroughputObservable(Duration horizon) {
+        return getMetricSnapshotObservable(horizon)
+                .map(MetricSnapshot::getTransactionThroughput);
+    }
+
+    @Override
+    public Observable<MiningDistribution> getMiningDistributionObservable(Duration horizon) {
+        return getMetricSnapshotObservable(horizon)
+                .map(MetricSnapshot::getMiningDistribution);
+    }
+
+    @Override
+    public Observable<Double> getNetworkHashrateObservable(Duration horizon) {
+        return getMetricSnapshotObservable(horizon)
+                .map(MetricSnapshot::getNetworkHashrate);
+    }
+
+    @Override
+    public Observable<BigDecimal> getExchangeRateObservable() {
+        return exchangeRateObservable;
+    }
+
+    @Override
+    public Observable<BigDecimal> getCostsForWritingDataObservable() {
+        return costsForWritingDataObservable;
+    }
+
+    @Override
+    public Observable<BigDecimal> getCostsForRetrievingDataObservable() {
+        return costsForRetrievingDataObservable;
+    }
+
+    @Override
+    public Observable<BigDecimal> getStorageFeeObservable() {
+        return storageFeeObservable;
+    }
+
+}
@@ -0,0 +1,170 @@
+package com.ieee19.bc.interop.pf.core;
+
+import io.reactivex.Observable;
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subjects.BehaviorSubject;
+import io.reactivex.subjects.Subject;
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.handshake.ServerHandshake;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Base class for notifiers that subscribe to new blocks via a WebSocket connection.
+ * <p>
+ * As long as the subscription is not established (e.g. on startup, after a disconnect or after the endpoint rejected
+ * the subscription), new blocks are signaled by a fallback notifier (usually a {@link PollingNewBlockNotifier}), and
+ * the notifier tries to reconnect periodically.
+ */
+public abstract class AbstractWebSocketNewBlockNotifier implements INewBlockNotifier {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AbstractWebSocketNewBlockNotifier.class);
+
+    private final URI uri;
+    private final INewBlockNotifier fallbackNotifier;
+    private final long reconnectDelay;
+    private final TimeUnit unit;
+    private final Scheduler scheduler;
+
+    /**
+     * @param uri              the URI of the WebSocket endpoint
+     * @param fallbackNotifier the notifier to use while the WebSocket is disconnected
+     * @param reconnectDelay   the time to wait before reconnecting after a disconnect
+     * @param unit             the unit of <i>reconnectDelay</i>
+     */
+    protected AbstractWebSocketNewBlockNotifier(URI uri, INewBlockNotifier fallbackNotifier, long reconnectDelay,
+                                                TimeUnit unit) {
+        this(uri, fallbackNotifier, reconnectDelay, unit, Schedulers.io());
+    }
+
+    /**
+     * @param uri              the URI of the WebSocket endpoint
+     * @param fallbackNotifier the notifier to use while the WebSocket is disconnected
+     * @param reconnectDelay   the time to wait before reconnecting after a disconnect
+     * @param unit             the unit of <i>reconnectDelay</i>
+     * @param scheduler        the scheduler to wait for reconnects on
+     */
+    protected AbstractWebSocketNewBlockNotifier(URI uri, INewBlockNotifier fallbackNotifier, long reconnectDelay,
+                                                TimeUnit unit, Scheduler scheduler) {
+        this.uri = uri;
+        this.fallbackNotifier = fallbackNotifier;
+        this.reconnectDelay = reconnectDelay;
+        this.unit = unit;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * @return the message that subscribes to new blocks; it is sent as soon as the connection is established
+     */
+    protected abstract String createSubscribeMessage();
+
+    /**
+     * @return whether the endpoint confirms the subscription with a response. If so, the fallback notifier is only
+     * stopped once {@link #isSubscriptionConfirmation(String)} accepts a response, otherwise as soon as the subscribe
+     * message has been sent.
+     */
+    protected boolean isSubscriptionConfirmedByResponse() {
+        return false;
+    }
+
+    /**
+     * @param message a message received from the WebSocket endpoint before the subscription has been confirmed
+     * @return whether the message confirms the subscription
+     * @throws IOException if the message rejects the subscription or can't be parsed
+     */
+    protected boolean isSubscriptionConfirmation(String message) throws IOException {
+        return true;
+    }
+
+    /**
+     * @param message a message received from the WebSocket endpoint after the subscription has been established
+     * @return the height of the new block, or <i>null</i> if the message does not announce a new block
+     * @throws IOException if the message can't be parsed
+     */
+    protected abstract Long parseNewBlockHeight(String message) throws IOException;
+
+    @Override
+    public Observable<Long> getNewBlockHeightObservable() {
+        return Observable.defer(() -> {
+            Subject<Boolean> connected = BehaviorSubject.createDefault(false).toSerialized();
+
+            Observable<Long> pushedBlockHeights = createWebSocketObservable(connected)
+                    .retryWhen(errors -> errors
+                            .doOnNext(error -> LOG.warn("WebSocket " + uri + " disconnected (" + error.getMessage() +
+                                    "), reconnect in " + reconnectDelay + " " + unit))
+                            .delay(reconnectDelay, unit, scheduler));
+            Observable<Long> polledBlockHeights = connected
+                    .distinctUntilChanged()
+                    .switchMap(isConnected -> isConnected ?
+                            Observable.<Long>empty() : fallbackNotifier.getNewBlockHeightObservable());
+
+            return Observable.merge(pushedBlockHeights, polledBlockHeights);
+        });
+    }
+
+    private Observable<Long> createWebSocketObservable(Subject<Boolean> connected) {
+        return Observable.create(emitter -> {
+            WebSocketClient client = new WebSocketClient(uri) {
+
+                private volatile boolean subscribed;
+
+                @Override
+                public void onOpen(ServerHandshake handshake) {
+                    LOG.info("WebSocket " + uri + " connected");
+                    send(createSubscribeMessage());
+                    if (!isSubscriptionConfirmedByResponse()) {
+                        subscribed = true;
+                        connected.onNext(true);
+                    }
+                }
+
+                @Override
+                public void onMessage(String message) {
+                    if (!subscribed) {
+                        try {
+                            subscribed = isSubscriptionConfirmation(message);
+                        } catch (IOException e) {
+                            // closes the connection, the fallback notifier is used until the reconnect
+                            emitter.tryOnError(e);
+                            return;
+                        }
+                        if (subscribed) {
+                            LOG.info("WebSocket " + uri + " subscribed");
+                            connected.onNext(true);
+                        }
+                        return;
+                    }
+                    try {
+                        Long blockHeight = parseNewBlockHeight(message);
+                        if (blockHeight != null) {
+                            emitter.onNext(blockHeight);
+                        }
+                    } catch (IOException e) {
+                        LOG.warn("Failed to parse message " + message, e);
+                    }
+                }
+
+                @Override
+                public void onClose(int code, String reason, boolean remote) {
+                    connected.onNext(false);
+                    emitter.tryOnError(new IOException("Connection closed with code " + code + ": " + reason));
+                }
+
+                @Override
+                public void onError(Exception ex) {
+                    connected.onNext(false);
+                    emitter.tryOnError(ex);
+                }
+
+            };
+            emitter.setCancellable(client::close);
+            client.connect();
+        });
+    }
+
+}
@@ -0,0 +1,143 @@
+package com.ieee19.bc.interop.pf.core;
+
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.util.OptionalLong;
+
+/**
+ * This class limits the number of concurrent requests to a blockchain node with an additive increase/multiplicative
+ * decrease (AIMD) strategy.
+ * <p>
+ * As long as the latency of successful requests stays close to the lowest observed latency, the limit grows by about
+ * one request per round trip. If the node is overloaded (timeouts, HTTP 429 or 5xx), the limit is halved. Requests that
+ * have been started before the last decrease don't decrease the limit again, such that a burst of failures of
+ * concurrent requests only counts once.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final double LATENCY_TOLERANCE = 2.0;  // latency is considered flat up to 2 * min. latency + 1 ms
+    private static final long LATENCY_SLACK_NANOS = 1_000_000;
+    private static final double BACKOFF_RATIO = 0.5;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private double limit;
+    private int inFlight = 0;
+    private long minLatencyNanos = Long.MAX_VALUE;
+    private long lastDecreaseNanos = Long.MIN_VALUE;
+
+    /**
+     * @param initialLimit the initial number of concurrent requests
+     * @param minLimit     the min. number of concurrent requests
+     * @param maxLimit     the max. number of concurrent requests
+     */
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit < 1 || minLimit > maxLimit) {
+            throw new IllegalArgumentException("Invalid limits: min=" + minLimit + ", max=" + maxLimit);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * Blocks until a request may be started.
+     *
+     * @return the start time of the request which has to be passed to {@link #onSuccess(long)},
+     * {@link #onOverload(long)} or {@link #onError(long)} once the request has finished
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    public synchronized long acquire() throws InterruptedException {
+        while (inFlight >= (int) limit) {
+            wait();
+        }
+        inFlight++;
+        return System.nanoTime();
+    }
+
+    /**
+     * Starts a request if the limit allows it, without blocking.
+     *
+     * @return the start time of the request (see {@link #acquire()}), or an empty value if the limit has been reached
+     */
+    public synchronized OptionalLong tryAcquire() {
+        if (inFlight >= (int) limit) {
+            return OptionalLong.empty();
+        }
+        inFlight++;
+        return OptionalLong.of(System.nanoTime());
+    }
+
+    /**
+     * Has to be called if a request has succeeded.
+     *
+     * @param startNanos the start time returned by {@link #acquire()}
+     */
+    public synchronized void onSuccess(long startNanos) {
+        long latencyNanos = System.nanoTime() - startNanos;
+        minLatencyNanos = Math.min(minLatencyNanos, latencyNanos);
+        if (latencyNanos <= minLatencyNanos * LATENCY_TOLERANCE + LATENCY_SLACK_NANOS) {
+            limit = Math.min(maxLimit, limit + 1.0 / limit);
+        }
+        release();
+    }
+
+    /**
+     * Has to be called if a request has failed because the node is overloaded.
+     *
+     * @param startNanos the start time returned by {@link #acquire()}
+     */
+    public synchronized void onOverload(long startNanos) {
+        if (startNanos > lastDecreaseNanos) {
+            limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+            lastDecreaseNanos = System.nanoTime();
+        }
+        release();
+    }
+
+    /**
+     * Has to be called if a request has failed for any other reason than an overloaded node.
+     *
+     * @param startNanos the start time returned by {@link #acquire()}
+     */
+    public synchronized void onError(long startNanos) {
+        release();
+    }
+
+    /**
+     * @return the current max. number of concurrent requests
+     */
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    private void release() {
+        inFlight--;
+        notifyAll();
+    }
+
+    /**
+     * Checks whether <i>throwable</i> (or one of its causes) indicates an overloaded node, i.e. a timeout, a refused
+     * connection, HTTP status 429 (Too Many Requests) or a server error.
+     *
+     * @param throwable the error of a failed request
+     * @return <i>true</i> if the node is overloaded and the request should be retried later
+     */
+    public static boolean isOverload(Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof HttpStatusCodeException) {
+                int statusCode = ((HttpStatusCodeException) cause).getRawStatusCode();
+                return statusCode == 429 || statusCode >= 500;
+            }
+            if (cause instanceof ResourceAccessException || cause instanceof SocketTimeoutException ||
+                    cause instanceof ConnectException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,314 @@
+package com.ieee19.bc.interop.pf.core;
+
+import io.reactivex.schedulers.Schedulers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.OptionalLong;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * This class executes fetch tasks (e.g. the download of blocks) concurrently. The number of concurrent tasks is
+ * controlled by an {@link AdaptiveConcurrencyLimiter}. Tasks that fail because the node is overloaded are retried
+ * individually with an exponential backoff; any other error (or an exhausted retry budget) aborts the execution.
+ * <p>
+ * Tasks can either block a worker thread until they are done (see {@link #execute(Supplier, FetchTask, long, TimeUnit)})
+ * or return a {@link CompletableFuture} (see {@link #executeAsync(Supplier, AsyncFetchTask, long, TimeUnit)}); in the
+ * latter case, no thread is occupied while a task is waiting for the node.
+ */
+public class AdaptiveFetchExecutor {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AdaptiveFetchExecutor.class);
+    private static final int DEFAULT_MAX_CONCURRENCY = 64;
+    private static final int DEFAULT_MAX_ATTEMPTS = 5;
+    private static final long INITIAL_RETRY_DELAY_MILLIS = 500;
+
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final int maxConcurrency;
+    private final int maxAttempts;
+
+    /**
+     * @param initialConcurrency the initial number of concurrent tasks
+     */
+    public AdaptiveFetchExecutor(int initialConcurrency) {
+        this(initialConcurrency, Math.max(initialConcurrency, DEFAULT_MAX_CONCURRENCY), DEFAULT_MAX_ATTEMPTS);
+    }
+
+    /**
+     * @param initialConcurrency the initial number of concurrent tasks
+     * @param maxConcurrency     the max. number of concurrent tasks
+     * @param maxAttempts        the max. number of attempts per item
+     */
+    public AdaptiveFetchExecutor(int initialConcurrency, int maxConcurrency, int maxAttempts) {
+        this.limiter = new AdaptiveConcurrencyLimiter(initialConcurrency, 1, maxConcurrency);
+        this.maxConcurrency = maxConcurrency;
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Fetches all items supplied by <i>nextItem</i> until it returns <i>null</i> or a task signals that no further
+     * items are needed. Items that are already in progress (or waiting for a retry) are completed in both cases.
+     *
+     * @param nextItem supplies the next item to fetch, or <i>null</i> if there are no more items (is called
+     *                 concurrently)
+     * @param task     the task which fetches an item
+     * @param timeout  the max. time to wait for all tasks
+     * @param unit     the unit of <i>timeout</i>
+     * @param <T>      the type of the items
+     * @return <i>true</i> if all tasks have finished within <i>timeout</i>
+     * @throws Exception the error of the first task that failed permanently
+     */
+    public <T> boolean execute(Supplier<T> nextItem, FetchTask<T> task, long timeout, TimeUnit unit) throws Exception {
+        Queue<Attempt<T>> retries = new ConcurrentLinkedQueue<>();
+        AtomicBoolean exhausted = new AtomicBoolean(false);
+        AtomicReference<Exception> error = new AtomicReference<>();
+
+        Runnable worker = () -> {
+            try {
+                while (error.get() == null) {
+                    Attempt<T> attempt = retries.poll();  // failed items are retried first
+                    if (attempt == null) {
+                        T item = exhausted.get() ? null : nextItem.get();
+                        if (item == null) {
+                            exhausted.set(true);
+                            break;
+                        }
+                        attempt = new Attempt<>(item, 1, 0);
+                    }
+                    long delayMillis = attempt.notBeforeMillis - System.currentTimeMillis();
+                    if (delayMillis > 0) {
+                        Thread.sleep(delayMillis);
+                    }
+
+                    long startNanos = limiter.acquire();
+                    try {
+                        boolean continueFetching = task.fetch(attempt.item);
+                        limiter.onSuccess(startNanos);
+                        if (!continueFetching) {
+                            exhausted.set(true);
+                        }
+                    } catch (Exception e) {
+                        if (AdaptiveConcurrencyLimiter.isOverload(e) && attempt.number < maxAttempts) {
+                            limiter.onOverload(startNanos);
+                            long retryDelayMillis = INITIAL_RETRY_DELAY_MILLIS << (attempt.number - 1);
+                            LOG.warn("Failed to fetch " + attempt.item + " (attempt " + attempt.number + "), retry in " +
+                                    retryDelayMillis + " ms with max. " + limiter.getLimit() + " concurrent requests: " +
+                                    e.getMessage());
+                            retries.add(new Attempt<>(attempt.item, attempt.number + 1,
+                                    System.currentTimeMillis() + retryDelayMillis));
+                        } else {
+                            limiter.onError(startNanos);
+                            error.compareAndSet(null, e);
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        ExecutorService executorService = Executors.newFixedThreadPool(maxConcurrency);
+        for (int i = 0; i < maxConcurrency; i++) {
+            executorService.submit(worker);  // idle workers wait for the limiter
+        }
+        executorService.shutdown();
+        try {
+            boolean terminated = executorService.awaitTermination(timeout, unit);
+            if (error.get() != null) {
+                throw error.get();
+            }
+            return terminated;
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Fetches all items supplied by <i>nextItem</i> like {@link #execute(Supplier, FetchTask, long, TimeUnit)}, but
+     * with asynchronous tasks: a task is started as soon as the limiter allows it and the next one is started from the
+     * completion of a previous one, such that only the calling thread waits.
+     *
+     * @param nextItem supplies the next item to fetch, or <i>null</i> if there are no more items
+     * @param task     the task which fetches an item
+     * @param timeout  the max. time to wait for all tasks
+     * @param unit     the unit of <i>timeout</i>
+     * @param <T>      the type of the items
+     * @return <i>true</i> if all tasks have finished within <i>timeout</i>
+     * @throws Exception the error of the first task that failed permanently
+     */
+    public <T> boolean executeAsync(Supplier<T> nextItem, AsyncFetchTask<T> task, long timeout, TimeUnit unit)
+            throws Exception {
+        AsyncExecution<T> execution = new AsyncExecution<>(nextItem, task);
+        execution.dispatch();
+        boolean finished = execution.done.await(timeout, unit);
+        synchronized (execution) {
+            execution.stopped = true;  // tasks that are still running don't start further ones
+            if (execution.error != null) {
+                throw execution.error;
+            }
+        }
+        return finished;
+    }
+
+    /**
+     * A task which fetches an item.
+     *
+     * @param <T> the type of the items
+     */
+    @FunctionalInterface
+    public interface FetchTask<T> {
+
+        /**
+         * @param item the item to fetch
+         * @return <i>false</i> if no further items have to be fetched
+         * @throws Exception if the item can't be fetched
+         */
+        boolean fetch(T item) throws Exception;
+
+    }
+
+    /**
+     * A task which fetches an item asynchronously.
+     *
+     * @param <T> the type of the items
+     */
+    @FunctionalInterface
+    public interface AsyncFetchTask<T> {
+
+        /**
+         * @param item the item to fetch
+         * @return completes with <i>false</i> if no further items have to be fetched, or with the error if the item
+         * can't be fetched
+         */
+        CompletableFuture<Boolean> fetch(T item);
+
+    }
+
+    private class AsyncExecution<T> {
+
+        private final Supplier<T> nextItem;
+        private final AsyncFetchTask<T> task;
+        private final Deque<Attempt<T>> readyAttempts = new ArrayDeque<>();  // failed items are retried first
+        private final CountDownLatch done = new CountDownLatch(1);
+        private int running = 0;
+        private int delayedRetries = 0;
+        private boolean exhausted = false;
+        private boolean dispatching = false;
+        private boolean stopped = false;
+        private Exception error;
+
+        private AsyncExecution(Supplier<T> nextItem, AsyncFetchTask<T> task) {
+            this.nextItem = nextItem;
+            this.task = task;
+        }
+
+        /**
+         * Starts tasks until the limit has been reached or there are no more items. Tasks that complete synchronously
+         * call this method again, which is picked up by the running loop instead of growing the stack.
+         */
+        private synchronized void dispatch() {
+            if (dispatching) {
+                return;
+            }
+            dispatching = true;
+            try {
+                while (error == null && !stopped) {
+                    Attempt<T> attempt = readyAttempts.pollFirst();
+                    if (attempt == null && !exhausted) {
+                        T item = nextItem.get();
+                        if (item == null) {
+                            exhausted = true;
+                        } else {
+                            attempt = new Attempt<>(item, 1, 0);
+                        }
+                    }
+                    if (attempt == null) {
+                        break;
+                    }
+                    OptionalLong startNanos = limiter.tryAcquire();
+                    if (!startNanos.isPresent()) {
+                        readyAttempts.addFirst(attempt);
+                        break;
+                    }
+                    running++;
+                    start(attempt, startNanos.getAsLong());
+                }
+            } finally {
+                dispatching = false;
+            }
+            if (running == 0 && (error != null || (exhausted && delayedRetries == 0 && readyAttempts.isEmpty()))) {
+                done.countDown();
+            }
+        }
+
+        private void start(Attempt<T> attempt, long startNanos) {
+            CompletableFuture<Boolean> result;
+            try {
+                result = task.fetch(attempt.item);
+            } catch (RuntimeException e) {
+                result = new CompletableFuture<>();
+                result.completeExceptionally(e);
+            }
+            result.whenComplete((continueFetching, throwable) -> onCompleted(attempt, startNanos,
+                    continueFetching, Utils.unwrap(throwable)));
+        }
+
+        private synchronized void onCompleted(Attempt<T> attempt, long startNanos, Boolean continueFetching,
+                                              Throwable throwable) {
+            running--;
+            if (throwable == null) {
+                limiter.onSuccess(startNanos);
+                if (Boolean.FALSE.equals(continueFetching)) {
+                    exhausted = true;
+                }
+            } else if (AdaptiveConcurrencyLimiter.isOverload(throwable) && attempt.number < maxAttempts) {
+                limiter.onOverload(startNanos);
+                long retryDelayMillis = INITIAL_RETRY_DELAY_MILLIS << (attempt.number - 1);
+                LOG.warn("Failed to fetch " + attempt.item + " (attempt " + attempt.number + "), retry in " +
+                        retryDelayMillis + " ms with max. " + limiter.getLimit() + " concurrent requests: " +
+                        throwable.getMessage());
+                delayedRetries++;
+                Schedulers.computation().scheduleDirect(() -> {
+                    synchronized (this) {
+                        delayedRetries--;
+                        readyAttempts.addLast(new Attempt<>(attempt.item, attempt.number + 1, 0));
+                    }
+                    dispatch();
+                }, retryDelayMillis, TimeUnit.MILLISECONDS);
+            } else {
+                limiter.onError(startNanos);
+                if (error == null) {
+                    error = throwable instanceof Exception ? (Exception) throwable : new Exception(throwable);
+                }
+            }
+            dispatch();
+        }
+
+    }
+
+    private static class Attempt<T> {
+
+        private final T item;
+        private final int number;
+        private final long notBeforeMillis;
+
+        private Attempt(T item, int number, long notBeforeMillis) {
+            this.item = item;
+            this.number = number;
+            this.notBeforeMillis = notBeforeMillis;
+        }
+
+    }
+
+}
@@ -0,0 +1,199 @@
+package com.ieee19.bc.interop.pf.core;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.UnknownHttpStatusCodeException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class sends HTTP requests without blocking the calling thread: every request returns a
+ * {@link CompletableFuture} which is completed once the response has arrived.
+ * <p>
+ * The number of requests in flight is bounded per host and in total. Further requests are queued by the transport
+ * instead of parking a thread each, such that many blockchains can be followed with a small, fixed number of threads.
+ * Responses with an error status complete the future with the same exceptions a
+ * {@link org.springframework.web.client.RestTemplate} would throw (e.g. {@link HttpClientErrorException}), so errors
+ * are handled (and classified by {@link AdaptiveConcurrencyLimiter#isOverload(Throwable)}) like before.
+ * <p>
+ * Dependent stages of the returned futures run on the threads of the transport and must not block.
+ */
+public class AsyncHttpTransport {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncHttpTransport.class);
+    private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+    private static final int DEFAULT_MAX_REQUESTS_PER_HOST = 16;
+    private static final int DEFAULT_MAX_REQUESTS = 128;
+    private static final long READ_TIMEOUT_SECONDS = 60;
+    private static AsyncHttpTransport defaultTransport;
+
+    private final OkHttpClient client;
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    public AsyncHttpTransport() {
+        this(DEFAULT_MAX_REQUESTS_PER_HOST, DEFAULT_MAX_REQUESTS);
+    }
+
+    /**
+     * @param maxRequestsPerHost the max. number of requests in flight per host
+     * @param maxRequests        the max. number of requests in flight in total
+     */
+    public AsyncHttpTransport(int maxRequestsPerHost, int maxRequests) {
+        if (maxRequestsPerHost < 1 || maxRequests < maxRequestsPerHost) {
+            throw new IllegalArgumentException("Invalid limits: per host=" + maxRequestsPerHost + ", total=" +
+                    maxRequests);
+        }
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+        dispatcher.setMaxRequests(maxRequests);
+        this.client = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(maxRequestsPerHost, 5, TimeUnit.MINUTES))
+                .readTimeout(READ_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * @return the transport that is shared by all services which have not been given their own transport
+     */
+    public static synchronized AsyncHttpTransport getDefault() {
+        if (defaultTransport == null) {
+            defaultTransport = new AsyncHttpTransport();
+        }
+        return defaultTransport;
+    }
+
+    /**
+     * @param url the URL to call
+     * @return the body of the response
+     */
+    public CompletableFuture<String> get(String url) {
+        return execute(new Request.Builder().url(url).get().build());
+    }
+
+    /**
+     * @param url          the URL to call
+     * @param responseType the type the JSON response is mapped to
+     * @param <T>          the type of the response
+     * @return the mapped response
+     */
+    public <T> CompletableFuture<T> get(String url, Class<T> responseType) {
+        return get(url).thenApply(response -> readValue(url, response, responseType));
+    }
+
+    /**
+     * @param url  the URL to call
+     * @param body the object which is sent as JSON
+     * @return the body of the response
+     */
+    public CompletableFuture<String> post(String url, Object body) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            CompletableFuture<String> future = new CompletableFuture<>();
+            future.completeExceptionally(new RestClientException("Failed to write request body for POST " + url, e));
+            return future;
+        }
+        return execute(new Request.Builder().url(url).post(RequestBody.create(JSON, json)).build());
+    }
+
+    /**
+     * @return the number of requests that are in flight (the queued requests are not included)
+     */
+    public int getNumberOfRequestsInFlight() {
+        return client.dispatcher().runningCallsCount();
+    }
+
+    /**
+     * @return the number of requests that wait for a free slot of their host
+     */
+    public int getNumberOfQueuedRequests() {
+        return client.dispatcher().queuedCallsCount();
+    }
+
+    private CompletableFuture<String> execute(Request request) {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        Call call = client.newCall(request);
+        call.enqueue(new Callback() {
+
+            @Override
+            public void onFailure(Call call, IOException e) {
+                future.completeExceptionally(new ResourceAccessException("I/O error on " + request.method() + " " +
+                        request.url() + ": " + e.getMessage(), e));
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (ResponseBody responseBody = response.body()) {
+                    String body = responseBody == null ? "" : responseBody.string();
+                    if (response.isSuccessful()) {
+                        future.complete(body);
+                    } else {
+                        future.completeExceptionally(createStatusCodeException(response, body));
+                    }
+                } catch (IOException e) {
+                    onFailure(call, e);
+                } catch (RuntimeException e) {
+                    LOG.error("Failed to handle response of " + request.method() + " " + request.url(), e);
+                    future.completeExceptionally(e);
+                }
+            }
+
+        });
+        future.whenComplete((body, error) -> {
+            if (future.isCancelled()) {
+                call.cancel();
+            }
+        });
+        return future;
+    }
+
+    private <T> T readValue(String url, String response, Class<T> responseType) {
+        if (responseType == String.class) {
+            return responseType.cast(response);
+        }
+        try {
+            return objectMapper.readValue(response, responseType);
+        } catch (IOException e) {
+            throw new CompletionException(new RestClientException("Failed to read response of " + url, e));
+        }
+    }
+
+    private static RestClientException createStatusCodeException(Response response, String body) {
+        byte[] bodyBytes = body.getBytes(StandardCharsets.UTF_8);
+        HttpStatus status = HttpStatus.resolve(response.code());
+        if (status != null && status.is4xxClientError()) {
+            return new HttpClientErrorException(status, response.message(), bodyBytes, StandardCharsets.UTF_8);
+        }
+        if (status != null && status.is5xxServerError()) {
+            return new HttpServerErrorException(status, response.message(), bodyBytes, StandardCharsets.UTF_8);
+        }
+        return new UnknownHttpStatusCodeException(response.code(), response.message(), null, bodyBytes,
+                StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,535 @@
+package com.ieee19.bc.interop.pf.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class coordinates the download of all blocks of a time window (the backfill), from the most recent block
+ * downwards until a block is found that is older than the window. If the first height of the window has been determined
+ * beforehand (see {@link #findWindowStart(long, long, ZonedDateTime, TimestampFetcher)}), exactly the heights of the
+ * window are fetched and the progress of the backfill is logged together with the estimated remaining time.
+ * <p>
+ * The heights are fetched in ranges by an {@link AdaptiveFetchExecutor}, which retries overloaded requests. The
+ * coordinator keeps track of the completed ranges: if a range fails permanently, the round is aborted, and after a
+ * backoff only the missing ranges are fetched in the next round instead of starting over. The backfill is complete once
+ * the completed ranges cover the window without gaps.
+ * <p>
+ * A range is claimed while a task fetches it. If a round times out, the tasks that are still running aren't cancelled
+ * but complete in the background, so the next round only fetches the ranges that are neither completed nor claimed.
+ * Every range is therefore fetched by one task at a time and its blocks are delivered only once, provided that every
+ * task completes eventually, e.g. by the timeouts of its requests.
+ * <p>
+ * In stratified order (see {@link #setStratified(boolean)}), the ranges are not fetched from the top downwards, but in
+ * an order that spreads every prefix evenly over the window. The blocks fetched so far are then a stratified sample of
+ * the window, from which the metrics can be estimated long before the backfill is complete (see
+ * {@link SampledBackfillEstimator}).
+ */
+public class BackfillCoordinator {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BackfillCoordinator.class);
+    private static final int DEFAULT_MAX_ROUNDS = 5;
+    private static final long DEFAULT_INITIAL_RETRY_DELAY_MILLIS = 1000;
+    private static final int PROGRESS_LOG_STEP_PERCENT = 10;
+
+    private final long highestHeight;
+    private final int rangeSize;
+    private final int maxRounds;
+    private volatile long initialRetryDelayMillis;
+    private final NavigableMap<Long, Long> completedRanges = new TreeMap<>();  // from height -> to height (inclusive)
+    private final NavigableMap<Long, Long> claimedRanges = new TreeMap<>();  // ranges of the running tasks
+    private long lowestHeight;
+    private long startMillis = -1;
+    private int lastLoggedPercent = 0;
+    private volatile boolean stratified = false;
+
+    /**
+     * @param lowestHeight  the lowest height that may be part of the window, e.g. the height after the last checkpoint
+     * @param highestHeight the height of the most recent block
+     * @param rangeSize     the max. number of heights that are fetched by one task
+     */
+    public BackfillCoordinator(long lowestHeight, long highestHeight, int rangeSize) {
+        this(lowestHeight, highestHeight, rangeSize, DEFAULT_MAX_ROUNDS, DEFAULT_INITIAL_RETRY_DELAY_MILLIS);
+    }
+
+    /**
+     * @param lowestHeight            the lowest height that may be part of the window, e.g. the height after the last
+     *                                checkpoint
+     * @param highestHeight           the height of the most recent block
+     * @param rangeSize               the max. number of heights that are fetched by one task
+     * @param maxRounds               the max. number of rounds, i.e. how often the missing ranges are fetched again
+     *                                after a permanent failure
+     * @param initialRetryDelayMillis the delay before the second round, doubled for every further round
+     */
+    public BackfillCoordinator(long lowestHeight, long highestHeight, int rangeSize, int maxRounds,
+                               long initialRetryDelayMillis) {
+        if (rangeSize < 1 || maxRounds < 1) {
+            throw new IllegalArgumentException("Invalid range size " + rangeSize + " or max. rounds " + maxRounds);
+        }
+        this.lowestHeight = Math.max(0, lowestHeight);
+        this.highestHeight = highestHeight;
+        this.rangeSize = rangeSize;
+        this.maxRounds = maxRounds;
+        this.initialRetryDelayMillis = initialRetryDelayMillis;
+    }
+
+    /**
+     * Enables the stratified order: the missing ranges are fetched in bit-reversed order (the most recent range first,
+     * then the middle of the window, then the quarters and so on), such that the fetched heights are spread evenly over
+     * the window at any time. Requires that the first height of the window is known, since a task that reaches the
+     * beginning of the window doesn't stop the lower ranges anymore.
+     *
+     * @param stratified <i>true</i> to fetch the ranges in stratified order, <i>false</i> to fetch them from the most
+     *                   recent range downwards (default)
+     */
+    public void setStratified(boolean stratified) {
+        this.stratified = stratified;
+    }
+
+    /**
+     * @param retryDelay the delay before the second round, doubled for every further round
+     * @param unit       the unit of <i>retryDelay</i>
+     */
+    public void setRetryDelay(long retryDelay, TimeUnit unit) {
+        this.initialRetryDelayMillis = unit.toMillis(retryDelay);
+    }
+
+    /**
+     * Determines the first height of a time window with a binary search over the block timestamps, which needs about
+     * log2(<i>highestHeight</i> - <i>lowestHeight</i>) requests.
+     *
+     * @param lowestHeight  the lowest height to consider
+     * @param highestHeight the height of the most recent block
+     * @param windowStart   the beginning of the time window
+     * @param fetcher       fetches the timestamp of a block
+     * @return the lowest height whose block has been mined after <i>windowStart</i>, or <i>highestHeight</i> + 1 if
+     * no block has been mined since then
+     * @throws Exception if a timestamp can't be fetched
+     */
+    public static long findWindowStart(long lowestHeight, long highestHeight, ZonedDateTime windowStart,
+                                       TimestampFetcher fetcher) throws Exception {
+        long low = Math.max(0, lowestHeight);
+        long high = highestHeight + 1;
+        int requests = 0;
+        while (low < high) {
+            long middle = low + (high - low) / 2;
+            requests++;
+            if (fetcher.getTimestamp(middle).isAfter(windowStart)) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        LOG.info("First block after " + windowStart + " has height " + low + " (found with " + requests +
+                " requests)");
+        return low;
+    }
+
+    /**
+     * Fetches all missing ranges of the window (from the most recent range downwards) until the window is complete.
+     *
+     * @param executor the executor which runs the tasks
+     * @param task     the task which fetches a range of heights
+     * @param timeout  the max. time to wait for all rounds
+     * @param unit     the unit of <i>timeout</i>
+     * @return <i>true</i> if the window is complete, <i>false</i> if the timeout has elapsed or ranges of a previous
+     * call are still running (the next call resumes with the missing ranges)
+     * @throws Exception the last error if the window is still incomplete after <i>maxRounds</i> rounds
+     */
+    public boolean execute(AdaptiveFetchExecutor executor, RangeTask task, long timeout, TimeUnit unit)
+            throws Exception {
+        return executeRounds((pendingRanges, remainingMillis) -> executor.execute(
+                pendingRanges::poll,
+                range -> {
+                    claim(range);
+                    try {
+                        boolean continueFetching = task.fetch(range.getFrom(), range.getTo());
+                        onCompleted(range, !continueFetching);
+                        return continueFetching;
+                    } finally {
+                        release(range);
+                    }
+                },
+                remainingMillis, TimeUnit.MILLISECONDS), timeout, unit);
+    }
+
+    /**
+     * Fetches all missing ranges of the window like {@link #execute(AdaptiveFetchExecutor, RangeTask, long, TimeUnit)},
+     * but with asynchronous tasks (see {@link AdaptiveFetchExecutor#executeAsync}).
+     *
+     * @param executor the executor which runs the tasks
+     * @param task     the task which fetches a range of heights
+     * @param timeout  the max. time to wait for all rounds
+     * @param unit     the unit of <i>timeout</i>
+     * @return <i>true</i> if the window is complete, <i>false</i> if the timeout has elapsed or ranges of a previous
+     * call are still running
+     * @throws Exception the last error if the window is still incomplete after <i>maxRounds</i> rounds
+     */
+    public boolean executeAsync(AdaptiveFetchExecutor executor, AsyncRangeTask task, long timeout, TimeUnit unit)
+            throws Exception {
+        return executeRounds((pendingRanges, remainingMillis) -> executor.executeAsync(
+                pendingRanges::poll,
+                range -> {
+                    claim(range);
+                    CompletableFuture<Boolean> result;
+                    try {
+                        result = task.fetch(range.getFrom(), range.getTo());
+                    } catch (RuntimeException e) {
+                        release(range);
+                        throw e;
+                    }
+                    return result.whenComplete((continueFetching, throwable) -> {
+                        try {
+                            if (throwable == null) {
+                                onCompleted(range, !continueFetching);
+                            }
+                        } finally {
+                            release(range);
+                        }
+                    });
+                },
+                remainingMillis, TimeUnit.MILLISECONDS), timeout, unit);
+    }
+
+    private boolean executeRounds(Round round, long timeout, TimeUnit unit) throws Exception {
+        long deadlineMillis = System.currentTimeMillis() + unit.toMillis(timeout);
+        synchronized (this) {
+            if (startMillis < 0) {
+                startMillis = System.currentTimeMillis();
+            }
+        }
+        Exception lastError = null;
+        for (int roundNumber = 1; roundNumber <= maxRounds && !isComplete(); roundNumber++) {
+            if (lastError != null) {
+                long retryDelayMillis = initialRetryDelayMillis << (roundNumber - 2);
+                LOG.warn("Backfill round " + (roundNumber - 1) + " failed, fetch " + getMissingRanges().size() +
+                        " missing ranges in " + retryDelayMillis + " ms: " + lastError.getMessage());
+                Thread.sleep(retryDelayMillis);
+            }
+            long remainingMillis = deadlineMillis - System.currentTimeMillis();
+            if (remainingMillis <= 0) {
+                return false;
+            }
+
+            List<HeightRange> unclaimedRanges = getUnclaimedRanges();
+            Queue<HeightRange> pendingRanges = new ConcurrentLinkedQueue<>(
+                    stratified ? toStratifiedOrder(unclaimedRanges) : unclaimedRanges);
+            try {
+                boolean finished = round.run(pendingRanges, remainingMillis);
+                if (!finished) {
+                    return false;
+                }
+                lastError = null;
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                lastError = e;
+            }
+        }
+
+        if (lastError != null && !isComplete()) {
+            throw lastError;
+        }
+        return isComplete();
+    }
+
+    /**
+     * @return <i>true</i> if the completed ranges cover the whole window without gaps
+     */
+    public synchronized boolean isComplete() {
+        return getMissingRanges().isEmpty();
+    }
+
+    /**
+     * @return the ranges of the window that haven't been fetched yet, split into ranges of max. <i>rangeSize</i>
+     * heights and ordered from the most recent range downwards
+     */
+    public synchronized List<HeightRange> getMissingRanges() {
+        return getMissingRanges(completedRanges);
+    }
+
+    /**
+     * @return the missing ranges that aren't fetched by a running task, e.g. one of a round that has timed out
+     */
+    synchronized List<HeightRange> getUnclaimedRanges() {
+        NavigableMap<Long, Long> completedOrClaimedRanges = new TreeMap<>(completedRanges);
+        completedOrClaimedRanges.putAll(claimedRanges);
+        return getMissingRanges(completedOrClaimedRanges);
+    }
+
+    private List<HeightRange> getMissingRanges(NavigableMap<Long, Long> fetchedRanges) {
+        List<HeightRange> missingRanges = new ArrayList<>();
+        long to = highestHeight;
+        for (Map.Entry<Long, Long> fetchedRange : fetchedRanges.descendingMap().entrySet()) {
+            if (fetchedRange.getValue() < lowestHeight) {
+                break;
+            }
+            addMissingRanges(missingRanges, fetchedRange.getValue() + 1, to);
+            to = Math.min(to, fetchedRange.getKey() - 1);
+        }
+        addMissingRanges(missingRanges, lowestHeight, to);
+        return missingRanges;
+    }
+
+    /**
+     * @param ranges ranges ordered from the most recent range downwards
+     * @return the ranges in bit-reversed order of their indices, i.e. every prefix is spread evenly over the window
+     */
+    static List<HeightRange> toStratifiedOrder(List<HeightRange> ranges) {
+        int bits = 0;
+        while ((1 << bits) < ranges.size()) {
+            bits++;
+        }
+        List<HeightRange> stratifiedRanges = new ArrayList<>(ranges.size());
+        for (int i = 0; i < 1 << bits; i++) {
+            int index = bits == 0 ? 0 : Integer.reverse(i) >>> (Integer.SIZE - bits);
+            if (index < ranges.size()) {
+                stratifiedRanges.add(ranges.get(index));
+            }
+        }
+        return stratifiedRanges;
+    }
+
+    /**
+     * @param fromHeight the lowest height to consider
+     * @return the number of heights of the window between <i>fromHeight</i> and the height of the most recent block
+     * that haven't been fetched yet
+     */
+    public synchronized long getNumberOfMissingHeights(long fromHeight) {
+        long numberOfMissingHeights = 0;
+        for (HeightRange missingRange : getMissingRanges()) {
+            if (missingRange.getTo() >= fromHeight) {
+                numberOfMissingHeights += missingRange.getTo() - Math.max(fromHeight, missingRange.getFrom()) + 1;
+            }
+        }
+        return numberOfMissingHeights;
+    }
+
+    /**
+     * @param height a height of the window
+     * @return the number of consecutive heights directly below <i>height</i> that haven't been fetched yet, i.e. the
+     * size of the gap between <i>height</i> and the next lower fetched height (or the beginning of the window)
+     */
+    public synchronized long getNumberOfMissingHeightsBelow(long height) {
+        if (height <= lowestHeight) {
+            return 0;
+        }
+        Map.Entry<Long, Long> lowerRange = completedRanges.lowerEntry(height);
+        long lowestMissingHeight = lowerRange == null ? lowestHeight : Math.max(lowestHeight, lowerRange.getValue() + 1);
+        return Math.max(0, height - lowestMissingHeight);
+    }
+
+    /**
+     * @return the number of heights that have been fetched
+     */
+    public synchronized long getNumberOfFetchedHeights() {
+        long numberOfHeights = 0;
+        for (Map.Entry<Long, Long> completedRange : completedRanges.entrySet()) {
+            numberOfHeights += completedRange.getValue() - completedRange.getKey() + 1;
+        }
+        return numberOfHeights;
+    }
+
+    /**
+     * @return the share of the window that has been fetched (between 0 and 1); only exact if the first height of the
+     * window has been known in advance
+     */
+    public synchronized double getProgress() {
+        long numberOfHeights = highestHeight - lowestHeight + 1;
+        if (numberOfHeights <= 0) {
+            return 1;
+        }
+        long numberOfMissingHeights = 0;
+        for (HeightRange missingRange : getMissingRanges()) {
+            numberOfMissingHeights += missingRange.getTo() - missingRange.getFrom() + 1;
+        }
+        return (double) (numberOfHeights - numberOfMissingHeights) / numberOfHeights;
+    }
+
+    /**
+     * @return the estimated time until the window is complete (extrapolated from the elapsed time), or <i>null</i>
+     * if nothing has been fetched yet
+     */
+    public synchronized Duration getEstimatedRemainingTime() {
+        double progress = getProgress();
+        if (startMillis < 0 || progress <= 0) {
+            return null;
+        }
+        long elapsedMillis = System.currentTimeMillis() - startMillis;
+        return Duration.ofMillis((long) (elapsedMillis * (1 - progress) / progress));
+    }
+
+    /**
+     * @return the height of the most recent block when the backfill has been started
+     */
+    public long getHighestHeight() {
+        return highestHeight;
+    }
+
+    /**
+     * @return the lowest height of the window, which is raised as soon as a task has reached the beginning of the window
+     */
+    public synchronized long getLowestHeight() {
+        return lowestHeight;
+    }
+
+    private void addMissingRanges(List<HeightRange> missingRanges, long from, long to) {
+        for (long rangeTo = to; rangeTo >= from; rangeTo -= rangeSize) {
+            missingRanges.add(new HeightRange(Math.max(from, rangeTo - rangeSize + 1), rangeTo));
+        }
+    }
+
+    private synchronized void claim(HeightRange range) {
+        claimedRanges.put(range.getFrom(), range.getTo());
+    }
+
+    private synchronized void release(HeightRange range) {
+        claimedRanges.remove(range.getFrom(), range.getTo());
+    }
+
+    private synchronized void onCompleted(HeightRange range, boolean reachedWindowStart) {
+        if (reachedWindowStart) {
+            lowestHeight = Math.max(lowestHeight, range.getFrom());
+        }
+
+        // merge the range with adjacent completed ranges
+        long from = range.getFrom();
+        long to = range.getTo();
+        Map.Entry<Long, Long> lowerRange = completedRanges.floorEntry(from);
+        if (lowerRange != null && lowerRange.getValue() >= from - 1) {
+            from = lowerRange.getKey();
+            to = Math.max(to, lowerRange.getValue());
+        }
+        Map.Entry<Long, Long> higherRange = completedRanges.ceilingEntry(from);
+        while (higherRange != null && higherRange.getKey() <= to + 1) {
+            to = Math.max(to, higherRange.getValue());
+            completedRanges.remove(higherRange.getKey());
+            higherRange = completedRanges.higherEntry(from);
+        }
+        completedRanges.put(from, to);
+        logProgress();
+    }
+
+    private void logProgress() {
+        int percent = (int) (getProgress() * 100);
+        if (percent >= lastLoggedPercent + PROGRESS_LOG_STEP_PERCENT) {
+            lastLoggedPercent = percent - percent % PROGRESS_LOG_STEP_PERCENT;
+            Duration remainingTime = getEstimatedRemainingTime();
+            LOG.info("Backfill " + percent + "% complete (" + getNumberOfFetchedHeights() + " of " +
+                    (highestHeight - lowestHeight + 1) + " blocks), ETA " +
+                    (remainingTime == null ? "unknown" : remainingTime.getSeconds() + " s"));
+        }
+    }
+
+    /**
+     * A task which fetches a range of heights.
+     */
+    @FunctionalInterface
+    public interface RangeTask {
+
+        /**
+         * @param fromHeight the lowest height of the range
+         * @param toHeight   the highest height of the range
+         * @return <i>false</i> if the range contains a block that is older than the window, i.e. no lower ranges have
+         * to be fetched
+         * @throws Exception if the range can't be fetched
+         */
+        boolean fetch(long fromHeight, long toHeight) throws Exception;
+
+    }
+
+    /**
+     * A task which fetches a range of heights asynchronously.
+     */
+    @FunctionalInterface
+    public interface AsyncRangeTask {
+
+        /**
+         * @param fromHeight the lowest height of the range
+         * @param toHeight   the highest height of the range
+         * @return completes with <i>false</i> if the range contains a block that is older than the window, or with the
+         * error if the range can't be fetched
+         */
+        CompletableFuture<Boolean> fetch(long fromHeight, long toHeight);
+
+    }
+
+    /**
+     * Runs one round, i.e. fetches the pending ranges with an {@link AdaptiveFetchExecutor}.
+     */
+    @FunctionalInterface
+    private interface Round {
+
+        boolean run(Queue<HeightRange> pendingRanges, long remainingMillis) throws Exception;
+
+    }
+
+    /**
+     * Fetches the timestamp of a block.
+     */
+    @FunctionalInterface
+    public interface TimestampFetcher {
+
+        /**
+         * @param height the height of the block
+         * @return the timestamp of the block
+         * @throws Exception if the timestamp can't be fetched
+         */
+        ZonedDateTime getTimestamp(long height) throws Exception;
+
+    }
+
+    /**
+     * A range of heights (both inclusive).
+     */
+    public static class HeightRange {
+
+        private final long from;
+        private final long to;
+
+        public HeightRange(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        public long getFrom() {
+            return from;
+        }
+
+        public long getTo() {
+            return to;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof HeightRange)) return false;
+            HeightRange that = (HeightRange) o;
+            return from == that.from && to == that.to;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(from, to);
+        }
+
+        @Override
+        public String toString() {
+            return "[" + from + ", " + to + "]";
+        }
+
+    }
+
+}
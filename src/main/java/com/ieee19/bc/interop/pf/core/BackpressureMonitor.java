@@ -0,0 +1,103 @@
+package com.ieee19.bc.interop.pf.core;
+
+import io.reactivex.FlowableTransformer;
+import io.reactivex.Scheduler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class provides the bounded backpressure handling of a metric collector and counts how often it takes effect,
+ * such that the buffers can be sized from data:
+ * <ul>
+ * <li>Streams where every item matters (e.g. block events) are buffered up to a fixed capacity. If a stalled consumer
+ * lets the buffer overflow, the stream fails instead of growing without limit (see {@link #buffer(int)}).</li>
+ * <li>Streams where only the newest item matters (e.g. metric snapshots) are conflated: an item that hasn't been
+ * requested yet is replaced by its successor (see {@link #conflate(Scheduler)}).</li>
+ * </ul>
+ * This class is thread-safe.
+ */
+public class BackpressureMonitor {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BackpressureMonitor.class);
+
+    private final String name;
+    private final AtomicLong overflowCount = new AtomicLong();
+    private final AtomicLong bufferedCount = new AtomicLong();
+    private final AtomicLong maxBufferedCount = new AtomicLong();
+    private final AtomicLong receivedCount = new AtomicLong();
+    private final AtomicLong deliveredCount = new AtomicLong();
+
+    /**
+     * @param name the name of the monitored streams, e.g. the name of the blockchain, used for logging
+     */
+    public BackpressureMonitor(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @param capacity the max. number of items that are buffered for a slow consumer (rounded up to the next power of
+     *                 two)
+     * @param <T>      the type of the items
+     * @return a transformer which buffers up to <i>capacity</i> items and signals a
+     * {@link io.reactivex.exceptions.MissingBackpressureException} once the buffer overflows
+     */
+    public <T> FlowableTransformer<T, T> buffer(int capacity) {
+        return upstream -> upstream
+                .doOnNext(item -> maxBufferedCount.accumulateAndGet(bufferedCount.incrementAndGet(), Math::max))
+                .onBackpressureBuffer(capacity, () -> {
+                    overflowCount.incrementAndGet();
+                    LOG.error(name + ": buffer of " + capacity + " items overflowed, the consumer has stalled");
+                })
+                .doOnNext(item -> bufferedCount.decrementAndGet());
+    }
+
+    /**
+     * @param scheduler the scheduler on which the items are delivered, such that the producer is never blocked by the
+     *                  consumer
+     * @param <T>       the type of the items
+     * @return a transformer which only keeps the newest item that hasn't been requested yet
+     */
+    public <T> FlowableTransformer<T, T> conflate(Scheduler scheduler) {
+        return upstream -> upstream
+                .doOnNext(item -> receivedCount.incrementAndGet())
+                .onBackpressureLatest()
+                .observeOn(scheduler, false, 1)
+                .doOnNext(item -> deliveredCount.incrementAndGet());
+    }
+
+    /**
+     * @return how often a buffer has overflowed
+     */
+    public long getOverflowCount() {
+        return overflowCount.get();
+    }
+
+    /**
+     * @return the max. number of items that have been waiting for the consumer at the same time, including an item
+     * that has overflowed the buffer
+     */
+    public long getMaxBufferedCount() {
+        return maxBufferedCount.get();
+    }
+
+    /**
+     * @return the number of items that have been replaced by a newer item before they have been requested (including
+     * at most one item per stream that is still pending)
+     */
+    public long getConflationCount() {
+        return receivedCount.get() - deliveredCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return "BackpressureMonitor{" +
+                "name='" + name + '\'' +
+                ", overflowCount=" + getOverflowCount() +
+                ", maxBufferedCount=" + getMaxBufferedCount() +
+                ", conflationCount=" + getConflationCount() +
+                '}';
+    }
+
+}
@@ -0,0 +1,447 @@
+package com.ieee19.bc.interop.pf.core;
+
+import com.ieee19.bc.interop.pf.core.model.Block;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.ZonedDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * This class persists the blocks of the monitored blockchains such that a metric collector can restore its block window
+ * after a restart instead of downloading all blocks again.
+ * <p>
+ * The blocks of each chain are appended as compact binary records to memory-mapped segment files in a separate
+ * directory per chain identifier. A checkpoint record marks that all blocks up to a certain height have been stored;
+ * blocks above the last checkpoint are ignored when the window is restored. Segments that only contain blocks older
+ * than the window are deleted by {@link #compact(String, ZonedDateTime)}.
+ * <p>
+ * The store is best effort: I/O errors are logged, and a chain whose blocks could not be stored completely does not
+ * get any further checkpoints.
+ */
+public class BlockCheckpointStore implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BlockCheckpointStore.class);
+    private static final int DEFAULT_SEGMENT_SIZE = 256 * 1024;  // 256 KiB
+    private static final String SEGMENT_FILE_SUFFIX = ".seg";
+
+    private static final byte END_OF_SEGMENT = 0;   // the unused part of a segment is zero-filled
+    private static final byte BLOCK_RECORD = 1;
+    private static final byte CHECKPOINT_RECORD = 2;
+
+    private static final byte PLAIN_STRING = 0;
+    private static final byte HEX_STRING = 1;
+    private static final byte PREFIXED_HEX_STRING = 2;  // hex string with "0x" prefix
+    private static final byte NULL_STRING = 3;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final Map<String, ChainSegments> chains = new HashMap<>();
+
+    /**
+     * @param directory the directory the segment files are stored in
+     */
+    public BlockCheckpointStore(Path directory) {
+        this(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * @param directory   the directory the segment files are stored in
+     * @param segmentSize the size of a segment file in bytes
+     */
+    public BlockCheckpointStore(Path directory, int segmentSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Appends a block of the given chain to the store. The block becomes visible to {@link #load(String, ZonedDateTime)}
+     * as soon as a checkpoint with a height greater than or equal to the block's height is written.
+     *
+     * @param chainIdentifier the identifier of the chain
+     * @param block           the block to append
+     */
+    public synchronized void append(String chainIdentifier, Block block) {
+        ChainSegments chain = getChain(chainIdentifier);
+        if (chain == null) {
+            return;
+        }
+        try {
+            chain.write(BLOCK_RECORD, encodeBlock(block), block.getTimestamp().toEpochSecond());
+        } catch (IOException | RuntimeException e) {
+            LOG.error("Failed to store block " + block.getHeight() + " of " + chainIdentifier, e);
+            chain.incomplete = true;
+        }
+    }
+
+    /**
+     * Marks that all blocks of the given chain up to <i>height</i> (inclusive) have been appended.
+     *
+     * @param chainIdentifier the identifier of the chain
+     * @param height          the height of the checkpoint
+     */
+    public synchronized void checkpoint(String chainIdentifier, long height) {
+        ChainSegments chain = getChain(chainIdentifier);
+        if (chain == null || height <= chain.checkpointHeight) {
+            return;
+        }
+        if (chain.incomplete) {
+            LOG.warn("Skip checkpoint " + height + " of " + chainIdentifier + " since some blocks could not be stored");
+            return;
+        }
+        try {
+            chain.write(CHECKPOINT_RECORD, encodeCheckpoint(height), Long.MIN_VALUE);
+            chain.activeSegment.force();
+            chain.checkpointHeight = height;
+        } catch (IOException | RuntimeException e) {
+            LOG.error("Failed to store checkpoint " + height + " of " + chainIdentifier, e);
+        }
+    }
+
+    /**
+     * @param chainIdentifier the identifier of the chain
+     * @return the height of the last checkpoint of the given chain or -1 if there is no checkpoint
+     */
+    public synchronized long getCheckpointHeight(String chainIdentifier) {
+        ChainSegments chain = getChain(chainIdentifier);
+        return chain == null ? -1 : chain.checkpointHeight;
+    }
+
+    /**
+     * Returns all blocks of the given chain that are covered by the last checkpoint and have been mined after
+     * <i>from</i>. If a height has been stored multiple times (e.g. after a reorganization), the latest block wins.
+     *
+     * @param chainIdentifier the identifier of the chain
+     * @param from            the start of the block window
+     * @return the blocks ordered by height
+     */
+    public synchronized List<Block> load(String chainIdentifier, ZonedDateTime from) {
+        ChainSegments chain = getChain(chainIdentifier);
+        if (chain == null) {
+            return new ArrayList<>();
+        }
+        Map<Long, Block> blocksByHeight = new TreeMap<>();
+        try {
+            for (Segment segment : chain.segments) {
+                ByteBufferReader reader = new ByteBufferReader(segment.map(segmentSize));
+                byte type;
+                while ((type = reader.nextRecordType()) != END_OF_SEGMENT) {
+                    if (type == BLOCK_RECORD) {
+                        Block block = decodeBlock(reader);
+                        if (block.getHeight() <= chain.checkpointHeight && block.getTimestamp().isAfter(from)) {
+                            blocksByHeight.put(block.getHeight(), block);
+                        }
+                    } else {
+                        reader.skipRecord();
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            LOG.error("Failed to load blocks of " + chainIdentifier, e);
+            return new ArrayList<>();
+        }
+        LOG.info("Loaded " + blocksByHeight.size() + " blocks of " + chainIdentifier + " up to height " +
+                chain.checkpointHeight);
+        return new ArrayList<>(blocksByHeight.values());
+    }
+
+    /**
+     * Deletes all segments of the given chain that only contain blocks that have been mined before <i>from</i>.
+     *
+     * @param chainIdentifier the identifier of the chain
+     * @param from            the start of the block window
+     */
+    public synchronized void compact(String chainIdentifier, ZonedDateTime from) {
+        ChainSegments chain = getChain(chainIdentifier);
+        if (chain == null) {
+            return;
+        }
+        long fromEpochSecond = from.toEpochSecond();
+        List<Segment> outdatedSegments = chain.segments
+                .stream()
+                .filter(segment -> segment != chain.segments.get(chain.segments.size() - 1))  // keep active segment
+                .filter(segment -> segment.newestBlockEpochSecond < fromEpochSecond)
+                .collect(Collectors.toList());
+        if (outdatedSegments.isEmpty()) {
+            return;
+        }
+
+        try {
+            if (chain.checkpointHeight >= 0) {
+                // the last checkpoint record might be contained in one of the deleted segments
+                chain.write(CHECKPOINT_RECORD, encodeCheckpoint(chain.checkpointHeight), Long.MIN_VALUE);
+                chain.activeSegment.force();
+            }
+            for (Segment segment : outdatedSegments) {
+                Files.deleteIfExists(segment.path);
+                chain.segments.remove(segment);
+            }
+            LOG.info("Deleted " + outdatedSegments.size() + " outdated segments of " + chainIdentifier);
+        } catch (IOException | RuntimeException e) {
+            LOG.error("Failed to compact segments of " + chainIdentifier, e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        for (ChainSegments chain : chains.values()) {
+            if (chain != null && chain.activeSegment != null) {
+                chain.activeSegment.force();
+            }
+        }
+        chains.clear();
+    }
+
+    private ChainSegments getChain(String chainIdentifier) {
+        if (!chains.containsKey(chainIdentifier)) {
+            ChainSegments chain = null;
+            try {
+                chain = openChain(directory.resolve(chainIdentifier.replaceAll("[^A-Za-z0-9._-]", "_")));
+            } catch (IOException | RuntimeException e) {
+                LOG.error("Failed to open checkpoint store of " + chainIdentifier, e);
+            }
+            chains.put(chainIdentifier, chain);  // null if the chain can't be stored
+        }
+        return chains.get(chainIdentifier);
+    }
+
+    private ChainSegments openChain(Path chainDirectory) throws IOException {
+        Files.createDirectories(chainDirectory);
+        ChainSegments chain = new ChainSegments(chainDirectory);
+
+        List<Path> segmentFiles;
+        try (Stream<Path> files = Files.list(chainDirectory)) {
+            segmentFiles = files
+                    .filter(path -> path.getFileName().toString().endsWith(SEGMENT_FILE_SUFFIX))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+        for (Path segmentFile : segmentFiles) {
+            Segment segment = new Segment(segmentFile);
+            ByteBufferReader reader = new ByteBufferReader(segment.map(segmentSize));
+            byte type;
+            while ((type = reader.nextRecordType()) != END_OF_SEGMENT) {
+                if (type == BLOCK_RECORD) {
+                    Block block = decodeBlock(reader);
+                    segment.newestBlockEpochSecond = Math.max(segment.newestBlockEpochSecond,
+                            block.getTimestamp().toEpochSecond());
+                } else if (type == CHECKPOINT_RECORD) {
+                    chain.checkpointHeight = Math.max(chain.checkpointHeight, reader.buffer.getLong());
+                } else {
+                    reader.skipRecord();
+                }
+            }
+            segment.writePosition = reader.buffer.position();
+            chain.segments.add(segment);
+        }
+        return chain;
+    }
+
+    private static byte[] encodeBlock(Block block) {
+        ByteBufferWriter writer = new ByteBufferWriter();
+        writer.buffer.putLong(block.getHeight());
+        writer.buffer.putLong(block.getTimestamp().toEpochSecond());
+        writer.buffer.putInt(block.getNumberOfTransactions());
+        writer.buffer.putDouble(block.getDifficulty());
+        writer.putString(block.getHash());
+        writer.putString(block.getPreviousBlockHash());
+        writer.putString(block.getMinerAddress());
+        writer.buffer.putShort((short) block.getUncleBlocks().size());
+        for (Block uncleBlock : block.getUncleBlocks()) {
+            writer.buffer.putLong(uncleBlock.getHeight());
+            writer.buffer.putLong(uncleBlock.getTimestamp() == null ? 0 : uncleBlock.getTimestamp().toEpochSecond());
+            writer.buffer.putDouble(uncleBlock.getDifficulty());
+            writer.putString(uncleBlock.getHash());
+            writer.putString(uncleBlock.getMinerAddress());
+        }
+        return writer.toByteArray();
+    }
+
+    private static Block decodeBlock(ByteBufferReader reader) {
+        Block block = new Block();
+        block.setHeight(reader.buffer.getLong());
+        block.setTimestamp(Utils.convertUnixEpochTime(reader.buffer.getLong()));
+        block.setNumberOfTransactions(reader.buffer.getInt());
+        block.setDifficulty(reader.buffer.getDouble());
+        block.setHash(reader.getString());
+        block.setPreviousBlockHash(reader.getString());
+        block.setMinerAddress(reader.getString());
+        int numberOfUncleBlocks = reader.buffer.getShort();
+        for (int i = 0; i < numberOfUncleBlocks; i++) {
+            Block uncleBlock = new Block();
+            uncleBlock.setHeight(reader.buffer.getLong());
+            uncleBlock.setTimestamp(Utils.convertUnixEpochTime(reader.buffer.getLong()));
+            uncleBlock.setDifficulty(reader.buffer.getDouble());
+            uncleBlock.setHash(reader.getString());
+            uncleBlock.setMinerAddress(reader.getString());
+            block.getUncleBlocks().add(uncleBlock);
+        }
+        return block;
+    }
+
+    private static byte[] encodeCheckpoint(long height) {
+        ByteBufferWriter writer = new ByteBufferWriter();
+        writer.buffer.putLong(height);
+        return writer.toByteArray();
+    }
+
+    /**
+     * The segments of one chain; the last segment is the active segment new records are appended to.
+     */
+    private class ChainSegments {
+
+        private final Path directory;
+        private final List<Segment> segments = new ArrayList<>();
+        private MappedByteBuffer activeSegment;
+        private long checkpointHeight = -1;
+        private boolean incomplete = false;
+
+        private ChainSegments(Path directory) {
+            this.directory = directory;
+        }
+
+        private void write(byte type, byte[] payload, long blockEpochSecond) throws IOException {
+            int recordSize = 1 + 4 + payload.length;
+            if (recordSize >= segmentSize) {
+                throw new IOException("Record of " + recordSize + " bytes exceeds segment size");
+            }
+            Segment segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+            if (segment == null || segment.writePosition + recordSize >= segmentSize) {
+                segment = new Segment(directory.resolve(String.format("%010d", segments.isEmpty() ? 0 :
+                        segments.get(segments.size() - 1).sequenceNumber() + 1) + SEGMENT_FILE_SUFFIX));
+                segments.add(segment);
+                activeSegment = null;
+            }
+            if (activeSegment == null) {
+                activeSegment = segment.map(segmentSize);
+            }
+
+            activeSegment.position(segment.writePosition);
+            activeSegment.put(type);
+            activeSegment.putInt(payload.length);
+            activeSegment.put(payload);
+            segment.writePosition = activeSegment.position();
+            segment.newestBlockEpochSecond = Math.max(segment.newestBlockEpochSecond, blockEpochSecond);
+        }
+
+    }
+
+    private static class Segment {
+
+        private final Path path;
+        private int writePosition = 0;
+        private long newestBlockEpochSecond = Long.MIN_VALUE;
+
+        private Segment(Path path) {
+            this.path = path;
+        }
+
+        private long sequenceNumber() {
+            String fileName = path.getFileName().toString();
+            return Long.parseLong(fileName.substring(0, fileName.length() - SEGMENT_FILE_SUFFIX.length()));
+        }
+
+        private MappedByteBuffer map(int segmentSize) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE)) {
+                return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            }
+        }
+
+    }
+
+    private static class ByteBufferWriter {
+
+        private final ByteBuffer buffer = ByteBuffer.allocate(1024);
+
+        private void putString(String str) {
+            if (str == null) {
+                buffer.put(NULL_STRING);
+                return;
+            }
+            boolean prefixed = str.startsWith("0x");
+            String hex = prefixed ? str.substring(2) : str;
+            if (hex.length() % 2 == 0 && hex.matches("[0-9a-f]*")) {
+                // hashes and addresses are stored as bytes instead of hex strings
+                byte[] bytes = new byte[hex.length() / 2];
+                for (int i = 0; i < bytes.length; i++) {
+                    bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+                }
+                buffer.put(prefixed ? PREFIXED_HEX_STRING : HEX_STRING);
+                putBytes(bytes);
+            } else {
+                buffer.put(PLAIN_STRING);
+                putBytes(str.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        private void putBytes(byte[] bytes) {
+            buffer.putShort((short) bytes.length);
+            buffer.put(bytes);
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(buffer.array(), buffer.position());
+        }
+
+    }
+
+    private static class ByteBufferReader {
+
+        private final ByteBuffer buffer;
+        private int recordEnd;
+
+        private ByteBufferReader(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        private byte nextRecordType() {
+            if (recordEnd > 0) {
+                buffer.position(recordEnd);
+            }
+            if (buffer.remaining() < 5) {
+                return END_OF_SEGMENT;
+            }
+            buffer.mark();
+            byte type = buffer.get();
+            if (type == END_OF_SEGMENT) {
+                buffer.reset();
+                return END_OF_SEGMENT;
+            }
+            int length = buffer.getInt();
+            recordEnd = buffer.position() + length;
+            return type;
+        }
+
+        private void skipRecord() {
+            buffer.position(recordEnd);
+        }
+
+        private String getString() {
+            byte encoding = buffer.get();
+            if (encoding == NULL_STRING) {
+                return null;
+            }
+            byte[] bytes = new byte[buffer.getShort()];
+            buffer.get(bytes);
+            if (encoding == PLAIN_STRING) {
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+            String hex = Utils.encodeHex(bytes);
+            return encoding == PREFIXED_HEX_STRING ? "0x" + hex : hex;
+        }
+
+    }
+
+}
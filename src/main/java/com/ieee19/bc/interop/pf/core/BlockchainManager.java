@@ -4,6 +4,11 @@ import com.ieee19.bc.interop.pf.core.exception.DataReadingFailedException;
 import com.ieee19.bc.interop.pf.core.exception.DataWritingFailedException;
 import com.ieee19.bc.interop.pf.core.model.*;
 import io.reactivex.Observable;
+import io.reactivex.ObservableEmitter;
+import io.reactivex.Observer;
+import io.reactivex.Scheduler;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.schedulers.Schedulers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -11,6 +16,7 @@ import java.math.BigDecimal;
 import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
@@ -31,7 +37,11 @@ public class BlockchainManager {
     private List<String> dataBuffer = new ArrayList<>();
     private boolean isSwitchover = false;
     private Object switchOverLock = new Object();
-    private Map<String, Observable<BlockchainCalculationResult>> bcCalculationResultObservables = new HashMap<>();
+    private Map<String, Observable<BlockchainCalculationResult>> bcCalculationResultObservables = new ConcurrentHashMap<>();
+    private final Object rankingLock = new Object();  // guards the blockchains and the ranking subscriptions
+    private ObservableEmitter<RankingUpdate> rankingEmitter;  // null as long as the ranking isn't subscribed
+    private Map<String, RankingAttachment> rankingAttachments = new HashMap<>();
+    private Scheduler scheduler;  // null: the default schedulers of the time based operators
 
     private BlockchainManager() {
     }
@@ -117,7 +127,9 @@ public class BlockchainManager {
 
         return metricObservable
                 .map(validationFn::apply)
-                .compose(new ThresholdViolationOperator(timeSpan, timeUnit));
+                .compose(scheduler == null ?
+                        new ThresholdViolationOperator(timeSpan, timeUnit) :
+                        new ThresholdViolationOperator(timeSpan, timeUnit, scheduler));
     }
 
     /**
@@ -208,12 +220,23 @@ public class BlockchainManager {
     }
 
     /**
-     * Adds a blockchain.
+     * Adds a blockchain. If the manager has already been built, the blockchain is attached to the running ranking
+     * without resubscribing the other blockchains and joins it with its first calculation result.
      *
      * @param blockchain the blockchain to add.
      */
     public BlockchainManager addBlockchain(BlockchainMetaData blockchain) {
-        blockchains.add(blockchain);
+        synchronized (rankingLock) {
+            if (!blockchains.add(blockchain) || switchoverSuggestionObservable == null) {
+                return this;
+            }
+            Observable<BlockchainCalculationResult> calculationResultObservable =
+                    createBlockchainCalculationResultObservable(blockchain);
+            bcCalculationResultObservables.put(blockchain.getIdentifier(), calculationResultObservable);
+            if (rankingEmitter != null) {
+                attachToRanking(blockchain, calculationResultObservable, rankingEmitter);
+            }
+        }
         return this;
     }
 
@@ -223,7 +246,30 @@ public class BlockchainManager {
      * @param blockchains the blockchains to add.
      */
     public BlockchainManager addBlockchains(Collection<BlockchainMetaData> blockchains) {
-        blockchains.addAll(blockchains);
+        blockchains.forEach(this::addBlockchain);
+        return this;
+    }
+
+    /**
+     * Removes a blockchain. If the manager has already been built, the subscription of the blockchain is disposed and
+     * the blockchain is removed from the running ranking, the other blockchains aren't affected. Removing the current
+     * blockchain doesn't switch over, but it won't be suggested anymore.
+     *
+     * @param blockchain the blockchain to remove.
+     */
+    public BlockchainManager removeBlockchain(BlockchainMetaData blockchain) {
+        synchronized (rankingLock) {
+            if (!blockchains.remove(blockchain)) {
+                return this;
+            }
+            bcCalculationResultObservables.remove(blockchain.getIdentifier());
+            RankingAttachment rankingAttachment = rankingAttachments.remove(blockchain.getIdentifier());
+            if (rankingAttachment != null) {
+                // a result that is already on its way is ignored by the ranking
+                rankingAttachment.detach();
+                rankingEmitter.onNext(RankingUpdate.removal(blockchain));
+            }
+        }
         return this;
     }
 
@@ -242,88 +288,151 @@ public class BlockchainManager {
      * switchover suggestions.
      */
     public BlockchainManager build() {
-        List<Observable<BlockchainCalculationResult>> blockchainCalculationResults = new ArrayList<>();
-
-        for (BlockchainMetaData blockchain : blockchains) {
-            IMetricCollector metricCollector = blockchain.getMetricCollector();
-            Observable<BlockchainWeightedScore> blockchainWeightedScoreObservable = Observable
-                    .combineLatest(
-                            metricCollector.getCostsForWritingDataObservable().distinctUntilChanged(),
-                            metricCollector.getCostsForRetrievingDataObservable().distinctUntilChanged(),
-                            metricCollector.getStorageFeeObservable().distinctUntilChanged(),
-                            metricCollector.getExchangeRateObservable().distinctUntilChanged(),
-                            metricCollector.getAvgBlockTimeObservable().distinctUntilChanged(),
-                            metricCollector.getTransactionThroughputObservable().distinctUntilChanged(),
-                            metricCollector.getBlockPercentagePerMinerObservable().distinctUntilChanged(),
-                            metricCollector.getNetworkHashrateObservable().distinctUntilChanged(),
-                            (writingCosts, retrievingCosts, storageCosts, priceInFiat, blockTime, txThroughput, miningDistribution, networkHashrate) -> {
-                                BlockchainWeightedScore score = calculateBlockchainWeightedScore(writingCosts, retrievingCosts,
-                                        storageCosts, priceInFiat, blockTime, txThroughput, miningDistribution, networkHashrate,
-                                        blockchain.getNumberOfRequiredConfirmations(), blockchain.getReputation());
-                                score.setBlockchain(blockchain);
-                                return score;
-                            }
-                    );
-            Observable<ThresholdValidationResult> thresholdValidationObservable =
-                    createBlockchainThresholdValidationObservable(blockchain);
-
-            Observable<BlockchainCalculationResult> blockchainCalculationResult =
-                    Observable.combineLatest(blockchainWeightedScoreObservable, thresholdValidationObservable, (score, validationResult) -> {
-                        BlockchainCalculationResult calculationResult = new BlockchainCalculationResult();
-
-                        calculationResult.setBlockchain(blockchain);
-                        calculationResult.setWeightedScores(score.getWeightedMetricScores());
-                        calculationResult.setThresholdValidationResults(validationResult.getThresholdValidationResults());
-
-                        return calculationResult;
-                    });
-
-            blockchainCalculationResults.add(blockchainCalculationResult);
-            bcCalculationResultObservables.put(blockchain.getIdentifier(), blockchainCalculationResult);
+        synchronized (rankingLock) {
+            for (BlockchainMetaData blockchain : blockchains) {
+                bcCalculationResultObservables.put(blockchain.getIdentifier(),
+                        createBlockchainCalculationResultObservable(blockchain));
+            }
+            switchoverSuggestionObservable = Observable
+                    .defer(() -> {
+                        // only the blockchain of a new result is re-ranked instead of rescanning the results of all
+                        BlockchainRanking ranking = new BlockchainRanking();
+                        Set<String> unrankedBlockchains = new HashSet<>();
+                        return Observable
+                                .<RankingUpdate>create(emitter -> attachToRanking(emitter, unrankedBlockchains))
+                                .map(update -> {
+                                    String identifier = update.blockchain.getIdentifier();
+                                    if (update.isStale()) {
+                                        // emitted after the blockchain has been removed
+                                        return Optional.<SwitchoverSuggestion>empty();
+                                    }
+                                    if (update.calculationResult == null) {
+                                        ranking.remove(identifier);
+                                    } else {
+                                        boolean switchoverDecision = callSwitchoverDecisionFn(
+                                                update.calculationResult.getThresholdValidationResult());
+                                        ranking.update(update.calculationResult, !switchoverDecision);
+                                    }
+                                    unrankedBlockchains.remove(identifier);
+                                    if (!unrankedBlockchains.isEmpty()) {
+                                        // not every blockchain of the start ranked yet
+                                        return Optional.<SwitchoverSuggestion>empty();
+                                    }
+
+                                    // the most beneficial blockchain that does not violate any threshold
+                                    BlockchainCalculationResult mostBeneficialResult = ranking.getBest();
+                                    Optional<SwitchoverSuggestion> switchoverSuggestionOptional = Optional.empty();
+                                    if (mostBeneficialResult != null) {
+                                        SwitchoverSuggestion switchoverSuggestion = new SwitchoverSuggestion();
+                                        switchoverSuggestion.setCurrentBlockchainResult(currentBlockchain == null ?
+                                                null : ranking.get(currentBlockchain.getIdentifier()));
+                                        switchoverSuggestion.setNextBlockchainResult(mostBeneficialResult);
+                                        switchoverSuggestionOptional = Optional.of(switchoverSuggestion);
+                                    }
+
+                                    return switchoverSuggestionOptional;
+                                });
+                    })
+                    .filter(Optional::isPresent)
+                    .map(Optional::get)
+                    .distinctUntilChanged(switchoverSuggestion ->
+                            switchoverSuggestion
+                                    .getNextBlockchainResult()
+                                    .getBlockchain()
+                                    .getIdentifier()
+                    )
+                    .throttleLatest(rankingSettings.getTimeSpanBetweenTwoChains(), TimeUnit.of(rankingSettings.getTimeUnit()),
+                            scheduler == null ? Schedulers.computation() : scheduler)
+                    .share()    // multicast
+                    .replay(1)
+                    .autoConnect();
         }
-        switchoverSuggestionObservable = Observable
-                .combineLatest(blockchainCalculationResults, (calculationResults) -> {
-                    BlockchainCalculationResult mostBeneficialResult = null;
-                    BlockchainCalculationResult currentChainResult = null;
-
-                    for (int i = 0; i < calculationResults.length; i++) {
-                        BlockchainCalculationResult calculationResult = (BlockchainCalculationResult) calculationResults[i];
-                        if (calculationResult.getBlockchain().equals(currentBlockchain)) {
-                            currentChainResult = calculationResult;
-                        }
-                        boolean isMoreBeneficial = mostBeneficialResult == null ||
-                                mostBeneficialResult.getOverallWeightedScore() <= calculationResult.getOverallWeightedScore();
-                        boolean switchoverDecision = callSwitchoverDecisionFn(calculationResult.getThresholdValidationResults());
-                        if (isMoreBeneficial && !switchoverDecision) {
-                            // there is a more beneficial blockchain that does not violated any threshold
-                            mostBeneficialResult = calculationResult;
-                        }
-                    }
 
-                    Optional<SwitchoverSuggestion> switchoverSuggestionOptional = Optional.empty();
-                    if (mostBeneficialResult != null) {
-                        SwitchoverSuggestion switchoverSuggestion = new SwitchoverSuggestion();
-                        switchoverSuggestion.setCurrentBlockchainResult(currentChainResult);
-                        switchoverSuggestion.setNextBlockchainResult(mostBeneficialResult);
-                        switchoverSuggestionOptional = Optional.of(switchoverSuggestion);
-                    }
+        return this;
+    }
+
+    /**
+     * Creates the {@link Observable} of the calculation results (weighted scores and threshold validation results) of
+     * a blockchain.
+     *
+     * @param blockchain the blockchain
+     * @return the calculation results of <i>blockchain</i>
+     */
+    private Observable<BlockchainCalculationResult> createBlockchainCalculationResultObservable(
+            BlockchainMetaData blockchain) {
+        IMetricCollector metricCollector = blockchain.getMetricCollector();
+        Observable<BlockchainWeightedScore> blockchainWeightedScoreObservable = Observable
+                .combineLatest(
+                        metricCollector.getCostsForWritingDataObservable().distinctUntilChanged(),
+                        metricCollector.getCostsForRetrievingDataObservable().distinctUntilChanged(),
+                        metricCollector.getStorageFeeObservable().distinctUntilChanged(),
+                        metricCollector.getExchangeRateObservable().distinctUntilChanged(),
+                        metricCollector.getAvgBlockTimeObservable().distinctUntilChanged(),
+                        metricCollector.getTransactionThroughputObservable().distinctUntilChanged(),
+                        metricCollector.getBlockPercentagePerMinerObservable().distinctUntilChanged(MiningDistribution::isUnchanged),
+                        metricCollector.getNetworkHashrateObservable().distinctUntilChanged(),
+                        (writingCosts, retrievingCosts, storageCosts, priceInFiat, blockTime, txThroughput, miningDistribution, networkHashrate) -> {
+                            BlockchainWeightedScore score = calculateBlockchainWeightedScore(writingCosts, retrievingCosts,
+                                    storageCosts, priceInFiat, blockTime, txThroughput, miningDistribution, networkHashrate,
+                                    blockchain.getNumberOfRequiredConfirmations(), blockchain.getReputation());
+                            score.setBlockchain(blockchain);
+                            return score;
+                        }
+                );
+        Observable<ThresholdValidationResult> thresholdValidationObservable =
+                createBlockchainThresholdValidationObservable(blockchain);
+
+        // the ranking is preliminary as long as the block based metrics are estimated from a sample of the blocks; the
+        // flag is optional, blockchains are ranked as exact until (or unless) their collector provides block statistics
+        Observable<IBlockStatistics> blockStatisticsObservable = metricCollector.getBlockStatisticsObservable();
+        Observable<Boolean> approximateObservable = blockStatisticsObservable == null ?
+                Observable.just(false) :
+                blockStatisticsObservable
+                        .map(IBlockStatistics::isApproximate)
+                        .startWith(false)
+                        .distinctUntilChanged();
+
+        return Observable.combineLatest(blockchainWeightedScoreObservable, thresholdValidationObservable, approximateObservable, (score, validationResult, approximate) -> {
+            BlockchainCalculationResult calculationResult = new BlockchainCalculationResult();
+
+            calculationResult.setBlockchain(blockchain);
+            calculationResult.setWeightedScore(score);
+            calculationResult.setThresholdValidationResult(validationResult);
+            calculationResult.setApproximate(approximate);
+
+            return calculationResult;
+        });
+    }
 
-                    return switchoverSuggestionOptional;
-                })
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                .distinctUntilChanged(switchoverSuggestion ->
-                        switchoverSuggestion
-                                .getNextBlockchainResult()
-                                .getBlockchain()
-                                .getIdentifier()
-                )
-                .throttleLatest(rankingSettings.getTimeSpanBetweenTwoChains(), TimeUnit.of(rankingSettings.getTimeUnit()))
-                .share()    // multicast
-                .replay(1)
-                .autoConnect();
+    /**
+     * Subscribes the calculation results of all blockchains for the ranking. The ranking waits for a result of each of
+     * these blockchains, blockchains added later join it with their first result.
+     */
+    private void attachToRanking(ObservableEmitter<RankingUpdate> emitter, Set<String> unrankedBlockchains) {
+        ObservableEmitter<RankingUpdate> serializedEmitter = emitter.serialize();
+        synchronized (rankingLock) {
+            rankingEmitter = serializedEmitter;
+            blockchains.forEach(blockchain -> unrankedBlockchains.add(blockchain.getIdentifier()));
+            for (BlockchainMetaData blockchain : new ArrayList<>(blockchains)) {
+                attachToRanking(blockchain, bcCalculationResultObservables.get(blockchain.getIdentifier()),
+                        serializedEmitter);
+            }
+        }
+        emitter.setCancellable(() -> {
+            synchronized (rankingLock) {
+                rankingAttachments.values().forEach(RankingAttachment::detach);
+                rankingAttachments.clear();
+                rankingEmitter = null;
+            }
+        });
+    }
 
-        return this;
+    private void attachToRanking(BlockchainMetaData blockchain,
+                                 Observable<BlockchainCalculationResult> calculationResultObservable,
+                                 ObservableEmitter<RankingUpdate> emitter) {
+        RankingAttachment rankingAttachment = new RankingAttachment(blockchain, emitter);
+        rankingAttachments.put(blockchain.getIdentifier(), rankingAttachment);
+        calculationResultObservable.subscribe(rankingAttachment);
     }
 
     /**
@@ -333,30 +442,41 @@ public class BlockchainManager {
      * @param metricValidationResults the metric validations results of a blockchain
      * @return true if a switchover is suggested, otherwise false
      */
-    private boolean callSwitchoverDecisionFn(Map<BlockchainMetric, Boolean> metricValidationResults) {
+    private boolean callSwitchoverDecisionFn(ThresholdValidationResult metricValidationResults) {
         if (thresholdValidationSettings.getSwitchoverDecisionFn() == null) {
             return false;
         }
         return thresholdValidationSettings
                 .getSwitchoverDecisionFn()
                 .apply(
-                        metricValidationResults.get(COSTS_FOR_WRITING_DATA),
-                        metricValidationResults.get(COSTS_FOR_RETRIEVING_DATA),
-                        metricValidationResults.get(STORAGE_FEES),
-                        metricValidationResults.get(EXCHANGE_RATE),
-                        metricValidationResults.get(BLOCK_TIME),
-                        metricValidationResults.get(TRANSACTION_THROUGHPUT),
-                        metricValidationResults.get(MINING_DISTRIBUTION),
-                        metricValidationResults.get(NETWORK_HASHRATE),
-                        metricValidationResults.get(NUMBER_OF_REQUIRED_CONFIRMATIONS),
-                        metricValidationResults.get(REPUTATION)
+                        metricValidationResults.isPassed(COSTS_FOR_WRITING_DATA),
+                        metricValidationResults.isPassed(COSTS_FOR_RETRIEVING_DATA),
+                        metricValidationResults.isPassed(STORAGE_FEES),
+                        metricValidationResults.isPassed(EXCHANGE_RATE),
+                        metricValidationResults.isPassed(BLOCK_TIME),
+                        metricValidationResults.isPassed(TRANSACTION_THROUGHPUT),
+                        metricValidationResults.isPassed(MINING_DISTRIBUTION),
+                        metricValidationResults.isPassed(NETWORK_HASHRATE),
+                        metricValidationResults.isPassed(NUMBER_OF_REQUIRED_CONFIRMATIONS),
+                        metricValidationResults.isPassed(REPUTATION)
                 );
     }
 
+    /**
+     * @return the calculation results by the identifier of the blockchain, an unmodifiable view that follows the added
+     * and removed blockchains
+     */
     public Map<String, Observable<BlockchainCalculationResult>> getBlockchainCalculationResultObservables() {
-        return bcCalculationResultObservables;
+        return Collections.unmodifiableMap(bcCalculationResultObservables);
     }
 
+    /**
+     * The failure of a single blockchain, e.g. an overflow of the block buffer of its metric collector, doesn't end the
+     * suggestions: the error is logged and the blockchain is dropped from the ranking as if it had been removed. It is
+     * only ranked again after it has been removed and added again or on a new subscription of the suggestions.
+     *
+     * @return an {@link Observable} for observing switchover suggestions
+     */
     public Observable<SwitchoverSuggestion> getSwitchoverSuggestionObservable() {
         return switchoverSuggestionObservable;
     }
@@ -371,6 +491,18 @@ public class BlockchainManager {
         return this;
     }
 
+    /**
+     * Sets the scheduler of the time based operators, i.e. of the threshold violation deadlines and of the time span
+     * between two suggestions. A {@link io.reactivex.schedulers.TestScheduler} runs the manager in virtual time, e.g.
+     * for backtesting. Must be set before {@link #build()}.
+     *
+     * @param scheduler the scheduler
+     */
+    public BlockchainManager setScheduler(Scheduler scheduler) {
+        this.scheduler = scheduler;
+        return this;
+    }
+
     /**
      * Performs a switchover to <i>nextBlockchain</i>. The amoung of data that is moved to the specified blockchain
      * depends on the <i>from</i> and <i>to</i> dates.
@@ -425,4 +557,90 @@ public class BlockchainManager {
         }
     }
 
+    /**
+     * A new calculation result of a blockchain or the removal of a blockchain from the ranking.
+     */
+    private static class RankingUpdate {
+
+        private final BlockchainMetaData blockchain;
+        private final BlockchainCalculationResult calculationResult;  // null if the blockchain has been removed
+        private final RankingAttachment attachment;  // null if the blockchain has been removed
+
+        private RankingUpdate(BlockchainMetaData blockchain, BlockchainCalculationResult calculationResult,
+                              RankingAttachment attachment) {
+            this.blockchain = blockchain;
+            this.calculationResult = calculationResult;
+            this.attachment = attachment;
+        }
+
+        private static RankingUpdate removal(BlockchainMetaData blockchain) {
+            return new RankingUpdate(blockchain, null, null);
+        }
+
+        /**
+         * @return <i>true</i> if the result has been emitted by a subscription that has been detached in the meantime.
+         * Disposing a subscription doesn't stop a result that is already being emitted, which could otherwise be
+         * ranked after the removal of its blockchain.
+         */
+        private boolean isStale() {
+            return attachment != null && !attachment.attached;
+        }
+
+    }
+
+    /**
+     * The subscription of the calculation results of a blockchain for the ranking.
+     */
+    private class RankingAttachment implements Observer<BlockchainCalculationResult> {
+
+        private final BlockchainMetaData blockchain;
+        private final ObservableEmitter<RankingUpdate> emitter;
+        private volatile boolean attached = true;
+        private Disposable subscription;
+
+        private RankingAttachment(BlockchainMetaData blockchain, ObservableEmitter<RankingUpdate> emitter) {
+            this.blockchain = blockchain;
+            this.emitter = emitter;
+        }
+
+        @Override
+        public synchronized void onSubscribe(Disposable disposable) {
+            subscription = disposable;
+            if (!attached) {
+                disposable.dispose();
+            }
+        }
+
+        @Override
+        public void onNext(BlockchainCalculationResult calculationResult) {
+            emitter.onNext(new RankingUpdate(blockchain, calculationResult, this));
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            LOG.error(blockchain.getIdentifier() + ": calculation results failed, dropped from the ranking", throwable);
+            synchronized (rankingLock) {
+                if (rankingAttachments.get(blockchain.getIdentifier()) != this) {
+                    // already removed
+                    return;
+                }
+                rankingAttachments.remove(blockchain.getIdentifier());
+                detach();
+                emitter.onNext(RankingUpdate.removal(blockchain));
+            }
+        }
+
+        @Override
+        public void onComplete() {
+        }
+
+        private synchronized void detach() {
+            attached = false;
+            if (subscription != null) {
+                subscription.dispose();
+            }
+        }
+
+    }
+
 }
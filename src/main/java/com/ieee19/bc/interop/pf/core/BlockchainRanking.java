@@ -0,0 +1,237 @@
+package com.ieee19.bc.interop.pf.core;
+
+import com.ieee19.bc.interop.pf.core.model.BlockchainCalculationResult;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * This class ranks the latest {@link BlockchainCalculationResult}s of the blockchains by their overall weighted score.
+ * Blockchains that are eligible for a switchover (i.e. whose threshold validation results don't suggest to switch
+ * away from them) and ineligible blockchains are kept in two separate indexed max-heaps, such that a new result of a
+ * single blockchain is ranked in O(log N) and the most beneficial eligible blockchain is found in O(1), instead of
+ * rescanning the results of all blockchains.
+ * <p>
+ * Blockchains with the same score are ranked by the order they have been added in, the blockchain added last first.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class BlockchainRanking {
+
+    private final Map<String, Entry> entriesByIdentifier = new HashMap<>();
+    private final Heap eligibleChains = new Heap();
+    private final Heap ineligibleChains = new Heap();
+    private long numberOfAddedChains = 0;
+
+    /**
+     * Adds a blockchain or re-ranks it if it has already been added.
+     *
+     * @param result   the latest result of the blockchain
+     * @param eligible <i>true</i> if the blockchain may be suggested for a switchover
+     */
+    public void update(BlockchainCalculationResult result, boolean eligible) {
+        String identifier = result.getBlockchain().getIdentifier();
+        Entry entry = entriesByIdentifier.get(identifier);
+        if (entry == null) {
+            entry = new Entry(numberOfAddedChains++);
+            entriesByIdentifier.put(identifier, entry);
+        } else if (entry.eligible != eligible) {
+            getHeap(entry.eligible).remove(entry);
+        } else {
+            entry.result = result;
+            entry.score = result.getOverallWeightedScore();
+            getHeap(eligible).update(entry);
+            return;
+        }
+        entry.result = result;
+        entry.score = result.getOverallWeightedScore();
+        entry.eligible = eligible;
+        getHeap(eligible).add(entry);
+    }
+
+    /**
+     * @param identifier the identifier of a blockchain
+     * @return <i>true</i> if the blockchain has been ranked
+     */
+    public boolean remove(String identifier) {
+        Entry entry = entriesByIdentifier.remove(identifier);
+        if (entry == null) {
+            return false;
+        }
+        getHeap(entry.eligible).remove(entry);
+        return true;
+    }
+
+    /**
+     * @param identifier the identifier of a blockchain
+     * @return the latest result of the blockchain, or <i>null</i> if it hasn't been ranked
+     */
+    public BlockchainCalculationResult get(String identifier) {
+        Entry entry = entriesByIdentifier.get(identifier);
+        return entry == null ? null : entry.result;
+    }
+
+    /**
+     * @return the result of the eligible blockchain with the highest score, or <i>null</i> if no blockchain is
+     * eligible
+     */
+    public BlockchainCalculationResult getBest() {
+        return eligibleChains.isEmpty() ? null : eligibleChains.get(0).result;
+    }
+
+    /**
+     * @return the result of the ineligible blockchain with the highest score, or <i>null</i> if every blockchain is
+     * eligible
+     */
+    public BlockchainCalculationResult getBestIneligible() {
+        return ineligibleChains.isEmpty() ? null : ineligibleChains.get(0).result;
+    }
+
+    /**
+     * @param k the max. number of results
+     * @return the results of the <i>k</i> eligible blockchains with the highest scores, ordered by their rank. Costs
+     * O(k log k) independent of the number of blockchains.
+     */
+    public List<BlockchainCalculationResult> getTop(int k) {
+        List<BlockchainCalculationResult> top = new ArrayList<>(Math.min(k, eligibleChains.size()));
+        if (eligibleChains.isEmpty() || k <= 0) {
+            return top;
+        }
+        // the next best entry is always a child of one that has already been taken
+        PriorityQueue<Integer> candidates = new PriorityQueue<>(
+                (index1, index2) -> Heap.compare(eligibleChains.get(index1), eligibleChains.get(index2)));
+        candidates.add(0);
+        while (top.size() < k && !candidates.isEmpty()) {
+            int index = candidates.poll();
+            top.add(eligibleChains.get(index).result);
+            for (int child = 2 * index + 1; child <= 2 * index + 2 && child < eligibleChains.size(); child++) {
+                candidates.add(child);
+            }
+        }
+        return top;
+    }
+
+    /**
+     * @return the number of ranked blockchains
+     */
+    public int size() {
+        return entriesByIdentifier.size();
+    }
+
+    public int getNumberOfEligibleChains() {
+        return eligibleChains.size();
+    }
+
+    private Heap getHeap(boolean eligible) {
+        return eligible ? eligibleChains : ineligibleChains;
+    }
+
+    private static class Entry {
+
+        private final long order;
+        private BlockchainCalculationResult result;
+        private int score;
+        private boolean eligible;
+        private int heapIndex = -1;
+
+        private Entry(long order) {
+            this.order = order;
+        }
+
+    }
+
+    /**
+     * A binary max-heap of entries, which stores the position of each entry in the entry itself, such that an entry
+     * can be moved or removed without searching it.
+     */
+    private static class Heap {
+
+        private final List<Entry> entries = new ArrayList<>();
+
+        /**
+         * @return a negative number if <i>entry1</i> ranks higher than <i>entry2</i>
+         */
+        private static int compare(Entry entry1, Entry entry2) {
+            if (entry1.score != entry2.score) {
+                return Integer.compare(entry2.score, entry1.score);
+            }
+            return Long.compare(entry2.order, entry1.order);
+        }
+
+        private Entry get(int index) {
+            return entries.get(index);
+        }
+
+        private int size() {
+            return entries.size();
+        }
+
+        private boolean isEmpty() {
+            return entries.isEmpty();
+        }
+
+        private void add(Entry entry) {
+            entry.heapIndex = entries.size();
+            entries.add(entry);
+            siftUp(entry.heapIndex);
+        }
+
+        private void update(Entry entry) {
+            siftDown(siftUp(entry.heapIndex));
+        }
+
+        private void remove(Entry entry) {
+            int index = entry.heapIndex;
+            Entry last = entries.remove(entries.size() - 1);
+            entry.heapIndex = -1;
+            if (last != entry) {
+                set(index, last);
+                siftDown(siftUp(index));
+            }
+        }
+
+        private void set(int index, Entry entry) {
+            entries.set(index, entry);
+            entry.heapIndex = index;
+        }
+
+        /**
+         * @return the new index of the entry
+         */
+        private int siftUp(int index) {
+            Entry entry = entries.get(index);
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (compare(entry, entries.get(parent)) >= 0) {
+                    break;
+                }
+                set(index, entries.get(parent));
+                index = parent;
+            }
+            set(index, entry);
+            return index;
+        }
+
+        private void siftDown(int index) {
+            Entry entry = entries.get(index);
+            int size = entries.size();
+            while (2 * index + 1 < size) {
+                int child = 2 * index + 1;
+                if (child + 1 < size && compare(entries.get(child + 1), entries.get(child)) < 0) {
+                    child++;
+                }
+                if (compare(entries.get(child), entry) >= 0) {
+                    break;
+                }
+                set(index, entries.get(child));
+                index = child;
+            }
+            set(index, entry);
+        }
+
+    }
+
+}
@@ -0,0 +1,137 @@
+package com.ieee19.bc.interop.pf.core;
+
+import com.ieee19.bc.interop.pf.core.model.Block;
+import com.ieee19.bc.interop.pf.core.model.BlockEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * This class tracks the tip of the main chain and detects reorganizations by checking the parent link of every new
+ * block.
+ * <p>
+ * If a new block doesn't reference the current tip, the blocks of the diverging branch are fetched (from the new block
+ * downwards) until a block references a known block. The orphaned blocks above this fork point are retracted and the
+ * blocks of the new branch are added. Only the most recent blocks (see <i>maxReorgDepth</i>) are tracked.
+ */
+public class ChainTipTracker {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ChainTipTracker.class);
+    private static final int DEFAULT_MAX_REORG_DEPTH = 100;
+
+    private final int maxReorgDepth;
+    private final NavigableMap<Long, Block> blocksByHeight = new TreeMap<>();  // most recent blocks of the main chain
+
+    public ChainTipTracker() {
+        this(DEFAULT_MAX_REORG_DEPTH);
+    }
+
+    /**
+     * @param maxReorgDepth the max. number of blocks that can be replaced by a reorganization
+     */
+    public ChainTipTracker(int maxReorgDepth) {
+        this.maxReorgDepth = maxReorgDepth;
+    }
+
+    /**
+     * Fetches a block of the main chain.
+     */
+    @FunctionalInterface
+    public interface BlockFetcher {
+
+        /**
+         * @param blockNumber the height of the block
+         * @return the block of the current main chain at the given height
+         * @throws Exception if the block can't be fetched
+         */
+        Block getBlockByBlockNumber(long blockNumber) throws Exception;
+
+    }
+
+    /**
+     * Registers a block of the main chain without checking its parent link, e.g. a block of the initial download, whose
+     * blocks arrive in an arbitrary order.
+     *
+     * @param block the block of the main chain
+     */
+    public synchronized void seed(Block block) {
+        blocksByHeight.put(block.getHeight(), block);
+        prune();
+    }
+
+    /**
+     * Checks the parent link of a new block and returns the resulting changes of the main chain.
+     *
+     * @param block   the new block
+     * @param fetcher fetches the blocks of a diverging branch
+     * @return the retracted blocks (from the tip downwards) followed by the added blocks (in ascending order); an empty
+     * list if the block is already known
+     * @throws Exception if a block of the diverging branch can't be fetched or the reorganization is deeper than
+     *                   <i>maxReorgDepth</i>
+     */
+    public synchronized List<BlockEvent> track(Block block, BlockFetcher fetcher) throws Exception {
+        List<BlockEvent> events = new ArrayList<>();
+        Block knownBlock = blocksByHeight.get(block.getHeight());
+        if (knownBlock != null && Objects.equals(knownBlock.getHash(), block.getHash())) {
+            return events;  // already known
+        }
+
+        // collect the blocks of the new branch until a block references a known block (or no block is known)
+        LinkedList<Block> newBranch = new LinkedList<>();
+        newBranch.add(block);
+        Block parent = blocksByHeight.get(block.getHeight() - 1);
+        while (parent != null && !Objects.equals(parent.getHash(), newBranch.getFirst().getPreviousBlockHash())) {
+            if (newBranch.size() > maxReorgDepth) {
+                throw new IllegalStateException("Reorganization at height " + block.getHeight() +
+                        " exceeds max. depth of " + maxReorgDepth + " blocks");
+            }
+            Block branchBlock = fetcher.getBlockByBlockNumber(parent.getHeight());
+            newBranch.addFirst(branchBlock);
+            parent = blocksByHeight.get(branchBlock.getHeight() - 1);
+            if (parent == null) {
+                throw new IllegalStateException("Reorganization at height " + block.getHeight() +
+                        " forks off below the oldest tracked block");
+            }
+        }
+
+        // retract orphaned blocks above the fork point
+        long forkHeight = newBranch.getFirst().getHeight() - 1;
+        NavigableMap<Long, Block> orphanedBlocks = blocksByHeight.tailMap(forkHeight, false).descendingMap();
+        if (!orphanedBlocks.isEmpty()) {
+            LOG.warn("Reorganization detected: " + orphanedBlocks.size() + " blocks above height " + forkHeight +
+                    " replaced by " + newBranch.size() + " blocks");
+        }
+        for (Map.Entry<Long, Block> orphanedBlock : orphanedBlocks.entrySet()) {
+            events.add(BlockEvent.retract(orphanedBlock.getValue()));
+        }
+        orphanedBlocks.clear();
+
+        for (Block branchBlock : newBranch) {
+            blocksByHeight.put(branchBlock.getHeight(), branchBlock);
+            events.add(BlockEvent.add(branchBlock));
+        }
+        prune();
+        return events;
+    }
+
+    /**
+     * @return the block at the tip of the main chain or <i>null</i> if no block is known
+     */
+    public synchronized Block getTip() {
+        return blocksByHeight.isEmpty() ? null : blocksByHeight.lastEntry().getValue();
+    }
+
+    private void prune() {
+        while (blocksByHeight.size() > maxReorgDepth + 1) {  // the fork point of the deepest reorg is kept as well
+            blocksByHeight.pollFirstEntry();
+        }
+    }
+
+}
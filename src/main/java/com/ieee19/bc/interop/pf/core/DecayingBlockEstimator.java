@@ -0,0 +1,345 @@
+package com.ieee19.bc.interop.pf.core;
+
+import com.ieee19.bc.interop.pf.core.model.Block;
+import com.ieee19.bc.interop.pf.core.model.BlockEvent;
+import com.ieee19.bc.interop.pf.core.model.MiningDistribution;
+import io.reactivex.Flowable;
+import io.reactivex.FlowableTransformer;
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * This class estimates the block statistics of a horizon from exponentially decayed sums instead of keeping all blocks
+ * of the horizon: every block contributes with the weight <i>exp(-age / horizon)</i>. Each block updates the sums in
+ * O(1) and the memory doesn't depend on the number of blocks, only on the number of miners (miners whose weight has
+ * decayed are dropped).
+ * <p>
+ * The rates are normalized by the time that has been observed so far (from the oldest received block until now), so
+ * they are unbiased as soon as a few dozen blocks have been received, no matter in which order. Until then, the
+ * estimates are unreliable, see {@link #MIN_NUMBER_OF_BLOCKS}.
+ * <p>
+ * The weights are stored relative to an origin, such that adding a block doesn't rescale all sums. The origin is only
+ * moved if the weights would grow too large.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class DecayingBlockEstimator {
+
+    /**
+     * The number of blocks from which on the estimates are considered meaningful.
+     */
+    public static final int MIN_NUMBER_OF_BLOCKS = 30;
+
+    public static final Duration DEFAULT_TICK = Duration.ofSeconds(5);
+
+    private static final double MAX_EXPONENT = 300;  // exp(300) is far from the max. double value
+    private static final double MIN_MINER_WEIGHT = 0.001;  // blocks, miners with a lower weight are dropped
+    private static final int INITIAL_NUMBER_OF_MINERS = 16;
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
+    private final Duration horizon;
+    private final double timeConstant;  // seconds
+    private long origin;  // epoch seconds, the time with weight 1
+    private long oldestTimestamp = Long.MAX_VALUE;
+    private long newestTimestamp = Long.MIN_VALUE;
+    private double newestDifficulty = 0;
+    private int numberOfBlocks = 0;
+    private long version = VERSIONS.incrementAndGet();
+
+    // the decayed sums relative to the origin
+    private double blockWeight = 0;
+    private double transactionWeight = 0;
+    private double difficultyWeight = 0;  // including the difficulty of uncle blocks
+    private double uncleWeight = 0;
+
+    // the miner dictionary and the decayed number of blocks per miner
+    private final Map<String, Integer> minerIdsByAddress = new HashMap<>();
+    private String[] minerAddresses = new String[INITIAL_NUMBER_OF_MINERS];
+    private double[] blockWeightsByMinerId = new double[INITIAL_NUMBER_OF_MINERS];
+    private double[] uncleWeightsByMinerId = new double[INITIAL_NUMBER_OF_MINERS];
+    private int numberOfMiners = 0;
+
+    /**
+     * @param horizon the time constant of the exponential decay
+     */
+    public DecayingBlockEstimator(Duration horizon) {
+        this.horizon = horizon;
+        this.timeConstant = horizon.getSeconds();
+    }
+
+    /**
+     * Creates an RxJava operator like {@link #forBlockEvents(Collection, Duration, Scheduler)}, which emits the
+     * statistics every {@link #DEFAULT_TICK} on the computation scheduler.
+     *
+     * @param horizons the horizons to maintain an estimator for
+     * @return the operator for a stream of {@link BlockEvent}s
+     */
+    public static FlowableTransformer<BlockEvent, Map<Duration, IBlockStatistics>> forBlockEvents(
+            Collection<Duration> horizons) {
+        return forBlockEvents(horizons, DEFAULT_TICK, Schedulers.computation());
+    }
+
+    /**
+     * Creates an RxJava operator, which maintains an estimator for each horizon and periodically emits their
+     * statistics once {@link #MIN_NUMBER_OF_BLOCKS} blocks have been received. The statistics are emitted periodically
+     * (and not only if a block has been received), since the estimates decay over time. The decay refers to the clock
+     * of the scheduler, such that a stream replayed on a {@link io.reactivex.schedulers.TestScheduler} is estimated in
+     * virtual time.
+     *
+     * @param horizons  the horizons to maintain an estimator for
+     * @param tick      the time between two emissions
+     * @param scheduler the scheduler to emit the statistics on, whose clock is the current time of the estimates
+     * @return the operator for a stream of {@link BlockEvent}s
+     */
+    public static FlowableTransformer<BlockEvent, Map<Duration, IBlockStatistics>> forBlockEvents(
+            Collection<Duration> horizons, Duration tick, Scheduler scheduler) {
+        long tickMillis = tick.toMillis();
+        return upstream -> Flowable.defer(() -> {
+            List<DecayingBlockEstimator> estimators = horizons.stream()
+                    .sorted()
+                    .map(DecayingBlockEstimator::new)
+                    .collect(Collectors.toList());
+
+            return upstream.publish(events -> Flowable.merge(
+                    events
+                            .doOnNext(event -> {
+                                synchronized (estimators) {
+                                    estimators.forEach(estimator -> estimator.apply(event));
+                                }
+                            })
+                            .ignoreElements()
+                            .<Map<Duration, IBlockStatistics>>toFlowable(),
+                    Flowable.interval(tickMillis, tickMillis, TimeUnit.MILLISECONDS, scheduler)
+                            .takeUntil(events.count().toFlowable())
+                            .filter(tickNumber -> {
+                                synchronized (estimators) {
+                                    return estimators.get(0).getNumberOfBlocks() >= MIN_NUMBER_OF_BLOCKS;
+                                }
+                            })
+                            .map(tickNumber -> {
+                                ZonedDateTime now = ZonedDateTime.ofInstant(
+                                        Instant.ofEpochMilli(scheduler.now(TimeUnit.MILLISECONDS)), ZoneOffset.UTC);
+                                Map<Duration, IBlockStatistics> statistics = new LinkedHashMap<>();
+                                synchronized (estimators) {
+                                    estimators.forEach(estimator ->
+                                            statistics.put(estimator.getHorizon(), estimator.snapshot(now)));
+                                }
+                                return Collections.unmodifiableMap(statistics);
+                            })
+            ));
+        });
+    }
+
+    /**
+     * @param event an added block, which is included in the estimates, or a retracted block, which is excluded again
+     */
+    public void apply(BlockEvent event) {
+        Block block = event.getBlock();
+        long timestamp = block.getTimestamp().toEpochSecond();
+        int sign = event.getType() == BlockEvent.Type.ADD ? 1 : -1;
+        if (numberOfBlocks == 0 || (timestamp - origin) / timeConstant > MAX_EXPONENT) {
+            moveOrigin(timestamp);
+        }
+        double weight = sign * Math.exp((timestamp - origin) / timeConstant);
+
+        blockWeight += weight;
+        transactionWeight += weight * block.getNumberOfTransactions();
+        difficultyWeight += weight * block.getDifficulty();
+        addMinerWeight(block.getMinerAddress(), weight, false);
+        for (Block uncleBlock : block.getUncleBlocks()) {
+            uncleWeight += weight;
+            difficultyWeight += weight * uncleBlock.getDifficulty();
+            addMinerWeight(uncleBlock.getMinerAddress(), weight, true);
+        }
+        numberOfBlocks += sign;
+        if (sign > 0) {
+            oldestTimestamp = Math.min(oldestTimestamp, timestamp);
+            if (timestamp >= newestTimestamp) {
+                newestTimestamp = timestamp;
+                newestDifficulty = block.getDifficulty();
+            }
+        }
+        version = VERSIONS.incrementAndGet();
+    }
+
+    /**
+     * @param now the time the estimates refer to
+     * @return an immutable copy of the estimates
+     */
+    public Snapshot snapshot(ZonedDateTime now) {
+        long nowInSeconds = now.toEpochSecond();
+        double decay = Math.exp(-(nowInSeconds - origin) / timeConstant);
+        // the time the decayed sums have been collected over
+        long observedTime = Math.max(nowInSeconds - oldestTimestamp, 1);
+        double effectiveTime = timeConstant * (1 - Math.exp(-observedTime / timeConstant));
+
+        return new Snapshot(version, numberOfBlocks,
+                blockWeight * decay / effectiveTime,
+                transactionWeight * decay / effectiveTime,
+                difficultyWeight * decay / effectiveTime,
+                newestDifficulty,
+                Arrays.copyOf(minerAddresses, numberOfMiners),
+                Arrays.copyOf(blockWeightsByMinerId, numberOfMiners),
+                Arrays.copyOf(uncleWeightsByMinerId, numberOfMiners),
+                blockWeight, uncleWeight);
+    }
+
+    public Duration getHorizon() {
+        return horizon;
+    }
+
+    public int getNumberOfBlocks() {
+        return numberOfBlocks;
+    }
+
+    private void moveOrigin(long newOrigin) {
+        double factor = Math.exp(-(newOrigin - origin) / timeConstant);
+        blockWeight *= factor;
+        transactionWeight *= factor;
+        difficultyWeight *= factor;
+        uncleWeight *= factor;
+        for (int minerId = 0; minerId < numberOfMiners; minerId++) {
+            blockWeightsByMinerId[minerId] *= factor;
+            uncleWeightsByMinerId[minerId] *= factor;
+        }
+        origin = newOrigin;
+    }
+
+    private void addMinerWeight(String minerAddress, double weight, boolean uncleBlock) {
+        Integer minerId = minerIdsByAddress.get(minerAddress);
+        if (minerId == null) {
+            if (numberOfMiners == minerAddresses.length) {
+                dropDecayedMiners();
+            }
+            if (numberOfMiners == minerAddresses.length) {
+                minerAddresses = Arrays.copyOf(minerAddresses, numberOfMiners * 2);
+                blockWeightsByMinerId = Arrays.copyOf(blockWeightsByMinerId, numberOfMiners * 2);
+                uncleWeightsByMinerId = Arrays.copyOf(uncleWeightsByMinerId, numberOfMiners * 2);
+            }
+            minerId = numberOfMiners++;
+            minerAddresses[minerId] = minerAddress;
+            minerIdsByAddress.put(minerAddress, minerId);
+        }
+        double[] weightsByMinerId = uncleBlock ? uncleWeightsByMinerId : blockWeightsByMinerId;
+        weightsByMinerId[minerId] = Math.max(weightsByMinerId[minerId] + weight, 0);
+    }
+
+    /**
+     * Removes the miners whose number of blocks has decayed below {@link #MIN_MINER_WEIGHT} at the time of the newest
+     * block, such that the dictionary doesn't grow with every miner that has ever been seen.
+     */
+    private void dropDecayedMiners() {
+        double minWeight = MIN_MINER_WEIGHT * Math.exp((newestTimestamp - origin) / timeConstant);
+        int newNumberOfMiners = 0;
+        minerIdsByAddress.clear();
+        for (int minerId = 0; minerId < numberOfMiners; minerId++) {
+            if (blockWeightsByMinerId[minerId] + uncleWeightsByMinerId[minerId] >= minWeight) {
+                minerAddresses[newNumberOfMiners] = minerAddresses[minerId];
+                blockWeightsByMinerId[newNumberOfMiners] = blockWeightsByMinerId[minerId];
+                uncleWeightsByMinerId[newNumberOfMiners] = uncleWeightsByMinerId[minerId];
+                minerIdsByAddress.put(minerAddresses[newNumberOfMiners], newNumberOfMiners);
+                newNumberOfMiners++;
+            }
+        }
+        Arrays.fill(minerAddresses, newNumberOfMiners, numberOfMiners, null);
+        Arrays.fill(blockWeightsByMinerId, newNumberOfMiners, numberOfMiners, 0);
+        Arrays.fill(uncleWeightsByMinerId, newNumberOfMiners, numberOfMiners, 0);
+        numberOfMiners = newNumberOfMiners;
+    }
+
+    /**
+     * An immutable copy of the estimates of a {@link DecayingBlockEstimator}.
+     */
+    public static class Snapshot implements IBlockStatistics {
+
+        private final long version;
+        private final int numberOfBlocks;
+        private final double blockRate;
+        private final double transactionRate;
+        private final double difficultyRate;
+        private final double newestDifficulty;
+        private final String[] minerAddresses;
+        private final double[] blockWeightsByMinerId;
+        private final double[] uncleWeightsByMinerId;
+        private final double blockWeight;
+        private final double uncleWeight;
+
+        private Snapshot(long version, int numberOfBlocks, double blockRate, double transactionRate,
+                         double difficultyRate, double newestDifficulty, String[] minerAddresses,
+                         double[] blockWeightsByMinerId, double[] uncleWeightsByMinerId, double blockWeight,
+                         double uncleWeight) {
+            this.version = version;
+            this.numberOfBlocks = numberOfBlocks;
+            this.blockRate = blockRate;
+            this.transactionRate = transactionRate;
+            this.difficultyRate = difficultyRate;
+            this.newestDifficulty = newestDifficulty;
+            this.minerAddresses = minerAddresses;
+            this.blockWeightsByMinerId = blockWeightsByMinerId;
+            this.uncleWeightsByMinerId = uncleWeightsByMinerId;
+            this.blockWeight = blockWeight;
+            this.uncleWeight = uncleWeight;
+        }
+
+        @Override
+        public long getVersion() {
+            return version;
+        }
+
+        @Override
+        public int getNumberOfBlocks() {
+            return numberOfBlocks;
+        }
+
+        @Override
+        public double getBlockRate() {
+            return blockRate;
+        }
+
+        @Override
+        public double getTransactionRate() {
+            return transactionRate;
+        }
+
+        @Override
+        public double getDifficultyRate() {
+            return difficultyRate;
+        }
+
+        @Override
+        public double getNewestDifficulty() {
+            return newestDifficulty;
+        }
+
+        @Override
+        public MiningDistribution getMiningDistribution(boolean includeUncleBlocks) {
+            if (!includeUncleBlocks) {
+                return new MiningDistribution(version, minerAddresses, blockWeightsByMinerId, minerAddresses.length,
+                        blockWeight);
+            }
+            double[] weightsByMinerId = new double[minerAddresses.length];
+            for (int minerId = 0; minerId < minerAddresses.length; minerId++) {
+                weightsByMinerId[minerId] = blockWeightsByMinerId[minerId] + uncleWeightsByMinerId[minerId];
+            }
+            return new MiningDistribution(version, minerAddresses, weightsByMinerId, minerAddresses.length,
+                    blockWeight + uncleWeight);
+        }
+
+    }
+
+}
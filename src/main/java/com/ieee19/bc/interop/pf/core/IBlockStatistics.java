@@ -0,0 +1,96 @@
+package com.ieee19.bc.interop.pf.core;
+
+import com.ieee19.bc.interop.pf.core.model.ConfidenceInterval;
+import com.ieee19.bc.interop.pf.core.model.MiningDistribution;
+
+/**
+ * Specifies the block based statistics of a blockchain for one horizon, from which a metric collector derives the block
+ * time, the transaction throughput, the network hashrate and the mining distribution. The statistics are either
+ * calculated from all blocks of the horizon ({@link SlidingBlockWindow}) or estimated from exponentially decayed sums
+ * ({@link DecayingBlockEstimator}). While the blocks of the horizon are still being downloaded, they may be estimated
+ * from a sample of the blocks ({@link SampledBackfillEstimator}), in which case they are flagged as approximate and
+ * provide confidence bounds.
+ */
+public interface IBlockStatistics {
+
+    /**
+     * @return the version of the underlying blocks, which changes whenever a block has been added or removed
+     */
+    long getVersion();
+
+    /**
+     * @return the number of blocks the statistics are based on
+     */
+    int getNumberOfBlocks();
+
+    /**
+     * @return the number of mined blocks per second
+     */
+    double getBlockRate();
+
+    /**
+     * @return the number of transactions per second
+     */
+    double getTransactionRate();
+
+    /**
+     * @return the mined difficulty (of all blocks and their uncle blocks) per second
+     */
+    double getDifficultyRate();
+
+    /**
+     * @return the difficulty of the most recent block, or 0 if there is none
+     */
+    double getNewestDifficulty();
+
+    /**
+     * @param includeUncleBlocks <i>true</i> if uncle blocks count as mined blocks
+     * @return the percentage of mined blocks for each miner address
+     */
+    MiningDistribution getMiningDistribution(boolean includeUncleBlocks);
+
+    /**
+     * @return <i>true</i> if the statistics are estimated from a sample of the blocks of the horizon
+     */
+    default boolean isApproximate() {
+        return false;
+    }
+
+    /**
+     * @return the estimated share of the blocks of the horizon the statistics are based on (between 0 and 1)
+     */
+    default double getCoverage() {
+        return 1;
+    }
+
+    /**
+     * @return the bounds of {@link #getBlockRate()}
+     */
+    default ConfidenceInterval getBlockRateInterval() {
+        return ConfidenceInterval.exact(getBlockRate());
+    }
+
+    /**
+     * @return the bounds of {@link #getTransactionRate()}
+     */
+    default ConfidenceInterval getTransactionRateInterval() {
+        return ConfidenceInterval.exact(getTransactionRate());
+    }
+
+    /**
+     * @return the bounds of {@link #getDifficultyRate()}
+     */
+    default ConfidenceInterval getDifficultyRateInterval() {
+        return ConfidenceInterval.exact(getDifficultyRate());
+    }
+
+    /**
+     * @param minerAddress       the address of a miner
+     * @param includeUncleBlocks <i>true</i> if uncle blocks count as mined blocks
+     * @return the bounds of the percentage of mined blocks of <i>minerAddress</i>
+     */
+    default ConfidenceInterval getMinerPercentageInterval(String minerAddress, boolean includeUncleBlocks) {
+        return ConfidenceInterval.exact(getMiningDistribution(includeUncleBlocks).getOrDefault(minerAddress, 0.0));
+    }
+
+}
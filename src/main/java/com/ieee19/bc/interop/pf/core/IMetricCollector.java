@@ -1,9 +1,14 @@
 package com.ieee19.bc.interop.pf.core;
 
 import com.ieee19.bc.interop.pf.core.model.Block;
+import com.ieee19.bc.interop.pf.core.model.MetricSnapshot;
+import com.ieee19.bc.interop.pf.core.model.MiningDistribution;
 import io.reactivex.Observable;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -13,34 +18,129 @@ import java.util.Map;
  */
 public interface IMetricCollector {
 
+    /**
+     * The horizons (window lengths) the block based metrics are provided for. All horizons are maintained over the same
+     * collected blocks, each with its own aggregates.
+     */
+    List<Duration> HORIZONS = Collections.unmodifiableList(Arrays.asList(
+            Duration.ofHours(1), Duration.ofHours(6), Duration.ofHours(24)));
+
+    /**
+     * The horizon of the observables without an explicit horizon.
+     */
+    Duration DEFAULT_HORIZON = Duration.ofHours(24);
+
     /**
      * @return an {@link Observable} for getting the blocks of a blockchain.
      */
-    Observable<List<Block>> getBlockObservable();
+    default Observable<List<Block>> getBlockObservable() {
+        return getBlockObservable(DEFAULT_HORIZON);
+    }
+
+    /**
+     * @param horizon one of the {@link #HORIZONS}
+     * @return an {@link Observable} for getting the blocks of a blockchain that have been mined during the horizon.
+     */
+    Observable<List<Block>> getBlockObservable(Duration horizon);
+
+    /**
+     * @return an {@link Observable} for getting the block based statistics of the last 24 hours, from which the block
+     * time, the transaction throughput, the mining distribution and the network hashrate are derived.
+     */
+    default Observable<IBlockStatistics> getBlockStatisticsObservable() {
+        return getBlockStatisticsObservable(DEFAULT_HORIZON);
+    }
+
+    /**
+     * @param horizon one of the {@link #HORIZONS}
+     * @return an {@link Observable} for getting the block based statistics of the horizon. The statistics tell whether
+     * the metrics are still estimated from a sample of the blocks and provide their confidence bounds.
+     */
+    Observable<IBlockStatistics> getBlockStatisticsObservable(Duration horizon);
+
+    /**
+     * @return an {@link Observable} for getting all block based metrics of the last 24 hours at once.
+     */
+    default Observable<MetricSnapshot> getMetricSnapshotObservable() {
+        return getMetricSnapshotObservable(DEFAULT_HORIZON);
+    }
+
+    /**
+     * @param horizon one of the {@link #HORIZONS}
+     * @return an {@link Observable} for getting all block based metrics of the horizon at once. A snapshot is computed
+     * once whenever the blocks of the horizon have changed; the observables of the individual metrics are projections
+     * of it.
+     */
+    Observable<MetricSnapshot> getMetricSnapshotObservable(Duration horizon);
 
     /**
      * @return an {@link Observable} for getting the inter-block time that is calculated from the blocks that have been
      * mined during the last 24 hours.
      */
-    Observable<Double> getAvgBlockTimeObservable();
+    default Observable<Double> getAvgBlockTimeObservable() {
+        return getAvgBlockTimeObservable(DEFAULT_HORIZON);
+    }
+
+    /**
+     * @param horizon one of the {@link #HORIZONS}
+     * @return an {@link Observable} for getting the inter-block time that is calculated from the blocks that have been
+     * mined during the horizon.
+     */
+    Observable<Double> getAvgBlockTimeObservable(Duration horizon);
 
     /**
      * @return an {@link Observable} for getting the transactions per second rate. This rate is calculated from the
      * blocks that have been mined during the last 24 hours.
      */
-    Observable<Double> getTransactionThroughputObservable();
+    default Observable<Double> getTransactionThroughputObservable() {
+        return getTransactionThroughputObservable(DEFAULT_HORIZON);
+    }
+
+    /**
+     * @param horizon one of the {@link #HORIZONS}
+     * @return an {@link Observable} for getting the transactions per second rate. This rate is calculated from the
+     * blocks that have been mined during the horizon.
+     */
+    Observable<Double> getTransactionThroughputObservable(Duration horizon);
 
     /**
      * @return an {@link Observable} for getting mining distribution (percentage of mined blocks for each address)
      * that is calculated from the blocks that have been mined during the last 24 hours.
      */
-    Observable<Map<String, Double>> getBlockPercentagePerMinerObservable();
+    default Observable<Map<String, Double>> getBlockPercentagePerMinerObservable() {
+        return getBlockPercentagePerMinerObservable(DEFAULT_HORIZON);
+    }
+
+    /**
+     * @param horizon one of the {@link #HORIZONS}
+     * @return an {@link Observable} for getting mining distribution (percentage of mined blocks for each address)
+     * that is calculated from the blocks that have been mined during the horizon.
+     */
+    default Observable<Map<String, Double>> getBlockPercentagePerMinerObservable(Duration horizon) {
+        return getMiningDistributionObservable(horizon).map(distribution -> distribution);
+    }
+
+    /**
+     * @param horizon one of the {@link #HORIZONS}
+     * @return an {@link Observable} for getting the mining distribution including its top-K summary and
+     * Herfindahl-Hirschman index, calculated from the blocks that have been mined during the horizon.
+     */
+    Observable<MiningDistribution> getMiningDistributionObservable(Duration horizon);
 
     /**
      * @return an {@link Observable} for getting the network hashrate that is calculated from the blocks that have been
      * mined during the last 24 hours.
      */
-    Observable<Double> getNetworkHashrateObservable();
+    default Observable<Double> getNetworkHashrateObservable() {
+        return getNetworkHashrateObservable(DEFAULT_HORIZON);
+    }
+
+    /**
+     * @param horizon one of the {@link #HORIZONS}
+     * @return an {@link Observable} for getting the network hashrate that is calculated from the blocks that have been
+     * mined during the horizon.
+     */
+    Observable<Double> getNetworkHashrateObservable(Duration horizon);
 
     /**
      * @return an {@link Observable} for getting the amount of fiat currency for one unit of a cryptocurrency.
@@ -0,0 +1,19 @@
+package com.ieee19.bc.interop.pf.core;
+
+import io.reactivex.Observable;
+
+/**
+ * A notifier signals new blocks of a blockchain to a metric collector, which then downloads all blocks up to the
+ * signaled height.
+ */
+public interface INewBlockNotifier {
+
+    /**
+     * Returns an observable which emits the height of the newest block whenever a new block may be available. The same
+     * height may be emitted multiple times and heights may be skipped.
+     *
+     * @return the observable emitting block heights
+     */
+    Observable<Long> getNewBlockHeightObservable();
+
+}
@@ -0,0 +1,73 @@
+package com.ieee19.bc.interop.pf.core;
+
+import io.reactivex.Observable;
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Implements the {@link INewBlockNotifier} interface by polling the current block height of a node periodically.
+ */
+public class PollingNewBlockNotifier implements INewBlockNotifier {
+
+    private final Observable<Long> currentBlockHeightObservable;  // emits the current block height on subscription
+    private final long pollingInterval;
+    private final TimeUnit unit;
+    private final Scheduler scheduler;
+
+    /**
+     * @param currentBlockHeightFn returns the current block height of the node
+     * @param pollingInterval      the time between two polls
+     * @param unit                 the unit of <i>pollingInterval</i>
+     */
+    public PollingNewBlockNotifier(Callable<Long> currentBlockHeightFn, long pollingInterval, TimeUnit unit) {
+        this(currentBlockHeightFn, pollingInterval, unit, Schedulers.io());
+    }
+
+    /**
+     * @param currentBlockHeightFn returns the current block height of the node
+     * @param pollingInterval      the time between two polls
+     * @param unit                 the unit of <i>pollingInterval</i>
+     * @param scheduler            the scheduler to poll on
+     */
+    public PollingNewBlockNotifier(Callable<Long> currentBlockHeightFn, long pollingInterval, TimeUnit unit,
+                                   Scheduler scheduler) {
+        this(Observable.fromCallable(currentBlockHeightFn), pollingInterval, unit, scheduler);
+    }
+
+    /**
+     * Polls with an asynchronous call, such that no thread is blocked while waiting for the node.
+     *
+     * @param currentBlockHeightFn starts the request for the current block height of the node
+     * @param pollingInterval      the time between two polls
+     * @param unit                 the unit of <i>pollingInterval</i>
+     */
+    public PollingNewBlockNotifier(Supplier<CompletableFuture<Long>> currentBlockHeightFn, long pollingInterval,
+                                   TimeUnit unit) {
+        this(Utils.toSingle(currentBlockHeightFn::get).toObservable(), pollingInterval, unit, Schedulers.computation());
+    }
+
+    private PollingNewBlockNotifier(Observable<Long> currentBlockHeightObservable, long pollingInterval, TimeUnit unit,
+                                    Scheduler scheduler) {
+        this.currentBlockHeightObservable = currentBlockHeightObservable;
+        this.pollingInterval = pollingInterval;
+        this.unit = unit;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Polls immediately after subscription and then every polling interval.
+     */
+    @Override
+    public Observable<Long> getNewBlockHeightObservable() {
+        return Observable
+                .interval(0, pollingInterval, unit, scheduler)
+                .concatMap(i -> currentBlockHeightObservable)
+                .distinctUntilChanged();
+    }
+
+}
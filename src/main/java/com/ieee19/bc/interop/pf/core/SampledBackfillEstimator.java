@@ -0,0 +1,276 @@
+package com.ieee19.bc.interop.pf.core;
+
+import com.ieee19.bc.interop.pf.core.model.ConfidenceInterval;
+import com.ieee19.bc.interop.pf.core.model.MiningDistribution;
+import io.reactivex.FlowableTransformer;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class estimates the block statistics of each horizon while the backfill is still running in stratified order
+ * (see {@link BackfillCoordinator#setStratified(boolean)}), such that the metrics are available within seconds instead
+ * of after the whole backfill. The estimates are flagged as approximate and converge to the exact statistics as the
+ * remaining blocks arrive; once the backfill is complete, the windows are passed on unchanged.
+ * <p>
+ * Since the heights are contiguous, the number of blocks of a horizon follows from the heights: it comprises all
+ * heights from the oldest fetched block of the horizon up to the most recent block, plus at most the gap of missing
+ * heights below the oldest fetched block (which belongs to the horizon entirely if the horizon covers the whole
+ * backfill). The per-block metrics (transactions, difficulty, mining distribution) are extrapolated from the fetched
+ * blocks. Their bounds are 95% confidence intervals of the sample mean with finite population correction, widened by
+ * the uncertainty of the number of blocks.
+ * <p>
+ * This class is thread-safe.
+ */
+public class SampledBackfillEstimator {
+
+    private static final double Z = 1.96;  // quantile of the 95% confidence intervals
+
+    private final Duration backfillTimespan;
+    private volatile BackfillCoordinator coordinator;
+
+    /**
+     * @param backfillTimespan the timespan of the backfill, e.g. 24 hours
+     */
+    public SampledBackfillEstimator(Duration backfillTimespan) {
+        this.backfillTimespan = backfillTimespan;
+    }
+
+    /**
+     * Switches <i>coordinator</i> to the stratified order and estimates the statistics from its progress until the
+     * backfill is complete. Has to be called before the backfill is executed.
+     *
+     * @param coordinator the coordinator of the backfill, whose first height of the window has to be known
+     */
+    public void start(BackfillCoordinator coordinator) {
+        coordinator.setStratified(true);
+        this.coordinator = coordinator;
+    }
+
+    /**
+     * Stops estimating, e.g. if the backfill can't be completed. The windows are passed on unchanged afterwards.
+     */
+    public void stop() {
+        coordinator = null;
+    }
+
+    /**
+     * @return <i>true</i> if the statistics are still estimated
+     */
+    public boolean isActive() {
+        return coordinator != null;
+    }
+
+    /**
+     * @return a transformer which replaces the windows by estimated statistics until the backfill is complete
+     */
+    public FlowableTransformer<Map<Duration, SlidingBlockWindow.Snapshot>, Map<Duration, IBlockStatistics>> forWindows() {
+        return upstream -> upstream.map(this::estimate);
+    }
+
+    /**
+     * @param windows the windows per horizon
+     * @return the estimated statistics per horizon, or the windows themselves if the backfill is complete
+     */
+    public Map<Duration, IBlockStatistics> estimate(Map<Duration, SlidingBlockWindow.Snapshot> windows) {
+        BackfillCoordinator coordinator = this.coordinator;
+        if (coordinator == null) {
+            return Collections.unmodifiableMap(windows);
+        }
+        boolean complete = coordinator.isComplete();
+        boolean approximate = false;
+        Map<Duration, IBlockStatistics> statistics = new LinkedHashMap<>();
+        for (Map.Entry<Duration, SlidingBlockWindow.Snapshot> window : windows.entrySet()) {
+            Snapshot snapshot = new Snapshot(window.getValue(), coordinator,
+                    window.getValue().getTimespan().compareTo(backfillTimespan) >= 0);
+            approximate |= snapshot.isApproximate();
+            statistics.put(window.getKey(), snapshot);
+        }
+        if (complete && !approximate) {
+            this.coordinator = null;  // all blocks have arrived in the windows
+            return Collections.unmodifiableMap(windows);
+        }
+        return Collections.unmodifiableMap(statistics);
+    }
+
+    /**
+     * The statistics of one horizon, estimated from the blocks of a window that have been fetched so far.
+     */
+    public static class Snapshot implements IBlockStatistics {
+
+        private final SlidingBlockWindow.Snapshot window;
+        private final boolean approximate;
+        private final double coverage;
+        private final double finitePopulationCorrection;
+        private final double blockRate;
+        private final double transactionRate;
+        private final double difficultyRate;
+        private final ConfidenceInterval blockRateInterval;
+        private final ConfidenceInterval transactionRateInterval;
+        private final ConfidenceInterval difficultyRateInterval;
+
+        private Snapshot(SlidingBlockWindow.Snapshot window, BackfillCoordinator coordinator, boolean coversBackfill) {
+            this.window = window;
+            int size = window.getNumberOfBlocks();
+            double seconds = window.getTimespan().getSeconds();
+            if (size == 0) {
+                approximate = true;
+                coverage = 0;
+                finitePopulationCorrection = 1;
+                blockRate = transactionRate = difficultyRate = 0;
+                blockRateInterval = transactionRateInterval = difficultyRateInterval =
+                        new ConfidenceInterval(0, Double.POSITIVE_INFINITY);
+                return;
+            }
+
+            long lowestHeight = Long.MAX_VALUE;
+            long highestHeight = coordinator.getHighestHeight();
+            double transactionSum = 0;
+            double transactionSumOfSquares = 0;
+            double difficultySum = 0;
+            double difficultySumOfSquares = 0;
+            for (int i = 0; i < size; i++) {
+                lowestHeight = Math.min(lowestHeight, window.getHeight(i));
+                highestHeight = Math.max(highestHeight, window.getHeight(i));
+                double transactionCount = window.getTransactionCount(i);
+                double difficulty = window.getTotalDifficulty(i);
+                transactionSum += transactionCount;
+                transactionSumOfSquares += transactionCount * transactionCount;
+                difficultySum += difficulty;
+                difficultySumOfSquares += difficulty * difficulty;
+            }
+
+            // the heights from the oldest fetched block up to the most recent block belong to the horizon, the gap of
+            // missing heights below the oldest fetched block may belong to it
+            long gap = coordinator.getNumberOfMissingHeightsBelow(lowestHeight);
+            long minNumberOfBlocks = Math.max(size, highestHeight - lowestHeight + 1 + (coversBackfill ? gap : 0));
+            long maxNumberOfBlocks = Math.max(size, highestHeight - lowestHeight + 1 + gap);
+            double numberOfBlocks = (minNumberOfBlocks + maxNumberOfBlocks) / 2.0;
+
+            approximate = size < maxNumberOfBlocks;
+            coverage = size / numberOfBlocks;
+            finitePopulationCorrection = 1 - coverage;
+            blockRate = numberOfBlocks / seconds;
+            blockRateInterval = new ConfidenceInterval(minNumberOfBlocks / seconds, maxNumberOfBlocks / seconds);
+            transactionRate = transactionSum / size * numberOfBlocks / seconds;
+            transactionRateInterval = extrapolate(transactionSum, transactionSumOfSquares, size,
+                    finitePopulationCorrection, minNumberOfBlocks, maxNumberOfBlocks, seconds);
+            difficultyRate = difficultySum / size * numberOfBlocks / seconds;
+            difficultyRateInterval = extrapolate(difficultySum, difficultySumOfSquares, size,
+                    finitePopulationCorrection, minNumberOfBlocks, maxNumberOfBlocks, seconds);
+        }
+
+        /**
+         * @return the bounds of the extrapolated sum per second, at least the sum of the fetched blocks
+         */
+        private static ConfidenceInterval extrapolate(double sum, double sumOfSquares, int size,
+                                                      double finitePopulationCorrection, long minNumberOfBlocks,
+                                                      long maxNumberOfBlocks, double seconds) {
+            double mean = sum / size;
+            double margin;
+            if (finitePopulationCorrection <= 0) {
+                margin = 0;
+            } else if (size < 2) {
+                margin = Double.POSITIVE_INFINITY;
+            } else {
+                double variance = Math.max(0, (sumOfSquares - sum * mean) / (size - 1));
+                margin = Z * Math.sqrt(variance / size * finitePopulationCorrection);
+            }
+            double lowerBound = Math.max(sum, (mean - margin) * minNumberOfBlocks);
+            double upperBound = Math.max(lowerBound, (mean + margin) * maxNumberOfBlocks);
+            return new ConfidenceInterval(lowerBound / seconds, upperBound / seconds);
+        }
+
+        /**
+         * @return the window the statistics have been estimated from
+         */
+        public SlidingBlockWindow.Snapshot getWindow() {
+            return window;
+        }
+
+        @Override
+        public long getVersion() {
+            return window.getVersion();
+        }
+
+        @Override
+        public int getNumberOfBlocks() {
+            return window.getNumberOfBlocks();
+        }
+
+        @Override
+        public double getBlockRate() {
+            return blockRate;
+        }
+
+        @Override
+        public double getTransactionRate() {
+            return transactionRate;
+        }
+
+        @Override
+        public double getDifficultyRate() {
+            return difficultyRate;
+        }
+
+        @Override
+        public double getNewestDifficulty() {
+            return window.getNewestDifficulty();
+        }
+
+        /**
+         * @return the percentages of the fetched blocks, which are unbiased estimates of the mining distribution
+         */
+        @Override
+        public MiningDistribution getMiningDistribution(boolean includeUncleBlocks) {
+            return window.getMiningDistribution(includeUncleBlocks);
+        }
+
+        @Override
+        public boolean isApproximate() {
+            return approximate;
+        }
+
+        @Override
+        public double getCoverage() {
+            return coverage;
+        }
+
+        @Override
+        public ConfidenceInterval getBlockRateInterval() {
+            return blockRateInterval;
+        }
+
+        @Override
+        public ConfidenceInterval getTransactionRateInterval() {
+            return transactionRateInterval;
+        }
+
+        @Override
+        public ConfidenceInterval getDifficultyRateInterval() {
+            return difficultyRateInterval;
+        }
+
+        /**
+         * @return the Wilson score interval of the percentage, with finite population correction
+         */
+        @Override
+        public ConfidenceInterval getMinerPercentageInterval(String minerAddress, boolean includeUncleBlocks) {
+            double share = getMiningDistribution(includeUncleBlocks).getOrDefault(minerAddress, 0.0) / 100;
+            int sampleSize = window.getNumberOfBlocks() + (includeUncleBlocks ? window.getNumberOfUncleBlocks() : 0);
+            if (sampleSize == 0) {
+                return new ConfidenceInterval(0, 100);
+            }
+            double zSquared = Z * Z * Math.max(0, finitePopulationCorrection);
+            double denominator = 1 + zSquared / sampleSize;
+            double center = (share + zSquared / (2 * sampleSize)) / denominator;
+            double margin = Math.sqrt(zSquared * (share * (1 - share) / sampleSize +
+                    zSquared / (4.0 * sampleSize * sampleSize))) / denominator;
+            return new ConfidenceInterval(100 * Math.max(0, center - margin), 100 * Math.min(1, center + margin));
+        }
+
+    }
+
+}
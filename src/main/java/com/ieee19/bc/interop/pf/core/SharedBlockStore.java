@@ -0,0 +1,158 @@
+package com.ieee19.bc.interop.pf.core;
+
+import com.ieee19.bc.interop.pf.core.model.Block;
+import com.ieee19.bc.interop.pf.core.model.BlockEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * This class stores the most recent blocks of the main chain of a blockchain node, such that each block is fetched and
+ * decoded only once, no matter how many components need it (e.g. the metric collector and the data access service).
+ * <p>
+ * There is one store per node URL. Every component obtains it with {@link #acquire(String)} and has to call
+ * {@link #release()} once it doesn't need it anymore; the store is discarded as soon as the last reference has been
+ * released. The metric collector publishes all changes of the main chain (see {@link #onBlockEvent(BlockEvent)}), all
+ * other components read the stored blocks.
+ */
+public class SharedBlockStore {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SharedBlockStore.class);
+    private static final Duration DEFAULT_RETENTION = Duration.ofHours(24);
+    private static final Map<String, SharedBlockStore> STORES_BY_NODE_URL = new HashMap<>();
+
+    private final String nodeUrl;
+    private final Duration retention;
+    private final NavigableMap<Long, Block> blocksByHeight = new TreeMap<>();
+    private ZonedDateTime completeSince;  // all blocks of the main chain mined after this time are stored
+    private int referenceCount = 0;
+
+    private SharedBlockStore(String nodeUrl, Duration retention) {
+        this.nodeUrl = nodeUrl;
+        this.retention = retention;
+    }
+
+    /**
+     * Returns the store of the given node and increments its reference count.
+     *
+     * @param nodeUrl the URL of the node
+     * @return the store of the node (created if it doesn't exist yet)
+     */
+    public static SharedBlockStore acquire(String nodeUrl) {
+        synchronized (STORES_BY_NODE_URL) {
+            SharedBlockStore store = STORES_BY_NODE_URL.computeIfAbsent(nodeUrl,
+                    url -> new SharedBlockStore(url, DEFAULT_RETENTION));
+            store.referenceCount++;
+            return store;
+        }
+    }
+
+    /**
+     * Decrements the reference count. The store is discarded if it has not been referenced anymore.
+     */
+    public void release() {
+        synchronized (STORES_BY_NODE_URL) {
+            if (referenceCount == 0) {
+                throw new IllegalStateException("Block store of " + nodeUrl + " has already been released");
+            }
+            if (--referenceCount == 0) {
+                STORES_BY_NODE_URL.remove(nodeUrl);
+                synchronized (this) {
+                    blocksByHeight.clear();
+                    completeSince = null;
+                }
+                LOG.debug("Discarded block store of " + nodeUrl);
+            }
+        }
+    }
+
+    /**
+     * Applies a change of the main chain, i.e. stores an added block or removes a retracted one. Blocks that are
+     * older than the retention period are evicted.
+     *
+     * @param event the change of the main chain
+     */
+    public synchronized void onBlockEvent(BlockEvent event) {
+        Block block = event.getBlock();
+        if (event.getType() == BlockEvent.Type.ADD) {
+            blocksByHeight.put(block.getHeight(), block);
+        } else {
+            Block storedBlock = blocksByHeight.get(block.getHeight());
+            if (storedBlock != null && Objects.equals(storedBlock.getHash(), block.getHash())) {
+                blocksByHeight.remove(block.getHeight());
+            }
+        }
+        evict();
+    }
+
+    /**
+     * Has to be called as soon as all blocks mined after <i>time</i> have been stored (e.g. after the download of all
+     * blocks of the last 24 hours).
+     *
+     * @param time the time since when the store is complete
+     */
+    public synchronized void setCompleteSince(ZonedDateTime time) {
+        completeSince = time;
+        evict();
+    }
+
+    /**
+     * @param time a point in time
+     * @return <i>true</i> if all blocks of the main chain mined after <i>time</i> are stored
+     */
+    public synchronized boolean isCompleteSince(ZonedDateTime time) {
+        return completeSince != null && !time.isBefore(completeSince);
+    }
+
+    /**
+     * @param from the min. timestamp (exclusive)
+     * @param to   the max. timestamp (exclusive)
+     * @return the stored blocks mined between <i>from</i> and <i>to</i>, ordered by height
+     */
+    public synchronized List<Block> getBlocks(ZonedDateTime from, ZonedDateTime to) {
+        List<Block> blocks = new ArrayList<>();
+        for (Block block : blocksByHeight.values()) {
+            if (block.getTimestamp().isAfter(from) && block.getTimestamp().isBefore(to)) {
+                blocks.add(block);
+            }
+        }
+        return blocks;
+    }
+
+    /**
+     * @return the height of the most recent stored block or -1 if no block is stored
+     */
+    public synchronized long getTipHeight() {
+        return blocksByHeight.isEmpty() ? -1 : blocksByHeight.lastKey();
+    }
+
+    public String getNodeUrl() {
+        return nodeUrl;
+    }
+
+    public int getReferenceCount() {
+        synchronized (STORES_BY_NODE_URL) {
+            return referenceCount;
+        }
+    }
+
+    private void evict() {
+        ZonedDateTime retentionStart = ZonedDateTime.now().minus(retention);
+        while (!blocksByHeight.isEmpty() && blocksByHeight.firstEntry().getValue().getTimestamp().isBefore(retentionStart)) {
+            blocksByHeight.pollFirstEntry();
+        }
+        if (completeSince != null && completeSince.isBefore(retentionStart)) {
+            completeSince = retentionStart;
+        }
+    }
+
+}
@@ -0,0 +1,788 @@
+package com.ieee19.bc.interop.pf.core;
+
+import com.ieee19.bc.interop.pf.core.model.Block;
+import com.ieee19.bc.interop.pf.core.model.BlockEvent;
+import com.ieee19.bc.interop.pf.core.model.MiningDistribution;
+import org.apache.commons.codec.binary.Hex;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class holds the blocks of a sliding time window ordered by their timestamps together with running aggregates
+ * (number of blocks and transactions, difficulty sum and number of blocks per miner), which are updated whenever a
+ * block enters or leaves the window instead of being recalculated from all blocks.
+ * <p>
+ * The window doesn't keep the {@link Block} objects but only the fields the metrics need, stored column by column in
+ * primitive arrays: timestamps (epoch seconds), heights, numbers of transactions, difficulties, miner ids (the miner
+ * addresses are dictionary-encoded) and the hashes packed as bytes. This takes a fraction of the heap of the objects
+ * (with their strings, timestamps and uncle lists) and lets the metrics scan contiguous memory.
+ * <p>
+ * Every change of the window assigns it a new version, which is unique across all windows. Snapshots carry the version,
+ * so consumers can detect a change without comparing the contents.
+ * <p>
+ * The columns are split into chunks of {@value #CHUNK_SIZE} blocks. New blocks at the tip and old blocks of a backfill
+ * (which is fetched from the most recent block downwards) are inserted at one of the ends and evicted blocks are
+ * removed from the head, i.e. these operations cost O(1) per block. Blocks whose timestamps are out of order are moved
+ * into place from the nearer end.
+ * <p>
+ * Snapshots share the chunks with the window instead of copying them: taking a snapshot starts a new epoch, which
+ * freezes all existing chunks, and the window copies a frozen chunk before it changes it (copy-on-write). So taking a
+ * snapshot only costs the copy of the chunk table and the next changes copy the few chunks they touch (usually the one
+ * at the tip), i.e. publishing a snapshot is proportional to the change instead of to the size of the window.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class SlidingBlockWindow {
+
+    private static final int CHUNK_SHIFT = 6;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;  // blocks
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int INITIAL_NUMBER_OF_CHUNKS = 4;
+    private static final int INITIAL_NUMBER_OF_MINERS = 16;
+    private static final int HASH_LENGTH = 32;  // bytes
+
+    // formats of the stored hashes
+    private static final byte NO_HASH = 0;
+    private static final byte HEX_HASH = 1;
+    private static final byte PREFIXED_HEX_HASH = 2;  // "0x" followed by the hex digits
+    private static final byte OTHER_HASH = 3;  // can't be packed, see Chunk#otherHashes
+
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
+    private final Duration timespan;
+    private int offset = 0;  // the position of the oldest block in the first chunk
+    private int size = 0;
+    private long version = VERSIONS.incrementAndGet();
+    private long epoch = 0;  // chunks of an older epoch are shared with a snapshot
+    private Snapshot lastSnapshot;
+
+    // the columns, a block at index i is stored at position offset + i
+    private Chunk[] chunks = new Chunk[INITIAL_NUMBER_OF_CHUNKS];
+    private int numberOfChunks = 0;
+
+    // the miner dictionary, which only grows (the number of distinct miners is small)
+    private final Map<String, Integer> minerIdsByAddress = new HashMap<>();
+    private String[] minerAddresses = new String[INITIAL_NUMBER_OF_MINERS];
+    private int numberOfMiners = 0;
+
+    // the aggregates
+    private long numberOfTransactions = 0;
+    private double difficultySum = 0;  // including the difficulty of uncle blocks
+    private int numberOfUncleBlocks = 0;
+    private int[] blockCountsByMinerId = new int[INITIAL_NUMBER_OF_MINERS];
+    private int[] uncleCountsByMinerId = new int[INITIAL_NUMBER_OF_MINERS];
+
+    /**
+     * @param timespan the time a block remains in the window
+     * @param timeUnit the unit of <i>timespan</i>
+     */
+    public SlidingBlockWindow(long timespan, ChronoUnit timeUnit) {
+        this(Duration.of(timespan, timeUnit));
+    }
+
+    /**
+     * @param timespan the time a block remains in the window
+     */
+    public SlidingBlockWindow(Duration timespan) {
+        this.timespan = timespan;
+    }
+
+    /**
+     * @param event an added block, which is put into the window, or a retracted block, which is removed from it
+     * @return <i>true</i> if the window has changed
+     */
+    public boolean apply(BlockEvent event) {
+        return event.getType() == BlockEvent.Type.ADD ? add(event.getBlock()) : remove(event.getBlock());
+    }
+
+    /**
+     * @param block the block to add
+     * @return <i>true</i>, since the window always changes
+     */
+    public boolean add(Block block) {
+        int index = upperBound(block.getTimestamp().toEpochSecond());
+        insertAt(index);
+        write(offset + index, block);
+        updateAggregates(index, 1);
+        version = VERSIONS.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * @param block the block to remove
+     * @return <i>true</i> if the block has been part of the window
+     */
+    public boolean remove(Block block) {
+        long timestamp = block.getTimestamp().toEpochSecond();
+        String hash = block.getHash();
+        byte format = getHashFormat(hash);
+        byte[] packedHash = new byte[HASH_LENGTH];
+        if (format == HEX_HASH || format == PREFIXED_HEX_HASH) {
+            packHash(hash, packedHash, 0);
+        }
+        for (int i = lowerBound(timestamp); i < size && getTimestamp(i) <= timestamp; i++) {
+            if (hasHash(offset + i, hash, format, packedHash)) {
+                removeBlockAt(i);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes all blocks that are older than the timespan.
+     *
+     * @param now the current time
+     * @return <i>true</i> if at least one block has been removed
+     */
+    public boolean evict(ZonedDateTime now) {
+        long windowStart = now.minus(timespan).toEpochSecond();
+        boolean evicted = false;
+        while (size > 0 && getTimestamp(0) <= windowStart) {
+            removeBlockAt(0);
+            evicted = true;
+        }
+        return evicted;
+    }
+
+    /**
+     * @return an immutable view of the window and its aggregates, which shares the unchanged chunks with the window and
+     * with the previous snapshots. If the window hasn't changed since the previous snapshot, it is returned again.
+     */
+    public Snapshot snapshot() {
+        if (lastSnapshot == null || lastSnapshot.version != version) {
+            lastSnapshot = new Snapshot(this);
+            epoch++;
+        }
+        return lastSnapshot;
+    }
+
+    public Duration getTimespan() {
+        return timespan;
+    }
+
+    public int getNumberOfBlocks() {
+        return size;
+    }
+
+    public long getNumberOfTransactions() {
+        return numberOfTransactions;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    private long getTimestamp(int index) {
+        int position = offset + index;
+        return chunks[position >> CHUNK_SHIFT].timestamps[position & CHUNK_MASK];
+    }
+
+    /**
+     * @return the chunk of <i>position</i>, which is copied first if it is shared with a snapshot
+     */
+    private Chunk getWritableChunk(int position) {
+        int chunkIndex = position >> CHUNK_SHIFT;
+        Chunk chunk = chunks[chunkIndex];
+        if (chunk.epoch != epoch) {
+            chunk = chunk.copy(epoch);
+            chunks[chunkIndex] = chunk;
+        }
+        return chunk;
+    }
+
+    private void write(int position, Block block) {
+        Chunk chunk = getWritableChunk(position);
+        int slot = position & CHUNK_MASK;
+        chunk.timestamps[slot] = block.getTimestamp().toEpochSecond();
+        chunk.heights[slot] = block.getHeight();
+        chunk.transactionCounts[slot] = block.getNumberOfTransactions();
+        chunk.difficulties[slot] = block.getDifficulty();
+        chunk.minerIds[slot] = getMinerId(block.getMinerAddress());
+        chunk.hashFormats[slot] = getHashFormat(block.getHash());
+        if (chunk.hashFormats[slot] == HEX_HASH || chunk.hashFormats[slot] == PREFIXED_HEX_HASH) {
+            packHash(block.getHash(), chunk.hashes, slot * HASH_LENGTH);
+        } else if (chunk.hashFormats[slot] == OTHER_HASH) {
+            if (chunk.otherHashes == null) {
+                chunk.otherHashes = new String[CHUNK_SIZE];
+            }
+            chunk.otherHashes[slot] = block.getHash();
+        }
+        // a copied chunk may still hold the references of the block that has been moved away
+        if (chunk.hashFormats[slot] != OTHER_HASH && chunk.otherHashes != null) {
+            chunk.otherHashes[slot] = null;
+        }
+        chunk.uncleMinerIds[slot] = null;
+        chunk.uncleDifficulties[slot] = null;
+        List<Block> uncleBlocks = block.getUncleBlocks();
+        if (!uncleBlocks.isEmpty()) {
+            chunk.uncleMinerIds[slot] = new int[uncleBlocks.size()];
+            chunk.uncleDifficulties[slot] = new double[uncleBlocks.size()];
+            for (int i = 0; i < uncleBlocks.size(); i++) {
+                chunk.uncleMinerIds[slot][i] = getMinerId(uncleBlocks.get(i).getMinerAddress());
+                chunk.uncleDifficulties[slot][i] = uncleBlocks.get(i).getDifficulty();
+            }
+        }
+    }
+
+    private void move(int fromPosition, int toPosition) {
+        Chunk from = chunks[fromPosition >> CHUNK_SHIFT];
+        Chunk to = getWritableChunk(toPosition);
+        int fromSlot = fromPosition & CHUNK_MASK;
+        int toSlot = toPosition & CHUNK_MASK;
+        to.timestamps[toSlot] = from.timestamps[fromSlot];
+        to.heights[toSlot] = from.heights[fromSlot];
+        to.transactionCounts[toSlot] = from.transactionCounts[fromSlot];
+        to.difficulties[toSlot] = from.difficulties[fromSlot];
+        to.minerIds[toSlot] = from.minerIds[fromSlot];
+        to.hashFormats[toSlot] = from.hashFormats[fromSlot];
+        System.arraycopy(from.hashes, fromSlot * HASH_LENGTH, to.hashes, toSlot * HASH_LENGTH, HASH_LENGTH);
+        if (from.hashFormats[fromSlot] == OTHER_HASH) {
+            if (to.otherHashes == null) {
+                to.otherHashes = new String[CHUNK_SIZE];
+            }
+            to.otherHashes[toSlot] = from.otherHashes[fromSlot];
+        } else if (to.otherHashes != null) {
+            to.otherHashes[toSlot] = null;
+        }
+        to.uncleMinerIds[toSlot] = from.uncleMinerIds[fromSlot];
+        to.uncleDifficulties[toSlot] = from.uncleDifficulties[fromSlot];
+    }
+
+    /**
+     * Releases the references of a position that is no longer used. Chunks shared with a snapshot aren't copied for
+     * this, their references are released together with the snapshot.
+     */
+    private void clear(int position) {
+        Chunk chunk = chunks[position >> CHUNK_SHIFT];
+        if (chunk.epoch == epoch) {
+            int slot = position & CHUNK_MASK;
+            if (chunk.otherHashes != null) {
+                chunk.otherHashes[slot] = null;
+            }
+            chunk.uncleMinerIds[slot] = null;
+            chunk.uncleDifficulties[slot] = null;
+        }
+    }
+
+    private void updateAggregates(int index, int sign) {
+        int position = offset + index;
+        Chunk chunk = chunks[position >> CHUNK_SHIFT];
+        int slot = position & CHUNK_MASK;
+        numberOfTransactions += sign * chunk.transactionCounts[slot];
+        difficultySum += sign * chunk.difficulties[slot];
+        blockCountsByMinerId[chunk.minerIds[slot]] += sign;
+        if (chunk.uncleMinerIds[slot] != null) {
+            numberOfUncleBlocks += sign * chunk.uncleMinerIds[slot].length;
+            for (int i = 0; i < chunk.uncleMinerIds[slot].length; i++) {
+                difficultySum += sign * chunk.uncleDifficulties[slot][i];
+                uncleCountsByMinerId[chunk.uncleMinerIds[slot][i]] += sign;
+            }
+        }
+    }
+
+    private int getMinerId(String minerAddress) {
+        Integer minerId = minerIdsByAddress.get(minerAddress);
+        if (minerId == null) {
+            if (numberOfMiners == minerAddresses.length) {
+                minerAddresses = Arrays.copyOf(minerAddresses, numberOfMiners * 2);
+                blockCountsByMinerId = Arrays.copyOf(blockCountsByMinerId, numberOfMiners * 2);
+                uncleCountsByMinerId = Arrays.copyOf(uncleCountsByMinerId, numberOfMiners * 2);
+            }
+            minerId = numberOfMiners++;
+            minerAddresses[minerId] = minerAddress;
+            minerIdsByAddress.put(minerAddress, minerId);
+        }
+        return minerId;
+    }
+
+    private boolean hasHash(int position, String hash, byte format, byte[] packedHash) {
+        Chunk chunk = chunks[position >> CHUNK_SHIFT];
+        int slot = position & CHUNK_MASK;
+        if (chunk.hashFormats[slot] != format) {
+            return false;
+        }
+        switch (format) {
+            case NO_HASH:
+                return true;
+            case OTHER_HASH:
+                return chunk.otherHashes[slot].equals(hash);
+            default:
+                for (int i = 0; i < HASH_LENGTH; i++) {
+                    if (chunk.hashes[slot * HASH_LENGTH + i] != packedHash[i]) {
+                        return false;
+                    }
+                }
+                return true;
+        }
+    }
+
+    private static byte getHashFormat(String hash) {
+        if (hash == null) {
+            return NO_HASH;
+        }
+        int offset = hash.startsWith("0x") ? 2 : 0;
+        if (hash.length() != offset + 2 * HASH_LENGTH) {
+            return OTHER_HASH;
+        }
+        for (int i = offset; i < hash.length(); i++) {
+            char c = hash.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return OTHER_HASH;  // upper case digits wouldn't survive the round trip
+            }
+        }
+        return offset == 0 ? HEX_HASH : PREFIXED_HEX_HASH;
+    }
+
+    private static void packHash(String hash, byte[] target, int targetOffset) {
+        int offset = hash.length() - 2 * HASH_LENGTH;
+        for (int i = 0; i < HASH_LENGTH; i++) {
+            target[targetOffset + i] = (byte) (Character.digit(hash.charAt(offset + 2 * i), 16) << 4 |
+                    Character.digit(hash.charAt(offset + 2 * i + 1), 16));
+        }
+    }
+
+    /**
+     * @return the index of the first block with a timestamp not before <i>timestamp</i>
+     */
+    private int lowerBound(long timestamp) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (getTimestamp(middle) < timestamp) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the index of the first block with a timestamp after <i>timestamp</i>
+     */
+    private int upperBound(long timestamp) {
+        // blocks usually arrive at one of the ends
+        if (size == 0 || getTimestamp(size - 1) <= timestamp) {
+            return size;
+        }
+        if (getTimestamp(0) > timestamp) {
+            return 0;
+        }
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (getTimestamp(middle) > timestamp) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Opens a gap at <i>index</i> by moving the blocks before or after it (whichever are fewer).
+     */
+    private void insertAt(int index) {
+        if (index < size - index) {
+            if (offset == 0) {
+                insertFirstChunk();
+            }
+            offset--;
+            for (int i = 0; i < index; i++) {
+                move(offset + i + 1, offset + i);
+            }
+        } else {
+            if (offset + size == numberOfChunks << CHUNK_SHIFT) {
+                insertLastChunk();
+            }
+            for (int i = size; i > index; i--) {
+                move(offset + i - 1, offset + i);
+            }
+        }
+        clear(offset + index);
+        size++;
+    }
+
+    private void removeBlockAt(int index) {
+        updateAggregates(index, -1);
+        if (index < size - 1 - index) {
+            for (int i = index; i > 0; i--) {
+                move(offset + i - 1, offset + i);
+            }
+            clear(offset);
+            offset++;
+            if (offset == CHUNK_SIZE) {
+                removeFirstChunk();
+            }
+        } else {
+            for (int i = index; i < size - 1; i++) {
+                move(offset + i + 1, offset + i);
+            }
+            clear(offset + size - 1);
+            if (offset + size - 1 == (numberOfChunks - 1) << CHUNK_SHIFT) {
+                chunks[--numberOfChunks] = null;  // the last chunk has become empty
+            }
+        }
+        size--;
+        if (size == 0) {
+            difficultySum = 0;  // discards the rounding errors of the additions and subtractions
+        }
+        version = VERSIONS.incrementAndGet();
+    }
+
+    private void insertFirstChunk() {
+        if (numberOfChunks == chunks.length) {
+            chunks = Arrays.copyOf(chunks, numberOfChunks * 2);
+        }
+        System.arraycopy(chunks, 0, chunks, 1, numberOfChunks++);
+        chunks[0] = new Chunk(epoch);
+        offset += CHUNK_SIZE;
+    }
+
+    private void insertLastChunk() {
+        if (numberOfChunks == chunks.length) {
+            chunks = Arrays.copyOf(chunks, numberOfChunks * 2);
+        }
+        chunks[numberOfChunks++] = new Chunk(epoch);
+    }
+
+    private void removeFirstChunk() {
+        System.arraycopy(chunks, 1, chunks, 0, --numberOfChunks);
+        chunks[numberOfChunks] = null;
+        offset -= CHUNK_SIZE;
+    }
+
+    /**
+     * The columns of {@value #CHUNK_SIZE} consecutive positions of the window. A chunk can only be changed in the epoch
+     * it has been created in, afterwards it may be shared with snapshots.
+     */
+    private static class Chunk {
+
+        private final long epoch;
+        private final long[] timestamps;  // epoch seconds
+        private final long[] heights;
+        private final int[] transactionCounts;
+        private final double[] difficulties;
+        private final int[] minerIds;
+        private final byte[] hashFormats;
+        private final byte[] hashes;
+        private String[] otherHashes;  // only allocated if a hash can't be packed
+        private final int[][] uncleMinerIds;  // null for blocks without uncle blocks, the inner arrays are never changed
+        private final double[][] uncleDifficulties;
+
+        private Chunk(long epoch) {
+            this.epoch = epoch;
+            timestamps = new long[CHUNK_SIZE];
+            heights = new long[CHUNK_SIZE];
+            transactionCounts = new int[CHUNK_SIZE];
+            difficulties = new double[CHUNK_SIZE];
+            minerIds = new int[CHUNK_SIZE];
+            hashFormats = new byte[CHUNK_SIZE];
+            hashes = new byte[CHUNK_SIZE * HASH_LENGTH];
+            uncleMinerIds = new int[CHUNK_SIZE][];
+            uncleDifficulties = new double[CHUNK_SIZE][];
+        }
+
+        private Chunk(Chunk chunk, long epoch) {
+            this.epoch = epoch;
+            timestamps = chunk.timestamps.clone();
+            heights = chunk.heights.clone();
+            transactionCounts = chunk.transactionCounts.clone();
+            difficulties = chunk.difficulties.clone();
+            minerIds = chunk.minerIds.clone();
+            hashFormats = chunk.hashFormats.clone();
+            hashes = chunk.hashes.clone();
+            otherHashes = chunk.otherHashes == null ? null : chunk.otherHashes.clone();
+            uncleMinerIds = chunk.uncleMinerIds.clone();
+            uncleDifficulties = chunk.uncleDifficulties.clone();
+        }
+
+        /**
+         * @return a writable copy of this chunk for <i>epoch</i>
+         */
+        private Chunk copy(long epoch) {
+            return new Chunk(this, epoch);
+        }
+
+    }
+
+    /**
+     * An immutable view of a {@link SlidingBlockWindow} and its aggregates, which shares the chunks of the columns with
+     * the window. The metrics can be read from the columns directly (see e.g. {@link #getDifficulty(int)});
+     * {@link Block} objects are only created on demand.
+     */
+    public static class Snapshot implements IBlockStatistics {
+
+        private final Duration timespan;
+        private final long version;
+        private final int offset;
+        private final int size;
+        private final Chunk[] chunks;  // frozen by the epoch that ends with this snapshot
+        private final String[] minerAddresses;  // entries are never changed, so the array can be shared
+        private final int numberOfMiners;
+        private final int[] blockCountsByMinerId;
+        private final int[] uncleCountsByMinerId;
+        private final long numberOfTransactions;
+        private final double difficultySum;
+        private final int numberOfUncleBlocks;
+
+        private Snapshot(SlidingBlockWindow window) {
+            timespan = window.timespan;
+            version = window.version;
+            offset = window.offset;
+            size = window.size;
+            chunks = Arrays.copyOf(window.chunks, window.numberOfChunks);
+            minerAddresses = window.minerAddresses;
+            numberOfMiners = window.numberOfMiners;
+            blockCountsByMinerId = Arrays.copyOf(window.blockCountsByMinerId, numberOfMiners);
+            uncleCountsByMinerId = Arrays.copyOf(window.uncleCountsByMinerId, numberOfMiners);
+            numberOfTransactions = window.numberOfTransactions;
+            difficultySum = window.difficultySum;
+            numberOfUncleBlocks = window.numberOfUncleBlocks;
+        }
+
+        private Chunk chunk(int index) {
+            return chunks[(offset + index) >> CHUNK_SHIFT];
+        }
+
+        private int slot(int index) {
+            return (offset + index) & CHUNK_MASK;
+        }
+
+        private Map<String, Integer> toCountPerMiner(int[] countsByMinerId) {
+            Map<String, Integer> countPerMiner = new HashMap<>();
+            for (int minerId = 0; minerId < numberOfMiners; minerId++) {
+                if (countsByMinerId[minerId] > 0) {
+                    countPerMiner.put(minerAddresses[minerId], countsByMinerId[minerId]);
+                }
+            }
+            return Collections.unmodifiableMap(countPerMiner);
+        }
+
+        /**
+         * @return the timespan of the window, i.e. the horizon the aggregates refer to
+         */
+        public Duration getTimespan() {
+            return timespan;
+        }
+
+        /**
+         * @return the version of the window when this snapshot has been taken
+         */
+        @Override
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * @return the blocks of the window ordered by their timestamps. The blocks are created from the columns on
+         * access and only contain the stored fields (e.g. no previous block hash, uncle blocks only with miner address
+         * and difficulty).
+         */
+        public List<Block> getBlocks() {
+            return new AbstractList<Block>() {
+
+                @Override
+                public Block get(int index) {
+                    if (index < 0 || index >= size) {
+                        throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+                    }
+                    return toBlock(index);
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+
+            };
+        }
+
+        /**
+         * @return the most recent block of the window, or <i>null</i> if the window is empty
+         */
+        public Block getNewestBlock() {
+            return size == 0 ? null : toBlock(size - 1);
+        }
+
+        @Override
+        public int getNumberOfBlocks() {
+            return size;
+        }
+
+        public long getNumberOfTransactions() {
+            return numberOfTransactions;
+        }
+
+        @Override
+        public double getBlockRate() {
+            return (double) size / timespan.getSeconds();
+        }
+
+        @Override
+        public double getTransactionRate() {
+            return (double) numberOfTransactions / timespan.getSeconds();
+        }
+
+        @Override
+        public double getDifficultyRate() {
+            return difficultySum / timespan.getSeconds();
+        }
+
+        @Override
+        public double getNewestDifficulty() {
+            return size == 0 ? 0 : getDifficulty(size - 1);
+        }
+
+        /**
+         * @return the sum of the difficulties of all blocks and their uncle blocks
+         */
+        public double getDifficultySum() {
+            return difficultySum;
+        }
+
+        public int getNumberOfUncleBlocks() {
+            return numberOfUncleBlocks;
+        }
+
+        /**
+         * @return the number of blocks per miner address (without uncle blocks)
+         */
+        public Map<String, Integer> getBlockCountPerMiner() {
+            return toCountPerMiner(blockCountsByMinerId);
+        }
+
+        /**
+         * @return the number of uncle blocks per miner address
+         */
+        public Map<String, Integer> getUncleCountPerMiner() {
+            return toCountPerMiner(uncleCountsByMinerId);
+        }
+
+        @Override
+        public MiningDistribution getMiningDistribution(boolean includeUncleBlocks) {
+            if (!includeUncleBlocks) {
+                return new MiningDistribution(version, minerAddresses, blockCountsByMinerId, numberOfMiners, size);
+            }
+            int[] countsByMinerId = new int[numberOfMiners];
+            for (int minerId = 0; minerId < numberOfMiners; minerId++) {
+                countsByMinerId[minerId] = blockCountsByMinerId[minerId] + uncleCountsByMinerId[minerId];
+            }
+            return new MiningDistribution(version, minerAddresses, countsByMinerId, numberOfMiners,
+                    size + numberOfUncleBlocks);
+        }
+
+        /**
+         * @param index the index of a block, 0 is the oldest block
+         * @return the timestamp of the block in seconds since the epoch
+         */
+        public long getTimestamp(int index) {
+            return chunk(index).timestamps[slot(index)];
+        }
+
+        /**
+         * @param index the index of a block, 0 is the oldest block
+         * @return the height of the block
+         */
+        public long getHeight(int index) {
+            return chunk(index).heights[slot(index)];
+        }
+
+        /**
+         * @param index the index of a block, 0 is the oldest block
+         * @return the number of transactions of the block
+         */
+        public int getTransactionCount(int index) {
+            return chunk(index).transactionCounts[slot(index)];
+        }
+
+        /**
+         * @param index the index of a block, 0 is the oldest block
+         * @return the difficulty of the block (without its uncle blocks)
+         */
+        public double getDifficulty(int index) {
+            return chunk(index).difficulties[slot(index)];
+        }
+
+        /**
+         * @param index the index of a block, 0 is the oldest block
+         * @return the difficulty of the block and its uncle blocks
+         */
+        public double getTotalDifficulty(int index) {
+            double totalDifficulty = getDifficulty(index);
+            double[] uncleDifficulties = chunk(index).uncleDifficulties[slot(index)];
+            if (uncleDifficulties != null) {
+                for (double uncleDifficulty : uncleDifficulties) {
+                    totalDifficulty += uncleDifficulty;
+                }
+            }
+            return totalDifficulty;
+        }
+
+        /**
+         * @param index the index of a block, 0 is the oldest block
+         * @return the number of uncle blocks of the block
+         */
+        public int getNumberOfUncleBlocks(int index) {
+            int[] uncleMinerIds = chunk(index).uncleMinerIds[slot(index)];
+            return uncleMinerIds == null ? 0 : uncleMinerIds.length;
+        }
+
+        /**
+         * @param index the index of a block, 0 is the oldest block
+         * @return the miner address of the block
+         */
+        public String getMinerAddress(int index) {
+            return minerAddresses[chunk(index).minerIds[slot(index)]];
+        }
+
+        private Block toBlock(int index) {
+            Chunk chunk = chunk(index);
+            int slot = slot(index);
+            Block block = new Block();
+            block.setHash(getHash(chunk, slot));
+            block.setHeight(chunk.heights[slot]);
+            block.setTimestamp(Utils.convertUnixEpochTime(chunk.timestamps[slot]));
+            block.setNumberOfTransactions(chunk.transactionCounts[slot]);
+            block.setMinerAddress(minerAddresses[chunk.minerIds[slot]]);
+            block.setDifficulty(chunk.difficulties[slot]);
+            if (chunk.uncleMinerIds[slot] != null) {
+                for (int i = 0; i < chunk.uncleMinerIds[slot].length; i++) {
+                    Block uncleBlock = new Block();
+                    uncleBlock.setMinerAddress(minerAddresses[chunk.uncleMinerIds[slot][i]]);
+                    uncleBlock.setDifficulty(chunk.uncleDifficulties[slot][i]);
+                    block.getUncleBlocks().add(uncleBlock);
+                }
+            }
+            return block;
+        }
+
+        private static String getHash(Chunk chunk, int slot) {
+            switch (chunk.hashFormats[slot]) {
+                case NO_HASH:
+                    return null;
+                case OTHER_HASH:
+                    return chunk.otherHashes[slot];
+                default:
+                    String hash = new String(Hex.encodeHex(
+                            Arrays.copyOfRange(chunk.hashes, slot * HASH_LENGTH, (slot + 1) * HASH_LENGTH)));
+                    return chunk.hashFormats[slot] == PREFIXED_HEX_HASH ? "0x" + hash : hash;
+            }
+        }
+
+    }
+
+}
@@ -4,94 +4,179 @@ import io.reactivex.Observable;
 import io.reactivex.ObservableEmitter;
 import io.reactivex.ObservableSource;
 import io.reactivex.ObservableTransformer;
+import io.reactivex.Observer;
+import io.reactivex.Scheduler;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.schedulers.Schedulers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.Duration;
 import java.time.temporal.ChronoUnit;
-import java.util.*;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This RxJava operator emits true until false values have been received for the given time span, i.e. if only false
  * values arrived for the given time span, the operator emits false after the time span has elapsed. In case a true value
  * arrives after a series of false values and the time span is not elapsed, the operator resets its state and emits true.
+ * <p>
+ * The time span of each subscription is tracked by a deadline on a {@link Scheduler} instead of a timer thread per
+ * operator. By default, the deadlines of all metrics of all blockchains are kept by one shared thread (see
+ * {@link Utils#getTimerScheduler()}) and an elapsed deadline only hands the emission of false over to the
+ * {@link Schedulers#io()} scheduler, such that a subscriber which blocks (e.g. by performing a switchover) doesn't delay
+ * the deadlines of other metrics. On a {@link io.reactivex.schedulers.TestScheduler} the deadlines elapse in virtual
+ * time.
+ * If the upstream completes while a deadline is pending, the operator completes after the deadline has elapsed.
  */
 public class ThresholdViolationOperator implements ObservableTransformer<Boolean, Boolean> {
 
     static final Logger LOG = LoggerFactory.getLogger(ThresholdViolationOperator.class);
 
-    private TimerTask timerTask;
+    private final long timeSpan;
 
-    private Timer timer = new Timer("ThresholdViolationOperator");
+    private final ChronoUnit timeUnit;
 
-    private AtomicBoolean lastEmitResult = new AtomicBoolean(true);
+    private final Scheduler timerScheduler;
 
-    private long timeSpan;
-
-    private ChronoUnit timeUnit;
+    private final Scheduler emissionScheduler;
 
     public ThresholdViolationOperator(long timeSpan, ChronoUnit timeUnit) {
-        this.timeSpan = timeSpan;
-        this.timeUnit = timeUnit;
+        this(timeSpan, timeUnit, Utils.getTimerScheduler(), Schedulers.io());
     }
 
-    synchronized private void cancelTimerTask() {
-        if (timerTask != null) {
-            timerTask.cancel();
-            timerTask = null;
-        }
+    /**
+     * @param timeSpan  the time span for which only false values must be received to emit false
+     * @param timeUnit  the unit of the time span
+     * @param scheduler the scheduler which keeps the deadlines and emits the violations
+     */
+    public ThresholdViolationOperator(long timeSpan, ChronoUnit timeUnit, Scheduler scheduler) {
+        this(timeSpan, timeUnit, scheduler, scheduler);
     }
 
-    synchronized private void scheduleTimerTask(ObservableEmitter<Object> emitter) {
-        LOG.info("Schedule task");
-        timerTask = new TimerTask() {
-            @Override
-            public void run() {
-                emitter.onNext(false);
-                lastEmitResult.set(false);
-                timerTask = null;
-            }
-        };
-        timer.schedule(timerTask, Duration.of(timeSpan, timeUnit).toMillis());
-    }
-
-    synchronized private boolean isTimerTaskScheduled() {
-        return timerTask != null;
+    /**
+     * @param timeSpan          the time span for which only false values must be received to emit false
+     * @param timeUnit          the unit of the time span
+     * @param timerScheduler    the scheduler which keeps the deadlines
+     * @param emissionScheduler the scheduler on which a violation is emitted once its deadline has elapsed
+     */
+    public ThresholdViolationOperator(long timeSpan, ChronoUnit timeUnit, Scheduler timerScheduler,
+                                      Scheduler emissionScheduler) {
+        this.timeSpan = timeSpan;
+        this.timeUnit = timeUnit;
+        this.timerScheduler = timerScheduler;
+        this.emissionScheduler = emissionScheduler;
     }
 
     @Override
     public ObservableSource<Boolean> apply(Observable<Boolean> upstream) {
         return Observable
-                .create(emitter -> upstream.subscribe(next -> {
-                    if (next) {
-//                        LOG.info("next: " + next);
-//                        LOG.info("lastEmitResult: " + lastEmitResult.get());
-                        if (!lastEmitResult.get()) {
-                            // last emitted result was false -> no task is scheduled
-                            lastEmitResult.set(true);
-                            emitter.onNext(true);
-                        } else if (isTimerTaskScheduled()) {
-                            // last emitted result was true and a task is scheduled
-                            LOG.info("cancel task: next=" + next + ", lastEmitResult=" + lastEmitResult.get());
-                            cancelTimerTask();
-                        }
-                    } else {
-                        if (!isTimerTaskScheduled() && lastEmitResult.get()) {
-                            // last emitted result was true and no timer task is scheduled
-                            if (timeSpan > 0) {
-                                LOG.info("start task: next=" + next + ", lastEmitResult=" + lastEmitResult.get());
-                                scheduleTimerTask(emitter);
-                            }
-                            else {
-                                lastEmitResult.set(false);
-                                emitter.onNext(false);
-                            }
-                        }
-                    }
-                }))
-                .startWith(true)
-                .map(b -> (Boolean) b);
+                .<Boolean>create(emitter -> {
+                    Violation violation = new Violation(emitter.serialize());
+                    emitter.setCancellable(violation::cancel);
+                    upstream.subscribe(violation);
+                })
+                .startWith(true);
+    }
+
+    /**
+     * The state of a single subscription.
+     */
+    private class Violation implements Observer<Boolean> {
+
+        private final ObservableEmitter<Boolean> emitter;
+
+        private Disposable subscription;
+
+        private boolean cancelled = false;
+
+        private boolean lastEmitResult = true;
+
+        private Disposable deadline;
+
+        private long deadlineVersion = 0;  // identifies the pending deadline, such that a cancelled one is ignored
+
+        private boolean completed = false;
+
+        private Violation(ObservableEmitter<Boolean> emitter) {
+            this.emitter = emitter;
+        }
+
+        @Override
+        synchronized public void onSubscribe(Disposable subscription) {
+            this.subscription = subscription;
+            if (cancelled) {
+                subscription.dispose();
+            }
+        }
+
+        @Override
+        synchronized public void onNext(Boolean next) {
+            if (next) {
+                if (!lastEmitResult) {
+                    // last emitted result was false -> no deadline is pending
+                    lastEmitResult = true;
+                    emitter.onNext(true);
+                } else if (deadline != null) {
+                    // last emitted result was true and a deadline is pending
+                    LOG.debug("cancel deadline: next=" + next + ", lastEmitResult=" + lastEmitResult);
+                    cancelDeadline();
+                }
+            } else if (deadline == null && lastEmitResult) {
+                // last emitted result was true and no deadline is pending
+                if (timeSpan > 0) {
+                    LOG.debug("start deadline: next=" + next + ", lastEmitResult=" + lastEmitResult);
+                    long version = ++deadlineVersion;
+                    // the timer only hands over, the subscribers are called on the emission scheduler
+                    deadline = timerScheduler.scheduleDirect(
+                            () -> emissionScheduler.scheduleDirect(() -> onDeadline(version)),
+                            Duration.of(timeSpan, timeUnit).toMillis(), TimeUnit.MILLISECONDS);
+                } else {
+                    lastEmitResult = false;
+                    emitter.onNext(false);
+                }
+            }
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            emitter.onError(error);
+        }
+
+        @Override
+        synchronized public void onComplete() {
+            completed = true;
+            if (deadline == null) {
+                emitter.onComplete();
+            }
+        }
+
+        synchronized private void onDeadline(long version) {
+            if (deadline == null || version != deadlineVersion) {
+                return;  // cancelled while the deadline was elapsing
+            }
+            deadline = null;
+            lastEmitResult = false;
+            emitter.onNext(false);
+            if (completed) {
+                emitter.onComplete();
+            }
+        }
+
+        private void cancelDeadline() {
+            deadline.dispose();
+            deadline = null;
+        }
+
+        synchronized private void cancel() {
+            cancelled = true;
+            if (subscription != null) {
+                subscription.dispose();
+            }
+            if (deadline != null) {
+                cancelDeadline();
+            }
+        }
+
     }
 
 }
@@ -1,80 +1,251 @@
 package com.ieee19.bc.interop.pf.core;
 
 import com.ieee19.bc.interop.pf.core.model.Block;
+import com.ieee19.bc.interop.pf.core.model.BlockEvent;
 import io.reactivex.*;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.schedulers.Schedulers;
 import org.reactivestreams.Publisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- * This RxJava operator removes every 5 seconds old blocks from the list and emits the remaining blocks. The timespan
- * defines the time a block should remain in the list.
+ * This RxJava operator periodically removes old blocks from the list and emits the remaining blocks if the list has
+ * changed since the last emission. The timespan defines the time a block should remain in the list. Blocks that have
+ * been orphaned by a reorganization can be removed with {@link BlockEvent}s, see {@link #forBlockEvents()}.
+ * <p>
+ * The blocks are kept in a {@link SlidingBlockWindow}, such that adding and evicting a block doesn't rescan the list
+ * and the metrics can be derived from the running aggregates of the window (see {@link #forBlockEventsAsWindow()}).
+ * <p>
+ * Several timespans (horizons) can be maintained over the same stream of blocks, each in its own window with its own
+ * aggregates (see {@link #forBlockEventsAsWindows()}). The plain list of blocks always refers to the longest horizon.
+ * <p>
+ * Blocks are evicted relative to a watermark instead of the wall clock: the newer of the most recent block timestamp
+ * and the clock of the scheduler. A live stream is therefore evicted in real time even if no block arrives, while a
+ * replayed stream on a {@link io.reactivex.schedulers.TestScheduler} is evicted by the block timestamps and the virtual
+ * time only, i.e. deterministically. Since miners set the block timestamps themselves, a future-dated block may only
+ * advance the watermark up to the clock tolerance ahead of the clock (see {@link #setClockTolerance(Duration)}); only
+ * replayed streams should trust the block timestamps without a limit. The ticks of all instances run on one shared
+ * thread by default (see {@link Utils#getTimerScheduler()}). A tick only hands the eviction and the emission of the
+ * snapshots over to the {@link Schedulers#io()} scheduler, at most once at a time per instance, such that a blocking
+ * subscriber doesn't delay the ticks of other instances.
  */
 public class TimeEvictionBuffer implements FlowableTransformer<Block, List<Block>> {
 
     private static final Logger LOG = LoggerFactory.getLogger(TimeEvictionBuffer.class);
 
-    private long timespan;
+    public static final Duration DEFAULT_TICK = Duration.ofSeconds(5);
 
-    private ChronoUnit timeUnit;
+    public static final Duration DEFAULT_CLOCK_TOLERANCE = Duration.ofMinutes(1);
 
-    private List<Block> blocks;
+    private final Map<Duration, SlidingBlockWindow> windows = new LinkedHashMap<>();
 
-    private boolean timerTaskStarted = false;
+    private final Map<Duration, SlidingBlockWindow.Snapshot> snapshots = new LinkedHashMap<>();
+
+    private final Set<Duration> changedHorizons = new HashSet<>();  // changed since the last emission
+
+    private final Duration longestHorizon;
+
+    private final Scheduler scheduler;
+
+    private final Scheduler emissionScheduler;
+
+    private final AtomicBoolean emissionPending = new AtomicBoolean();
+
+    private final Duration tick;
+
+    private Duration clockTolerance = DEFAULT_CLOCK_TOLERANCE;
+
+    private long newestBlockTimestamp = Long.MIN_VALUE;  // epoch milliseconds
 
     public TimeEvictionBuffer(long timespan, ChronoUnit timeUnit) {
-        this.timespan = timespan;
-        this.timeUnit = timeUnit;
-        blocks = new ArrayList<>();
+        this(Collections.singletonList(Duration.of(timespan, timeUnit)));
+    }
+
+    /**
+     * @param horizons the timespans to maintain a window for
+     */
+    public TimeEvictionBuffer(Collection<Duration> horizons) {
+        this(horizons, Utils.getTimerScheduler(), Schedulers.io(), DEFAULT_TICK);
+    }
+
+    /**
+     * @param horizons  the timespans to maintain a window for
+     * @param scheduler the scheduler to evict the blocks on, whose clock advances the watermark
+     * @param tick      the time between two evictions
+     */
+    public TimeEvictionBuffer(Collection<Duration> horizons, Scheduler scheduler, Duration tick) {
+        this(horizons, scheduler, scheduler, tick);
+    }
+
+    /**
+     * @param horizons          the timespans to maintain a window for
+     * @param scheduler         the scheduler which runs the ticks, whose clock advances the watermark
+     * @param emissionScheduler the scheduler a tick hands the eviction and the emission of the snapshots over to
+     * @param tick              the time between two evictions
+     */
+    public TimeEvictionBuffer(Collection<Duration> horizons, Scheduler scheduler, Scheduler emissionScheduler,
+                              Duration tick) {
+        if (horizons.isEmpty()) {
+            throw new IllegalArgumentException("No horizon given");
+        }
+        if (tick.isZero() || tick.isNegative()) {
+            throw new IllegalArgumentException("Tick " + tick + " is not positive");
+        }
+        horizons.stream().sorted().forEach(horizon -> {
+            SlidingBlockWindow window = new SlidingBlockWindow(horizon);
+            windows.put(horizon, window);
+            snapshots.put(horizon, window.snapshot());
+        });
+        longestHorizon = Collections.max(horizons);
+        this.scheduler = scheduler;
+        this.emissionScheduler = emissionScheduler;
+        this.tick = tick;
+    }
+
+    /**
+     * @param clockTolerance how far a future-dated block may advance the watermark ahead of the clock of the scheduler,
+     *                       or <i>null</i> to evict by the block timestamps without a limit, e.g. for replayed blocks
+     */
+    public TimeEvictionBuffer setClockTolerance(Duration clockTolerance) {
+        this.clockTolerance = clockTolerance;
+        return this;
     }
 
     @Override
     public Publisher<List<Block>> apply(Flowable<Block> upstream) {
-        return Flowable
-                .create(emitter -> upstream.subscribe(
-                        nextBlock -> {
-                            startTimerTask(emitter);
-                            addBlock(nextBlock);
-                        },
-                        throwable -> emitter.onError(throwable),
-                        () -> emitter.onComplete()
-                ), BackpressureStrategy.BUFFER);
+        return forBlockEvents().apply(upstream.map(BlockEvent::add));
+    }
+
+    /**
+     * @return this operator for a stream of {@link BlockEvent}s: added blocks are put into the list, retracted blocks
+     * are removed from it.
+     */
+    public FlowableTransformer<BlockEvent, List<Block>> forBlockEvents() {
+        return upstream -> upstream
+                .compose(forBlockEventsAsWindow())
+                .map(SlidingBlockWindow.Snapshot::getBlocks);
+    }
+
+    /**
+     * @return this operator for a stream of {@link BlockEvent}s, which emits snapshots of the window of the longest
+     * horizon including its aggregates instead of the plain list of blocks
+     */
+    public FlowableTransformer<BlockEvent, SlidingBlockWindow.Snapshot> forBlockEventsAsWindow() {
+        return upstream -> upstream
+                .compose(forBlockEventsAsWindows())
+                .map(windowsPerHorizon -> windowsPerHorizon.get(longestHorizon))
+                .distinctUntilChanged();  // snapshots of unchanged windows are reused
+    }
+
+    /**
+     * @return this operator for a stream of {@link BlockEvent}s, which emits the snapshots of the windows of all
+     * horizons whenever at least one of them has changed. A snapshot is only recreated if its window has changed, so
+     * unchanged windows can be skipped by comparing the snapshots by identity. Since every emission contains the whole
+     * windows, only the newest one is kept for a slow consumer. The windows are evicted once per tick and once more
+     * when the stream completes, such that the final state is emitted as well.
+     */
+    public FlowableTransformer<BlockEvent, Map<Duration, SlidingBlockWindow.Snapshot>> forBlockEventsAsWindows() {
+        return upstream -> Flowable
+                .create(emitter -> {
+                    long tickMillis = tick.toMillis();
+                    Disposable ticks = scheduler.schedulePeriodicallyDirect(() -> handOverTick(emitter),
+                            tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+                    Disposable subscription = upstream.subscribe(
+                            this::applyEvent,
+                            throwable -> {
+                                ticks.dispose();
+                                synchronized (this) {
+                                    emitter.onError(throwable);
+                                }
+                            },
+                            () -> {
+                                ticks.dispose();
+                                emitChangedWindows(emitter);  // the state at the end of the stream
+                                synchronized (this) {
+                                    emitter.onComplete();
+                                }
+                            });
+                    emitter.setCancellable(() -> {
+                        ticks.dispose();
+                        subscription.dispose();
+                    });
+                }, BackpressureStrategy.LATEST);
     }
 
-    private void addBlock(Block newBlock) {
-        synchronized (blocks) {
-            blocks.add(newBlock);
+    private void applyEvent(BlockEvent event) {
+        synchronized (windows) {
+            if (event.getType() == BlockEvent.Type.ADD) {
+                newestBlockTimestamp = Math.max(newestBlockTimestamp,
+                        event.getBlock().getTimestamp().toInstant().toEpochMilli());
+            }
+            windows.forEach((horizon, window) -> {
+                if (window.apply(event)) {
+                    changedHorizons.add(horizon);
+                }
+            });
+        }
+    }
+
+    /**
+     * Runs on the ticks. Skips the tick if the emission of the previous one hasn't finished yet, e.g. because the
+     * subscriber blocks; that emission evicts and emits the latest state anyway.
+     */
+    private void handOverTick(FlowableEmitter<Map<Duration, SlidingBlockWindow.Snapshot>> emitter) {
+        if (!emissionPending.compareAndSet(false, true)) {
+            return;
         }
+        emissionScheduler.scheduleDirect(() -> {
+            try {
+                emitChangedWindows(emitter);
+            } finally {
+                emissionPending.set(false);
+            }
+        });
     }
 
-    private synchronized void startTimerTask(FlowableEmitter<List<Block>> emitter) {
-        TimerTask timerTask;
-        Timer timer;
-
-        if (!timerTaskStarted) {
-            timerTaskStarted = true;
-            timer = new Timer("Timer");
-            timerTask = new TimerTask() {
-                @Override
-                public void run() {
-                    synchronized (blocks) {
-                        List<Block> survivedBlocks = blocks
-                                .stream()
-                                .parallel()
-                                .filter(block -> block.getTimestamp().isAfter(ZonedDateTime.now().minus(timespan, timeUnit)))
-                                .collect(Collectors.toList());
-
-                        emitter.onNext(new ArrayList<>(survivedBlocks));
-                        blocks = survivedBlocks;
-                    }
+    /**
+     * Evicts the blocks older than the watermark and emits the snapshots if a window has changed. The emission doesn't
+     * hold the lock of the windows, such that a slow consumer doesn't block new block events.
+     */
+    private synchronized void emitChangedWindows(FlowableEmitter<Map<Duration, SlidingBlockWindow.Snapshot>> emitter) {
+        Map<Duration, SlidingBlockWindow.Snapshot> snapshotsToEmit = null;
+        synchronized (windows) {
+            ZonedDateTime watermark = getWatermark();
+            windows.forEach((horizon, window) -> {
+                if (window.evict(watermark)) {
+                    changedHorizons.add(horizon);
                 }
-            };
-            timer.schedule(timerTask, 5000, 5000);
+            });
+            if (!changedHorizons.isEmpty()) {
+                changedHorizons.forEach(horizon -> snapshots.put(horizon, windows.get(horizon).snapshot()));
+                changedHorizons.clear();
+                snapshotsToEmit = Collections.unmodifiableMap(new LinkedHashMap<>(snapshots));
+            }
         }
+        if (snapshotsToEmit != null) {
+            emitter.onNext(snapshotsToEmit);
+        }
+    }
+
+    /**
+     * @return the newer of the most recent block timestamp and the clock of the scheduler, at most the clock tolerance
+     * ahead of the clock
+     */
+    private ZonedDateTime getWatermark() {
+        long now = scheduler.now(TimeUnit.MILLISECONDS);
+        long blockTime = clockTolerance == null ?
+                newestBlockTimestamp : Math.min(newestBlockTimestamp, now + clockTolerance.toMillis());
+        long watermark = Math.max(blockTime, now);
+        return ZonedDateTime.ofInstant(Instant.ofEpochMilli(watermark), ZoneOffset.UTC);
     }
 }
@@ -1,5 +1,8 @@
 package com.ieee19.bc.interop.pf.core;
 
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+import io.reactivex.plugins.RxJavaPlugins;
 import org.apache.commons.codec.DecoderException;
 import org.apache.commons.codec.binary.Hex;
 
@@ -7,9 +10,30 @@ import java.io.UnsupportedEncodingException;
 import java.time.Instant;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 
 public class Utils {
 
+    private static final Scheduler TIMER_SCHEDULER = RxJavaPlugins.createSingleScheduler(runnable -> {
+        Thread thread = new Thread(runnable, "SharedTimer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * The timers of all operators that don't get a scheduler (e.g. eviction ticks and threshold violation deadlines)
+     * share this single-threaded scheduler, such that the number of threads doesn't grow with the number of monitored
+     * blockchains and metrics. Tasks on this scheduler must not block.
+     *
+     * @return the shared timer scheduler
+     */
+    public static Scheduler getTimerScheduler() {
+        return TIMER_SCHEDULER;
+    }
+
     public static ZonedDateTime convertUnixEpochTime(long unixEpochTimeInSeconds) {
         Instant instant = Instant.ofEpochSecond(unixEpochTimeInSeconds);
         return ZonedDateTime.ofInstant(instant, ZoneOffset.UTC);
@@ -29,4 +53,61 @@ public class Utils {
         return "0x" + Hex.encodeHexString(data);
     }
 
+    /**
+     * Bridges an asynchronous call to RxJava without blocking a thread. The call is started on subscription and the
+     * error of a failed call is emitted without the {@link CompletionException} wrapper.
+     *
+     * @param asyncCall starts the call
+     * @param <T>       the type of the result
+     * @return a {@link Single} which emits the result of the call
+     */
+    public static <T> Single<T> toSingle(Callable<CompletableFuture<T>> asyncCall) {
+        return Single.defer(() -> {
+            CompletableFuture<T> future = asyncCall.call();
+            return Single.<T>create(emitter -> {
+                emitter.setCancellable(() -> future.cancel(false));
+                future.whenComplete((value, error) -> {
+                    if (error != null) {
+                        emitter.tryOnError(unwrap(error));
+                    } else {
+                        emitter.onSuccess(value);
+                    }
+                });
+            });
+        });
+    }
+
+    /**
+     * Waits for the result of an asynchronous call, e.g. in code that runs on a thread which may block anyway.
+     *
+     * @param future the result of the call
+     * @param <T>    the type of the result
+     * @return the result of the call
+     * @throws Exception the error of the call (without the {@link ExecutionException} wrapper)
+     */
+    public static <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = unwrap(e);
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @param throwable the error of a {@link CompletableFuture}
+     * @return the actual error, i.e. <i>throwable</i> without {@link CompletionException} and
+     * {@link ExecutionException} wrappers
+     */
+    public static Throwable unwrap(Throwable throwable) {
+        Throwable cause = throwable;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
 }
@@ -0,0 +1,62 @@
+package com.ieee19.bc.interop.pf.core.model;
+
+import java.util.Objects;
+
+/**
+ * This class represents a change of the main chain: a block is either added to the main chain or retracted from it
+ * (because it has been orphaned by a reorganization).
+ */
+public class BlockEvent {
+
+    public enum Type {
+        ADD,
+        RETRACT
+    }
+
+    private final Type type;
+
+    private final Block block;
+
+    public BlockEvent(Type type, Block block) {
+        this.type = type;
+        this.block = block;
+    }
+
+    public static BlockEvent add(Block block) {
+        return new BlockEvent(Type.ADD, block);
+    }
+
+    public static BlockEvent retract(Block block) {
+        return new BlockEvent(Type.RETRACT, block);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Block getBlock() {
+        return block;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof BlockEvent)) return false;
+        BlockEvent that = (BlockEvent) o;
+        return type == that.type && Objects.equals(block, that.block);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, block);
+    }
+
+    @Override
+    public String toString() {
+        return "BlockEvent{" +
+                "type=" + type +
+                ", block=" + block +
+                '}';
+    }
+
+}
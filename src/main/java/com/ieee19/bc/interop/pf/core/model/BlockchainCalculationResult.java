@@ -1,6 +1,5 @@
 package com.ieee19.bc.interop.pf.core.model;
 
-import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -11,15 +10,21 @@ public class BlockchainCalculationResult {
     private BlockchainMetaData blockchain;
 
     /**
-     * Contains the weighted score for each blockchain metric.
+     * Contains the weighted score for each blockchain metric and their sum.
      */
-    private Map<BlockchainMetric, Integer> weightedScores = new HashMap<>();
+    private BlockchainWeightedScore weightedScore = new BlockchainWeightedScore();
 
     /**
      * Contains a boolean value for each metric indicating whether a metric has passed threshold(s) (true)
      * or has violated all or some of them (false).
      */
-    private Map<BlockchainMetric, Boolean> thresholdValidationResults = new HashMap<>();
+    private ThresholdValidationResult thresholdValidationResult = new ThresholdValidationResult();
+
+    /**
+     * Indicates whether the block based metrics are still estimated from a sample of the blocks, i.e. whether the
+     * result is preliminary.
+     */
+    private boolean approximate = false;
 
     public BlockchainMetaData getBlockchain() {
         return blockchain;
@@ -29,28 +34,66 @@ public class BlockchainCalculationResult {
         this.blockchain = blockchain;
     }
 
+    public BlockchainWeightedScore getWeightedScore() {
+        return weightedScore;
+    }
+
+    /**
+     * @param weightedScore the weighted scores, which are shared instead of copied
+     */
+    public void setWeightedScore(BlockchainWeightedScore weightedScore) {
+        this.weightedScore = weightedScore;
+    }
+
+    /**
+     * @return a new map of the weighted score for each scored metric, see
+     * {@link BlockchainWeightedScore#getWeightedMetricScores()}
+     */
     public Map<BlockchainMetric, Integer> getWeightedScores() {
-        return weightedScores;
+        return weightedScore.getWeightedMetricScores();
     }
 
     public void setWeightedScores(Map<BlockchainMetric, Integer> weightedScores) {
-        this.weightedScores = weightedScores;
+        weightedScore = new BlockchainWeightedScore();
+        weightedScore.setWeightedMetricScores(weightedScores);
+    }
+
+    public ThresholdValidationResult getThresholdValidationResult() {
+        return thresholdValidationResult;
     }
 
+    /**
+     * @param thresholdValidationResult the threshold validation results, which are shared instead of copied
+     */
+    public void setThresholdValidationResult(ThresholdValidationResult thresholdValidationResult) {
+        this.thresholdValidationResult = thresholdValidationResult;
+    }
+
+    /**
+     * @return a new map of the threshold validation result for each validated metric
+     */
     public Map<BlockchainMetric, Boolean> getThresholdValidationResults() {
-        return thresholdValidationResults;
+        return thresholdValidationResult.getThresholdValidationResults();
     }
 
     public void setThresholdValidationResults(Map<BlockchainMetric, Boolean> thresholdValidationResults) {
-        this.thresholdValidationResults = thresholdValidationResults;
+        thresholdValidationResult = new ThresholdValidationResult();
+        thresholdValidationResult.setThresholdValidationResults(thresholdValidationResults);
     }
 
+    public boolean isApproximate() {
+        return approximate;
+    }
+
+    public void setApproximate(boolean approximate) {
+        this.approximate = approximate;
+    }
+
+    /**
+     * @return the sum of the weighted scores of all metrics, which is computed once when the scores are set
+     */
     public int getOverallWeightedScore() {
-        return weightedScores
-                .values()
-                .stream()
-                .mapToInt(Integer::intValue)
-                .sum();
+        return weightedScore.getOverallWeightedScore();
     }
 
 }
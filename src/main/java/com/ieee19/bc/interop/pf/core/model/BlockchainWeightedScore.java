@@ -1,38 +1,85 @@
 package com.ieee19.bc.interop.pf.core.model;
 
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.Map;
 
 /**
- * Represents the weighted scores of a blockchain.
+ * Represents the weighted scores of a blockchain. The scores are stored in an array indexed by the ordinal of the
+ * metric and the overall score is updated whenever a score is set, such that ranking blockchains neither boxes nor
+ * sums the scores again.
  */
 public class BlockchainWeightedScore {
 
+    private static final BlockchainMetric[] METRICS = BlockchainMetric.values();
+
     private BlockchainMetaData blockchain;
 
     /**
-     * Contains the weighted score for each blockchain metric.
+     * Contains the weighted score for each blockchain metric, indexed by {@link BlockchainMetric#ordinal()}.
+     */
+    private final int[] weightedMetricScores = new int[METRICS.length];
+
+    /**
+     * Contains a bit for each metric that has been scored.
      */
-    private Map<BlockchainMetric, Integer> weightedMetricScores = new HashMap<>();
+    private int scoredMetrics = 0;
+
+    private int overallWeightedScore = 0;
 
     public void setWeightedMetricScore(BlockchainMetric metric, int weightedScore) {
-        weightedMetricScores.put(metric, weightedScore);
+        overallWeightedScore += weightedScore - weightedMetricScores[metric.ordinal()];
+        weightedMetricScores[metric.ordinal()] = weightedScore;
+        scoredMetrics |= 1 << metric.ordinal();
     }
 
+    /**
+     * @param metric the metric
+     * @return the weighted score of <i>metric</i>, or <i>null</i> if it hasn't been scored
+     */
     public Integer getWeightedMetricScore(BlockchainMetric metric) {
-        return weightedMetricScores.get(metric);
+        return (scoredMetrics & 1 << metric.ordinal()) == 0 ? null : weightedMetricScores[metric.ordinal()];
+    }
+
+    /**
+     * @return the sum of the weighted scores of all metrics
+     */
+    public int getOverallWeightedScore() {
+        return overallWeightedScore;
     }
 
     public BlockchainMetaData getBlockchain() {
         return blockchain;
     }
 
+    /**
+     * @return a new map of the weighted score for each scored metric; it isn't backed by the scores, which can only be
+     * changed with {@link #setWeightedMetricScore(BlockchainMetric, int)}
+     */
     public Map<BlockchainMetric, Integer> getWeightedMetricScores() {
-        return weightedMetricScores;
+        Map<BlockchainMetric, Integer> scores = new EnumMap<>(BlockchainMetric.class);
+        for (BlockchainMetric metric : METRICS) {
+            Integer weightedScore = getWeightedMetricScore(metric);
+            if (weightedScore != null) {
+                scores.put(metric, weightedScore);
+            }
+        }
+        return Collections.unmodifiableMap(scores);
     }
 
+    /**
+     * @param weightedMetricScores the weighted scores, which replace all scores set before
+     */
     public void setWeightedMetricScores(Map<BlockchainMetric, Integer> weightedMetricScores) {
-        this.weightedMetricScores = weightedMetricScores;
+        Arrays.fill(this.weightedMetricScores, 0);
+        scoredMetrics = 0;
+        overallWeightedScore = 0;
+        weightedMetricScores.forEach((metric, weightedScore) -> {
+            if (weightedScore != null) {
+                setWeightedMetricScore(metric, weightedScore);
+            }
+        });
     }
 
     public void setBlockchain(BlockchainMetaData blockchain) {
@@ -0,0 +1,93 @@
+package com.ieee19.bc.interop.pf.core.model;
+
+import java.util.Objects;
+
+/**
+ * This class represents the bounds of an estimated metric value. The bounds of an exact value are equal to the value.
+ */
+public class ConfidenceInterval {
+
+    private final double lowerBound;
+    private final double upperBound;
+
+    /**
+     * @param lowerBound the lowest plausible value
+     * @param upperBound the highest plausible value
+     */
+    public ConfidenceInterval(double lowerBound, double upperBound) {
+        if (lowerBound > upperBound) {
+            throw new IllegalArgumentException("Lower bound " + lowerBound + " is greater than upper bound " +
+                    upperBound);
+        }
+        this.lowerBound = lowerBound;
+        this.upperBound = upperBound;
+    }
+
+    /**
+     * @param value an exact value
+     * @return an interval that only contains <i>value</i>
+     */
+    public static ConfidenceInterval exact(double value) {
+        return new ConfidenceInterval(value, value);
+    }
+
+    public double getLowerBound() {
+        return lowerBound;
+    }
+
+    public double getUpperBound() {
+        return upperBound;
+    }
+
+    /**
+     * @return the difference between the upper and the lower bound
+     */
+    public double getWidth() {
+        return upperBound - lowerBound;
+    }
+
+    /**
+     * @param value the value to check
+     * @return <i>true</i> if <i>value</i> lies within the bounds (both inclusive)
+     */
+    public boolean contains(double value) {
+        return value >= lowerBound && value <= upperBound;
+    }
+
+    /**
+     * @return the bounds of the reciprocal value, e.g. of the block time for an interval of the block rate
+     */
+    public ConfidenceInterval reciprocal() {
+        return new ConfidenceInterval(1 / upperBound, 1 / lowerBound);
+    }
+
+    /**
+     * @param factor a non-negative factor
+     * @return the bounds multiplied by <i>factor</i>
+     */
+    public ConfidenceInterval multiply(double factor) {
+        if (factor == 0) {
+            return exact(0);  // even for an unbounded interval
+        }
+        return new ConfidenceInterval(lowerBound * factor, upperBound * factor);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ConfidenceInterval)) return false;
+        ConfidenceInterval that = (ConfidenceInterval) o;
+        return Double.compare(that.lowerBound, lowerBound) == 0 && Double.compare(that.upperBound, upperBound) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(lowerBound, upperBound);
+    }
+
+    @Override
+    public String toString() {
+        return "[" + lowerBound + ", " + upperBound + "]";
+    }
+
+}
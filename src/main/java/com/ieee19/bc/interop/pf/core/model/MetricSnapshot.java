@@ -0,0 +1,111 @@
+package com.ieee19.bc.interop.pf.core.model;
+
+import java.time.Duration;
+
+/**
+ * This class represents the block based metrics of a blockchain for one horizon, computed once whenever the blocks of
+ * the horizon have changed. The observables of the individual metrics are projections of it. Instances are immutable
+ * and can be shared between subscribers and threads.
+ */
+public class MetricSnapshot {
+
+    private final Duration horizon;
+    private final long version;
+    private final int numberOfBlocks;
+    private final boolean approximate;
+    private final double avgBlockTime;
+    private final ConfidenceInterval avgBlockTimeInterval;
+    private final double transactionThroughput;
+    private final ConfidenceInterval transactionThroughputInterval;
+    private final double networkHashrate;
+    private final ConfidenceInterval networkHashrateInterval;
+    private final MiningDistribution miningDistribution;
+
+    /**
+     * @param horizon                       the horizon the metrics refer to
+     * @param version                       the version of the blocks the metrics have been computed from
+     * @param numberOfBlocks                the number of blocks the metrics are based on
+     * @param approximate                   <i>true</i> if the metrics are estimated from a sample of the blocks
+     * @param avgBlockTime                  the average inter-block time in seconds
+     * @param avgBlockTimeInterval          the bounds of <i>avgBlockTime</i>
+     * @param transactionThroughput         the number of transactions per second
+     * @param transactionThroughputInterval the bounds of <i>transactionThroughput</i>
+     * @param networkHashrate               the number of hashes per second
+     * @param networkHashrateInterval       the bounds of <i>networkHashrate</i>
+     * @param miningDistribution            the percentage of mined blocks for each miner address
+     */
+    public MetricSnapshot(Duration horizon, long version, int numberOfBlocks, boolean approximate, double avgBlockTime,
+                          ConfidenceInterval avgBlockTimeInterval, double transactionThroughput,
+                          ConfidenceInterval transactionThroughputInterval, double networkHashrate,
+                          ConfidenceInterval networkHashrateInterval, MiningDistribution miningDistribution) {
+        this.horizon = horizon;
+        this.version = version;
+        this.numberOfBlocks = numberOfBlocks;
+        this.approximate = approximate;
+        this.avgBlockTime = avgBlockTime;
+        this.avgBlockTimeInterval = avgBlockTimeInterval;
+        this.transactionThroughput = transactionThroughput;
+        this.transactionThroughputInterval = transactionThroughputInterval;
+        this.networkHashrate = networkHashrate;
+        this.networkHashrateInterval = networkHashrateInterval;
+        this.miningDistribution = miningDistribution;
+    }
+
+    public Duration getHorizon() {
+        return horizon;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int getNumberOfBlocks() {
+        return numberOfBlocks;
+    }
+
+    public boolean isApproximate() {
+        return approximate;
+    }
+
+    public double getAvgBlockTime() {
+        return avgBlockTime;
+    }
+
+    public ConfidenceInterval getAvgBlockTimeInterval() {
+        return avgBlockTimeInterval;
+    }
+
+    public double getTransactionThroughput() {
+        return transactionThroughput;
+    }
+
+    public ConfidenceInterval getTransactionThroughputInterval() {
+        return transactionThroughputInterval;
+    }
+
+    public double getNetworkHashrate() {
+        return networkHashrate;
+    }
+
+    public ConfidenceInterval getNetworkHashrateInterval() {
+        return networkHashrateInterval;
+    }
+
+    public MiningDistribution getMiningDistribution() {
+        return miningDistribution;
+    }
+
+    @Override
+    public String toString() {
+        return "MetricSnapshot{" +
+                "horizon=" + horizon +
+                ", version=" + version +
+                ", numberOfBlocks=" + numberOfBlocks +
+                ", approximate=" + approximate +
+                ", avgBlockTime=" + avgBlockTime +
+                ", transactionThroughput=" + transactionThroughput +
+                ", networkHashrate=" + networkHashrate +
+                '}';
+    }
+
+}
@@ -0,0 +1,21 @@
+package com.ieee19.bc.interop.pf.core.model;
+
+/**
+ * Defines how a metric collector calculates the block based metrics (block time, transaction throughput, network
+ * hashrate and mining distribution).
+ */
+public enum MetricStrategy {
+
+    /**
+     * The metrics are calculated from all blocks that have been mined during the horizon. They are exact, but only
+     * meaningful once all blocks of the horizon have been downloaded, and the memory grows with the number of blocks.
+     */
+    SLIDING_WINDOW,
+
+    /**
+     * The metrics are estimated from exponentially decayed sums with the horizon as time constant. They are available
+     * after a few dozen blocks and take constant memory per blockchain, but no list of blocks is kept.
+     */
+    EXPONENTIAL_DECAY
+
+}
@@ -0,0 +1,211 @@
+package com.ieee19.bc.interop.pf.core.model;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * This class represents the mining distribution of a blockchain, i.e. the percentage of mined blocks for each miner
+ * address. It is an immutable map, whose entries are ordered by descending percentage, and additionally provides a
+ * top-K summary and the Herfindahl-Hirschman index (HHI) of the distribution.
+ * <p>
+ * Every distribution carries the version of the blocks it has been derived from. Two distributions with the same
+ * version are equal, so a change can be detected without comparing the entries, see
+ * {@link #isUnchanged(Map, Map)}.
+ */
+public class MiningDistribution extends AbstractMap<String, Double> {
+
+    private final long version;
+    private final String[] minerAddresses;
+    private final double[] percentages;
+    private final double herfindahlHirschmanIndex;
+    private Set<Entry<String, Double>> entrySet;
+    private volatile Map<String, Integer> indexByMinerAddress;
+
+    /**
+     * @param version        the version of the blocks the counts have been taken from
+     * @param minerAddresses the miner addresses indexed by miner id
+     * @param counts         the number of blocks indexed by miner id
+     * @param numberOfMiners the number of valid miner ids
+     * @param total          the number of blocks the percentages refer to
+     */
+    public MiningDistribution(long version, String[] minerAddresses, int[] counts, int numberOfMiners, long total) {
+        this(version, minerAddresses, toWeights(counts, numberOfMiners), numberOfMiners, total);
+    }
+
+    /**
+     * @param version        the version of the blocks the weights have been taken from
+     * @param minerAddresses the miner addresses indexed by miner id
+     * @param weights        the (e.g. exponentially decayed) number of blocks indexed by miner id
+     * @param numberOfMiners the number of valid miner ids
+     * @param total          the weight the percentages refer to
+     */
+    public MiningDistribution(long version, String[] minerAddresses, double[] weights, int numberOfMiners,
+                              double total) {
+        this.version = version;
+        Integer[] minerIds = new Integer[numberOfMiners];
+        int size = 0;
+        for (int minerId = 0; minerId < numberOfMiners; minerId++) {
+            if (weights[minerId] > 0) {
+                minerIds[size++] = minerId;
+            }
+        }
+        Arrays.sort(minerIds, 0, size, (minerId1, minerId2) -> Double.compare(weights[minerId2], weights[minerId1]));
+
+        this.minerAddresses = new String[size];
+        this.percentages = new double[size];
+        double hhi = 0;
+        for (int i = 0; i < size; i++) {
+            this.minerAddresses[i] = minerAddresses[minerIds[i]];
+            this.percentages[i] = 100.0 * weights[minerIds[i]] / total;
+            hhi += percentages[i] * percentages[i];
+        }
+        this.herfindahlHirschmanIndex = hhi;
+    }
+
+    private static double[] toWeights(int[] counts, int numberOfMiners) {
+        double[] weights = new double[numberOfMiners];
+        for (int minerId = 0; minerId < numberOfMiners; minerId++) {
+            weights[minerId] = counts[minerId];
+        }
+        return weights;
+    }
+
+    /**
+     * Compares two mining distributions. Distributions derived from blocks are compared by version in O(1), other maps
+     * by their entries.
+     *
+     * @param previous the previous distribution
+     * @param next     the next distribution
+     * @return <i>true</i> if the distributions are equal
+     */
+    public static boolean isUnchanged(Map<String, Double> previous, Map<String, Double> next) {
+        if (previous instanceof MiningDistribution && next instanceof MiningDistribution) {
+            return ((MiningDistribution) previous).version == ((MiningDistribution) next).version;
+        }
+        return previous.equals(next);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @param k the max. number of miners
+     * @return the <i>k</i> miners with the highest percentages, ordered by descending percentage
+     */
+    public Map<String, Double> getTopMiners(int k) {
+        Map<String, Double> topMiners = new LinkedHashMap<>();
+        for (int i = 0; i < Math.min(k, minerAddresses.length); i++) {
+            topMiners.put(minerAddresses[i], percentages[i]);
+        }
+        return topMiners;
+    }
+
+    /**
+     * @param k the number of miners
+     * @return the summed percentage of the <i>k</i> miners with the highest percentages
+     */
+    public double getTopMinersPercentage(int k) {
+        double percentage = 0;
+        for (int i = 0; i < Math.min(k, percentages.length); i++) {
+            percentage += percentages[i];
+        }
+        return percentage;
+    }
+
+    /**
+     * @return the sum of the squared percentages, which ranges from 10000 / (number of miners) for a uniform
+     * distribution to 10000 for a single miner
+     */
+    public double getHerfindahlHirschmanIndex() {
+        return herfindahlHirschmanIndex;
+    }
+
+    /**
+     * @return the index of the miner address in {@link #minerAddresses} or -1 if no block has been mined by it
+     */
+    private int indexOf(Object minerAddress) {
+        Map<String, Integer> index = indexByMinerAddress;
+        if (index == null) {
+            index = new HashMap<>(minerAddresses.length * 4 / 3 + 1);
+            for (int i = 0; i < minerAddresses.length; i++) {
+                index.put(minerAddresses[i], i);
+            }
+            indexByMinerAddress = index;
+        }
+        Integer i = index.get(minerAddress);
+        return i != null ? i : -1;
+    }
+
+    @Override
+    public Double get(Object key) {
+        int index = indexOf(key);
+        return index >= 0 ? percentages[index] : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public Set<Entry<String, Double>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<Entry<String, Double>>() {
+
+                @Override
+                public Iterator<Entry<String, Double>> iterator() {
+                    return new Iterator<Entry<String, Double>>() {
+
+                        private int index = 0;
+
+                        @Override
+                        public boolean hasNext() {
+                            return index < minerAddresses.length;
+                        }
+
+                        @Override
+                        public Entry<String, Double> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            Entry<String, Double> entry = new SimpleImmutableEntry<>(minerAddresses[index],
+                                    percentages[index]);
+                            index++;
+                            return entry;
+                        }
+
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return minerAddresses.length;
+                }
+
+            };
+        }
+        return entrySet;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof MiningDistribution && ((MiningDistribution) o).version == version) {
+            return true;
+        }
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode();
+    }
+
+}
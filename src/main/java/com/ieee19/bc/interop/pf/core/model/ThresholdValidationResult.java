@@ -1,33 +1,70 @@
 package com.ieee19.bc.interop.pf.core.model;
 
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.Map;
 
 /**
- * This class represents the threshold validation result for each metric of a blockchain.
+ * This class represents the threshold validation result for each metric of a blockchain. The results are stored as
+ * bits indexed by the ordinal of the metric.
  */
 public class ThresholdValidationResult {
 
+    private static final BlockchainMetric[] METRICS = BlockchainMetric.values();
+
+    /**
+     * Contains a bit for each metric indicating whether a metric has passed threshold(s) (1) or has violated all or
+     * some of them (0).
+     */
+    private int passedMetrics = 0;
+
     /**
-     * Contains a boolean value for each metric indicating whether a metric has passed threshold(s) (true)
-     * or has violated all or some of them (false).
+     * Contains a bit for each metric that has been validated.
      */
-    private Map<BlockchainMetric, Boolean> thresholdValidationResults = new HashMap<>();
+    private int validatedMetrics = 0;
 
-    public void setThresholdValidationResult(BlockchainMetric metric, Boolean result) {
-        thresholdValidationResults.put(metric, result);
+    public void setThresholdValidationResult(BlockchainMetric metric, boolean result) {
+        int bit = 1 << metric.ordinal();
+        validatedMetrics |= bit;
+        passedMetrics = result ? passedMetrics | bit : passedMetrics & ~bit;
     }
 
+    /**
+     * @param metric the metric
+     * @return the validation result of <i>metric</i>, or <i>null</i> if it hasn't been validated
+     */
     public Boolean getThresholdValidationResult(BlockchainMetric metric) {
-        return thresholdValidationResults.get(metric);
+        int bit = 1 << metric.ordinal();
+        return (validatedMetrics & bit) == 0 ? null : (passedMetrics & bit) != 0;
     }
 
+    /**
+     * @param metric the metric
+     * @return <i>true</i> if <i>metric</i> has been validated and has passed its threshold(s)
+     */
+    public boolean isPassed(BlockchainMetric metric) {
+        return (passedMetrics & 1 << metric.ordinal()) != 0;
+    }
+
+    /**
+     * @return a new map of the validation result for each validated metric; it isn't backed by the results, which can
+     * only be changed with {@link #setThresholdValidationResult(BlockchainMetric, boolean)}
+     */
     public Map<BlockchainMetric, Boolean> getThresholdValidationResults() {
-        return thresholdValidationResults;
+        Map<BlockchainMetric, Boolean> results = new EnumMap<>(BlockchainMetric.class);
+        for (BlockchainMetric metric : METRICS) {
+            Boolean result = getThresholdValidationResult(metric);
+            if (result != null) {
+                results.put(metric, result);
+            }
+        }
+        return Collections.unmodifiableMap(results);
     }
 
     public void setThresholdValidationResults(Map<BlockchainMetric, Boolean> thresholdValidationResults) {
-        this.thresholdValidationResults = thresholdValidationResults;
+        passedMetrics = 0;
+        validatedMetrics = 0;
+        thresholdValidationResults.forEach(this::setThresholdValidationResult);
     }
 
 }
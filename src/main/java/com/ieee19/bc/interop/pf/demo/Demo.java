@@ -2,6 +2,7 @@ package com.ieee19.bc.interop.pf.demo;
 
 import com.ieee19.bc.interop.pf.core.AbstractDataAccessService;
 import com.ieee19.bc.interop.pf.core.BlockchainManager;
+import com.ieee19.bc.interop.pf.core.SharedBlockStore;
 import com.ieee19.bc.interop.pf.core.model.BlockchainMetaData;
 import com.ieee19.bc.interop.pf.core.model.MetricValidationSettings;
 import com.ieee19.bc.interop.pf.core.model.ThresholdValidationSettings;
@@ -91,6 +92,9 @@ public class Demo {
                 Currency.US_DOLLAR,
                 25
         );
+        // the collector and the data access service share the blocks of the node
+        ethereumMetricCollector.setSharedBlockStore(SharedBlockStore.acquire(NODE_URL_ETHEREUM_MAIN));
+        ethereumService.setSharedBlockStore(SharedBlockStore.acquire(NODE_URL_ETHEREUM_MAIN));
         AbstractDataAccessService ethereumDataAccessService = new EthereumDataAccessService(
                 (str, maxL) -> Arrays.asList(str), (lst, maxL) -> lst, ethereumService
         );
@@ -116,6 +120,9 @@ public class Demo {
                 Currency.US_DOLLAR,
                 25
         );
+        // the collector and the data access service share the blocks of the node
+        ethereumClassicMetricCollector.setSharedBlockStore(SharedBlockStore.acquire(NODE_URL_ETHEREUM_CLASSIC_MAIN));
+        ethereumClassicService.setSharedBlockStore(SharedBlockStore.acquire(NODE_URL_ETHEREUM_CLASSIC_MAIN));
         AbstractDataAccessService ethereumClassicDataAccessService = new EthereumDataAccessService(
                 (str, maxL) -> Arrays.asList(str), (lst, maxL) -> lst, ethereumClassicService
         );
@@ -142,6 +149,9 @@ public class Demo {
                 Currency.US_DOLLAR,
                 10
         );
+        // the collector and the data access service share the blocks of the node
+        expanseMetricCollector.setSharedBlockStore(SharedBlockStore.acquire(NODE_URL_EXPANSE_MAIN));
+        expanseService.setSharedBlockStore(SharedBlockStore.acquire(NODE_URL_EXPANSE_MAIN));
         AbstractDataAccessService expanseDataAccessService = new EthereumDataAccessService(
                 (str, maxL) -> Arrays.asList(str), (lst, maxL) -> lst, expanseService
         );
@@ -2,7 +2,10 @@ package com.ieee19.bc.interop.pf.proxy.bitcoin;
 
 import com.ieee19.bc.interop.pf.core.*;
 import com.ieee19.bc.interop.pf.core.model.Block;
-import com.ieee19.bc.interop.pf.proxy.bitcoin.dto.blockcypher.FeePerKbInfo;
+import com.ieee19.bc.interop.pf.core.model.BlockEvent;
+import com.ieee19.bc.interop.pf.core.model.MetricSnapshot;
+import com.ieee19.bc.interop.pf.core.model.MetricStrategy;
+import com.ieee19.bc.interop.pf.core.model.MiningDistribution;
 import com.ieee19.bc.interop.pf.proxy.bitcoin.interfaces.IBitcoinService;
 import com.ieee19.bc.interop.pf.proxy.currency.CryptocurrencyPriceService;
 import com.ieee19.bc.interop.pf.proxy.currency.Currency;
@@ -11,22 +14,23 @@ import io.reactivex.BackpressureStrategy;
 import io.reactivex.Flowable;
 import io.reactivex.Observable;
 import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subjects.CompletableSubject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.Duration;
 import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
-
-import static java.util.stream.Collectors.groupingBy;
 
 /**
  * Implements the {@link IMetricCollector} interface and monitors the Bitcoin blockchain.
@@ -34,29 +38,41 @@ import static java.util.stream.Collectors.groupingBy;
 public class BitcoinMetricCollector implements IMetricCollector {
 
     static final Logger LOG = LoggerFactory.getLogger(BitcoinMetricCollector.class);
+    // number of consecutive blocks a task fetches; the hash of every further block is known from its successor
+    private static final int BLOCKS_PER_TASK = 10;
+    private static final int DEFAULT_BLOCK_BUFFER_SIZE = 50000;  // block events, several times a backfill of 24 hours
+    private static final long DEFAULT_BACKFILL_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    private static final long DEFAULT_BACKFILL_RETRY_DELAY_MILLIS = 1000;
 
     private ICryptocurrencyPriceService currencyPriceService;
-    private Observable<List<Block>> blockObservable;
-    private Observable<Double> avgBlockTimeObservable;
-    private Observable<Double> transactionThroughputObservable;
+    private Observable<Map<Duration, IBlockStatistics>> statisticsObservable;
+    private Map<Duration, Observable<MetricSnapshot>> metricSnapshotObservables;
+    private MetricStrategy metricStrategy = MetricStrategy.SLIDING_WINDOW;
+    private boolean sampledBackfill = false;
+    private int blockBufferSize = DEFAULT_BLOCK_BUFFER_SIZE;
+    private long backfillTimeoutMillis = DEFAULT_BACKFILL_TIMEOUT_MILLIS;
+    private long backfillRetryDelayMillis = DEFAULT_BACKFILL_RETRY_DELAY_MILLIS;
+    private final BackpressureMonitor backpressureMonitor = new BackpressureMonitor(getClass().getSimpleName());
     private Observable<BigDecimal> exchangeRateObservable;
     private Observable<BigDecimal> costsForWritingDataObservable;
     private Observable<BigDecimal> costsForRetrievingDataObservable;
     private Observable<BigDecimal> storageFeeObservable;
     private Observable<Long> feePerKbInfoObservable;
-    private Observable<Map<String, Double>> blockPercentagePerMinerObservable;
-    private Observable<Double> networkHashrateObservable;
     private AtomicLong feesPerKb = new AtomicLong(0);
     private IBitcoinService bitcoinService;
     private Currency fiatCurrency;
     private int threadPoolSize;
+    private BlockCheckpointStore checkpointStore;
+    private String chainIdentifier;
+    private INewBlockNotifier newBlockNotifier;
 
     /**
      * @param bitcoinService an instance of {@link IBitcoinService}
      * @param priceService an instance of {@link ICryptocurrencyPriceService}
      * @param fiatCurrency the fiat currency to use for the calculation of exchange rates and costs
-     * @param threadPoolSize the size of the thread pool to use for the initialization (download) of all blocks that
-     *                       have been mined during the last 24 hours.
+     * @param threadPoolSize the initial number of concurrent requests for the initialization (download) of all blocks
+     *                       that have been mined during the last 24 hours. It is adapted to the node's capacity at
+     *                       runtime, see {@link AdaptiveFetchExecutor}.
      */
     public BitcoinMetricCollector(IBitcoinService bitcoinService, ICryptocurrencyPriceService priceService,
                                   Currency fiatCurrency, int threadPoolSize) {
@@ -65,136 +81,371 @@ public class BitcoinMetricCollector implements IMetricCollector {
         this.fiatCurrency = fiatCurrency;
         this.threadPoolSize = threadPoolSize;
 
-        blockObservable = createBlockObservable();
-        avgBlockTimeObservable = createAvgBlockTimeObservable();
-        transactionThroughputObservable = createTransactionThroughputObservable();
+        statisticsObservable = createStatisticsObservable();
+        metricSnapshotObservables = createMetricSnapshotObservables();
         exchangeRateObservable = createExchangeRateObservable();
         feePerKbInfoObservable = createFeePerKbObservable();
         costsForRetrievingDataObservable = createCostsForRetrievingDataObservable();
         storageFeeObservable = createStorageFeeObservable();
-        blockPercentagePerMinerObservable = createBlockPercentagePerMinerObservable();
-        networkHashrateObservable = createNetworkHashrateObservable();
         costsForWritingDataObservable = createCostsForWritingDataObservable();
     }
 
-    private Observable<List<Block>> createBlockObservable() {
+    /**
+     * Enables warm restarts: all collected blocks are stored in <i>checkpointStore</i> and on startup the blocks of the
+     * last 24 hours are restored from it, such that only blocks above the last checkpoint have to be downloaded. Has
+     * to be called before any observable of this collector is subscribed.
+     *
+     * @param checkpointStore the store to use
+     * @param chainIdentifier the identifier of the blockchain within the store
+     */
+    public void setCheckpointStore(BlockCheckpointStore checkpointStore, String chainIdentifier) {
+        this.checkpointStore = checkpointStore;
+        this.chainIdentifier = chainIdentifier;
+    }
+
+    /**
+     * Sets the notifier that signals new blocks, e.g. a {@link BlockchainInfoNewBlockNotifier}. By default, the current
+     * block height is polled every 10 seconds. Has to be called before any observable of this collector is subscribed.
+     *
+     * @param newBlockNotifier the notifier to use
+     */
+    public void setNewBlockNotifier(INewBlockNotifier newBlockNotifier) {
+        this.newBlockNotifier = newBlockNotifier;
+    }
+
+    /**
+     * Sets how the block based metrics are calculated, see {@link MetricStrategy}. By default, they are calculated from
+     * all blocks of the horizon. Has to be called before any observable of this collector is subscribed.
+     *
+     * @param metricStrategy the strategy to use
+     */
+    public void setMetricStrategy(MetricStrategy metricStrategy) {
+        this.metricStrategy = metricStrategy;
+    }
+
+    /**
+     * Enables the fast start: the blocks of the last 24 hours are downloaded in stratified order and the block based
+     * metrics are estimated from the blocks downloaded so far (flagged as approximate, see
+     * {@link IBlockStatistics#isApproximate()}) until the download is complete, see {@link SampledBackfillEstimator}.
+     * Only applies to {@link MetricStrategy#SLIDING_WINDOW} and if the first block of the last 24 hours can be
+     * determined. Has to be called before any observable of this collector is subscribed.
+     *
+     * @param sampledBackfill <i>true</i> to estimate the metrics during the download
+     */
+    public void setSampledBackfill(boolean sampledBackfill) {
+        this.sampledBackfill = sampledBackfill;
+    }
+
+    /**
+     * Sets the max. number of block events that are buffered for the calculation of the metrics. If the calculation
+     * stalls and the buffer overflows, the observables of this collector fail instead of exhausting the memory. The
+     * metrics themselves are never buffered, a slow subscriber only gets the most recent ones. Has to be called before
+     * any observable of this collector is subscribed.
+     *
+     * @param blockBufferSize the capacity of the buffer
+     */
+    public void setBlockBufferSize(int blockBufferSize) {
+        this.blockBufferSize = blockBufferSize;
+    }
+
+    /**
+     * Sets how long new blocks wait for the download of the blocks of the last 24 hours on startup (10 minutes by
+     * default). The ranges that haven't been downloaded by then are fetched again in the background until the last 24
+     * hours are complete. Has to be called before any observable of this collector is subscribed.
+     *
+     * @param backfillTimeout the max. time to wait
+     * @param unit            the unit of <i>backfillTimeout</i>
+     */
+    public void setBackfillTimeout(long backfillTimeout, TimeUnit unit) {
+        this.backfillTimeoutMillis = unit.toMillis(backfillTimeout);
+    }
+
+    /**
+     * Sets the delay before missing ranges of the last 24 hours are fetched again (1 second by default): after a failed
+     * round of the download (doubled for every further round) and between the attempts in the background after the
+     * backfill timeout. Has to be called before any observable of this collector is subscribed.
+     *
+     * @param backfillRetryDelay the delay
+     * @param unit               the unit of <i>backfillRetryDelay</i>
+     */
+    public void setBackfillRetryDelay(long backfillRetryDelay, TimeUnit unit) {
+        this.backfillRetryDelayMillis = unit.toMillis(backfillRetryDelay);
+    }
+
+    /**
+     * @return the overflow and conflation counts of the block and metric streams of this collector
+     */
+    public BackpressureMonitor getBackpressureMonitor() {
+        return backpressureMonitor;
+    }
+
+    private Observable<Map<Duration, IBlockStatistics>> createStatisticsObservable() {
         AtomicLong currentBlockHeight = new AtomicLong(0);
+        AtomicBoolean checkpointsEnabled = new AtomicBoolean(false);
+        ChainTipTracker chainTipTracker = new ChainTipTracker();
+        SampledBackfillEstimator sampledBackfillEstimator = new SampledBackfillEstimator(Duration.ofHours(24));
+        CompletableSubject backfillAttempted = CompletableSubject.create();
 
-        Flowable<Block> mostRecentBlocksObservable = Flowable
+        Flowable<BlockEvent> mostRecentBlocksObservable = Flowable
                 .create(emitter -> {
                     LOG.info("Collecting all blocks that have been mined during the last 24 hours.");
-                    AtomicLong nextBlockHeightToFetch = new AtomicLong(bitcoinService.getCurrentBlockHeight());
-                    currentBlockHeight.set(nextBlockHeightToFetch.get());
+                    currentBlockHeight.set(Utils.await(bitcoinService.getCurrentBlockHeightAsync()));
                     ZonedDateTime nowMinus24h = ZonedDateTime.now().minus(24, ChronoUnit.HOURS);
-                    Runnable fetchBlocksTask = () -> {
-                        try {
-                            do {
-                                long nextBlockNumber = nextBlockHeightToFetch.getAndDecrement();
-                                LOG.debug("Next block: " + nextBlockNumber);
-                                Block block = bitcoinService.getBlockByBlockNumber(nextBlockNumber);
-                                if (block.getTimestamp().isAfter(nowMinus24h)) {
-                                    synchronized (emitter) {
-                                        emitter.onNext(block);
+                    long lowestBlockHeightToFetch = 0;
+                    if (checkpointStore != null) {
+                        checkpointStore.load(chainIdentifier, nowMinus24h).forEach(block -> {
+                            chainTipTracker.seed(block);
+                            emitter.onNext(BlockEvent.add(block));
+                        });
+                        lowestBlockHeightToFetch = checkpointStore.getCheckpointHeight(chainIdentifier) + 1;
+                    }
+                    long windowStartHeight = findWindowStart(lowestBlockHeightToFetch, currentBlockHeight.get(),
+                            nowMinus24h);
+                    boolean windowStartKnown = windowStartHeight >= 0;
+                    BackfillCoordinator backfillCoordinator = new BackfillCoordinator(
+                            windowStartKnown ? windowStartHeight : lowestBlockHeightToFetch, currentBlockHeight.get(),
+                            BLOCKS_PER_TASK);
+                    backfillCoordinator.setRetryDelay(backfillRetryDelayMillis, TimeUnit.MILLISECONDS);
+                    if (sampledBackfill && windowStartKnown && metricStrategy == MetricStrategy.SLIDING_WINDOW) {
+                        sampledBackfillEstimator.start(backfillCoordinator);
+                    }
+                    AdaptiveFetchExecutor executor = new AdaptiveFetchExecutor(threadPoolSize);
+                    BackfillCoordinator.AsyncRangeTask task = (fromBlockNumber, toBlockNumber) -> {
+                        List<Block> blocks = new ArrayList<>();
+                        return fetchBlocks(toBlockNumber, fromBlockNumber, nowMinus24h, !windowStartKnown, blocks)
+                                .thenApply(continueFetching -> {
+                                    // emitted once the whole range has been fetched, such that a retry emits no
+                                    // duplicates
+                                    for (Block block : blocks) {
+                                        chainTipTracker.seed(block);
+                                        synchronized (emitter) {
+                                            emitter.onNext(BlockEvent.add(block));
+                                        }
+                                        appendToCheckpointStore(block);
                                     }
-                                } else {
-                                    break;
-                                }
-                            } while (true);
-                        } catch (Throwable throwable) {
-                            LOG.error(throwable.getMessage(), throwable);
-                            emitter.tryOnError(throwable);
-                        }
+                                    return continueFetching;
+                                });
                     };
-                    ExecutorService executorService = Executors.newFixedThreadPool(threadPoolSize);
                     try {
-                        // submit task NUMBER_OF_THREADS times
-                        IntStream.range(0, threadPoolSize).forEach(i -> executorService.submit(fetchBlocksTask));
-
-                        executorService.shutdown();
-                        if (!executorService.awaitTermination(10, TimeUnit.MINUTES)) {
-                            LOG.warn("Can't shutdown thread pool within 2 minutes");
+                        boolean complete = backfillCoordinator.executeAsync(executor, task, backfillTimeoutMillis,
+                                TimeUnit.MILLISECONDS);
+                        backfillAttempted.onComplete();  // new blocks don't wait any longer
+                        // the coordinator resumes with the missing ranges until the last 24 hours are complete, the
+                        // windows are estimated from the stratified sample until then
+                        while (!complete && !emitter.isCancelled()) {
+                            LOG.warn("Can't fetch blocks within " + backfillTimeoutMillis + " ms, fetch the missing " +
+                                    "ranges again in the background: " + backfillCoordinator.getMissingRanges());
+                            Thread.sleep(backfillRetryDelayMillis);
+                            complete = backfillCoordinator.executeAsync(executor, task, backfillTimeoutMillis,
+                                    TimeUnit.MILLISECONDS);
+                        }
+                        if (complete) {
+                            checkpointsEnabled.set(true);
+                            checkpoint(currentBlockHeight.get());
+                        } else {
+                            sampledBackfillEstimator.stop();  // cancelled
                         }
-                        emitter.onComplete();
                         LOG.info("Collecting blocks of last 24 hours finished. Retrieved " +
-                                (currentBlockHeight.get() - nextBlockHeightToFetch.get()) + " blocks.");
+                                backfillCoordinator.getNumberOfFetchedHeights() + " blocks.");
                     } catch (InterruptedException e) {
                         // ignore, since it is thrown if an error is emitted
+                        sampledBackfillEstimator.stop();
                     } catch (Throwable throwable) {
                         LOG.error(throwable.getMessage(), throwable);
+                        sampledBackfillEstimator.stop();
                         emitter.tryOnError(throwable);
                     } finally {
+                        backfillAttempted.onComplete();
                         emitter.onComplete();
                     }
-                }, BackpressureStrategy.BUFFER);
-
-        Flowable<Block> continuousBlockObservable = Flowable
-                .create(emitter -> {
-                    LOG.info("Check for new blocks");
-                    try {
-                        long newBlockHeight = bitcoinService.getCurrentBlockHeight();
-                        long start = currentBlockHeight.get() + 1;
-                        long count = newBlockHeight - start + 1;
-                        currentBlockHeight.set(newBlockHeight);
-
-                        Flowable
-                                .rangeLong(start, count)
-                                .onBackpressureBuffer()
-                                .map(bitcoinService::getBlockByBlockNumber)
-                                .subscribe(
-                                        newBlock -> emitter.onNext(newBlock),
-                                        error -> emitter.onError(error),
-                                        () -> emitter.onComplete()
-                                );
-                    } catch (Throwable e) {
-                        emitter.tryOnError(e);
+                }, BackpressureStrategy.BUFFER);  // merged with the new blocks, bounded by the buffer below
+
+        // new blocks are fetched asynchronously, only the rare walk back during a reorganization blocks an io thread
+        Flowable<BlockEvent> continuousBlockObservable = Flowable
+                .defer(() -> getNewBlockNotifier().getNewBlockHeightObservable().toFlowable(BackpressureStrategy.LATEST))
+                .concatMap(newBlockHeight -> {
+                    long start = currentBlockHeight.get() + 1;
+                    long count = newBlockHeight - start + 1;
+                    if (count <= 0) {
+                        return Flowable.<BlockEvent>empty();
                     }
-                }, BackpressureStrategy.BUFFER)
-                .repeatWhen(observable -> observable.delay(10, TimeUnit.SECONDS))
-                .map(obj -> (Block) obj);
+                    LOG.info("Fetch new blocks up to height " + newBlockHeight);
+                    currentBlockHeight.set(newBlockHeight);
+
+                    return Flowable
+                            .rangeLong(start, count)
+                            .concatMapSingle(blockNumber ->
+                                    Utils.toSingle(() -> bitcoinService.getBlockByBlockNumberAsync(blockNumber)))
+                            .observeOn(Schedulers.io())
+                            // retracts orphaned blocks in case of a reorganization
+                            .concatMapIterable(newBlock -> chainTipTracker.track(newBlock,
+                                    blockNumber -> Utils.await(bitcoinService.getBlockByBlockNumberAsync(blockNumber))))
+                            .doOnNext(event -> {
+                                if (event.getType() == BlockEvent.Type.ADD) {
+                                    appendToCheckpointStore(event.getBlock());
+                                }
+                            })
+                            .doOnComplete(() -> {
+                                if (checkpointsEnabled.get()) {
+                                    checkpoint(newBlockHeight);
+                                }
+                            });
+                }, 1);
 
         return Flowable
-                .concat(
+                .merge(
                         mostRecentBlocksObservable,
-                        continuousBlockObservable
+                        continuousBlockObservable.delaySubscription(backfillAttempted.toFlowable())
                 )
+                .compose(this::bufferBlockEvents)
                 .subscribeOn(Schedulers.io(), false)
                 .observeOn(Schedulers.computation())
-                .compose(new TimeEvictionBuffer(24, ChronoUnit.HOURS))
+                .compose(blockEvents -> computeStatistics(blockEvents, sampledBackfillEstimator))
+                .compose(backpressureMonitor.conflate(Schedulers.computation()))  // only the newest statistics matter
                 .toObservable()
                 .share()    // multicast
                 .replay(1)
                 .autoConnect();
     }
 
-    private Observable<Double> createAvgBlockTimeObservable() {
-        return blockObservable
-                .map(blocks -> (24.0 * 3600) / blocks.size());
+    private Flowable<BlockEvent> bufferBlockEvents(Flowable<BlockEvent> blockEvents) {
+        return Flowable.defer(() -> blockEvents.compose(backpressureMonitor.buffer(blockBufferSize)));
     }
 
-    private Observable<Double> createTransactionThroughputObservable() {
-        return blockObservable
-                .map(blocks -> blocks.stream()
-                        .parallel()
-                        .mapToInt(block -> block.getNumberOfTransactions())
-                        .sum()
-                )
-                .map(sum -> sum / (24.0 * 3600));
+    private Flowable<Map<Duration, IBlockStatistics>> computeStatistics(Flowable<BlockEvent> blockEvents,
+                                                                    SampledBackfillEstimator sampledBackfillEstimator) {
+        return Flowable.defer(() -> {
+            if (metricStrategy == MetricStrategy.EXPONENTIAL_DECAY) {
+                return blockEvents.compose(DecayingBlockEstimator.forBlockEvents(HORIZONS));
+            }
+            return blockEvents
+                    .compose(new TimeEvictionBuffer(HORIZONS).forBlockEventsAsWindows())
+                    .compose(sampledBackfillEstimator.forWindows());
+        });
+    }
+
+    private INewBlockNotifier getNewBlockNotifier() {
+        if (newBlockNotifier == null) {
+            newBlockNotifier = new PollingNewBlockNotifier(bitcoinService::getCurrentBlockHeightAsync, 10, TimeUnit.SECONDS);
+        }
+        return newBlockNotifier;
+    }
+
+    /**
+     * Fetches the blocks <i>blockNumber</i> down to <i>fromBlockNumber</i> one after another without blocking, such
+     * that the hash of every block is known from its successor.
+     *
+     * @param blocks receives the fetched blocks that have been mined after <i>windowStart</i>
+     * @return completes with <i>false</i> if <i>stopAtOldBlock</i> is set and a block mined before <i>windowStart</i>
+     * has been found, i.e. all lower blocks are outside the window
+     */
+    private CompletableFuture<Boolean> fetchBlocks(long blockNumber, long fromBlockNumber, ZonedDateTime windowStart,
+                                                   boolean stopAtOldBlock, List<Block> blocks) {
+        if (blockNumber < fromBlockNumber) {
+            return CompletableFuture.completedFuture(true);
+        }
+        LOG.debug("Next block: " + blockNumber);
+        return bitcoinService.getBlockByBlockNumberAsync(blockNumber).thenCompose(block -> {
+            if (block.getTimestamp().isAfter(windowStart)) {
+                blocks.add(block);
+            } else if (stopAtOldBlock) {
+                return CompletableFuture.completedFuture(false);
+            }
+            return fetchBlocks(blockNumber - 1, fromBlockNumber, windowStart, stopAtOldBlock, blocks);
+        });
+    }
+
+    /**
+     * @return the height of the first block mined after <i>windowStart</i>, or -1 if it can't be determined
+     */
+    private long findWindowStart(long lowestBlockHeight, long highestBlockHeight, ZonedDateTime windowStart) {
+        try {
+            return BackfillCoordinator.findWindowStart(lowestBlockHeight, highestBlockHeight, windowStart,
+                    height -> Utils.await(bitcoinService.getBlockTimestampAsync(height)));
+        } catch (Exception e) {
+            LOG.warn("Can't determine the first block of the last 24 hours, fetch blocks until an older one is found: " +
+                    e.getMessage());
+            return -1;
+        }
+    }
+
+    private void appendToCheckpointStore(Block block) {
+        if (checkpointStore != null) {
+            checkpointStore.append(chainIdentifier, block);
+        }
+    }
+
+    private void checkpoint(long blockHeight) {
+        if (checkpointStore != null) {
+            checkpointStore.checkpoint(chainIdentifier, blockHeight);
+            checkpointStore.compact(chainIdentifier, ZonedDateTime.now().minus(24, ChronoUnit.HOURS));
+        }
+    }
+
+    @Override
+    public Observable<IBlockStatistics> getBlockStatisticsObservable(Duration horizon) {
+        if (!HORIZONS.contains(horizon)) {
+            throw new IllegalArgumentException("Unsupported horizon: " + horizon);
+        }
+        return statisticsObservable
+                .map(statisticsPerHorizon -> statisticsPerHorizon.get(horizon))
+                .distinctUntilChanged();
+    }
+
+    /**
+     * @return one multicast observable per horizon, which computes the metrics once per change of the statistics
+     */
+    private Map<Duration, Observable<MetricSnapshot>> createMetricSnapshotObservables() {
+        Map<Duration, Observable<MetricSnapshot>> observables = new HashMap<>();
+        for (Duration horizon : HORIZONS) {
+            observables.put(horizon, getBlockStatisticsObservable(horizon)
+                    .map(statistics -> createMetricSnapshot(horizon, statistics))
+                    .share()    // multicast
+                    .replay(1)
+                    .autoConnect());
+        }
+        return observables;
+    }
+
+    private MetricSnapshot createMetricSnapshot(Duration horizon, IBlockStatistics statistics) {
+        return new MetricSnapshot(horizon, statistics.getVersion(), statistics.getNumberOfBlocks(),
+                statistics.isApproximate(),
+                1 / statistics.getBlockRate(), statistics.getBlockRateInterval().reciprocal(),
+                statistics.getTransactionRate(), statistics.getTransactionRateInterval(),
+                calculateNetworkHashrate(statistics),
+                statistics.getBlockRateInterval().multiply(statistics.getNewestDifficulty() * Math.pow(2, 32)),
+                statistics.getMiningDistribution(false));
+    }
+
+    private double calculateNetworkHashrate(IBlockStatistics statistics) {
+        // one block is expected every 10 minutes
+        double foundPerExpectedBlocks = statistics.getBlockRate() * 600;
+        BigDecimal difficulty = BigDecimal.valueOf(statistics.getNewestDifficulty());
+        LOG.debug("calculate network hashrate: foundPerExpectedBlocks = " + foundPerExpectedBlocks +
+                ", difficulty: " + difficulty);
+        BigDecimal hashrate = BigDecimal.valueOf(foundPerExpectedBlocks)
+                .multiply(difficulty)
+                .multiply(BigDecimal.valueOf(Math.pow(2, 32)))
+                .divide(BigDecimal.valueOf(600), 10, RoundingMode.HALF_UP);
+        LOG.debug("hashrate = " + hashrate);
+        return hashrate.doubleValue();
+    }
+
+    private Observable<Double> createAvgBlockTimeObservable(Duration horizon) {
+        return getMetricSnapshotObservable(horizon)
+                .map(MetricSnapshot::getAvgBlockTime);
+    }
+
+    private Observable<Double> createTransactionThroughputObservable(Duration horizon) {
+        return getMetricSnapshotObservable(horizon)
+                .map(MetricSnapshot::getTransactionThroughput);
     }
 
     private Observable<BigDecimal> createExchangeRateObservable() {
-        return Observable
-                .create(emitter -> {
-                    BigDecimal price;
-                    try {
-                        price = currencyPriceService.getPrice(Currency.BITCOIN, fiatCurrency);
-                        emitter.onNext(price);
-                        emitter.onComplete();
-                    } catch (Throwable throwable) {
-                        emitter.tryOnError(throwable);
-                    }
-                })
+        return Utils
+                .toSingle(() -> currencyPriceService.getPriceAsync(Currency.BITCOIN, fiatCurrency))
+                .toObservable()
                 .repeatWhen(observable -> observable.delay(10, TimeUnit.SECONDS))
-                .map(price -> (BigDecimal) price)
                 .share()    // multicast
                 .replay(1)
                 .autoConnect();
@@ -216,60 +467,29 @@ public class BitcoinMetricCollector implements IMetricCollector {
 
     private Observable<Long> createFeePerKbObservable() {
         return Observable
-                .create(emitter -> {
+                .defer(() -> {
                     if (feesPerKb.get() == 0) {
-                        try {
-                            FeePerKbInfo feePerKbInfo = bitcoinService.getFeePerKbInfo();
-                            emitter.onNext((long) feePerKbInfo.getMediumFeePerKb());
-                        } catch (Throwable throwable) {
-                            emitter.tryOnError(throwable);
-                        }
+                        return Utils.toSingle(bitcoinService::getFeePerKbInfoAsync)
+                                .map(feePerKbInfo -> (long) feePerKbInfo.getMediumFeePerKb())
+                                .toObservable();
                     }
-                    else {
-                        emitter.onNext(feesPerKb.get());
-                    }
-                    emitter.onComplete();
+                    return Observable.just(feesPerKb.get());
                 })
                 .repeatWhen(observable -> observable.delay(2, TimeUnit.MINUTES))
-                .map(feePerKb -> (Long) feePerKb)
                 .share()    // multicast
                 .replay(1)
                 .autoConnect();
     }
 
-    private Observable<Map<String, Double>> createBlockPercentagePerMinerObservable() {
-        return blockObservable
-                .map(blocks -> {
-                    Map<String, List<Block>> blocksPerMiner = blocks
-                            .stream()
-                            .collect(groupingBy(Block::getMinerAddress));
-
-                    return blocksPerMiner.entrySet()
-                            .stream()
-                            .parallel()
-                            .map(entry -> new AbstractMap.SimpleEntry<>(
-                                    entry.getKey(), 100.0 * entry.getValue().size() / blocks.size()
-                            ))
-                            .collect(Collectors.toMap(AbstractMap.SimpleEntry::getKey, AbstractMap.SimpleEntry::getValue));
-                });
+    private Observable<MiningDistribution> createMiningDistributionObservable(Duration horizon) {
+        return getMetricSnapshotObservable(horizon)
+                .map(MetricSnapshot::getMiningDistribution);
     }
 
-    private Observable<Double> createNetworkHashrateObservable() {
-        return blockObservable
-                .map(blocks -> {
-                            int foundBlocks = blocks.size();
-                            int expectedBlocks = 144;  // 144 blocks are expected to be mined in 24 hours
-                            BigDecimal difficulty = BigDecimal.valueOf(blocks.get(blocks.size() - 1).getDifficulty());
-                            LOG.debug("calculate network hashrate: foundBlocks = " + foundBlocks + ", difficulty: " + difficulty);
-                            BigDecimal hashrate = BigDecimal.valueOf(foundBlocks)
-                                    .divide(BigDecimal.valueOf(expectedBlocks), 10, RoundingMode.HALF_UP)
-                                    .multiply(difficulty)
-                                    .multiply(BigDecimal.valueOf(Math.pow(2, 32)))
-                                    .divide(BigDecimal.valueOf(600), 10, RoundingMode.HALF_UP);
-                            LOG.debug("hashrate = " + hashrate);
-                            return hashrate.doubleValue();
-                        }
-                );
+    private Observable<Double> createNetworkHashrateObservable(Duration horizon) {
+        return getMetricSnapshotObservable(horizon)
+                .filter(metricSnapshot -> metricSnapshot.getNumberOfBlocks() > 0)
+                .map(MetricSnapshot::getNetworkHashrate);
     }
 
     private Observable<BigDecimal> createCostsForWritingDataObservable() {
@@ -289,28 +509,42 @@ public class BitcoinMetricCollector implements IMetricCollector {
     }
 
     @Override
-    public Observable<List<Block>> getBlockObservable() {
-        return blockObservable;
+    public Observable<List<Block>> getBlockObservable(Duration horizon) {
+        if (metricStrategy != MetricStrategy.SLIDING_WINDOW) {
+            throw new IllegalStateException("No blocks are kept with the metric strategy " + metricStrategy);
+        }
+        return getBlockStatisticsObservable(horizon)
+                .map(statistics -> statistics instanceof SampledBackfillEstimator.Snapshot ?
+                        ((SampledBackfillEstimator.Snapshot) statistics).getWindow().getBlocks() :
+                        ((SlidingBlockWindow.Snapshot) statistics).getBlocks());
+    }
+
+    @Override
+    public Observable<MetricSnapshot> getMetricSnapshotObservable(Duration horizon) {
+        if (!HORIZONS.contains(horizon)) {
+            throw new IllegalArgumentException("Unsupported horizon: " + horizon);
+        }
+        return metricSnapshotObservables.get(horizon);
     }
 
     @Override
-    public Observable<Double> getAvgBlockTimeObservable() {
-        return avgBlockTimeObservable;
+    public Observable<Double> getAvgBlockTimeObservable(Duration horizon) {
+        return createAvgBlockTimeObservable(horizon);
     }
 
     @Override
-    public Observable<Double> getTransactionThroughputObservable() {
-        return transactionThroughputObservable;
+    public Observable<Double> getTransactionThroughputObservable(Duration horizon) {
+        return createTransactionThroughputObservable(horizon);
     }
 
     @Override
-    public Observable<Map<String, Double>> getBlockPercentagePerMinerObservable() {
-        return blockPercentagePerMinerObservable;
+    public Observable<MiningDistribution> getMiningDistributionObservable(Duration horizon) {
+        return createMiningDistributionObservable(horizon);
     }
 
     @Override
-    public Observable<Double> getNetworkHashrateObservable() {
-        return networkHashrateObservable;
+    public Observable<Double> getNetworkHashrateObservable(Duration horizon) {
+        return createNetworkHashrateObservable(horizon);
     }
 
     @Override
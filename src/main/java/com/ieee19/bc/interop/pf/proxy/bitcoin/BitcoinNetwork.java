@@ -0,0 +1,33 @@
+package com.ieee19.bc.interop.pf.proxy.bitcoin;
+
+/**
+ * The Bitcoin networks and their address prefixes.
+ */
+public enum BitcoinNetwork {
+
+    MAINNET((byte) 0x00, (byte) 0x05, "bc"),
+    TESTNET((byte) 0x6f, (byte) 0xc4, "tb");
+
+    private final byte pubKeyHashVersion;
+    private final byte scriptHashVersion;
+    private final String bech32HumanReadablePart;
+
+    BitcoinNetwork(byte pubKeyHashVersion, byte scriptHashVersion, String bech32HumanReadablePart) {
+        this.pubKeyHashVersion = pubKeyHashVersion;
+        this.scriptHashVersion = scriptHashVersion;
+        this.bech32HumanReadablePart = bech32HumanReadablePart;
+    }
+
+    public byte getPubKeyHashVersion() {
+        return pubKeyHashVersion;
+    }
+
+    public byte getScriptHashVersion() {
+        return scriptHashVersion;
+    }
+
+    public String getBech32HumanReadablePart() {
+        return bech32HumanReadablePart;
+    }
+
+}
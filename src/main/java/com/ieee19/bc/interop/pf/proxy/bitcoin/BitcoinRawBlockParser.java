@@ -0,0 +1,331 @@
+package com.ieee19.bc.interop.pf.proxy.bitcoin;
+
+import com.ieee19.bc.interop.pf.core.Utils;
+import com.ieee19.bc.interop.pf.core.model.Block;
+import com.ieee19.bc.interop.pf.proxy.bitcoin.exception.BitcoinException;
+import org.apache.commons.codec.DecoderException;
+import org.apache.commons.codec.binary.Hex;
+import org.bouncycastle.crypto.digests.RIPEMD160Digest;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class decodes serialized Bitcoin blocks, i.e. the block header, the number of transactions and the miner
+ * address, which is derived from the output scripts of the coinbase transaction. Only the header and the coinbase
+ * transaction are decoded, all other transactions are skipped. The miner addresses are cached by the id of the
+ * coinbase transaction, such that the outputs of a block that is decoded again aren't decoded again.
+ */
+public class BitcoinRawBlockParser {
+
+    private static final int HEADER_SIZE = 80;
+    private static final int MINER_ADDRESS_CACHE_SIZE = 1024;
+    private static final String UNKNOWN_MINER = "Unknown miner";
+    private static final String BASE58_ALPHABET = "123456789ABCDEFGHJKLMNPQRSTUVWXYZabcdefghijkmnopqrstuvwxyz";
+    private static final String BECH32_ALPHABET = "qpzry9x8gf2tvdw0s3jn54khce6mua7l";
+
+    private final BitcoinNetwork network;
+    private final Map<String, String> minerAddressByCoinbaseTxId =
+            new LinkedHashMap<String, String>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                    return size() > MINER_ADDRESS_CACHE_SIZE;
+                }
+            };
+
+    /**
+     * @param network the network the blocks belong to (determines the address format)
+     */
+    public BitcoinRawBlockParser(BitcoinNetwork network) {
+        this.network = network;
+    }
+
+    /**
+     * @param rawBlockHex the hex encoded serialized block
+     * @param blockNumber the height of the block
+     * @return the decoded block
+     * @throws BitcoinException if the block can't be decoded
+     */
+    public Block parse(String rawBlockHex, long blockNumber) throws BitcoinException {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Hex.decodeHex(rawBlockHex)).order(ByteOrder.LITTLE_ENDIAN);
+            Block block = new Block();
+
+            byte[] header = new byte[HEADER_SIZE];
+            buffer.get(header);
+            ByteBuffer headerBuffer = ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN);
+            block.setHash(toHashString(doubleSha256(header)));
+            block.setPreviousBlockHash(toHashString(Arrays.copyOfRange(header, 4, 36)));
+            block.setTimestamp(Utils.convertUnixEpochTime(Integer.toUnsignedLong(headerBuffer.getInt(68))));
+            block.setDifficulty(getDifficulty(headerBuffer.getInt(72)));
+            block.setHeight(blockNumber);
+            block.setNumberOfTransactions((int) readVarInt(buffer));
+            block.setMinerAddress(parseCoinbaseTransaction(buffer));
+
+            return block;
+        } catch (DecoderException | BufferUnderflowException | IllegalArgumentException e) {
+            throw new BitcoinException("Malformed block " + blockNumber + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Decodes the coinbase transaction and returns the first address its outputs are paid to. The outputs are only
+     * decoded if the address isn't cached by the id of the transaction yet.
+     */
+    private String parseCoinbaseTransaction(ByteBuffer buffer) {
+        ByteArrayOutputStream strippedTransaction = new ByteArrayOutputStream();  // without witness data
+        int start = buffer.position();
+        buffer.getInt();  // version
+        boolean hasWitness = buffer.get(buffer.position()) == 0;  // segwit marker (0x00) followed by flag
+        strippedTransaction.write(buffer.array(), start, 4);
+        if (hasWitness) {
+            skipBytes(buffer, 2);
+        }
+
+        int inputsStart = buffer.position();
+        long numberOfInputs = readVarInt(buffer);
+        for (long i = 0; i < numberOfInputs; i++) {
+            skipBytes(buffer, 36);  // previous output
+            skipBytes(buffer, readVarInt(buffer));  // script
+            buffer.getInt();  // sequence
+        }
+        int outputsStart = buffer.position();
+        long numberOfOutputs = readVarInt(buffer);
+        for (long i = 0; i < numberOfOutputs; i++) {
+            buffer.getLong();  // value
+            skipBytes(buffer, readVarInt(buffer));  // script
+        }
+        strippedTransaction.write(buffer.array(), inputsStart, buffer.position() - inputsStart);
+
+        if (hasWitness) {
+            for (long i = 0; i < numberOfInputs; i++) {
+                long numberOfItems = readVarInt(buffer);
+                for (long j = 0; j < numberOfItems; j++) {
+                    skipBytes(buffer, readVarInt(buffer));
+                }
+            }
+        }
+        buffer.getInt();  // lock time
+        strippedTransaction.write(buffer.array(), buffer.position() - 4, 4);
+
+        String transactionId = toHashString(doubleSha256(strippedTransaction.toByteArray()));
+        synchronized (minerAddressByCoinbaseTxId) {
+            String minerAddress = minerAddressByCoinbaseTxId.get(transactionId);
+            if (minerAddress != null) {
+                return minerAddress;
+            }
+        }
+        ByteBuffer outputs = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        outputs.position(outputsStart);
+        String minerAddress = parseMinerAddress(outputs);
+        synchronized (minerAddressByCoinbaseTxId) {
+            minerAddressByCoinbaseTxId.put(transactionId, minerAddress);
+        }
+        return minerAddress;
+    }
+
+    /**
+     * @return the first address the outputs starting at the position of <i>buffer</i> are paid to
+     */
+    private String parseMinerAddress(ByteBuffer buffer) {
+        long numberOfOutputs = readVarInt(buffer);
+        for (long i = 0; i < numberOfOutputs; i++) {
+            buffer.getLong();  // value
+            String address = getAddress(readBytes(buffer, readVarInt(buffer)));
+            if (address != null) {
+                return address;
+            }
+        }
+        return UNKNOWN_MINER;
+    }
+
+    /**
+     * @return the address of a standard output script or <i>null</i> if the script has no address (e.g. OP_RETURN)
+     */
+    String getAddress(byte[] script) {
+        int length = script.length;
+        if (length == 25 && script[0] == 0x76 && script[1] == (byte) 0xa9 && script[2] == 0x14 &&
+                script[23] == (byte) 0x88 && script[24] == (byte) 0xac) {
+            // P2PKH: OP_DUP OP_HASH160 <20 bytes> OP_EQUALVERIFY OP_CHECKSIG
+            return toBase58Check(network.getPubKeyHashVersion(), Arrays.copyOfRange(script, 3, 23));
+        }
+        if (length == 23 && script[0] == (byte) 0xa9 && script[1] == 0x14 && script[22] == (byte) 0x87) {
+            // P2SH: OP_HASH160 <20 bytes> OP_EQUAL
+            return toBase58Check(network.getScriptHashVersion(), Arrays.copyOfRange(script, 2, 22));
+        }
+        if ((length == 22 || length == 34) && script[0] == 0 && script[1] == length - 2) {
+            // P2WPKH or P2WSH: OP_0 <20 or 32 bytes>
+            return toBech32(0, Arrays.copyOfRange(script, 2, length));
+        }
+        if ((length == 67 || length == 35) && script[0] == length - 2 && script[length - 1] == (byte) 0xac) {
+            // P2PK: <public key> OP_CHECKSIG; paid to the address of the public key
+            return toBase58Check(network.getPubKeyHashVersion(), hash160(Arrays.copyOfRange(script, 1, length - 1)));
+        }
+        return null;
+    }
+
+    /**
+     * Calculates the difficulty from the compact representation of the target (see GetDifficulty() of Bitcoin Core).
+     */
+    static double getDifficulty(int bits) {
+        int shift = (bits >>> 24) & 0xff;
+        double difficulty = (double) 0x0000ffff / (double) (bits & 0x00ffffff);
+        while (shift < 29) {
+            difficulty *= 256.0;
+            shift++;
+        }
+        while (shift > 29) {
+            difficulty /= 256.0;
+            shift--;
+        }
+        return difficulty;
+    }
+
+    private static long readVarInt(ByteBuffer buffer) {
+        int first = buffer.get() & 0xff;
+        switch (first) {
+            case 0xfd:
+                return buffer.getShort() & 0xffff;
+            case 0xfe:
+                return Integer.toUnsignedLong(buffer.getInt());
+            case 0xff:
+                return buffer.getLong();
+            default:
+                return first;
+        }
+    }
+
+    private static byte[] readBytes(ByteBuffer buffer, long count) {
+        if (count > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[(int) count];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static void skipBytes(ByteBuffer buffer, long count) {
+        if (count > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        buffer.position(buffer.position() + (int) count);
+    }
+
+    /**
+     * Hashes are displayed in reversed byte order.
+     */
+    private static String toHashString(byte[] hash) {
+        byte[] reversedHash = new byte[hash.length];
+        for (int i = 0; i < hash.length; i++) {
+            reversedHash[i] = hash[hash.length - 1 - i];
+        }
+        return Utils.encodeHex(reversedHash);
+    }
+
+    private static byte[] sha256(byte[] data) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(data);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] doubleSha256(byte[] data) {
+        return sha256(sha256(data));
+    }
+
+    private static byte[] hash160(byte[] data) {
+        RIPEMD160Digest digest = new RIPEMD160Digest();
+        byte[] sha256 = sha256(data);
+        digest.update(sha256, 0, sha256.length);
+        byte[] hash = new byte[20];
+        digest.doFinal(hash, 0);
+        return hash;
+    }
+
+    private static String toBase58Check(byte version, byte[] payload) {
+        byte[] data = new byte[payload.length + 5];
+        data[0] = version;
+        System.arraycopy(payload, 0, data, 1, payload.length);
+        byte[] checksum = doubleSha256(Arrays.copyOf(data, payload.length + 1));
+        System.arraycopy(checksum, 0, data, payload.length + 1, 4);
+
+        StringBuilder result = new StringBuilder();
+        BigInteger value = new BigInteger(1, data);
+        BigInteger base = BigInteger.valueOf(58);
+        while (value.signum() > 0) {
+            BigInteger[] quotientAndRemainder = value.divideAndRemainder(base);
+            result.append(BASE58_ALPHABET.charAt(quotientAndRemainder[1].intValue()));
+            value = quotientAndRemainder[0];
+        }
+        for (int i = 0; i < data.length && data[i] == 0; i++) {
+            result.append(BASE58_ALPHABET.charAt(0));  // leading zero bytes
+        }
+        return result.reverse().toString();
+    }
+
+    /**
+     * Encodes a segwit address (BIP 173).
+     */
+    private String toBech32(int witnessVersion, byte[] program) {
+        String humanReadablePart = network.getBech32HumanReadablePart();
+        // convert 8 bit groups to 5 bit groups
+        int[] data = new int[1 + (program.length * 8 + 4) / 5];
+        data[0] = witnessVersion;
+        int accumulator = 0;
+        int bits = 0;
+        int index = 1;
+        for (byte b : program) {
+            accumulator = (accumulator << 8) | (b & 0xff);
+            bits += 8;
+            while (bits >= 5) {
+                bits -= 5;
+                data[index++] = (accumulator >> bits) & 31;
+            }
+        }
+        if (bits > 0) {
+            data[index] = (accumulator << (5 - bits)) & 31;
+        }
+
+        int[] values = new int[humanReadablePart.length() * 2 + 1 + data.length + 6];
+        for (int i = 0; i < humanReadablePart.length(); i++) {
+            values[i] = humanReadablePart.charAt(i) >> 5;
+            values[humanReadablePart.length() + 1 + i] = humanReadablePart.charAt(i) & 31;
+        }
+        System.arraycopy(data, 0, values, humanReadablePart.length() * 2 + 1, data.length);
+        int polymod = bech32Polymod(values) ^ 1;
+
+        StringBuilder result = new StringBuilder(humanReadablePart).append('1');
+        for (int value : data) {
+            result.append(BECH32_ALPHABET.charAt(value));
+        }
+        for (int i = 0; i < 6; i++) {
+            result.append(BECH32_ALPHABET.charAt((polymod >> (5 * (5 - i))) & 31));
+        }
+        return result.toString();
+    }
+
+    private static int bech32Polymod(int[] values) {
+        int[] generator = {0x3b6a57b2, 0x26508e6d, 0x1ea119fa, 0x3d4233dd, 0x2a1462b3};
+        int checksum = 1;
+        for (int value : values) {
+            int top = checksum >>> 25;
+            checksum = ((checksum & 0x1ffffff) << 5) ^ value;
+            for (int i = 0; i < 5; i++) {
+                if (((top >>> i) & 1) == 1) {
+                    checksum ^= generator[i];
+                }
+            }
+        }
+        return checksum;
+    }
+
+}
@@ -1,5 +1,6 @@
 package com.ieee19.bc.interop.pf.proxy.bitcoin;
 
+import com.ieee19.bc.interop.pf.core.AsyncHttpTransport;
 import com.ieee19.bc.interop.pf.core.model.Block;
 import com.ieee19.bc.interop.pf.core.Utils;
 import com.ieee19.bc.interop.pf.proxy.bitcoin.dto.bitcore.*;
@@ -21,6 +22,8 @@ import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.time.ZonedDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
 /**
@@ -30,13 +33,21 @@ public class BitcoinService implements IBitcoinService {
 
     private static final Logger LOG = LoggerFactory.getLogger(BitcoinService.class);
     private static final String BLOCKCYPHER_BASE_URL = "https://api.blockcypher.com/v1/btc/main/";
-    private static final String BLOCKCHAIN_INFO_BASE_URL = "https://blockchain.info/";
     private static final int TX_DATA_MAX_LENGTH = 40;  // 40 Bytes
+    private static final int BLOCK_HASH_CACHE_SIZE = 1024;
 
     private RestTemplate restTemplate = new RestTemplate();
+    private AsyncHttpTransport asyncHttpTransport = AsyncHttpTransport.getDefault();
     private String address;
     private String privateKeyWif; // Wallet Import Format is a way of encoding a private ECDSA key
     private String bitcoreNodeUrl;
+    private BitcoinRawBlockParser rawBlockParser = new BitcoinRawBlockParser(BitcoinNetwork.MAINNET);
+    private final Map<Long, String> blockHashByBlockNumber = new LinkedHashMap<Long, String>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, String> eldest) {
+            return size() > BLOCK_HASH_CACHE_SIZE;
+        }
+    };
 
     /**
      * @param nodeUrl       the URL of the Bitcore node (insight API)
@@ -59,19 +70,6 @@ public class BitcoinService implements IBitcoinService {
         this.bitcoreNodeUrl = nodeUrl;
     }
 
-    private Block convert(BitcoinBlock bitcoinBlock) {
-        Block block = new Block();
-
-        block.setDifficulty(bitcoinBlock.getDifficulty());
-        block.setNumberOfTransactions(bitcoinBlock.getTransactionHashes().size());
-        block.setHash(bitcoinBlock.getHash());
-        block.setHeight(bitcoinBlock.getBlockNumber());
-        block.setPreviousBlockHash(bitcoinBlock.getPreviousBlockHash());
-        block.setTimestamp(Utils.convertUnixEpochTime(bitcoinBlock.getTimeInSeconds()));
-
-        return block;
-    }
-
     private <T> T doGET(String url, Class<T> responseType) throws BitcoinException {
         T response;
 
@@ -98,9 +96,37 @@ public class BitcoinService implements IBitcoinService {
         return response;
     }
 
+    private <T> CompletableFuture<T> doGETAsync(String url, Class<T> responseType) {
+        CompletableFuture<T> response = new CompletableFuture<>();
+        asyncHttpTransport.get(url, responseType).whenComplete((value, error) -> {
+            if (error != null) {
+                LOG.error("Failed to call GET " + url, Utils.unwrap(error));
+                response.completeExceptionally(new BitcoinException("Failed to call GET " + url, Utils.unwrap(error)));
+            } else {
+                response.complete(value);
+            }
+        });
+        return response;
+    }
+
     private String getBlockHashByBlockNumber(long blockNumber) throws BitcoinException {
         LOG.debug("get block hash by block number " + blockNumber);
-        String response = doGET(bitcoreNodeUrl + "block-index/" + blockNumber, String.class);
+        return parseBlockHash(doGET(bitcoreNodeUrl + "block-index/" + blockNumber, String.class));
+    }
+
+    private CompletableFuture<String> getBlockHashByBlockNumberAsync(long blockNumber) {
+        LOG.debug("get block hash by block number " + blockNumber);
+        return doGETAsync(bitcoreNodeUrl + "block-index/" + blockNumber, String.class)
+                .thenApply(response -> {
+                    try {
+                        return parseBlockHash(response);
+                    } catch (BitcoinException e) {
+                        throw new CompletionException(e);
+                    }
+                });
+    }
+
+    private String parseBlockHash(String response) throws BitcoinException {
         LOG.debug("Response: " + response);
 
         ObjectMapper mapper = new ObjectMapper();
@@ -117,73 +143,23 @@ public class BitcoinService implements IBitcoinService {
         return blockHash;
     }
 
-    private BitcoinTransaction getTransactionByHash(String hash) throws BitcoinException {
-        LOG.debug("get transaction by hash (txid) " + hash);
-        BitcoinTransaction bitcoinTransaction = doGET(bitcoreNodeUrl + "tx/" + hash,
-                BitcoinTransaction.class);
-        LOG.debug("Retrieved: " + bitcoinTransaction);
-
-        return bitcoinTransaction;
-    }
-
-    private Optional<String> getMinerAddressFromBitcore(String transactionHash) throws BitcoinException {
-        LOG.debug("get miner address of transaction " + transactionHash);
-        BitcoinTransaction coinBaseTransaction = getTransactionByHash(transactionHash);
-        Optional<String> minerAddress = Optional.empty();
-        List<BitcoinTransactionOutput> transactionOutputs = coinBaseTransaction.getTransactionOutputs();
-        if (coinBaseTransaction.isCoinBase() && transactionOutputs.isEmpty() == false) {
-            BitcoinTransactionOutput transactionOutput = transactionOutputs.get(0);  // first output should contain addr.
-            List<String> addresses = transactionOutput.getScriptPubKey().getAddresses();
-            if (addresses.isEmpty() == false) {
-                minerAddress = Optional.of(addresses.get(0));
-            }
-        }
-        LOG.debug("minerAddress: " + minerAddress);
-        return minerAddress;
-    }
-
-    private Optional<String> getMinerAddressFromBlockchainInfo(String transactionHash) {
-        LOG.debug("get miner address for transaction " + transactionHash + " from blockchain.info");
-        try {
-            com.ieee19.bc.interop.pf.proxy.bitcoin.dto.blockchaininfo.BitcoinTransaction transaction =
-                    doGET(
-                            BLOCKCHAIN_INFO_BASE_URL + "rawtx/" + transactionHash,
-                            com.ieee19.bc.interop.pf.proxy.bitcoin.dto.blockchaininfo.BitcoinTransaction.class
-                    );
-
-            if (transaction.getTransactionOutputs().isEmpty() == false) {
-                com.ieee19.bc.interop.pf.proxy.bitcoin.dto.blockchaininfo.BitcoinTransactionOutput transactionOutput =
-                        transaction.getTransactionOutputs().get(0);
-                String transactionOutputAddress = transactionOutput.getAddress();
-                if (transactionOutputAddress != null && "".equals(transactionOutputAddress) == false) {
-                    // not null and not an empty string
-                    LOG.debug("miner address: " + transactionOutputAddress);
-                    return Optional.of(transactionOutputAddress);
-                }
-            }
-        } catch (BitcoinException e) {
-            LOG.warn(e.getMessage(), e);
-        }
-        LOG.debug("no miner address found");
-        return Optional.empty();
+    public void setRestTemplate(RestTemplate restTemplate) {
+        this.restTemplate = restTemplate;
     }
 
-    private String getMinerAddress(String transactionHash) throws BitcoinException {
-        Optional<String> minerAddress = getMinerAddressFromBitcore(transactionHash);
-        if (minerAddress.isPresent()) {
-            return minerAddress.get();
-        }
-
-        // try blockchain.info api
-        minerAddress = getMinerAddressFromBlockchainInfo(transactionHash);
-        if (minerAddress.isPresent()) {
-            return minerAddress.get();
-        }
-        return "Unknown miner";
+    /**
+     * @param asyncHttpTransport the transport used by the asynchronous methods (default: the shared transport, see
+     *                           {@link AsyncHttpTransport#getDefault()})
+     */
+    public void setAsyncHttpTransport(AsyncHttpTransport asyncHttpTransport) {
+        this.asyncHttpTransport = asyncHttpTransport;
     }
 
-    public void setRestTemplate(RestTemplate restTemplate) {
-        this.restTemplate = restTemplate;
+    /**
+     * @param network the network of the Bitcore node, which determines the format of miner addresses (default: mainnet)
+     */
+    public void setNetwork(BitcoinNetwork network) {
+        this.rawBlockParser = new BitcoinRawBlockParser(network);
     }
 
     @Override
@@ -195,20 +171,88 @@ public class BitcoinService implements IBitcoinService {
         return bitcoinInfo.getCurrentBlockHeight();
     }
 
+    @Override
+    public CompletableFuture<Long> getCurrentBlockHeightAsync() {
+        LOG.debug("get current block height");
+        return doGETAsync(bitcoreNodeUrl + "status?q=getInfo", BitcoinInfo.class)
+                .thenApply(BitcoinInfo::getCurrentBlockHeight);
+    }
+
+    /**
+     * Fetches the serialized block and decodes it locally. The hash of the block is known without a request if the
+     * block above has been fetched before, since it references the hash of its predecessor.
+     */
     @Override
     public Block getBlockByBlockNumber(long blockNumber) throws BitcoinException {
         LOG.debug("get block by block number " + blockNumber);
-        String blockHash = getBlockHashByBlockNumber(blockNumber);
-        BitcoinBlock bitcoinBlock = doGET(bitcoreNodeUrl + "block/" + blockHash,
-                BitcoinBlock.class);
-        Block block = convert(bitcoinBlock);
+        String blockHash;
+        synchronized (blockHashByBlockNumber) {
+            blockHash = blockHashByBlockNumber.remove(blockNumber);
+        }
+        if (blockHash == null) {
+            blockHash = getBlockHashByBlockNumber(blockNumber);
+        }
+        BitcoinRawBlock rawBlock = doGET(bitcoreNodeUrl + "rawblock/" + blockHash, BitcoinRawBlock.class);
+        return decodeBlock(rawBlock, blockHash, blockNumber);
+    }
 
-        block.setMinerAddress(getMinerAddress(bitcoinBlock.getTransactionHashes().get(0)));
+    @Override
+    public CompletableFuture<Block> getBlockByBlockNumberAsync(long blockNumber) {
+        LOG.debug("get block by block number " + blockNumber);
+        String cachedBlockHash;
+        synchronized (blockHashByBlockNumber) {
+            cachedBlockHash = blockHashByBlockNumber.remove(blockNumber);
+        }
+        CompletableFuture<String> blockHash = cachedBlockHash != null ?
+                CompletableFuture.completedFuture(cachedBlockHash) : getBlockHashByBlockNumberAsync(blockNumber);
+        return blockHash.thenCompose(hash -> doGETAsync(bitcoreNodeUrl + "rawblock/" + hash, BitcoinRawBlock.class)
+                .thenApply(rawBlock -> {
+                    try {
+                        return decodeBlock(rawBlock, hash, blockNumber);
+                    } catch (BitcoinException e) {
+                        throw new CompletionException(e);
+                    }
+                }));
+    }
+
+    /**
+     * Decodes a serialized block, verifies its hash and caches the hash of its predecessor.
+     */
+    private Block decodeBlock(BitcoinRawBlock rawBlock, String blockHash, long blockNumber) throws BitcoinException {
+        Block block = rawBlockParser.parse(rawBlock.getRawBlock(), blockNumber);
+        if (!blockHash.equals(block.getHash())) {
+            throw new BitcoinException("Block " + blockNumber + " has hash " + block.getHash() + " instead of " +
+                    blockHash);
+        }
+        if (blockNumber > 0) {
+            synchronized (blockHashByBlockNumber) {
+                blockHashByBlockNumber.put(blockNumber - 1, block.getPreviousBlockHash());
+            }
+        }
 
         LOG.debug("Retrieved: " + block);
         return block;
     }
 
+    /**
+     * Fetches only the block summary instead of the serialized block, e.g. to search the first block of a time window.
+     */
+    @Override
+    public ZonedDateTime getBlockTimestamp(long blockNumber) throws BitcoinException {
+        LOG.debug("get timestamp of block " + blockNumber);
+        String blockHash = getBlockHashByBlockNumber(blockNumber);
+        BitcoinBlockHeader blockHeader = doGET(bitcoreNodeUrl + "block/" + blockHash, BitcoinBlockHeader.class);
+        return Utils.convertUnixEpochTime(blockHeader.getTime());
+    }
+
+    @Override
+    public CompletableFuture<ZonedDateTime> getBlockTimestampAsync(long blockNumber) {
+        LOG.debug("get timestamp of block " + blockNumber);
+        return getBlockHashByBlockNumberAsync(blockNumber)
+                .thenCompose(blockHash -> doGETAsync(bitcoreNodeUrl + "block/" + blockHash, BitcoinBlockHeader.class))
+                .thenApply(blockHeader -> Utils.convertUnixEpochTime(blockHeader.getTime()));
+    }
+
     @Override
     public FeePerKbInfo getFeePerKbInfo() throws BitcoinException {
         LOG.debug("get fee info");
@@ -217,6 +261,12 @@ public class BitcoinService implements IBitcoinService {
         return feePerKbInfo;
     }
 
+    @Override
+    public CompletableFuture<FeePerKbInfo> getFeePerKbInfoAsync() {
+        LOG.debug("get fee info");
+        return doGETAsync(BLOCKCYPHER_BASE_URL, FeePerKbInfo.class);
+    }
+
     @Override
     public List<String> getData(ZonedDateTime from, ZonedDateTime to) throws BitcoinException {
         LOG.info("get data between " + from + " and " + to);
@@ -0,0 +1,59 @@
+package com.ieee19.bc.interop.pf.proxy.bitcoin;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ieee19.bc.interop.pf.core.AbstractWebSocketNewBlockNotifier;
+import com.ieee19.bc.interop.pf.core.INewBlockNotifier;
+import com.ieee19.bc.interop.pf.core.PollingNewBlockNotifier;
+import com.ieee19.bc.interop.pf.proxy.bitcoin.interfaces.IBitcoinService;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Notifies about new Bitcoin blocks with a <i>blocks_sub</i> subscription of the blockchain.info WebSocket API. While
+ * the WebSocket is disconnected, the current block height is polled every 10 seconds.
+ */
+public class BlockchainInfoNewBlockNotifier extends AbstractWebSocketNewBlockNotifier {
+
+    public static final String DEFAULT_WEBSOCKET_URI = "wss://ws.blockchain.info/inv";
+    private static final String SUBSCRIBE_MESSAGE = "{\"op\":\"blocks_sub\"}";
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * @param bitcoinService the service to poll the current block height with while the WebSocket is disconnected
+     */
+    public BlockchainInfoNewBlockNotifier(IBitcoinService bitcoinService) {
+        this(URI.create(DEFAULT_WEBSOCKET_URI),
+                new PollingNewBlockNotifier(bitcoinService::getCurrentBlockHeightAsync, 10, TimeUnit.SECONDS),
+                30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @param webSocketUri     the URI of the WebSocket endpoint
+     * @param fallbackNotifier the notifier to use while the WebSocket is disconnected
+     * @param reconnectDelay   the time to wait before reconnecting after a disconnect
+     * @param unit             the unit of <i>reconnectDelay</i>
+     */
+    public BlockchainInfoNewBlockNotifier(URI webSocketUri, INewBlockNotifier fallbackNotifier, long reconnectDelay,
+                                          TimeUnit unit) {
+        super(webSocketUri, fallbackNotifier, reconnectDelay, unit);
+    }
+
+    @Override
+    protected String createSubscribeMessage() {
+        return SUBSCRIBE_MESSAGE;
+    }
+
+    @Override
+    protected Long parseNewBlockHeight(String message) throws IOException {
+        JsonNode response = MAPPER.readTree(message);
+        JsonNode height = response.path("x").path("height");
+        if (!"block".equals(response.path("op").asText()) || !height.canConvertToLong()) {
+            return null;
+        }
+        return height.asLong();
+    }
+
+}
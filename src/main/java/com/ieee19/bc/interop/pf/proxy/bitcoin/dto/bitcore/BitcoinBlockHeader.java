@@ -0,0 +1,66 @@
+package com.ieee19.bc.interop.pf.proxy.bitcoin.dto.bitcore;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Objects;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class BitcoinBlockHeader {
+
+    @JsonProperty("hash")
+    private String hash;
+
+    @JsonProperty("height")
+    private long height;
+
+    @JsonProperty("time")
+    private long time;   // unix epoch time in seconds
+
+    public String getHash() {
+        return hash;
+    }
+
+    public void setHash(String hash) {
+        this.hash = hash;
+    }
+
+    public long getHeight() {
+        return height;
+    }
+
+    public void setHeight(long height) {
+        this.height = height;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public void setTime(long time) {
+        this.time = time;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof BitcoinBlockHeader)) return false;
+        BitcoinBlockHeader that = (BitcoinBlockHeader) o;
+        return Objects.equals(hash, that.hash);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(hash);
+    }
+
+    @Override
+    public String toString() {
+        return "BitcoinBlockHeader{" +
+                "hash='" + hash + '\'' +
+                ", height=" + height +
+                ", time=" + time +
+                '}';
+    }
+
+}
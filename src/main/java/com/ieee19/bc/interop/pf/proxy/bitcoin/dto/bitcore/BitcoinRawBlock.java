@@ -0,0 +1,42 @@
+package com.ieee19.bc.interop.pf.proxy.bitcoin.dto.bitcore;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Objects;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class BitcoinRawBlock {
+
+    @JsonProperty("rawblock")
+    private String rawBlock;   // hex encoded serialized block
+
+    public String getRawBlock() {
+        return rawBlock;
+    }
+
+    public void setRawBlock(String rawBlock) {
+        this.rawBlock = rawBlock;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof BitcoinRawBlock)) return false;
+        BitcoinRawBlock that = (BitcoinRawBlock) o;
+        return Objects.equals(rawBlock, that.rawBlock);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(rawBlock);
+    }
+
+    @Override
+    public String toString() {
+        return "BitcoinRawBlock{" +
+                "rawBlock=" + (rawBlock == null ? null : rawBlock.length() / 2 + " bytes") +
+                '}';
+    }
+
+}
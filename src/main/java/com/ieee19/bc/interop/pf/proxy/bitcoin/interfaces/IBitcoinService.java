@@ -8,6 +8,7 @@ import com.ieee19.bc.interop.pf.proxy.bitcoin.exception.BitcoinException;
 import java.io.IOException;
 import java.time.ZonedDateTime;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface IBitcoinService {
 
@@ -16,6 +17,13 @@ public interface IBitcoinService {
      */
     long getCurrentBlockHeight() throws BitcoinException;
 
+    /**
+     * Asynchronous variant of {@link #getCurrentBlockHeight()}, which doesn't block the calling thread.
+     *
+     * @return completes with the current block height, or with a {@link BitcoinException}
+     */
+    CompletableFuture<Long> getCurrentBlockHeightAsync();
+
     /**
      * @param blockNumber the number of the block to fetch
      * @return the block with the given <i>blockNumber</i>
@@ -23,11 +31,41 @@ public interface IBitcoinService {
      */
     Block getBlockByBlockNumber(long blockNumber) throws BitcoinException;
 
+    /**
+     * Asynchronous variant of {@link #getBlockByBlockNumber(long)}.
+     *
+     * @param blockNumber the number of the block to fetch
+     * @return completes with the block, or with a {@link BitcoinException}
+     */
+    CompletableFuture<Block> getBlockByBlockNumberAsync(long blockNumber);
+
+    /**
+     * @param blockNumber the number of the block
+     * @return the timestamp of the block with the given <i>blockNumber</i>
+     * @throws BitcoinException
+     */
+    ZonedDateTime getBlockTimestamp(long blockNumber) throws BitcoinException;
+
+    /**
+     * Asynchronous variant of {@link #getBlockTimestamp(long)}.
+     *
+     * @param blockNumber the number of the block
+     * @return completes with the timestamp of the block, or with a {@link BitcoinException}
+     */
+    CompletableFuture<ZonedDateTime> getBlockTimestampAsync(long blockNumber);
+
     /**
      * @return transaction fee info per KB.
      */
     FeePerKbInfo getFeePerKbInfo() throws BitcoinException;
 
+    /**
+     * Asynchronous variant of {@link #getFeePerKbInfo()}.
+     *
+     * @return completes with the transaction fee info per KB, or with a {@link BitcoinException}
+     */
+    CompletableFuture<FeePerKbInfo> getFeePerKbInfoAsync();
+
     /**
      * Returns all data that have been mined during <i>from</i> and <i>to</i>.
      * @param from start date
@@ -1,5 +1,7 @@
 package com.ieee19.bc.interop.pf.proxy.currency;
 
+import com.ieee19.bc.interop.pf.core.AsyncHttpTransport;
+import com.ieee19.bc.interop.pf.core.Utils;
 import com.ieee19.bc.interop.pf.proxy.currency.interfaces.ICryptocurrencyPriceService;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
@@ -15,6 +17,7 @@ import java.math.BigDecimal;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 
 /**
@@ -27,25 +30,65 @@ public class CryptocurrencyPriceService implements ICryptocurrencyPriceService {
     static final Logger LOG = LoggerFactory.getLogger(CryptocurrencyPriceService.class);
 
     private RestTemplate restTemplate = new RestTemplate();
+    private AsyncHttpTransport asyncHttpTransport = AsyncHttpTransport.getDefault();
+
+    /**
+     * @param asyncHttpTransport the transport used by {@link #getPriceAsync(Currency, Currency)} (default: the shared
+     *                           transport, see {@link AsyncHttpTransport#getDefault()})
+     */
+    public void setAsyncHttpTransport(AsyncHttpTransport asyncHttpTransport) {
+        this.asyncHttpTransport = asyncHttpTransport;
+    }
 
     @Override
     public BigDecimal getPrice(Currency from, Currency to) throws CurrencyServiceException {
         LOG.debug("Get price in " + to + " for " + from);
         try {
-            UriComponentsBuilder uriBuilder = UriComponentsBuilder.fromUri(new URI(BASE_URL))
-                    .queryParam("fsym", from.getLabel())
-                    .queryParam("tsyms", to.getLabel());
-            String response = restTemplate.getForObject(uriBuilder.toUriString(), String.class);
-            LOG.debug("Response: " + response);
-            ObjectMapper mapper = new ObjectMapper();
-            mapper.enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
-
-            Map<String, BigDecimal> price = mapper.readValue(response, new TypeReference<Map<String, BigDecimal>>(){});
-            return price.get(to.getLabel());
+            String response = restTemplate.getForObject(getPriceUrl(from, to), String.class);
+            return parsePrice(response, to);
         } catch (RestClientException | URISyntaxException | IOException e) {
             LOG.error(e.getMessage(), e);
             throw new CurrencyServiceException(e.getMessage(), e);
         }
     }
 
+    @Override
+    public CompletableFuture<BigDecimal> getPriceAsync(Currency from, Currency to) {
+        LOG.debug("Get price in " + to + " for " + from);
+        CompletableFuture<BigDecimal> price = new CompletableFuture<>();
+        try {
+            asyncHttpTransport.get(getPriceUrl(from, to)).whenComplete((response, error) -> {
+                try {
+                    if (error != null) {
+                        throw Utils.unwrap(error);
+                    }
+                    price.complete(parsePrice(response, to));
+                } catch (Throwable e) {
+                    LOG.error(e.getMessage(), e);
+                    price.completeExceptionally(new CurrencyServiceException(e.getMessage(), e));
+                }
+            });
+        } catch (URISyntaxException e) {
+            LOG.error(e.getMessage(), e);
+            price.completeExceptionally(new CurrencyServiceException(e.getMessage(), e));
+        }
+        return price;
+    }
+
+    private String getPriceUrl(Currency from, Currency to) throws URISyntaxException {
+        return UriComponentsBuilder.fromUri(new URI(BASE_URL))
+                .queryParam("fsym", from.getLabel())
+                .queryParam("tsyms", to.getLabel())
+                .toUriString();
+    }
+
+    private BigDecimal parsePrice(String response, Currency to) throws IOException {
+        LOG.debug("Response: " + response);
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+
+        Map<String, BigDecimal> price = mapper.readValue(response, new TypeReference<Map<String, BigDecimal>>(){});
+        return price.get(to.getLabel());
+    }
+
 }
@@ -6,6 +6,7 @@ import com.ieee19.bc.interop.pf.proxy.currency.CurrencyServiceException;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.net.URISyntaxException;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * This interface represents a service for retrieving exchange rates.
@@ -21,4 +22,13 @@ public interface ICryptocurrencyPriceService {
      */
     BigDecimal getPrice(Currency from, Currency to) throws CurrencyServiceException;
 
+    /**
+     * Asynchronous variant of {@link #getPrice(Currency, Currency)}, which doesn't block the calling thread.
+     *
+     * @param from the currency you have
+     * @param to the currency you want
+     * @return completes with the exchange rate, or with a {@link CurrencyServiceException}
+     */
+    CompletableFuture<BigDecimal> getPriceAsync(Currency from, Currency to);
+
 }
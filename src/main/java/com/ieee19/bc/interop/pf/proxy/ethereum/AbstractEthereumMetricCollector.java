@@ -1,29 +1,45 @@
 package com.ieee19.bc.interop.pf.proxy.ethereum;
 
+import com.ieee19.bc.interop.pf.core.AdaptiveFetchExecutor;
+import com.ieee19.bc.interop.pf.core.BackpressureMonitor;
+import com.ieee19.bc.interop.pf.core.BackfillCoordinator;
+import com.ieee19.bc.interop.pf.core.BlockCheckpointStore;
+import com.ieee19.bc.interop.pf.core.DecayingBlockEstimator;
+import com.ieee19.bc.interop.pf.core.ChainTipTracker;
+import com.ieee19.bc.interop.pf.core.IBlockStatistics;
+import com.ieee19.bc.interop.pf.core.INewBlockNotifier;
+import com.ieee19.bc.interop.pf.core.PollingNewBlockNotifier;
+import com.ieee19.bc.interop.pf.core.SampledBackfillEstimator;
+import com.ieee19.bc.interop.pf.core.SharedBlockStore;
+import com.ieee19.bc.interop.pf.core.SlidingBlockWindow;
 import com.ieee19.bc.interop.pf.core.model.Block;
+import com.ieee19.bc.interop.pf.core.model.BlockEvent;
+import com.ieee19.bc.interop.pf.core.model.MetricSnapshot;
+import com.ieee19.bc.interop.pf.core.model.MetricStrategy;
+import com.ieee19.bc.interop.pf.core.model.MiningDistribution;
 import com.ieee19.bc.interop.pf.core.IMetricCollector;
 import com.ieee19.bc.interop.pf.core.TimeEvictionBuffer;
+import com.ieee19.bc.interop.pf.core.Utils;
 import com.ieee19.bc.interop.pf.proxy.currency.Currency;
 import com.ieee19.bc.interop.pf.proxy.currency.interfaces.ICryptocurrencyPriceService;
+import com.ieee19.bc.interop.pf.proxy.ethereum.exception.EthereumException;
 import com.ieee19.bc.interop.pf.proxy.ethereum.interfaces.IEthereumService;
 import io.reactivex.BackpressureStrategy;
 import io.reactivex.Flowable;
 import io.reactivex.Observable;
 import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subjects.CompletableSubject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
-
-import static java.util.stream.Collectors.groupingBy;
 
 /**
  * This class represents the MetricCollector for Ethereum based blockchains and monitors supported metrics.
@@ -31,14 +47,21 @@ import static java.util.stream.Collectors.groupingBy;
 public abstract class AbstractEthereumMetricCollector implements IMetricCollector {
 
     static final Logger LOG = LoggerFactory.getLogger(AbstractEthereumMetricCollector.class);
+    private static final int BLOCKS_PER_TASK = 50;  // range per task, split into batches of the service's batch size
+    private static final int DEFAULT_BLOCK_BUFFER_SIZE = 50000;  // block events, several times a backfill of 24 hours
+    private static final long DEFAULT_BACKFILL_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    private static final long DEFAULT_BACKFILL_RETRY_DELAY_MILLIS = 1000;
 
     private IEthereumService ethereumService;
     private ICryptocurrencyPriceService currencyPriceService;
-    private Observable<List<Block>> blockObservable;
-    private Observable<Double> avgBlockTimeObservable;
-    private Observable<Double> transactionThroughputObservable;
-    private Observable<Map<String, Double>> blockPercentagePerMinerObservable;
-    private Observable<Double> networkHashrateObservable;
+    private Observable<Map<Duration, IBlockStatistics>> statisticsObservable;
+    private Map<Duration, Observable<MetricSnapshot>> metricSnapshotObservables;
+    private MetricStrategy metricStrategy = MetricStrategy.SLIDING_WINDOW;
+    private boolean sampledBackfill = false;
+    private int blockBufferSize = DEFAULT_BLOCK_BUFFER_SIZE;
+    private long backfillTimeoutMillis = DEFAULT_BACKFILL_TIMEOUT_MILLIS;
+    private long backfillRetryDelayMillis = DEFAULT_BACKFILL_RETRY_DELAY_MILLIS;
+    private final BackpressureMonitor backpressureMonitor = new BackpressureMonitor(getClass().getSimpleName());
     private Observable<BigDecimal> exchangeRateObservable;
     private Observable<Long> gasPriceObservable;
     private Observable<BigDecimal> costsForWritingDataObservable;
@@ -47,13 +70,18 @@ public abstract class AbstractEthereumMetricCollector implements IMetricCollecto
     private AtomicLong gasPrice = new AtomicLong(0);
     private Currency fiatCurrency;
     private int threadPoolSize;
+    private BlockCheckpointStore checkpointStore;
+    private String chainIdentifier;
+    private INewBlockNotifier newBlockNotifier;
+    private SharedBlockStore sharedBlockStore;
 
     /**
      * @param ethereumService an instance of {@link IEthereumService}
      * @param priceService an instance of {@link ICryptocurrencyPriceService}
      * @param fiatCurrency the fiat currency to use for the calculation of exchange rates and costs
-     * @param threadPoolSize the size of the thread pool to use for the initialization (download) of all blocks that
-     *                       have been mined during the last 24 hours.
+     * @param threadPoolSize the initial number of concurrent requests for the initialization (download) of all blocks
+     *                       that have been mined during the last 24 hours. It is adapted to the node's capacity at
+     *                       runtime, see {@link AdaptiveFetchExecutor}.
      */
     public AbstractEthereumMetricCollector(IEthereumService ethereumService, ICryptocurrencyPriceService priceService,
                                            Currency fiatCurrency, int threadPoolSize) {
@@ -62,11 +90,8 @@ public abstract class AbstractEthereumMetricCollector implements IMetricCollecto
         this.fiatCurrency = fiatCurrency;
         this.threadPoolSize = threadPoolSize;
 
-        blockObservable = createBlockObservable();
-        avgBlockTimeObservable = createAvgBlockTimeObservable();
-        transactionThroughputObservable = createTransactionThroughputObservable();
-        blockPercentagePerMinerObservable = createBlockPercentagePerMinerObservable();
-        networkHashrateObservable = createNetworkHashrateObservable();
+        statisticsObservable = createStatisticsObservable();
+        metricSnapshotObservables = createMetricSnapshotObservables();
         exchangeRateObservable = createExchangeRateObservable();
         gasPriceObservable = createGasPriceObservable();
         costsForWritingDataObservable = createCostsForWritingDataObservable();
@@ -74,166 +99,366 @@ public abstract class AbstractEthereumMetricCollector implements IMetricCollecto
         storageFeeObservable = createStorageFeeObservable();
     }
 
-    private Observable<List<Block>> createBlockObservable() {
+    /**
+     * Enables warm restarts: all collected blocks are stored in <i>checkpointStore</i> and on startup the blocks of the
+     * last 24 hours are restored from it, such that only blocks above the last checkpoint have to be downloaded. Has
+     * to be called before any observable of this collector is subscribed.
+     *
+     * @param checkpointStore the store to use
+     * @param chainIdentifier the identifier of the blockchain within the store
+     */
+    public void setCheckpointStore(BlockCheckpointStore checkpointStore, String chainIdentifier) {
+        this.checkpointStore = checkpointStore;
+        this.chainIdentifier = chainIdentifier;
+    }
+
+    /**
+     * Sets the notifier that signals new blocks, e.g. an {@link EthereumNewHeadsNotifier}. By default, the current
+     * block number is polled every 10 seconds. Has to be called before any observable of this collector is subscribed.
+     *
+     * @param newBlockNotifier the notifier to use
+     */
+    public void setNewBlockNotifier(INewBlockNotifier newBlockNotifier) {
+        this.newBlockNotifier = newBlockNotifier;
+    }
+
+    /**
+     * Sets how the block based metrics are calculated, see {@link MetricStrategy}. By default, they are calculated from
+     * all blocks of the horizon. Has to be called before any observable of this collector is subscribed.
+     *
+     * @param metricStrategy the strategy to use
+     */
+    public void setMetricStrategy(MetricStrategy metricStrategy) {
+        this.metricStrategy = metricStrategy;
+    }
+
+    /**
+     * Enables the fast start: the blocks of the last 24 hours are downloaded in stratified order and the block based
+     * metrics are estimated from the blocks downloaded so far (flagged as approximate, see
+     * {@link IBlockStatistics#isApproximate()}) until the download is complete, see {@link SampledBackfillEstimator}.
+     * Only applies to {@link MetricStrategy#SLIDING_WINDOW} and if the first block of the last 24 hours can be
+     * determined. Has to be called before any observable of this collector is subscribed.
+     *
+     * @param sampledBackfill <i>true</i> to estimate the metrics during the download
+     */
+    public void setSampledBackfill(boolean sampledBackfill) {
+        this.sampledBackfill = sampledBackfill;
+    }
+
+    /**
+     * Sets the max. number of block events that are buffered for the calculation of the metrics. If the calculation
+     * stalls and the buffer overflows, the observables of this collector fail instead of exhausting the memory. The
+     * metrics themselves are never buffered, a slow subscriber only gets the most recent ones. Has to be called before
+     * any observable of this collector is subscribed.
+     *
+     * @param blockBufferSize the capacity of the buffer
+     */
+    public void setBlockBufferSize(int blockBufferSize) {
+        this.blockBufferSize = blockBufferSize;
+    }
+
+    /**
+     * Sets how long new blocks wait for the download of the blocks of the last 24 hours on startup (10 minutes by
+     * default). The ranges that haven't been downloaded by then are fetched again in the background until the last 24
+     * hours are complete. Has to be called before any observable of this collector is subscribed.
+     *
+     * @param backfillTimeout the max. time to wait
+     * @param unit            the unit of <i>backfillTimeout</i>
+     */
+    public void setBackfillTimeout(long backfillTimeout, TimeUnit unit) {
+        this.backfillTimeoutMillis = unit.toMillis(backfillTimeout);
+    }
+
+    /**
+     * Sets the delay before missing ranges of the last 24 hours are fetched again (1 second by default): after a failed
+     * round of the download (doubled for every further round) and between the attempts in the background after the
+     * backfill timeout. Has to be called before any observable of this collector is subscribed.
+     *
+     * @param backfillRetryDelay the delay
+     * @param unit               the unit of <i>backfillRetryDelay</i>
+     */
+    public void setBackfillRetryDelay(long backfillRetryDelay, TimeUnit unit) {
+        this.backfillRetryDelayMillis = unit.toMillis(backfillRetryDelay);
+    }
+
+    /**
+     * @return the overflow and conflation counts of the block and metric streams of this collector
+     */
+    public BackpressureMonitor getBackpressureMonitor() {
+        return backpressureMonitor;
+    }
+
+    /**
+     * Publishes all collected blocks to <i>sharedBlockStore</i>, such that other components of the same node (e.g. the
+     * data access path of {@link EthereumService}) don't have to fetch them again. Has to be called before any
+     * observable of this collector is subscribed.
+     *
+     * @param sharedBlockStore the store of the node
+     */
+    public void setSharedBlockStore(SharedBlockStore sharedBlockStore) {
+        this.sharedBlockStore = sharedBlockStore;
+    }
+
+    private Observable<Map<Duration, IBlockStatistics>> createStatisticsObservable() {
         AtomicLong currentBlockHeight = new AtomicLong(0);
+        AtomicBoolean checkpointsEnabled = new AtomicBoolean(false);
+        ChainTipTracker chainTipTracker = new ChainTipTracker();
+        SampledBackfillEstimator sampledBackfillEstimator = new SampledBackfillEstimator(Duration.ofHours(24));
+        CompletableSubject backfillAttempted = CompletableSubject.create();
 
-        Flowable<Block> mostRecentBlocksObservable = Flowable
+        Flowable<BlockEvent> mostRecentBlocksObservable = Flowable
                 .create(emitter -> {
                     LOG.info("Collecting all blocks that have been mined during the last 24 hours.");
-                    AtomicLong nextBlockHeightToFetch = new AtomicLong(ethereumService.getCurrentBlockNumber());
-                    currentBlockHeight.set(nextBlockHeightToFetch.get());
+                    currentBlockHeight.set(Utils.await(ethereumService.getCurrentBlockNumberAsync()));
                     ZonedDateTime nowMinus24h = ZonedDateTime.now().minus(24, ChronoUnit.HOURS);
-                    Runnable fetchBlocksTask = () -> {
-                        try {
-                            do {
-                                long nextBlockNumber = nextBlockHeightToFetch.getAndDecrement();
-                                LOG.debug("Next block: " + nextBlockNumber);
-                                Optional<Block> blockOpt = ethereumService.getBlockByNumberWithUncles(nextBlockNumber);
-                                if (blockOpt.isPresent()) {
-                                    Block block = blockOpt.get();
-                                    if (block.getTimestamp().isAfter(nowMinus24h)) {
-                                        synchronized (emitter) {
-                                            emitter.onNext(blockOpt.get());
+                    long lowestBlockHeightToFetch = 0;
+                    if (checkpointStore != null) {
+                        checkpointStore.load(chainIdentifier, nowMinus24h).forEach(block -> {
+                            chainTipTracker.seed(block);
+                            emitter.onNext(publish(BlockEvent.add(block)));
+                        });
+                        lowestBlockHeightToFetch = checkpointStore.getCheckpointHeight(chainIdentifier) + 1;
+                    }
+                    long windowStartHeight = findWindowStart(lowestBlockHeightToFetch, currentBlockHeight.get(),
+                            nowMinus24h);
+                    boolean windowStartKnown = windowStartHeight >= 0;
+                    BackfillCoordinator backfillCoordinator = new BackfillCoordinator(
+                            windowStartKnown ? windowStartHeight : lowestBlockHeightToFetch, currentBlockHeight.get(),
+                            BLOCKS_PER_TASK);
+                    backfillCoordinator.setRetryDelay(backfillRetryDelayMillis, TimeUnit.MILLISECONDS);
+                    if (sampledBackfill && windowStartKnown && metricStrategy == MetricStrategy.SLIDING_WINDOW) {
+                        sampledBackfillEstimator.start(backfillCoordinator);
+                    }
+                    AdaptiveFetchExecutor executor = new AdaptiveFetchExecutor(threadPoolSize);
+                    // every task fetches a range of blocks with one batch request
+                    BackfillCoordinator.AsyncRangeTask task = (fromBlockNumber, toBlockNumber) -> {
+                        LOG.debug("Next blocks: " + fromBlockNumber + " - " + toBlockNumber);
+                        return ethereumService.getBlocksByNumberWithUnclesAsync(fromBlockNumber, toBlockNumber)
+                                .thenApply(blocks -> {
+                                    boolean reachedOldBlock = blocks.isEmpty() && !windowStartKnown;
+                                    for (Block block : blocks) {
+                                        if (block.getTimestamp().isAfter(nowMinus24h)) {
+                                            chainTipTracker.seed(block);
+                                            synchronized (emitter) {
+                                                emitter.onNext(publish(BlockEvent.add(block)));
+                                            }
+                                            appendToCheckpointStore(block);
+                                        } else if (!windowStartKnown) {
+                                            reachedOldBlock = true;
                                         }
-                                    } else {
-                                        break;
                                     }
-                                }
-                            } while (true);
-                        } catch (Throwable throwable) {
-                            LOG.error(throwable.getMessage(), throwable);
-                            emitter.tryOnError(throwable);
-                        }
+                                    return !reachedOldBlock;
+                                });
                     };
                     try {
-
-                        ExecutorService executorService = Executors.newFixedThreadPool(threadPoolSize);
-                        IntStream
-                                .range(0, threadPoolSize)
-                                .forEach(i -> executorService.submit(fetchBlocksTask));  // submit task multiple times
-
-                        executorService.shutdown();
-                        if (!executorService.awaitTermination(10, TimeUnit.MINUTES)) {
-                            LOG.warn("Can't shutdown thread pool within 2 minutes");
+                        boolean complete = backfillCoordinator.executeAsync(executor, task, backfillTimeoutMillis,
+                                TimeUnit.MILLISECONDS);
+                        backfillAttempted.onComplete();  // new blocks don't wait any longer
+                        // the coordinator resumes with the missing ranges until the last 24 hours are complete, the
+                        // windows are estimated from the stratified sample until then
+                        while (!complete && !emitter.isCancelled()) {
+                            LOG.warn("Can't fetch blocks within " + backfillTimeoutMillis + " ms, fetch the missing " +
+                                    "ranges again in the background: " + backfillCoordinator.getMissingRanges());
+                            Thread.sleep(backfillRetryDelayMillis);
+                            complete = backfillCoordinator.executeAsync(executor, task, backfillTimeoutMillis,
+                                    TimeUnit.MILLISECONDS);
+                        }
+                        if (complete) {
+                            checkpointsEnabled.set(true);
+                            checkpoint(currentBlockHeight.get());
+                            if (sharedBlockStore != null) {
+                                sharedBlockStore.setCompleteSince(nowMinus24h);
+                            }
+                        } else {
+                            sampledBackfillEstimator.stop();  // cancelled
                         }
 
-                        LOG.info("Retrieved " + (currentBlockHeight.get() - nextBlockHeightToFetch.get()) + " blocks.");
+                        LOG.info("Retrieved " + backfillCoordinator.getNumberOfFetchedHeights() + " blocks.");
                     } catch (InterruptedException e) {
                         // ignore, since it is thrown if an error is emitted
+                        sampledBackfillEstimator.stop();
                     } catch (Throwable throwable) {
                         LOG.error(throwable.getMessage(), throwable);
+                        sampledBackfillEstimator.stop();
                         emitter.tryOnError(throwable);
                     } finally {
+                        backfillAttempted.onComplete();
                         emitter.onComplete();
                     }
-                }, BackpressureStrategy.BUFFER);
-
-        Flowable<Block> continuousBlockObservable = Flowable
-                .create(emitter -> {
-                    LOG.info("Check for new blocks");
-                    try {
-                        long newBlockHeight = ethereumService.getCurrentBlockNumber();
-                        long start = currentBlockHeight.get() + 1;
-                        long count = newBlockHeight - start + 1;
-
-                        if (count >= 0) {
-                            currentBlockHeight.set(newBlockHeight);
-                            Flowable
-                                    .rangeLong(start, count)
-                                    .onBackpressureBuffer()
-                                    .map(blockNumber -> ethereumService.getBlockByNumberWithUncles(blockNumber))
-                                    .filter(optional -> optional.isPresent())
-                                    .map(optional -> optional.get())
-                                    .subscribe(
-                                            newBlock -> emitter.onNext(newBlock),
-                                            error -> emitter.onError(error),
-                                            () -> emitter.onComplete()
-                                    );
-                        } else {
-                            LOG.error("start=" + start + ", count=" + count + ", newBlockHeight=" + newBlockHeight);
-                        }
-                    } catch (Throwable throwable) {
-                        emitter.tryOnError(throwable);
+                }, BackpressureStrategy.BUFFER);  // merged with the new blocks, bounded by the buffer below
+
+        // new blocks are fetched asynchronously, only the rare walk back during a reorganization blocks an io thread
+        Flowable<BlockEvent> continuousBlockObservable = Flowable
+                .defer(() -> getNewBlockNotifier().getNewBlockHeightObservable().toFlowable(BackpressureStrategy.LATEST))
+                .concatMap(newBlockHeight -> {
+                    long start = currentBlockHeight.get() + 1;
+                    long count = newBlockHeight - start + 1;
+                    if (count < 0) {
+                        LOG.error("start=" + start + ", count=" + count + ", newBlockHeight=" + newBlockHeight);
+                        return Flowable.<BlockEvent>empty();
                     }
+                    currentBlockHeight.set(newBlockHeight);
+                    if (count == 0) {
+                        return Flowable.<BlockEvent>empty();
+                    }
+                    LOG.info("Fetch new blocks up to height " + newBlockHeight);
+
+                    // fetch all new blocks with batch requests
+                    return Utils
+                            .toSingle(() -> ethereumService.getBlocksByNumberWithUnclesAsync(start, newBlockHeight))
+                            .observeOn(Schedulers.io())
+                            .flattenAsFlowable(newBlocks -> {
+                                List<BlockEvent> events = new ArrayList<>();
+                                for (Block newBlock : newBlocks) {
+                                    // retracts orphaned blocks in case of a reorganization
+                                    for (BlockEvent event : chainTipTracker.track(newBlock, this::getBlockOfMainChain)) {
+                                        events.add(publish(event));
+                                        if (event.getType() == BlockEvent.Type.ADD) {
+                                            appendToCheckpointStore(event.getBlock());
+                                        }
+                                    }
+                                }
+                                if (checkpointsEnabled.get() && newBlocks.size() == count) {
+                                    checkpoint(newBlockHeight);
+                                }
+                                return events;
+                            });
+                }, 1);
 
-                }, BackpressureStrategy.BUFFER)
-                .repeatWhen(observable -> observable.delay(10, TimeUnit.SECONDS))
-                .map(obj -> (Block) obj);
-
-        return Flowable.concat(mostRecentBlocksObservable, continuousBlockObservable)
-                .onBackpressureBuffer()
+        return Flowable.merge(mostRecentBlocksObservable,
+                        continuousBlockObservable.delaySubscription(backfillAttempted.toFlowable()))
+                .compose(this::bufferBlockEvents)
                 .subscribeOn(Schedulers.io(), false) // https://stackoverflow.com/questions/44920570/rxjava2-subscribe-stops-observing-after-a-while-but-continues-when-flowable-comp
                 .observeOn(Schedulers.computation())
-                .compose(new TimeEvictionBuffer(24, ChronoUnit.HOURS))
+                .compose(blockEvents -> computeStatistics(blockEvents, sampledBackfillEstimator))
+                .compose(backpressureMonitor.conflate(Schedulers.computation()))  // only the newest statistics matter
                 .toObservable()
                 .share()            // multicast
                 .replay(1)
                 .autoConnect();
     }
 
-    private Observable<Double> createAvgBlockTimeObservable() {
-        return blockObservable
-                .map(blocks -> (24.0 * 3600) / blocks.size());
-    }
-
-    private Observable<Double> createTransactionThroughputObservable() {
-        return blockObservable
-                .map(blocks -> blocks.stream()
-                        .parallel()
-                        .mapToInt(block -> block.getNumberOfTransactions())
-                        .sum()
-                )
-                .map(sum -> sum / (24.0 * 3600));
-    }
-
-    private Observable<Map<String, Double>> createBlockPercentagePerMinerObservable() {
-        return blockObservable
-                .map(blocks -> {
-                    AtomicInteger numberOfUncleBlocks = new AtomicInteger();
-                    Map<String, List<Block>> blocksPerMiner = blocks
-                            .stream()
-                            .flatMap(block -> {
-                                List<Block> blockAndUncleBlocks = new ArrayList<>(block.getUncleBlocks());
-                                numberOfUncleBlocks.addAndGet(blockAndUncleBlocks.size());
-                                blockAndUncleBlocks.add(block);
-                                return blockAndUncleBlocks.stream();
-                            })
-                            .collect(groupingBy(Block::getMinerAddress));
-
-                    return blocksPerMiner.entrySet()
-                            .stream()
-                            .parallel()
-                            .map(entry -> new AbstractMap.SimpleEntry<>(
-                                    entry.getKey(), 100.0 * entry.getValue().size() / (blocks.size() + numberOfUncleBlocks.get())
-                            ))
-                            .collect(Collectors.toMap(AbstractMap.SimpleEntry::getKey, AbstractMap.SimpleEntry::getValue));
-                });
+    private Flowable<BlockEvent> bufferBlockEvents(Flowable<BlockEvent> blockEvents) {
+        return Flowable.defer(() -> blockEvents.compose(backpressureMonitor.buffer(blockBufferSize)));
+    }
+
+    private Flowable<Map<Duration, IBlockStatistics>> computeStatistics(Flowable<BlockEvent> blockEvents,
+                                                                    SampledBackfillEstimator sampledBackfillEstimator) {
+        return Flowable.defer(() -> {
+            if (metricStrategy == MetricStrategy.EXPONENTIAL_DECAY) {
+                return blockEvents.compose(DecayingBlockEstimator.forBlockEvents(HORIZONS));
+            }
+            return blockEvents
+                    .compose(new TimeEvictionBuffer(HORIZONS).forBlockEventsAsWindows())
+                    .compose(sampledBackfillEstimator.forWindows());
+        });
+    }
+
+    private INewBlockNotifier getNewBlockNotifier() {
+        if (newBlockNotifier == null) {
+            newBlockNotifier = new PollingNewBlockNotifier(ethereumService::getCurrentBlockNumberAsync, 10, TimeUnit.SECONDS);
+        }
+        return newBlockNotifier;
+    }
+
+    /**
+     * @return the height of the first block mined after <i>windowStart</i>, or -1 if it can't be determined
+     */
+    private long findWindowStart(long lowestBlockHeight, long highestBlockHeight, ZonedDateTime windowStart) {
+        try {
+            return BackfillCoordinator.findWindowStart(lowestBlockHeight, highestBlockHeight, windowStart,
+                    height -> Utils.await(ethereumService.getBlockTimestampAsync(height)));
+        } catch (Exception e) {
+            LOG.warn("Can't determine the first block of the last 24 hours, fetch blocks until an older one is found: " +
+                    e.getMessage());
+            return -1;
+        }
+    }
+
+    private BlockEvent publish(BlockEvent event) {
+        if (sharedBlockStore != null) {
+            sharedBlockStore.onBlockEvent(event);
+        }
+        return event;
+    }
+
+    private Block getBlockOfMainChain(long blockNumber) throws Exception {
+        return Utils.await(ethereumService.getBlockByNumberWithUnclesAsync(blockNumber))
+                .orElseThrow(() -> new EthereumException("Block " + blockNumber + " not found"));
+    }
+
+    private void appendToCheckpointStore(Block block) {
+        if (checkpointStore != null) {
+            checkpointStore.append(chainIdentifier, block);
+        }
+    }
+
+    private void checkpoint(long blockHeight) {
+        if (checkpointStore != null) {
+            checkpointStore.checkpoint(chainIdentifier, blockHeight);
+            checkpointStore.compact(chainIdentifier, ZonedDateTime.now().minus(24, ChronoUnit.HOURS));
+        }
+    }
+
+    @Override
+    public Observable<IBlockStatistics> getBlockStatisticsObservable(Duration horizon) {
+        if (!HORIZONS.contains(horizon)) {
+            throw new IllegalArgumentException("Unsupported horizon: " + horizon);
+        }
+        return statisticsObservable
+                .map(statisticsPerHorizon -> statisticsPerHorizon.get(horizon))
+                .distinctUntilChanged();
     }
 
-    private Observable<Double> createNetworkHashrateObservable() {
-        return blockObservable
-                .map(blocks -> blocks
-                        .stream()
-                        .parallel()
-                        .mapToDouble(block -> block.getDifficulty() +
-                                block.getUncleBlocks().stream().mapToDouble(Block::getDifficulty).sum())
-                        .sum() / (24.0 * 3600)
-                );
+    /**
+     * @return one multicast observable per horizon, which computes the metrics once per change of the statistics
+     */
+    private Map<Duration, Observable<MetricSnapshot>> createMetricSnapshotObservables() {
+        Map<Duration, Observable<MetricSnapshot>> observables = new HashMap<>();
+        for (Duration horizon : HORIZONS) {
+            observables.put(horizon, getBlockStatisticsObservable(horizon)
+                    .map(statistics -> createMetricSnapshot(horizon, statistics))
+                    .share()    // multicast
+                    .replay(1)
+                    .autoConnect());
+        }
+        return observables;
+    }
+
+    private MetricSnapshot createMetricSnapshot(Duration horizon, IBlockStatistics statistics) {
+        return new MetricSnapshot(horizon, statistics.getVersion(), statistics.getNumberOfBlocks(),
+                statistics.isApproximate(),
+                1 / statistics.getBlockRate(), statistics.getBlockRateInterval().reciprocal(),
+                statistics.getTransactionRate(), statistics.getTransactionRateInterval(),
+                statistics.getDifficultyRate(), statistics.getDifficultyRateInterval(),
+                statistics.getMiningDistribution(true));  // uncle blocks count as mined blocks
+    }
+
+    private Observable<Double> createAvgBlockTimeObservable(Duration horizon) {
+        return getMetricSnapshotObservable(horizon)
+                .map(MetricSnapshot::getAvgBlockTime);
+    }
+
+    private Observable<Double> createTransactionThroughputObservable(Duration horizon) {
+        return getMetricSnapshotObservable(horizon)
+                .map(MetricSnapshot::getTransactionThroughput);
+    }
+
+    private Observable<MiningDistribution> createMiningDistributionObservable(Duration horizon) {
+        return getMetricSnapshotObservable(horizon)
+                .map(MetricSnapshot::getMiningDistribution);
+    }
+
+    private Observable<Double> createNetworkHashrateObservable(Duration horizon) {
+        return getMetricSnapshotObservable(horizon)
+                .map(MetricSnapshot::getNetworkHashrate);
     }
 
     private Observable<BigDecimal> createExchangeRateObservable() {
-        return Observable
-                .create(emitter -> {
-                    try {
-                        BigDecimal price = currencyPriceService.getPrice(getCryptocurrency(), fiatCurrency);
-                        emitter.onNext(price);
-                        emitter.onComplete();
-                    } catch (Throwable throwable) {
-                        emitter.tryOnError(throwable);
-                    }
-                })
+        return Utils
+                .toSingle(() -> currencyPriceService.getPriceAsync(getCryptocurrency(), fiatCurrency))
+                .toObservable()
                 .repeatWhen(observable -> observable.delay(10, TimeUnit.SECONDS))
-                .map(price -> (BigDecimal) price)
                 .share()            // multicast
                 .replay(1)
                 .autoConnect();
@@ -241,21 +466,13 @@ public abstract class AbstractEthereumMetricCollector implements IMetricCollecto
 
     private Observable<Long> createGasPriceObservable() {
         return Observable
-                .create(emitter -> {
+                .defer(() -> {
                     if (gasPrice.get() == 0) {
-                        try {
-                            Long gasPrice = ethereumService.getGasPrice();
-                            emitter.onNext(gasPrice);
-                        } catch (Throwable throwable) {
-                            emitter.tryOnError(throwable);
-                        }
-                    } else {
-                        emitter.onNext(gasPrice.get());
+                        return Utils.toSingle(ethereumService::getGasPriceAsync).toObservable();
                     }
-                    emitter.onComplete();
+                    return Observable.just(gasPrice.get());
                 })
                 .repeatWhen(observable -> observable.delay(2, TimeUnit.MINUTES))
-                .map(priceInfo -> (Long) priceInfo)
                 .share()            // multicast
                 .replay(1)
                 .autoConnect();
@@ -303,28 +520,42 @@ public abstract class AbstractEthereumMetricCollector implements IMetricCollecto
     public abstract Currency getCryptocurrency();
 
     @Override
-    public Observable<List<Block>> getBlockObservable() {
-        return blockObservable;
+    public Observable<List<Block>> getBlockObservable(Duration horizon) {
+        if (metricStrategy != MetricStrategy.SLIDING_WINDOW) {
+            throw new IllegalStateException("No blocks are kept with the metric strategy " + metricStrategy);
+        }
+        return getBlockStatisticsObservable(horizon)
+                .map(statistics -> statistics instanceof SampledBackfillEstimator.Snapshot ?
+                        ((SampledBackfillEstimator.Snapshot) statistics).getWindow().getBlocks() :
+                        ((SlidingBlockWindow.Snapshot) statistics).getBlocks());
+    }
+
+    @Override
+    public Observable<MetricSnapshot> getMetricSnapshotObservable(Duration horizon) {
+        if (!HORIZONS.contains(horizon)) {
+            throw new IllegalArgumentException("Unsupported horizon: " + horizon);
+        }
+        return metricSnapshotObservables.get(horizon);
     }
 
     @Override
-    public Observable<Double> getAvgBlockTimeObservable() {
-        return avgBlockTimeObservable;
+    public Observable<Double> getAvgBlockTimeObservable(Duration horizon) {
+        return createAvgBlockTimeObservable(horizon);
     }
 
     @Override
-    public Observable<Double> getTransactionThroughputObservable() {
-        return transactionThroughputObservable;
+    public Observable<Double> getTransactionThroughputObservable(Duration horizon) {
+        return createTransactionThroughputObservable(horizon);
     }
 
     @Override
-    public Observable<Map<String, Double>> getBlockPercentagePerMinerObservable() {
-        return blockPercentagePerMinerObservable;
+    public Observable<MiningDistribution> getMiningDistributionObservable(Duration horizon) {
+        return createMiningDistributionObservable(horizon);
     }
 
     @Override
-    public Observable<Double> getNetworkHashrateObservable() {
-        return networkHashrateObservable;
+    public Observable<Double> getNetworkHashrateObservable(Duration horizon) {
+        return createNetworkHashrateObservable(horizon);
     }
 
     @Override
@@ -1,7 +1,7 @@
 package com.ieee19.bc.interop.pf.proxy.ethereum;
 
-import com.ieee19.bc.interop.pf.core.model.Block;
 import com.ieee19.bc.interop.pf.proxy.ethereum.dto.rpc.JsonRpcTransaction;
+import com.ieee19.bc.interop.pf.proxy.ethereum.model.EthereumBlock;
 import com.ieee19.bc.interop.pf.proxy.ethereum.model.Transaction;
 import org.web3j.protocol.core.methods.response.EthBlock;
 
@@ -11,8 +11,12 @@ import java.time.ZonedDateTime;
 
 public class DtoConverter {
 
-    public static Block convert(EthBlock.Block ethBlock) {
-        Block block = new Block();
+    /**
+     * Converts a block. If the block has been fetched with full transaction objects, all transactions that carry data
+     * are converted as well.
+     */
+    public static EthereumBlock convert(EthBlock.Block ethBlock) {
+        EthereumBlock block = new EthereumBlock();
         Instant instant = Instant.ofEpochSecond(ethBlock.getTimestamp().longValue());
         ZonedDateTime timestamp = ZonedDateTime.ofInstant(instant, ZoneOffset.UTC);
 
@@ -23,6 +27,14 @@ public class DtoConverter {
 
         if (ethBlock.getTransactions() != null) {
             block.setNumberOfTransactions(ethBlock.getTransactions().size());
+            for (EthBlock.TransactionResult txResult : ethBlock.getTransactions()) {
+                if (txResult instanceof EthBlock.TransactionObject) {
+                    Transaction tx = convert((EthBlock.TransactionObject) txResult);
+                    if (tx.getData() != null && !tx.getData().isEmpty() && !tx.getData().equals("0x")) {
+                        block.getDataTransactions().add(tx);
+                    }
+                }
+            }
         }
 
         block.setMinerAddress(ethBlock.getMiner());
@@ -0,0 +1,77 @@
+package com.ieee19.bc.interop.pf.proxy.ethereum;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ieee19.bc.interop.pf.core.AbstractWebSocketNewBlockNotifier;
+import com.ieee19.bc.interop.pf.core.INewBlockNotifier;
+import com.ieee19.bc.interop.pf.core.PollingNewBlockNotifier;
+import com.ieee19.bc.interop.pf.proxy.ethereum.interfaces.IEthereumService;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Notifies about new blocks of Ethereum based blockchains with a <i>newHeads</i> subscription (<i>eth_subscribe</i>)
+ * via the WebSocket endpoint of a node. While the WebSocket is disconnected, the current block number is polled every
+ * 10 seconds.
+ */
+public class EthereumNewHeadsNotifier extends AbstractWebSocketNewBlockNotifier {
+
+    private static final String SUBSCRIBE_MESSAGE =
+            "{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"eth_subscribe\",\"params\":[\"newHeads\"]}";
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * @param webSocketUri    the URI of the WebSocket endpoint of the node (e.g. ws://localhost:8546)
+     * @param ethereumService the service to poll the current block number with while the WebSocket is disconnected
+     */
+    public EthereumNewHeadsNotifier(URI webSocketUri, IEthereumService ethereumService) {
+        this(webSocketUri,
+                new PollingNewBlockNotifier(ethereumService::getCurrentBlockNumberAsync, 10, TimeUnit.SECONDS),
+                30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @param webSocketUri     the URI of the WebSocket endpoint of the node (e.g. ws://localhost:8546)
+     * @param fallbackNotifier the notifier to use while the WebSocket is disconnected
+     * @param reconnectDelay   the time to wait before reconnecting after a disconnect
+     * @param unit             the unit of <i>reconnectDelay</i>
+     */
+    public EthereumNewHeadsNotifier(URI webSocketUri, INewBlockNotifier fallbackNotifier, long reconnectDelay,
+                                    TimeUnit unit) {
+        super(webSocketUri, fallbackNotifier, reconnectDelay, unit);
+    }
+
+    @Override
+    protected String createSubscribeMessage() {
+        return SUBSCRIBE_MESSAGE;
+    }
+
+    @Override
+    protected boolean isSubscriptionConfirmedByResponse() {
+        return true;
+    }
+
+    @Override
+    protected boolean isSubscriptionConfirmation(String message) throws IOException {
+        JsonNode response = MAPPER.readTree(message);
+        if (response.has("error")) {
+            throw new IOException("Subscription failed: " + response.get("error"));
+        }
+        // the response containing the subscription id
+        return response.path("id").asInt() == 1 && response.path("result").isTextual();
+    }
+
+    @Override
+    protected Long parseNewBlockHeight(String message) throws IOException {
+        JsonNode response = MAPPER.readTree(message);
+        JsonNode blockNumber = response.path("params").path("result").path("number");
+        if (!"eth_subscription".equals(response.path("method").asText()) || !blockNumber.isTextual()) {
+            return null;
+        }
+        return Numeric.decodeQuantity(blockNumber.asText()).longValue();
+    }
+
+}
@@ -1,11 +1,14 @@
 package com.ieee19.bc.interop.pf.proxy.ethereum;
 
+import com.ieee19.bc.interop.pf.core.AsyncHttpTransport;
+import com.ieee19.bc.interop.pf.core.SharedBlockStore;
 import com.ieee19.bc.interop.pf.core.model.Block;
 import com.ieee19.bc.interop.pf.core.Utils;
 import com.ieee19.bc.interop.pf.proxy.ethereum.dto.rpc.JsonRpcRequest;
 import com.ieee19.bc.interop.pf.proxy.ethereum.dto.rpc.PendingTransactionResponse;
 import com.ieee19.bc.interop.pf.proxy.ethereum.exception.EthereumException;
 import com.ieee19.bc.interop.pf.proxy.ethereum.interfaces.IEthereumService;
+import com.ieee19.bc.interop.pf.proxy.ethereum.model.EthereumBlock;
 import com.ieee19.bc.interop.pf.proxy.ethereum.model.Transaction;
 import org.apache.commons.codec.DecoderException;
 import org.slf4j.Logger;
@@ -14,9 +17,11 @@ import org.springframework.http.HttpEntity;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 import org.web3j.crypto.*;
+import org.web3j.protocol.ObjectMapperFactory;
 import org.web3j.protocol.Web3j;
 import org.web3j.protocol.core.DefaultBlockParameterName;
 import org.web3j.protocol.core.DefaultBlockParameterNumber;
+import org.web3j.protocol.core.Response;
 import org.web3j.protocol.core.methods.response.*;
 import org.web3j.protocol.http.HttpService;
 import org.web3j.utils.Numeric;
@@ -25,9 +30,7 @@ import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.math.BigInteger;
 import java.time.ZonedDateTime;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
@@ -39,13 +42,17 @@ import java.util.stream.Collectors;
 public class EthereumService implements IEthereumService {
 
     private static final Logger LOG = LoggerFactory.getLogger(EthereumService.class);
+    private static final int DEFAULT_BATCH_SIZE = 50;
 
     protected Web3j web3;
     protected RestTemplate restTemplate = new RestTemplate();
+    protected AsyncHttpTransport asyncHttpTransport = AsyncHttpTransport.getDefault();
     private String nodeBaseUrl;
     private Credentials accountCredentials;
     private AtomicLong currentNonce = new AtomicLong(0);
     private int threadPoolSize = 25;
+    private int batchSize = DEFAULT_BATCH_SIZE;  // max. number of calls sent in one JSON-RPC batch request
+    private SharedBlockStore sharedBlockStore;
 
     /**
      * @param nodeBaseUrl        the URL of the Parity node
@@ -136,11 +143,241 @@ public class EthereumService implements IEthereumService {
         return response;
     }
 
+    protected CompletableFuture<String> doPOSTAsync(String url, Object request) {
+        CompletableFuture<String> response = new CompletableFuture<>();
+        asyncHttpTransport.post(url, request).whenComplete((value, error) -> {
+            if (error != null) {
+                LOG.error("Failed to call POST " + url, Utils.unwrap(error));
+                response.completeExceptionally(new EthereumException("Failed to call POST " + url, Utils.unwrap(error)));
+            } else {
+                response.complete(value);
+            }
+        });
+        return response;
+    }
+
+    /**
+     * Sends a single JSON-RPC call asynchronously.
+     *
+     * @param method       the method to call
+     * @param responseType the type of the response
+     * @param params       the parameters of the call
+     * @return completes with the response, or with an {@link EthereumException} if the call has failed
+     */
+    private <T extends Response<?>> CompletableFuture<T> doJsonRpcAsync(String method, Class<T> responseType,
+                                                                        Object... params) {
+        return doPOSTAsync(nodeBaseUrl, createJsonRpcRequest(1, method, params)).thenApply(response -> {
+            T rpcResponse;
+            try {
+                rpcResponse = ObjectMapperFactory.getObjectMapper().readValue(response, responseType);
+            } catch (IOException | RuntimeException e) {
+                LOG.error("Failed to parse JSON-RPC response: " + response, e);
+                throw new CompletionException(new EthereumException("Failed to parse JSON-RPC response", e));
+            }
+            if (rpcResponse.hasError()) {
+                throw new CompletionException(new EthereumException("Failed to call " + method + ": " +
+                        rpcResponse.getError().getMessage()));
+            }
+            return rpcResponse;
+        });
+    }
+
     protected String getNodeBaseUrl() {
         return nodeBaseUrl;
     }
 
+    private JsonRpcRequest createJsonRpcRequest(int id, String method, Object... params) {
+        JsonRpcRequest jsonRpcRequest = new JsonRpcRequest();
+        jsonRpcRequest.setId(id);
+        jsonRpcRequest.setMethod(method);
+        jsonRpcRequest.setJsonrpc("2.0");
+        jsonRpcRequest.setParams(new ArrayList<>(Arrays.asList(params)));
+        return jsonRpcRequest;
+    }
+
+    /**
+     * Sends all <i>requests</i> as one JSON-RPC batch (a JSON array) in a single POST request. The ids of the requests
+     * must be their indices in <i>requests</i>.
+     *
+     * @param requests the requests to send
+     * @return the responses ordered by their ids, i.e. the n-th response belongs to the n-th request
+     * @throws EthereumException
+     */
+    private List<EthBlock> doBatchPOST(List<JsonRpcRequest> requests) throws EthereumException {
+        LOG.debug("Send JSON-RPC batch with " + requests.size() + " requests");
+        String response = doPOST(nodeBaseUrl, new HttpEntity<>(requests), String.class);
+        return parseBatchResponse(requests, response);
+    }
+
+    /**
+     * Asynchronous variant of {@link #doBatchPOST(List)}.
+     */
+    private CompletableFuture<List<EthBlock>> doBatchPOSTAsync(List<JsonRpcRequest> requests) {
+        LOG.debug("Send JSON-RPC batch with " + requests.size() + " requests");
+        return doPOSTAsync(nodeBaseUrl, requests).thenApply(response -> {
+            try {
+                return parseBatchResponse(requests, response);
+            } catch (EthereumException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    private List<EthBlock> parseBatchResponse(List<JsonRpcRequest> requests, String response) throws EthereumException {
+        EthBlock[] responses;
+
+        try {
+            responses = ObjectMapperFactory.getObjectMapper().readValue(response, EthBlock[].class);
+        } catch (IOException | RuntimeException e) {
+            LOG.error("Failed to parse JSON-RPC batch response: " + response, e);
+            throw new EthereumException("Failed to parse JSON-RPC batch response", e);
+        }
+        if (responses == null || responses.length != requests.size()) {
+            throw new EthereumException("Expected " + requests.size() + " responses in JSON-RPC batch but got " +
+                    (responses == null ? 0 : responses.length));
+        }
+
+        // the responses of a batch may be returned in any order
+        Arrays.sort(responses, Comparator.comparingLong(EthBlock::getId));
+        return Arrays.asList(responses);
+    }
+
+    /**
+     * Fetches the blocks <i>fromBlockNumber</i> to <i>toBlockNumber</i> (including their transactions) and their uncle
+     * blocks with two batch requests (one for the blocks and one for all of their uncles).
+     */
+    private List<Block> getBlockBatchWithUncles(long fromBlockNumber, long toBlockNumber) throws EthereumException {
+        BlockBatch batch = parseBlockBatch(fromBlockNumber, doBatchPOST(createBlockRequests(fromBlockNumber, toBlockNumber)));
+        if (!batch.uncleRequests.isEmpty()) {
+            addUncleBlocks(batch, doBatchPOST(batch.uncleRequests));
+        }
+        return batch.blocks;
+    }
+
+    /**
+     * Asynchronous variant of {@link #getBlockBatchWithUncles(long, long)}.
+     */
+    private CompletableFuture<List<Block>> getBlockBatchWithUnclesAsync(long fromBlockNumber, long toBlockNumber) {
+        return doBatchPOSTAsync(createBlockRequests(fromBlockNumber, toBlockNumber)).thenCompose(responses -> {
+            BlockBatch batch;
+            try {
+                batch = parseBlockBatch(fromBlockNumber, responses);
+            } catch (EthereumException e) {
+                throw new CompletionException(e);
+            }
+            if (batch.uncleRequests.isEmpty()) {
+                return CompletableFuture.completedFuture(batch.blocks);
+            }
+            return doBatchPOSTAsync(batch.uncleRequests).thenApply(uncleResponses -> {
+                try {
+                    addUncleBlocks(batch, uncleResponses);
+                } catch (EthereumException e) {
+                    throw new CompletionException(e);
+                }
+                return batch.blocks;
+            });
+        });
+    }
+
+    private List<JsonRpcRequest> createBlockRequests(long fromBlockNumber, long toBlockNumber) {
+        List<JsonRpcRequest> blockRequests = new ArrayList<>();
+        for (long blockNumber = fromBlockNumber; blockNumber <= toBlockNumber; blockNumber++) {
+            blockRequests.add(createJsonRpcRequest(blockRequests.size(), "eth_getBlockByNumber",
+                    Numeric.encodeQuantity(BigInteger.valueOf(blockNumber)), true));
+        }
+        return blockRequests;
+    }
+
+    /**
+     * Converts the responses of a block batch and creates the requests for the uncles of the blocks.
+     */
+    private BlockBatch parseBlockBatch(long fromBlockNumber, List<EthBlock> responses) throws EthereumException {
+        BlockBatch batch = new BlockBatch();
+        for (EthBlock response : responses) {
+            if (response.hasError()) {
+                throw new EthereumException("Failed to get block with number " + (fromBlockNumber + response.getId()) +
+                        ": " + response.getError().getMessage());
+            }
+            EthBlock.Block ethBlock = response.getBlock();
+            if (ethBlock == null) {
+                continue;  // block has not been mined yet
+            }
+
+            Block block = DtoConverter.convert(ethBlock);
+            batch.blocks.add(block);
+            for (int i = 0; i < ethBlock.getUncles().size(); i++) {
+                batch.uncleRequests.add(createJsonRpcRequest(batch.uncleRequests.size(),
+                        "eth_getUncleByBlockHashAndIndex", ethBlock.getHash(), Numeric.encodeQuantity(BigInteger.valueOf(i))));
+                batch.uncleOwners.add(block);
+            }
+        }
+        return batch;
+    }
+
+    private void addUncleBlocks(BlockBatch batch, List<EthBlock> uncleResponses) throws EthereumException {
+        for (int i = 0; i < uncleResponses.size(); i++) {
+            EthBlock response = uncleResponses.get(i);
+            if (response.hasError() || response.getBlock() == null) {
+                throw new EthereumException("Couldn't get uncle blocks for block " + batch.uncleOwners.get(i).getHash() +
+                        (response.hasError() ? ": " + response.getError().getMessage() : ""));
+            }
+            batch.uncleOwners.get(i).getUncleBlocks().add(DtoConverter.convert(response.getBlock()));
+        }
+    }
+
+    /**
+     * Reads the blocks from the shared block store if it contains all blocks mined after <i>from</i>. Only blocks which
+     * are more recent than the stored blocks or have been stored without transactions (e.g. blocks restored from a
+     * checkpoint) are fetched. Otherwise, all blocks are fetched from the node.
+     */
     private List<Transaction> getMinedTransactionsSentByAddr(ZonedDateTime from, ZonedDateTime to) throws EthereumException {
+        if (sharedBlockStore == null || !sharedBlockStore.isCompleteSince(from)) {
+            return fetchMinedTransactionsSentByAddr(from, to);
+        }
+        LOG.info("Get all mined transactions sent between " + from + " and " + to + " from the shared block store");
+
+        List<Block> blocks = new ArrayList<>();
+        long firstMissingBlockNumber = -1;
+        long lastMissingBlockNumber = -1;
+        for (Block block : sharedBlockStore.getBlocks(from, to)) {
+            if (block instanceof EthereumBlock) {
+                blocks.add(block);
+                continue;
+            }
+            // fetch consecutive blocks without transactions with batch requests
+            if (block.getHeight() != lastMissingBlockNumber + 1 && firstMissingBlockNumber >= 0) {
+                blocks.addAll(getBlocksByNumberWithUncles(firstMissingBlockNumber, lastMissingBlockNumber));
+                firstMissingBlockNumber = -1;
+            }
+            if (firstMissingBlockNumber < 0) {
+                firstMissingBlockNumber = block.getHeight();
+            }
+            lastMissingBlockNumber = block.getHeight();
+        }
+        if (firstMissingBlockNumber >= 0) {
+            blocks.addAll(getBlocksByNumberWithUncles(firstMissingBlockNumber, lastMissingBlockNumber));
+        }
+        long tipHeight = sharedBlockStore.getTipHeight();
+        long currentBlockNumber = getCurrentBlockNumber();
+        if (tipHeight >= 0 && tipHeight < currentBlockNumber) {
+            blocks.addAll(getBlocksByNumberWithUncles(tipHeight + 1, currentBlockNumber));
+        }
+
+        List<Transaction> transactions = new ArrayList<>();
+        for (Block block : blocks) {
+            if (block instanceof EthereumBlock && block.getTimestamp().isAfter(from) && block.getTimestamp().isBefore(to)) {
+                for (Transaction tx : ((EthereumBlock) block).getDataTransactions()) {
+                    if (tx.getFromAddress().equals(accountCredentials.getAddress())) {
+                        transactions.add(tx);
+                    }
+                }
+            }
+        }
+        LOG.info("Mined transactions sent by addr: " + transactions.size());
+        return transactions;
+    }
+
+    private List<Transaction> fetchMinedTransactionsSentByAddr(ZonedDateTime from, ZonedDateTime to) throws EthereumException {
         List<Transaction> transactions = new ArrayList<>();
         LOG.info("Get all mined transactions sent between " + from + " and " + to);
         AtomicLong nextBlockHeightToFetch = new AtomicLong(getCurrentBlockNumber());
@@ -236,10 +473,38 @@ public class EthereumService implements IEthereumService {
         this.restTemplate = restTemplate;
     }
 
+    /**
+     * @param asyncHttpTransport the transport used by the asynchronous methods (default: the shared transport, see
+     *                           {@link AsyncHttpTransport#getDefault()})
+     */
+    public void setAsyncHttpTransport(AsyncHttpTransport asyncHttpTransport) {
+        this.asyncHttpTransport = asyncHttpTransport;
+    }
+
     public void setThreadPoolSize(int threadPoolSize) {
         this.threadPoolSize = threadPoolSize;
     }
 
+    /**
+     * Reads mined transactions from <i>sharedBlockStore</i> (filled by the metric collector of the same node) instead
+     * of fetching all blocks again.
+     *
+     * @param sharedBlockStore the store of the node
+     */
+    public void setSharedBlockStore(SharedBlockStore sharedBlockStore) {
+        this.sharedBlockStore = sharedBlockStore;
+    }
+
+    /**
+     * @param batchSize the max. number of JSON-RPC calls that are sent in one batch request (must be > 0)
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size " + batchSize + " is not positive");
+        }
+        this.batchSize = batchSize;
+    }
+
     public void setAccountCredentials(Credentials accountCredentials) {
         this.accountCredentials = accountCredentials;
     }
@@ -296,6 +561,12 @@ public class EthereumService implements IEthereumService {
         }
     }
 
+    @Override
+    public CompletableFuture<Long> getCurrentBlockNumberAsync() {
+        return doJsonRpcAsync("eth_blockNumber", EthBlockNumber.class)
+                .thenApply(response -> response.getBlockNumber().longValue());
+    }
+
     @Override
     public Optional<Block> getBlockByNumberWithUncles(long blockNumber) throws EthereumException {
         LOG.debug("Get block with number " + blockNumber);
@@ -304,7 +575,7 @@ public class EthereumService implements IEthereumService {
 
         try {
             EthBlock response = web3
-                    .ethGetBlockByNumber(new DefaultBlockParameterNumber(blockNumber), false)
+                    .ethGetBlockByNumber(new DefaultBlockParameterNumber(blockNumber), true)
                     .send();
             if (response.hasError()) {
                 throw new EthereumException("Failed to get block with number " + blockNumber + ": " + response.getError().getMessage());
@@ -325,6 +596,76 @@ public class EthereumService implements IEthereumService {
         return ret;
     }
 
+    @Override
+    public CompletableFuture<Optional<Block>> getBlockByNumberWithUnclesAsync(long blockNumber) {
+        LOG.debug("Get block with number " + blockNumber);
+        return getBlocksByNumberWithUnclesAsync(blockNumber, blockNumber)
+                .thenApply(blocks -> blocks.stream().findFirst());
+    }
+
+    @Override
+    public ZonedDateTime getBlockTimestamp(long blockNumber) throws EthereumException {
+        LOG.debug("Get timestamp of block " + blockNumber);
+        try {
+            EthBlock response = web3
+                    .ethGetBlockByNumber(new DefaultBlockParameterNumber(blockNumber), false)
+                    .send();
+            if (response.hasError()) {
+                throw new EthereumException("Failed to get block with number " + blockNumber + ": " + response.getError().getMessage());
+            }
+            return response.getBlock() == null ? null :
+                    Utils.convertUnixEpochTime(response.getBlock().getTimestamp().longValue());
+        } catch (IOException e) {
+            LOG.error(e.getMessage(), e);
+            throw new EthereumException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<ZonedDateTime> getBlockTimestampAsync(long blockNumber) {
+        LOG.debug("Get timestamp of block " + blockNumber);
+        return doJsonRpcAsync("eth_getBlockByNumber", EthBlock.class,
+                Numeric.encodeQuantity(BigInteger.valueOf(blockNumber)), false)
+                .thenApply(response -> response.getBlock() == null ? null :
+                        Utils.convertUnixEpochTime(response.getBlock().getTimestamp().longValue()));
+    }
+
+    @Override
+    public List<Block> getBlocksByNumberWithUncles(long fromBlockNumber, long toBlockNumber) throws EthereumException {
+        LOG.debug("Get blocks with numbers " + fromBlockNumber + " to " + toBlockNumber);
+        List<Block> blocks = new ArrayList<>();
+
+        for (long batchStart = fromBlockNumber; batchStart <= toBlockNumber; batchStart += batchSize) {
+            long batchEnd = Math.min(toBlockNumber, batchStart + batchSize - 1);
+            blocks.addAll(getBlockBatchWithUncles(batchStart, batchEnd));
+        }
+
+        LOG.debug("Retrieved " + blocks.size() + " blocks");
+        return blocks;
+    }
+
+    /**
+     * Sends the batches of the range concurrently; the number of requests in flight is bounded by the transport.
+     */
+    @Override
+    public CompletableFuture<List<Block>> getBlocksByNumberWithUnclesAsync(long fromBlockNumber, long toBlockNumber) {
+        LOG.debug("Get blocks with numbers " + fromBlockNumber + " to " + toBlockNumber);
+        List<CompletableFuture<List<Block>>> batches = new ArrayList<>();
+        for (long batchStart = fromBlockNumber; batchStart <= toBlockNumber; batchStart += batchSize) {
+            long batchEnd = Math.min(toBlockNumber, batchStart + batchSize - 1);
+            batches.add(getBlockBatchWithUnclesAsync(batchStart, batchEnd));
+        }
+
+        return CompletableFuture.allOf(batches.toArray(new CompletableFuture<?>[0])).thenApply(v -> {
+            List<Block> blocks = new ArrayList<>();
+            for (CompletableFuture<List<Block>> batch : batches) {
+                blocks.addAll(batch.join());
+            }
+            LOG.debug("Retrieved " + blocks.size() + " blocks");
+            return blocks;
+        });
+    }
+
     @Override
     public Long getGasPrice() throws EthereumException {
         try {
@@ -341,6 +682,12 @@ public class EthereumService implements IEthereumService {
         }
     }
 
+    @Override
+    public CompletableFuture<Long> getGasPriceAsync() {
+        return doJsonRpcAsync("eth_gasPrice", EthGasPrice.class)
+                .thenApply(response -> response.getGasPrice().longValue());
+    }
+
     @Override
     public List<String> getData(ZonedDateTime from, ZonedDateTime to) throws EthereumException {
         List<String> dataStrings = new ArrayList<>();
@@ -402,4 +749,15 @@ public class EthereumService implements IEthereumService {
         }
     }
 
+    /**
+     * The blocks of a batch request and the requests for their uncles.
+     */
+    private static class BlockBatch {
+
+        private final List<Block> blocks = new ArrayList<>();
+        private final List<JsonRpcRequest> uncleRequests = new ArrayList<>();
+        private final List<Block> uncleOwners = new ArrayList<>();  // n-th entry is the block of the n-th uncle request
+
+    }
+
 }
@@ -10,7 +10,7 @@ import java.util.Objects;
 public class JsonRpcRequest {
 
     private String method;
-    private List<String> params = new ArrayList<>();
+    private List<Object> params = new ArrayList<>();
     private int id;
     private String jsonrpc;
 
@@ -22,11 +22,11 @@ public class JsonRpcRequest {
         this.method = method;
     }
 
-    public List<String> getParams() {
+    public List<Object> getParams() {
         return params;
     }
 
-    public void setParams(List<String> params) {
+    public void setParams(List<Object> params) {
         this.params = params;
     }
 
@@ -7,6 +7,7 @@ import com.ieee19.bc.interop.pf.proxy.ethereum.exception.EthereumException;
 import java.time.ZonedDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 public interface IEthereumService {
 
@@ -15,6 +16,13 @@ public interface IEthereumService {
      */
     long getCurrentBlockNumber() throws EthereumException;
 
+    /**
+     * Asynchronous variant of {@link #getCurrentBlockNumber()}, which doesn't block the calling thread.
+     *
+     * @return completes with the current block number, or with an {@link EthereumException}
+     */
+    CompletableFuture<Long> getCurrentBlockNumberAsync();
+
     /**
      * @param blockNumber the block number of the desired block
      * @param numberOfRetries
@@ -23,12 +31,63 @@ public interface IEthereumService {
      */
     Optional<Block> getBlockByNumberWithUncles(long blockNumber) throws EthereumException;
 
+    /**
+     * Asynchronous variant of {@link #getBlockByNumberWithUncles(long)}.
+     *
+     * @param blockNumber the block number of the desired block
+     * @return completes with the block and its uncle blocks, or with an {@link EthereumException}
+     */
+    CompletableFuture<Optional<Block>> getBlockByNumberWithUnclesAsync(long blockNumber);
+
+    /**
+     * Fetches a range of blocks and their uncle blocks using JSON-RPC batch requests instead of one request per block.
+     *
+     * @param fromBlockNumber the block number of the first block (inclusive)
+     * @param toBlockNumber the block number of the last block (inclusive)
+     * @return the blocks ordered by block number; blocks that have not been mined yet are omitted
+     * @throws EthereumException
+     */
+    List<Block> getBlocksByNumberWithUncles(long fromBlockNumber, long toBlockNumber) throws EthereumException;
+
+    /**
+     * Asynchronous variant of {@link #getBlocksByNumberWithUncles(long, long)}.
+     *
+     * @param fromBlockNumber the block number of the first block (inclusive)
+     * @param toBlockNumber the block number of the last block (inclusive)
+     * @return completes with the blocks ordered by block number, or with an {@link EthereumException}
+     */
+    CompletableFuture<List<Block>> getBlocksByNumberWithUnclesAsync(long fromBlockNumber, long toBlockNumber);
+
+    /**
+     * @param blockNumber the block number of the block
+     * @return the timestamp of the block (fetched without transactions and uncles), or <i>null</i> if the block has
+     * not been mined yet
+     * @throws EthereumException
+     */
+    ZonedDateTime getBlockTimestamp(long blockNumber) throws EthereumException;
+
+    /**
+     * Asynchronous variant of {@link #getBlockTimestamp(long)}.
+     *
+     * @param blockNumber the block number of the block
+     * @return completes with the timestamp of the block (<i>null</i> if it has not been mined yet), or with an
+     * {@link EthereumException}
+     */
+    CompletableFuture<ZonedDateTime> getBlockTimestampAsync(long blockNumber);
+
     /**
      * @return the median gas price in wei.
      * @throws EthereumException
      */
     Long getGasPrice() throws EthereumException;
 
+    /**
+     * Asynchronous variant of {@link #getGasPrice()}.
+     *
+     * @return completes with the median gas price in wei, or with an {@link EthereumException}
+     */
+    CompletableFuture<Long> getGasPriceAsync();
+
     /**
      * Returns all data that have been mined during <i>from</i> and <i>to</i>.
      * @param from start date
@@ -0,0 +1,24 @@
+package com.ieee19.bc.interop.pf.proxy.ethereum.model;
+
+import com.ieee19.bc.interop.pf.core.model.Block;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class represents a block of an Ethereum based blockchain together with its decoded transactions. Only
+ * transactions that carry data are kept, since all other transactions are irrelevant for reading data.
+ */
+public class EthereumBlock extends Block {
+
+    private List<Transaction> dataTransactions = new ArrayList<>();
+
+    public List<Transaction> getDataTransactions() {
+        return dataTransactions;
+    }
+
+    public void setDataTransactions(List<Transaction> dataTransactions) {
+        this.dataTransactions = dataTransactions;
+    }
+
+}
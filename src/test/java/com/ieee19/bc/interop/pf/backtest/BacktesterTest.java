@@ -0,0 +1,141 @@
+package com.ieee19.bc.interop.pf.backtest;
+
+import com.ieee19.bc.interop.pf.core.model.Block;
+import com.ieee19.bc.interop.pf.core.model.MetricValidationSettings;
+import com.ieee19.bc.interop.pf.core.model.ThresholdValidationSettings;
+import com.ieee19.bc.interop.pf.core.model.WeightedRankingSettings;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BacktesterTest {
+
+    private static final ZonedDateTime START = ZonedDateTime.of(2018, 6, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+
+    private BlockchainHistory bitcoin;
+    private BlockchainHistory ethereum;
+
+    private BlockchainHistory createHistory(String identifier, int blockTimeInSeconds, int reputation) {
+        BlockchainHistory history = new BlockchainHistory(identifier).setReputation(reputation);
+        for (int i = 0; i < 2 * 24 * 3600 / blockTimeInSeconds; i++) {
+            Block block = new Block();
+            block.setHash(identifier + i);
+            block.setHeight(i);
+            block.setTimestamp(START.plusSeconds(i * blockTimeInSeconds));
+            block.setNumberOfTransactions(10);
+            block.setMinerAddress("miner" + i % 3);
+            block.setDifficulty(1000);
+            history.addBlock(block);
+        }
+        history.addExchangeRate(START, BigDecimal.ONE);
+        history.addCostsForRetrievingData(START, BigDecimal.ZERO);
+        history.addStorageFee(START, BigDecimal.ZERO);
+        return history;
+    }
+
+    /**
+     * @return settings which rank by the costs for writing data only
+     */
+    private WeightedRankingSettings createRankingSettings() {
+        WeightedRankingSettings rankingSettings = new WeightedRankingSettings();
+        rankingSettings.setTimeSpanBetweenTwoChains(1, ChronoUnit.HOURS);
+        rankingSettings.setCostsForWritingDataScoreFn(costs -> costs.doubleValue() < 1.5 ? 10 : costs.doubleValue() < 2.5 ? 5 : 1);
+        rankingSettings.setCostsForWritingDataWeightFn(costs -> 1);
+        rankingSettings.setCostsForRetrievingDataScoreFn(costs -> 0);
+        rankingSettings.setCostsForRetrievingDataWeightFn(costs -> 0);
+        rankingSettings.setStorageFeeScoreFn(costs -> 0);
+        rankingSettings.setStorageFeeWeightFn(costs -> 0);
+        rankingSettings.setExchangeRateScoreFn(exchangeRate -> 0);
+        rankingSettings.setExchangeRateWeightFn(exchangeRate -> 0);
+        rankingSettings.setBlockTimeScoreFn(blockTime -> 0);
+        rankingSettings.setBlockTimeWeightFn(blockTime -> 0);
+        rankingSettings.setTransactionThroughputScoreFn(txThroughput -> 0);
+        rankingSettings.setTransactionThroughputWeightFn(txThroughput -> 0);
+        rankingSettings.setMiningDistributionScoreFn(miner -> 0);
+        rankingSettings.setMiningDistributionWeightFn(miner -> 0);
+        rankingSettings.setNetworkHashrateScoreFn(hashrate -> 0);
+        rankingSettings.setNetworkHashrateWeightFn(hashrate -> 0);
+        rankingSettings.setNumberOfConfirmationsScoreFn(confirmations -> 0);
+        rankingSettings.setNumberOfConfirmationsWeightFn(confirmations -> 0);
+        rankingSettings.setReputationScoreFn(reputation -> 0);
+        rankingSettings.setReputationWeightFn(reputation -> 0);
+        return rankingSettings;
+    }
+
+    private BacktestScenario createScenario(String name, WeightedRankingSettings rankingSettings,
+                                            ThresholdValidationSettings thresholdValidationSettings) {
+        BacktestScenario scenario = new BacktestScenario(name, rankingSettings, thresholdValidationSettings);
+        scenario.setInitialBlockchain("Bitcoin");
+        scenario.setAmountOfDataInKb(BigDecimal.valueOf(100));
+        return scenario;
+    }
+
+    @BeforeEach
+    public void setUp() {
+        // Bitcoin gets more expensive than Ethereum after one day
+        bitcoin = createHistory("Bitcoin", 600, 8)
+                .addCostsForWritingData(START, BigDecimal.ONE)
+                .addCostsForWritingData(START.plusDays(1), BigDecimal.valueOf(3));
+        ethereum = createHistory("Ethereum", 60, 5)
+                .addCostsForWritingData(START, BigDecimal.valueOf(2));
+    }
+
+    @Test
+    public void testScenarios_shouldReportSuggestedSwitchoversAndTheirCosts() throws Exception {
+        BacktestScenario costsScenario = createScenario("costs", createRankingSettings(),
+                new ThresholdValidationSettings());
+
+        // ranked by reputation, only a violation of the max. costs for 2 hours makes Bitcoin ineligible
+        WeightedRankingSettings reputationRankingSettings = createRankingSettings();
+        reputationRankingSettings.setCostsForWritingDataWeightFn(costs -> 0);
+        reputationRankingSettings.setReputationScoreFn(reputation -> reputation);
+        reputationRankingSettings.setReputationWeightFn(reputation -> 1);
+        BacktestScenario reputationScenario = createScenario("reputation", reputationRankingSettings,
+                new ThresholdValidationSettings());
+
+        ThresholdValidationSettings thresholdValidationSettings = new ThresholdValidationSettings();
+        thresholdValidationSettings.setCostsForWritingDataValidationSettings(
+                new MetricValidationSettings<>(costs -> costs.doubleValue() <= 2.5, 2, ChronoUnit.HOURS));
+        thresholdValidationSettings.setSwitchoverDecisionFn((costsForWritingData, costsForRetrievingData,
+                storageFees, exchangeRate, blockTime, txThroughput, miningDistribution, networkHashrate,
+                confirmations, reputation) -> !costsForWritingData);
+        BacktestScenario thresholdScenario = createScenario("threshold", reputationRankingSettings,
+                thresholdValidationSettings);
+
+        List<BacktestReport> reports = new Backtester(Arrays.asList(bitcoin, ethereum))
+                .setParallelism(3)
+                .runAll(Arrays.asList(costsScenario, reputationScenario, thresholdScenario));
+
+        assertEquals(3, reports.size(), "Wrong number of reports!");
+        BacktestReport costsReport = reports.get(0);
+        assertSame(costsScenario, costsReport.getScenario(), "Reports not in the order of the scenarios!");
+        assertEquals(1, costsReport.getSwitchovers().size(), "Wrong number of switchovers!");
+        BacktestReport.Switchover switchover = costsReport.getSwitchovers().get(0);
+        assertEquals(START.plusDays(1), switchover.getTime(), "Wrong time of the switchover!");
+        assertEquals("Bitcoin", switchover.getFromBlockchain(), "Wrong blockchain switched from!");
+        assertEquals("Ethereum", switchover.getToBlockchain(), "Wrong blockchain switched to!");
+        assertEquals(5, switchover.getScore(), "Wrong score!");
+        assertEquals(0, BigDecimal.valueOf(200).compareTo(switchover.getCosts()), "Wrong costs!");
+        assertEquals("Ethereum", costsReport.getFinalBlockchain(), "Wrong final blockchain!");
+        assertEquals(START.until(START.plusDays(2), ChronoUnit.MILLIS) - 60_000,
+                costsReport.getSimulatedTime().toMillis(), "Wrong simulated time!");
+        assertTrue(costsReport.getSpeedup() > 100, "Not replayed in virtual time!");
+
+        assertTrue(reports.get(1).getSwitchovers().isEmpty(), "Switchover without a reason!");
+        assertEquals("Bitcoin", reports.get(1).getFinalBlockchain(), "Wrong final blockchain!");
+
+        List<BacktestReport.Switchover> thresholdSwitchovers = reports.get(2).getSwitchovers();
+        assertEquals(1, thresholdSwitchovers.size(), "Wrong number of switchovers!");
+        assertEquals(START.plusDays(1).plusHours(2), thresholdSwitchovers.get(0).getTime(),
+                "Violation not timed in virtual time!");
+    }
+
+}
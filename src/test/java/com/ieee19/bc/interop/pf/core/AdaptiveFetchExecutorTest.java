@@ -0,0 +1,156 @@
+package com.ieee19.bc.interop.pf.core;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdaptiveFetchExecutorTest {
+
+    @Test
+    public void testExecute_shouldFetchAllItems() throws Exception {
+        AtomicLong nextItem = new AtomicLong(100);
+        Set<Long> fetchedItems = ConcurrentHashMap.newKeySet();
+
+        boolean finished = new AdaptiveFetchExecutor(4).execute(
+                () -> {
+                    long item = nextItem.getAndDecrement();
+                    return item < 1 ? null : item;
+                },
+                fetchedItems::add,
+                1, TimeUnit.MINUTES);
+
+        assertTrue(finished, "Not finished!");
+        assertEquals(100, fetchedItems.size(), "Wrong number of fetched items!");
+    }
+
+    @Test
+    public void testExecuteWithOverload_shouldRetryFailedItems() throws Exception {
+        AtomicLong nextItem = new AtomicLong(10);
+        Map<Long, AtomicInteger> attemptsPerItem = new ConcurrentHashMap<>();
+
+        new AdaptiveFetchExecutor(4, 8, 3).execute(
+                () -> {
+                    long item = nextItem.getAndDecrement();
+                    return item < 1 ? null : item;
+                },
+                item -> {
+                    int attempt = attemptsPerItem.computeIfAbsent(item, i -> new AtomicInteger()).incrementAndGet();
+                    if (item == 5 && attempt < 3) {
+                        throw new HttpClientErrorException(HttpStatus.TOO_MANY_REQUESTS);
+                    }
+                    return true;
+                },
+                1, TimeUnit.MINUTES);
+
+        assertEquals(10, attemptsPerItem.size(), "Wrong number of fetched items!");
+        assertEquals(3, attemptsPerItem.get(5L).get(), "Wrong number of attempts!");
+        assertEquals(1, attemptsPerItem.get(4L).get(), "Wrong number of attempts!");
+    }
+
+    @Test
+    public void testExecuteWithPermanentOverload_shouldThrowAfterMaxAttempts() {
+        AtomicInteger attempts = new AtomicInteger();
+        HttpServerErrorException exception = assertThrows(HttpServerErrorException.class, () ->
+                new AdaptiveFetchExecutor(1, 1, 2).execute(
+                        () -> 1L,
+                        item -> {
+                            attempts.incrementAndGet();
+                            throw new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE);
+                        },
+                        1, TimeUnit.MINUTES));
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exception.getStatusCode(), "Wrong exception!");
+        assertEquals(2, attempts.get(), "Wrong number of attempts!");
+    }
+
+    @Test
+    public void testExecuteWithClientError_shouldNotRetry() {
+        AtomicInteger attempts = new AtomicInteger();
+        assertThrows(HttpClientErrorException.class, () ->
+                new AdaptiveFetchExecutor(1, 1, 5).execute(
+                        () -> 1L,
+                        item -> {
+                            attempts.incrementAndGet();
+                            throw new HttpClientErrorException(HttpStatus.NOT_FOUND);
+                        },
+                        1, TimeUnit.MINUTES));
+
+        assertEquals(1, attempts.get(), "Wrong number of attempts!");
+    }
+
+    @Test
+    public void testExecuteAsync_shouldRetryOverloadedItemsWithoutWorkerThreads() throws Exception {
+        AtomicLong nextItem = new AtomicLong(1000);
+        Map<Long, AtomicInteger> attemptsPerItem = new ConcurrentHashMap<>();
+
+        boolean finished = new AdaptiveFetchExecutor(4, 8, 3).executeAsync(
+                () -> {
+                    long item = nextItem.getAndDecrement();
+                    return item < 1 ? null : item;
+                },
+                item -> {
+                    // completes synchronously, which must not grow the stack per item
+                    int attempt = attemptsPerItem.computeIfAbsent(item, i -> new AtomicInteger()).incrementAndGet();
+                    CompletableFuture<Boolean> result = new CompletableFuture<>();
+                    if (item == 5 && attempt < 3) {
+                        result.completeExceptionally(new HttpClientErrorException(HttpStatus.TOO_MANY_REQUESTS));
+                    } else {
+                        result.complete(true);
+                    }
+                    return result;
+                },
+                1, TimeUnit.MINUTES);
+
+        assertTrue(finished, "Not finished!");
+        assertEquals(1000, attemptsPerItem.size(), "Wrong number of fetched items!");
+        assertEquals(3, attemptsPerItem.get(5L).get(), "Wrong number of attempts!");
+    }
+
+    @Test
+    public void testExecuteAsyncWithClientError_shouldThrowUnwrappedError() {
+        assertThrows(HttpClientErrorException.class, () ->
+                new AdaptiveFetchExecutor(1, 1, 5).executeAsync(
+                        () -> 1L,
+                        item -> CompletableFuture.supplyAsync(() -> {
+                            throw new HttpClientErrorException(HttpStatus.NOT_FOUND);
+                        }),
+                        1, TimeUnit.MINUTES));
+    }
+
+    @Test
+    public void testLimiter_shouldIncreaseAdditivelyAndDecreaseMultiplicatively() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 1, 100);
+        for (int i = 0; i < 10; i++) {
+            limiter.onSuccess(limiter.acquire());
+        }
+        assertEquals(6, limiter.getLimit(), "Wrong limit after successful requests!");
+
+        long firstStart = limiter.acquire();
+        long secondStart = limiter.acquire();
+        limiter.onOverload(firstStart);
+        limiter.onOverload(secondStart);  // started before the first decrease
+        assertEquals(3, limiter.getLimit(), "Wrong limit after overload!");
+    }
+
+    @Test
+    public void testIsOverload_shouldClassifyErrors() {
+        assertTrue(AdaptiveConcurrencyLimiter.isOverload(new HttpClientErrorException(HttpStatus.TOO_MANY_REQUESTS)));
+        assertTrue(AdaptiveConcurrencyLimiter.isOverload(new Exception(new HttpServerErrorException(HttpStatus.BAD_GATEWAY))));
+        assertTrue(AdaptiveConcurrencyLimiter.isOverload(new ResourceAccessException("Read timed out")));
+        assertFalse(AdaptiveConcurrencyLimiter.isOverload(new HttpClientErrorException(HttpStatus.NOT_FOUND)));
+        assertFalse(AdaptiveConcurrencyLimiter.isOverload(new IllegalStateException()));
+    }
+
+}
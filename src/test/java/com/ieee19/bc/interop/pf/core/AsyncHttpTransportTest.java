@@ -0,0 +1,102 @@
+package com.ieee19.bc.interop.pf.core;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AsyncHttpTransportTest {
+
+    private HttpServer server;
+    private String baseUrl;
+    private AtomicInteger requestsInFlight = new AtomicInteger();
+    private AtomicInteger maxRequestsInFlight = new AtomicInteger();
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/height", exchange -> {
+            int inFlight = requestsInFlight.incrementAndGet();
+            maxRequestsInFlight.accumulateAndGet(inFlight, Math::max);
+            try {
+                Thread.sleep(50);
+                byte[] body = "{\"height\":42}".getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream outputStream = exchange.getResponseBody()) {
+                    outputStream.write(body);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                requestsInFlight.decrementAndGet();
+            }
+        });
+        server.createContext("/missing", exchange -> {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+        });
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testGet_shouldBoundRequestsInFlightPerHost() throws Exception {
+        AsyncHttpTransport transport = new AsyncHttpTransport(2, 10);
+        List<CompletableFuture<HeightResponse>> responses = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            responses.add(transport.get(baseUrl + "/height", HeightResponse.class));
+        }
+
+        for (CompletableFuture<HeightResponse> response : responses) {
+            assertEquals(42, response.get(10, TimeUnit.SECONDS).getHeight(), "Wrong response!");
+        }
+        assertEquals(2, maxRequestsInFlight.get(), "Wrong max. number of requests in flight!");
+    }
+
+    @Test
+    public void testGetWithClientError_shouldCompleteWithHttpClientErrorException() {
+        CompletableFuture<String> response = new AsyncHttpTransport().get(baseUrl + "/missing");
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> response.get(10, TimeUnit.SECONDS));
+        assertTrue(exception.getCause() instanceof HttpClientErrorException, "Wrong exception: " + exception.getCause());
+        assertEquals(HttpStatus.NOT_FOUND, ((HttpClientErrorException) exception.getCause()).getStatusCode(),
+                "Wrong status!");
+        assertFalse(AdaptiveConcurrencyLimiter.isOverload(exception.getCause()), "Client error is an overload!");
+    }
+
+    public static class HeightResponse {
+
+        private long height;
+
+        public long getHeight() {
+            return height;
+        }
+
+        public void setHeight(long height) {
+            this.height = height;
+        }
+
+    }
+
+}
@@ -0,0 +1,172 @@
+package com.ieee19.bc.interop.pf.core;
+
+import com.ieee19.bc.interop.pf.core.BackfillCoordinator.HeightRange;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.time.temporal.ChronoUnit.MINUTES;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BackfillCoordinatorTest {
+
+    @Test
+    public void testExecute_shouldStopAtWindowStart() throws Exception {
+        BackfillCoordinator coordinator = new BackfillCoordinator(0, 100, 10, 3, 10);
+        Map<Long, Long> fetchedRanges = new ConcurrentHashMap<>();
+
+        boolean complete = coordinator.execute(new AdaptiveFetchExecutor(1, 1, 1),
+                (fromHeight, toHeight) -> {
+                    fetchedRanges.put(fromHeight, toHeight);
+                    return fromHeight > 75;  // block 75 is older than the window
+                },
+                1, TimeUnit.MINUTES);
+
+        assertTrue(complete, "Not complete!");
+        assertEquals(3, fetchedRanges.size(), "Wrong number of fetched ranges!");
+        assertEquals(71, coordinator.getLowestHeight(), "Wrong lowest height!");
+        assertEquals(30, coordinator.getNumberOfFetchedHeights(), "Wrong number of fetched heights!");
+    }
+
+    @Test
+    public void testExecuteWithFailedRange_shouldRetryOnlyMissingRange() throws Exception {
+        BackfillCoordinator coordinator = new BackfillCoordinator(1, 40, 10, 3, 10);
+        Map<Long, AtomicInteger> attemptsPerRange = new ConcurrentHashMap<>();
+
+        boolean complete = coordinator.execute(new AdaptiveFetchExecutor(4, 4, 1),
+                (fromHeight, toHeight) -> {
+                    int attempt = attemptsPerRange.computeIfAbsent(fromHeight, h -> new AtomicInteger()).incrementAndGet();
+                    if (fromHeight == 21 && attempt == 1) {
+                        throw new IllegalStateException("Invalid block");
+                    }
+                    return true;
+                },
+                1, TimeUnit.MINUTES);
+
+        assertTrue(complete, "Not complete!");
+        assertEquals(2, attemptsPerRange.get(21L).get(), "Wrong number of attempts!");
+        assertEquals(1, attemptsPerRange.get(31L).get(), "Completed range fetched again!");
+        assertEquals(40, coordinator.getNumberOfFetchedHeights(), "Wrong number of fetched heights!");
+    }
+
+    @Test
+    public void testExecuteWithPermanentFailure_shouldKeepProgressAndResume() throws Exception {
+        BackfillCoordinator coordinator = new BackfillCoordinator(1, 30, 10, 2, 10);
+
+        assertThrows(IllegalStateException.class, () -> coordinator.execute(new AdaptiveFetchExecutor(1, 1, 1),
+                (fromHeight, toHeight) -> {
+                    if (fromHeight == 11) {
+                        throw new IllegalStateException("Node unavailable");
+                    }
+                    return true;
+                },
+                1, TimeUnit.MINUTES));
+        assertFalse(coordinator.isComplete(), "Complete despite gap!");
+        assertEquals(Arrays.asList(new HeightRange(11, 20), new HeightRange(1, 10)), coordinator.getMissingRanges(),
+                "Wrong missing ranges!");
+
+        AtomicInteger fetchedRanges = new AtomicInteger();
+        boolean complete = coordinator.execute(new AdaptiveFetchExecutor(1, 1, 1),
+                (fromHeight, toHeight) -> fetchedRanges.incrementAndGet() > 0,
+                1, TimeUnit.MINUTES);
+
+        assertTrue(complete, "Not complete!");
+        assertEquals(2, fetchedRanges.get(), "Wrong number of fetched ranges!");
+    }
+
+    @Test
+    public void testFindWindowStart_shouldReturnFirstBlockOfWindow() throws Exception {
+        ZonedDateTime now = ZonedDateTime.now();
+        AtomicInteger requests = new AtomicInteger();
+
+        // one block every 10 minutes, block 1000 is the most recent one
+        long windowStart = BackfillCoordinator.findWindowStart(0, 1000, now.minus(24 * 60, MINUTES), height -> {
+            requests.incrementAndGet();
+            return now.minus((1000 - height) * 10, MINUTES);
+        });
+
+        assertEquals(857, windowStart, "Wrong first block of window!");
+        assertTrue(requests.get() <= 11, "Too many requests: " + requests.get());
+    }
+
+    @Test
+    public void testFindWindowStartWithoutNewBlocks_shouldReturnHeightAboveTip() throws Exception {
+        ZonedDateTime now = ZonedDateTime.now();
+
+        long windowStart = BackfillCoordinator.findWindowStart(0, 100, now, height -> now.minus(1, MINUTES));
+
+        assertEquals(101, windowStart, "Wrong first block of window!");
+    }
+
+    @Test
+    public void testGetProgress_shouldReportFetchedShareOfWindow() throws Exception {
+        BackfillCoordinator coordinator = new BackfillCoordinator(1, 40, 10, 1, 10);
+        assertEquals(0, coordinator.getProgress(), 0.0001, "Wrong progress!");
+        assertNull(coordinator.getEstimatedRemainingTime(), "ETA without progress!");
+
+        assertThrows(IllegalStateException.class, () -> coordinator.execute(new AdaptiveFetchExecutor(1, 1, 1),
+                (fromHeight, toHeight) -> {
+                    if (fromHeight == 1) {
+                        throw new IllegalStateException("Node unavailable");
+                    }
+                    return true;
+                },
+                1, TimeUnit.MINUTES));
+
+        assertEquals(0.75, coordinator.getProgress(), 0.0001, "Wrong progress!");
+        assertNotNull(coordinator.getEstimatedRemainingTime(), "No ETA!");
+    }
+
+    @Test
+    public void testExecuteStratified_shouldSpreadFetchedRangesOverWindow() throws Exception {
+        BackfillCoordinator coordinator = new BackfillCoordinator(1, 50, 10, 1, 10);
+        coordinator.setStratified(true);
+        List<Long> fetchedRanges = new ArrayList<>();
+
+        assertThrows(IllegalStateException.class, () -> coordinator.execute(new AdaptiveFetchExecutor(1, 1, 1),
+                (fromHeight, toHeight) -> {
+                    fetchedRanges.add(fromHeight);
+                    if (fetchedRanges.size() == 3) {
+                        throw new IllegalStateException("Node unavailable");
+                    }
+                    return true;
+                },
+                1, TimeUnit.MINUTES));
+
+        assertEquals(Arrays.asList(41L, 1L, 21L), fetchedRanges, "Ranges not in stratified order!");
+        assertEquals(30, coordinator.getNumberOfMissingHeights(1), "Wrong number of missing heights!");
+        assertEquals(26, coordinator.getNumberOfMissingHeights(15), "Wrong number of missing heights!");
+        assertEquals(30, coordinator.getNumberOfMissingHeightsBelow(41), "Wrong gap below fetched range!");
+        assertEquals(0, coordinator.getNumberOfMissingHeightsBelow(5), "Gap within fetched range!");
+        assertEquals(0, coordinator.getNumberOfMissingHeightsBelow(1), "Gap below window!");
+    }
+
+    @Test
+    public void testExecuteAsyncAfterTimeout_shouldNotFetchRunningRangeAgain() throws Exception {
+        BackfillCoordinator coordinator = new BackfillCoordinator(1, 30, 10, 3, 10);
+        AdaptiveFetchExecutor executor = new AdaptiveFetchExecutor(4, 4, 1);
+        Map<Long, AtomicInteger> attemptsPerRange = new ConcurrentHashMap<>();
+        CompletableFuture<Boolean> slowRange = new CompletableFuture<>();
+        BackfillCoordinator.AsyncRangeTask task = (fromHeight, toHeight) -> {
+            attemptsPerRange.computeIfAbsent(fromHeight, h -> new AtomicInteger()).incrementAndGet();
+            return fromHeight == 11 ? slowRange : CompletableFuture.completedFuture(true);
+        };
+
+        assertFalse(coordinator.executeAsync(executor, task, 100, TimeUnit.MILLISECONDS), "Complete too early!");
+        assertFalse(coordinator.executeAsync(executor, task, 100, TimeUnit.MILLISECONDS), "Complete too early!");
+        assertEquals(1, attemptsPerRange.get(11L).get(), "Running range fetched again!");
+
+        slowRange.complete(true);
+        assertTrue(coordinator.isComplete(), "Running range not completed in the background!");
+        assertEquals(30, coordinator.getNumberOfFetchedHeights(), "Wrong number of fetched heights!");
+    }
+
+}
@@ -0,0 +1,46 @@
+package com.ieee19.bc.interop.pf.core;
+
+import io.reactivex.Flowable;
+import io.reactivex.exceptions.MissingBackpressureException;
+import io.reactivex.processors.PublishProcessor;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subscribers.TestSubscriber;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BackpressureMonitorTest {
+
+    @Test
+    public void testStalledConsumer_shouldFailBufferInsteadOfGrowing() {
+        BackpressureMonitor monitor = new BackpressureMonitor("test");
+
+        TestSubscriber<Integer> testSubscriber = Flowable.range(0, 40)
+                .compose(monitor.<Integer>buffer(16))
+                .test(0);
+
+        testSubscriber.assertError(MissingBackpressureException.class);
+        assertEquals(1, monitor.getOverflowCount(), "Overflow not counted!");
+        assertEquals(17, monitor.getMaxBufferedCount(), "Wrong max. number of buffered items!");
+    }
+
+    @Test
+    public void testSlowConsumer_shouldOnlyGetNewestItems() throws Exception {
+        BackpressureMonitor monitor = new BackpressureMonitor("test");
+        PublishProcessor<Integer> processor = PublishProcessor.create();
+        TestSubscriber<Integer> testSubscriber = processor
+                .compose(monitor.<Integer>conflate(Schedulers.single()))
+                .test(0);
+
+        for (int i = 1; i <= 5; i++) {
+            processor.onNext(i);
+        }
+        testSubscriber.request(2);
+        testSubscriber.awaitCount(2);
+
+        testSubscriber.assertValues(1, 5);  // the first item has already been requested by the scheduler
+        assertEquals(3, monitor.getConflationCount(), "Wrong number of conflated items!");
+        assertEquals(0, monitor.getOverflowCount(), "Overflow without buffer!");
+    }
+
+}
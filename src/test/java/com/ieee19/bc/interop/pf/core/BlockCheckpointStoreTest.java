@@ -0,0 +1,125 @@
+package com.ieee19.bc.interop.pf.core;
+
+import com.ieee19.bc.interop.pf.core.model.Block;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.time.temporal.ChronoUnit.HOURS;
+import static java.time.temporal.ChronoUnit.MINUTES;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class BlockCheckpointStoreTest {
+
+    private Path directory;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("checkpoints");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private Block createBlock(long height, ZonedDateTime timestamp) {
+        Block block = new Block();
+        block.setHeight(height);
+        block.setHash(String.format("0x%064x", height));
+        block.setPreviousBlockHash(String.format("0x%064x", height - 1));
+        block.setTimestamp(timestamp.withNano(0));
+        block.setNumberOfTransactions((int) height % 100);
+        block.setMinerAddress("1A1zP1eP5QGefi2DMPTfTL5SLmv7DivfNa");
+        block.setDifficulty(1.5 * height);
+        return block;
+    }
+
+    @Test
+    public void testLoadAfterRestart_shouldReturnCheckpointedBlocks() {
+        ZonedDateTime now = ZonedDateTime.now();
+        Block uncleBlock = createBlock(9, now);
+        uncleBlock.setMinerAddress("0xea674fdde714fd979de3edf0f56aa9716b898ec8");
+        Block block = createBlock(10, now);
+        block.getUncleBlocks().add(uncleBlock);
+
+        try (BlockCheckpointStore store = new BlockCheckpointStore(directory)) {
+            store.append("Ethereum", createBlock(11, now));
+            store.append("Ethereum", block);
+            store.checkpoint("Ethereum", 11);
+            store.append("Ethereum", createBlock(12, now));  // not covered by a checkpoint
+        }
+
+        try (BlockCheckpointStore store = new BlockCheckpointStore(directory)) {
+            List<Block> blocks = store.load("Ethereum", now.minus(24, HOURS));
+
+            assertEquals(11, store.getCheckpointHeight("Ethereum"), "Wrong checkpoint height!");
+            assertEquals(2, blocks.size(), "Wrong number of blocks!");
+            Block loadedBlock = blocks.get(0);
+            assertEquals(block, loadedBlock, "Wrong block!");
+            assertEquals(block.getPreviousBlockHash(), loadedBlock.getPreviousBlockHash(), "Wrong previous hash!");
+            assertEquals(block.getTimestamp().toInstant(), loadedBlock.getTimestamp().toInstant(), "Wrong timestamp!");
+            assertEquals(block.getNumberOfTransactions(), loadedBlock.getNumberOfTransactions(), "Wrong tx count!");
+            assertEquals(block.getMinerAddress(), loadedBlock.getMinerAddress(), "Wrong miner!");
+            assertEquals(block.getDifficulty(), loadedBlock.getDifficulty(), "Wrong difficulty!");
+            assertEquals(1, loadedBlock.getUncleBlocks().size(), "Wrong number of uncle blocks!");
+            assertEquals(uncleBlock.getMinerAddress(), loadedBlock.getUncleBlocks().get(0).getMinerAddress(),
+                    "Wrong uncle miner!");
+            assertEquals(11, blocks.get(1).getHeight(), "Wrong order!");
+        }
+    }
+
+    @Test
+    public void testLoadUnknownChain_shouldReturnNoBlocks() {
+        try (BlockCheckpointStore store = new BlockCheckpointStore(directory)) {
+            assertEquals(-1, store.getCheckpointHeight("Bitcoin"), "Wrong checkpoint height!");
+            assertEquals(0, store.load("Bitcoin", ZonedDateTime.now().minus(24, HOURS)).size(),
+                    "Wrong number of blocks!");
+        }
+    }
+
+    @Test
+    public void testCompact_shouldDeleteOutdatedSegmentsOnly() throws IOException {
+        ZonedDateTime now = ZonedDateTime.now();
+        try (BlockCheckpointStore store = new BlockCheckpointStore(directory, 512)) {
+            for (int height = 0; height < 20; height++) {
+                ZonedDateTime timestamp = height < 10 ? now.minus(30, HOURS) : now.minus(20 - height, MINUTES);
+                store.append("Bitcoin", createBlock(height, timestamp));
+            }
+            store.checkpoint("Bitcoin", 19);
+            long segmentsBefore = countSegments();
+
+            store.compact("Bitcoin", now.minus(24, HOURS));
+
+            assertEquals(true, countSegments() < segmentsBefore, "No segment deleted!");
+            assertEquals(10, store.load("Bitcoin", now.minus(24, HOURS)).size(), "Wrong number of blocks!");
+        }
+
+        try (BlockCheckpointStore store = new BlockCheckpointStore(directory, 512)) {
+            assertEquals(19, store.getCheckpointHeight("Bitcoin"), "Checkpoint lost!");
+            List<Long> heights = store.load("Bitcoin", now.minus(24, HOURS))
+                    .stream()
+                    .map(Block::getHeight)
+                    .collect(Collectors.toList());
+            assertEquals(10L, (long) heights.get(0), "Wrong first block!");
+        }
+    }
+
+    private long countSegments() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(path -> path.toString().endsWith(".seg")).count();
+        }
+    }
+
+}
@@ -8,7 +8,12 @@ import com.ieee19.bc.interop.pf.proxy.bitcoin.BitcoinMetricCollector;
 import com.ieee19.bc.interop.pf.proxy.ethereum.EthereumDataAccessService;
 import com.ieee19.bc.interop.pf.proxy.ethereum.EthereumMetricCollector;
 import io.reactivex.Observable;
+import io.reactivex.Observer;
+import io.reactivex.disposables.Disposables;
+import io.reactivex.exceptions.MissingBackpressureException;
+import io.reactivex.observers.BaseTestConsumer;
 import io.reactivex.observers.TestObserver;
+import io.reactivex.subjects.PublishSubject;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -18,8 +23,11 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import static java.time.temporal.ChronoUnit.DAYS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
@@ -91,7 +99,7 @@ public class BlockchainManagerTest {
         ethereum.setReputation(8);
     }
 
-    private void createBlockchainManager() {
+    private WeightedRankingSettings createRankingSettings() {
         WeightedRankingSettings rankingSettings = new WeightedRankingSettings();
         rankingSettings.setCostsForWritingDataScoreFn(costsForWritingData -> costsForWritingData.doubleValue() > 1 ? 2 : 4);
         rankingSettings.setCostsForWritingDataWeightFn(costsForWritingData -> 5);
@@ -113,10 +121,13 @@ public class BlockchainManagerTest {
         rankingSettings.setNumberOfConfirmationsWeightFn(confirmations -> 3);
         rankingSettings.setReputationScoreFn(reputation -> 5);
         rankingSettings.setReputationWeightFn(reputation -> 0);
+        return rankingSettings;
+    }
 
+    private void createBlockchainManager() {
         blockchainManager = BlockchainManager
                 .newInstance()
-                .setRankingSettings(rankingSettings)
+                .setRankingSettings(createRankingSettings())
                 .setThresholdValidationSettings(new ThresholdValidationSettings())
                 .preSelectBlockchain(ethereum)
                 .addBlockchain(ethereum)
@@ -140,6 +151,14 @@ public class BlockchainManagerTest {
         testObserver
                 .assertNoErrors()
                 .assertValue(result -> result.getOverallWeightedScore() == EXPECTED_BITCOIN_WEIGHTED_SCORE);
+
+        BlockchainCalculationResult result = testObserver.values().get(0);
+        assertEquals(result.getOverallWeightedScore(),
+                result.getWeightedScores().values().stream().mapToInt(Integer::intValue).sum(),
+                "Cached overall score differs from the metric scores!");
+        assertEquals(BlockchainMetric.values().length, result.getWeightedScores().size(), "Not all metrics scored!");
+        assertEquals(BlockchainMetric.values().length, result.getThresholdValidationResults().size(),
+                "Not all metrics validated!");
     }
 
     @Test
@@ -166,6 +185,86 @@ public class BlockchainManagerTest {
                         switchoverSuggestion.getNextBlockchainResult().getBlockchain().getIdentifier().equals(EXPECTED_NEXT_BLOCKCHAIN));
     }
 
+    @Test
+    public void testAddAndRemoveBlockchainAtRuntime_shouldOnlyAttachThatBlockchain() {
+        clearInvocations(bitcoin.getMetricCollector());
+        BlockchainManager manager = BlockchainManager
+                .newInstance()
+                .setRankingSettings(createRankingSettings())
+                .setThresholdValidationSettings(new ThresholdValidationSettings())
+                .preSelectBlockchain(bitcoin)
+                .addBlockchain(bitcoin)
+                .build();
+        TestObserver<SwitchoverSuggestion> testObserver = manager.getSwitchoverSuggestionObservable().test();
+        testObserver.awaitCount(1);
+
+        manager.addBlockchain(ethereum);
+        testObserver.awaitCount(2);
+        assertEquals(EXPECTED_NEXT_BLOCKCHAIN,
+                testObserver.values().get(1).getNextBlockchainResult().getBlockchain().getIdentifier(),
+                "Added blockchain not ranked!");
+        assertEquals("Bitcoin", testObserver.values().get(1).getCurrentBlockchainResult().getBlockchain().getIdentifier(),
+                "Wrong current blockchain!");
+        // once for the weighted score and once for the threshold validation, not again for the added blockchain
+        verify(bitcoin.getMetricCollector(), times(2)).getCostsForWritingDataObservable();
+
+        manager.removeBlockchain(ethereum);
+        testObserver.awaitCount(3);
+        testObserver.assertNoErrors();
+        assertEquals("Bitcoin", testObserver.values().get(2).getNextBlockchainResult().getBlockchain().getIdentifier(),
+                "Removed blockchain still ranked!");
+        assertFalse(manager.getBlockchainCalculationResultObservables().containsKey(EXPECTED_NEXT_BLOCKCHAIN),
+                "Removed blockchain still observable!");
+    }
+
+    @Test
+    public void testRemoveBlockchainWithResultInFlight_shouldNotRankItAgain() {
+        List<Observer<? super BigDecimal>> ethereumCostsObservers = new CopyOnWriteArrayList<>();
+        // keeps emitting after it has been disposed, like a result that is already on its way
+        when(ethereum.getMetricCollector().getCostsForWritingDataObservable())
+                .thenReturn(new Observable<BigDecimal>() {
+                    @Override
+                    protected void subscribeActual(Observer<? super BigDecimal> observer) {
+                        observer.onSubscribe(Disposables.empty());
+                        ethereumCostsObservers.add(observer);
+                        observer.onNext(BigDecimal.valueOf(1));
+                    }
+                });
+        createBlockchainManager();
+        TestObserver<SwitchoverSuggestion> testObserver = blockchainManager.getSwitchoverSuggestionObservable().test();
+        testObserver.awaitCount(1);
+
+        blockchainManager.removeBlockchain(ethereum);
+        testObserver.awaitCount(2);
+        ethereumCostsObservers.forEach(observer -> observer.onNext(BigDecimal.valueOf(0.5)));
+        testObserver.awaitCount(3, BaseTestConsumer.TestWaitStrategy.SLEEP_10MS, 500);
+
+        testObserver.assertNoErrors();
+        testObserver.assertValueCount(2);
+        assertEquals("Bitcoin", testObserver.values().get(1).getNextBlockchainResult().getBlockchain().getIdentifier(),
+                "Removed blockchain ranked again!");
+    }
+
+    @Test
+    public void testFailingBlockchain_shouldBeDroppedFromTheRanking() {
+        PublishSubject<BigDecimal> ethereumCosts = PublishSubject.create();
+        when(ethereum.getMetricCollector().getCostsForWritingDataObservable())
+                .thenReturn(ethereumCosts.startWith(BigDecimal.valueOf(1)));
+        createBlockchainManager();
+        TestObserver<SwitchoverSuggestion> testObserver = blockchainManager.getSwitchoverSuggestionObservable().test();
+        testObserver.awaitCount(1);
+
+        // e.g. the block buffer of the collector has overflowed
+        ethereumCosts.onError(new MissingBackpressureException("Buffer is full"));
+        testObserver.awaitCount(2);
+
+        testObserver.assertNoErrors();
+        testObserver.assertNotComplete();
+        testObserver.assertValueCount(2);
+        assertEquals("Bitcoin", testObserver.values().get(1).getNextBlockchainResult().getBlockchain().getIdentifier(),
+                "Failed blockchain not dropped from the ranking!");
+    }
+
     @Test
     public void testWriteData_shouldCallCorrectMethod() throws DataWritingFailedException {
         doNothing().when(ethereum.getDataAccessService()).writeData(anyString());
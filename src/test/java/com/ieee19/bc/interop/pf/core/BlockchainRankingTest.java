@@ -0,0 +1,94 @@
+package com.ieee19.bc.interop.pf.core;
+
+import com.ieee19.bc.interop.pf.core.model.BlockchainCalculationResult;
+import com.ieee19.bc.interop.pf.core.model.BlockchainMetaData;
+import com.ieee19.bc.interop.pf.core.model.BlockchainWeightedScore;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static com.ieee19.bc.interop.pf.core.model.BlockchainMetric.REPUTATION;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BlockchainRankingTest {
+
+    private BlockchainCalculationResult createResult(String identifier, int score) {
+        BlockchainMetaData blockchain = new BlockchainMetaData();
+        blockchain.setIdentifier(identifier);
+        BlockchainWeightedScore weightedScore = new BlockchainWeightedScore();
+        weightedScore.setWeightedMetricScore(REPUTATION, score);
+        BlockchainCalculationResult result = new BlockchainCalculationResult();
+        result.setBlockchain(blockchain);
+        result.setWeightedScore(weightedScore);
+        return result;
+    }
+
+    @Test
+    public void testRandomUpdates_shouldRankLikeLinearScan() {
+        Random random = new Random(42);
+        BlockchainRanking ranking = new BlockchainRanking();
+        Map<String, BlockchainCalculationResult> results = new LinkedHashMap<>();  // in the order they were added
+        Map<String, Boolean> eligibility = new LinkedHashMap<>();
+
+        for (int i = 0; i < 2000; i++) {
+            String identifier = "chain" + random.nextInt(100);
+            if (random.nextInt(10) == 0) {
+                assertEquals(results.remove(identifier) != null, ranking.remove(identifier), "Wrong removal!");
+                eligibility.remove(identifier);
+            } else {
+                BlockchainCalculationResult result = createResult(identifier, random.nextInt(50));
+                boolean eligible = random.nextInt(4) != 0;
+                results.put(identifier, result);
+                eligibility.put(identifier, eligible);
+                ranking.update(result, eligible);
+            }
+
+            // the former linear scan: the last one of the blockchains with the highest score wins
+            BlockchainCalculationResult best = null;
+            for (BlockchainCalculationResult result : results.values()) {
+                if (eligibility.get(result.getBlockchain().getIdentifier()) &&
+                        (best == null || best.getOverallWeightedScore() <= result.getOverallWeightedScore())) {
+                    best = result;
+                }
+            }
+            assertSame(best, ranking.getBest(), "Wrong best blockchain after update " + i + "!");
+            assertEquals(results.size(), ranking.size(), "Wrong number of blockchains!");
+        }
+
+        List<Integer> expectedTopScores = results.values().stream()
+                .filter(result -> eligibility.get(result.getBlockchain().getIdentifier()))
+                .map(BlockchainCalculationResult::getOverallWeightedScore)
+                .sorted(Comparator.reverseOrder())
+                .limit(10)
+                .collect(Collectors.toList());
+        List<Integer> topScores = new ArrayList<>();
+        ranking.getTop(10).forEach(result -> topScores.add(result.getOverallWeightedScore()));
+        assertEquals(expectedTopScores, topScores, "Wrong top 10!");
+    }
+
+    @Test
+    public void testEligibilityChange_shouldMoveBlockchainBetweenSets() {
+        BlockchainRanking ranking = new BlockchainRanking();
+        BlockchainCalculationResult bitcoin = createResult("Bitcoin", 110);
+        BlockchainCalculationResult ethereum = createResult("Ethereum", 138);
+        ranking.update(bitcoin, true);
+        ranking.update(ethereum, true);
+        assertSame(ethereum, ranking.getBest(), "Wrong best blockchain!");
+
+        ranking.update(ethereum, false);
+        assertSame(bitcoin, ranking.getBest(), "Ineligible blockchain ranked!");
+        assertSame(ethereum, ranking.getBestIneligible(), "Ineligible blockchain not kept!");
+        assertEquals(1, ranking.getNumberOfEligibleChains(), "Wrong number of eligible blockchains!");
+
+        ranking.update(bitcoin, false);
+        assertNull(ranking.getBest(), "No blockchain should be eligible!");
+        assertSame(bitcoin, ranking.get("Bitcoin"), "Latest result not kept!");
+    }
+
+}
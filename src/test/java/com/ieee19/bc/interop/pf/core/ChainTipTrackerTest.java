@@ -0,0 +1,92 @@
+package com.ieee19.bc.interop.pf.core;
+
+import com.ieee19.bc.interop.pf.core.model.Block;
+import com.ieee19.bc.interop.pf.core.model.BlockEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ChainTipTrackerTest {
+
+    private Block createBlock(long height, String hash, String previousBlockHash) {
+        Block block = new Block();
+        block.setHeight(height);
+        block.setHash(hash);
+        block.setPreviousBlockHash(previousBlockHash);
+        return block;
+    }
+
+    @Test
+    public void testTrackLinearChain_shouldAddBlock() throws Exception {
+        ChainTipTracker tracker = new ChainTipTracker();
+        Block block1 = createBlock(1, "a1", "a0");
+        Block block2 = createBlock(2, "a2", "a1");
+        tracker.seed(block1);
+
+        List<BlockEvent> events = tracker.track(block2, blockNumber -> {
+            throw new IllegalStateException("No block has to be fetched!");
+        });
+
+        assertEquals(Collections.singletonList(BlockEvent.add(block2)), events, "Block not added!");
+        assertEquals(block2, tracker.getTip(), "Wrong tip!");
+    }
+
+    @Test
+    public void testTrackKnownBlock_shouldReturnNoEvents() throws Exception {
+        ChainTipTracker tracker = new ChainTipTracker();
+        Block block1 = createBlock(1, "a1", "a0");
+        tracker.seed(block1);
+
+        List<BlockEvent> events = tracker.track(createBlock(1, "a1", "a0"), blockNumber -> null);
+
+        assertEquals(Collections.emptyList(), events, "Known block added again!");
+    }
+
+    @Test
+    public void testTrackReorg_shouldRetractOrphanedBlocksAndAddNewBranch() throws Exception {
+        ChainTipTracker tracker = new ChainTipTracker();
+        Block block1 = createBlock(1, "a1", "a0");
+        Block block2 = createBlock(2, "a2", "a1");
+        Block block3 = createBlock(3, "a3", "a2");
+        tracker.seed(block1);
+        tracker.seed(block2);
+        tracker.seed(block3);
+
+        // the new branch forks off after block 1
+        Block branchBlock2 = createBlock(2, "b2", "a1");
+        Block branchBlock3 = createBlock(3, "b3", "b2");
+        Block branchBlock4 = createBlock(4, "b4", "b3");
+        Map<Long, Block> mainChain = new HashMap<>();
+        mainChain.put(2L, branchBlock2);
+        mainChain.put(3L, branchBlock3);
+
+        List<BlockEvent> events = tracker.track(branchBlock4, mainChain::get);
+
+        assertEquals(Arrays.asList(
+                BlockEvent.retract(block3),
+                BlockEvent.retract(block2),
+                BlockEvent.add(branchBlock2),
+                BlockEvent.add(branchBlock3),
+                BlockEvent.add(branchBlock4)), events, "Wrong events!");
+        assertEquals(branchBlock4, tracker.getTip(), "Wrong tip!");
+    }
+
+    @Test
+    public void testTrackReorgExceedingMaxDepth_shouldThrowException() {
+        ChainTipTracker tracker = new ChainTipTracker(2);
+        tracker.seed(createBlock(1, "a1", "a0"));
+        tracker.seed(createBlock(2, "a2", "a1"));
+
+        assertThrows(IllegalStateException.class,
+                () -> tracker.track(createBlock(3, "b3", "b2"), blockNumber ->
+                        createBlock(blockNumber, "b" + blockNumber, "b" + (blockNumber - 1))));
+    }
+
+}
@@ -0,0 +1,108 @@
+package com.ieee19.bc.interop.pf.core;
+
+import com.ieee19.bc.interop.pf.core.model.Block;
+import com.ieee19.bc.interop.pf.core.model.BlockEvent;
+import com.ieee19.bc.interop.pf.core.model.MiningDistribution;
+import io.reactivex.processors.PublishProcessor;
+import io.reactivex.schedulers.TestScheduler;
+import io.reactivex.subscribers.TestSubscriber;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static java.time.temporal.ChronoUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DecayingBlockEstimatorTest {
+
+    private Block createBlock(long height, String minerAddress, ZonedDateTime timestamp) {
+        Block block = new Block();
+        block.setHeight(height);
+        block.setHash("hash" + height);
+        block.setMinerAddress(minerAddress);
+        block.setTimestamp(timestamp);
+        block.setNumberOfTransactions(1200);
+        block.setDifficulty(2.0);
+        return block;
+    }
+
+    @Test
+    public void testFewDozenBlocksInAnyOrder_shouldEstimateRates() {
+        ZonedDateTime now = ZonedDateTime.now();
+        DecayingBlockEstimator ascending = new DecayingBlockEstimator(Duration.ofHours(24));
+        DecayingBlockEstimator descending = new DecayingBlockEstimator(Duration.ofHours(24));
+
+        // one block every 10 minutes, every fourth block is mined by minerB
+        for (int i = 0; i < 40; i++) {
+            ascending.apply(BlockEvent.add(createBlock(i, i % 4 == 0 ? "minerB" : "minerA",
+                    now.minus((40 - i) * 600, SECONDS))));
+            descending.apply(BlockEvent.add(createBlock(39 - i, (39 - i) % 4 == 0 ? "minerB" : "minerA",
+                    now.minus((i + 1) * 600, SECONDS))));
+        }
+
+        for (DecayingBlockEstimator estimator : new DecayingBlockEstimator[]{ascending, descending}) {
+            DecayingBlockEstimator.Snapshot snapshot = estimator.snapshot(now);
+            assertEquals(600, 1 / snapshot.getBlockRate(), 30, "Wrong block time!");
+            assertEquals(2, snapshot.getTransactionRate(), 0.1, "Wrong transaction rate!");
+            assertEquals(2.0 / 600, snapshot.getDifficultyRate(), 0.0002, "Wrong difficulty rate!");
+            assertEquals(2.0, snapshot.getNewestDifficulty(), 0.0001, "Wrong newest difficulty!");
+            MiningDistribution distribution = snapshot.getMiningDistribution(false);
+            assertEquals(75, distribution.get("minerA"), 1, "Wrong percentage!");
+            assertEquals(25, distribution.get("minerB"), 1, "Wrong percentage!");
+        }
+    }
+
+    @Test
+    public void testRetractAndDecay_shouldUpdateEstimates() {
+        ZonedDateTime now = ZonedDateTime.now();
+        DecayingBlockEstimator estimator = new DecayingBlockEstimator(Duration.ofHours(1));
+        for (int i = 0; i < 40; i++) {
+            estimator.apply(BlockEvent.add(createBlock(i, "minerA", now.minus((40 - i) * 15, SECONDS))));
+        }
+        Block orphanedBlock = createBlock(40, "minerB", now);
+        estimator.apply(BlockEvent.add(orphanedBlock));
+        long version = estimator.snapshot(now).getVersion();
+
+        estimator.apply(BlockEvent.retract(orphanedBlock));
+
+        DecayingBlockEstimator.Snapshot snapshot = estimator.snapshot(now);
+        assertNotEquals(version, snapshot.getVersion(), "Version not changed!");
+        assertEquals(40, snapshot.getNumberOfBlocks(), "Wrong number of blocks!");
+        assertEquals(0, snapshot.getMiningDistribution(false).getOrDefault("minerB", 0.0), 0.0001,
+                "Retracted block still counted!");
+        // without new blocks the block rate decays
+        assertTrue(estimator.snapshot(now.plusHours(2)).getBlockRate() < snapshot.getBlockRate() / 2,
+                "Block rate not decayed!");
+    }
+
+    @Test
+    public void testVirtualTime_shouldEstimateAtClockOfScheduler() {
+        Duration horizon = Duration.ofHours(24);
+        ZonedDateTime start = ZonedDateTime.ofInstant(Instant.ofEpochSecond(1_500_000_000), ZoneOffset.UTC);
+        TestScheduler scheduler = new TestScheduler();
+        scheduler.advanceTimeTo(start.toInstant().toEpochMilli(), TimeUnit.MILLISECONDS);
+        PublishProcessor<BlockEvent> events = PublishProcessor.create();
+        TestSubscriber<Map<Duration, IBlockStatistics>> testSubscriber = events
+                .compose(DecayingBlockEstimator.forBlockEvents(Collections.singletonList(horizon),
+                        Duration.ofMinutes(1), scheduler))
+                .test();
+
+        // one block every 10 minutes until the start, long before the wall clock
+        for (int i = 0; i < 40; i++) {
+            events.onNext(BlockEvent.add(createBlock(i, "minerA", start.minus((40 - i) * 600, SECONDS))));
+        }
+        testSubscriber.assertNoValues();
+        scheduler.advanceTimeBy(1, TimeUnit.MINUTES);
+
+        testSubscriber.assertValueCount(1);
+        assertEquals(600, 1 / testSubscriber.values().get(0).get(horizon).getBlockRate(), 30,
+                "Not estimated at the clock of the scheduler!");
+    }
+
+}
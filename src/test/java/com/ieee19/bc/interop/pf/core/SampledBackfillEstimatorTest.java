@@ -0,0 +1,98 @@
+package com.ieee19.bc.interop.pf.core;
+
+import com.ieee19.bc.interop.pf.core.model.Block;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.time.temporal.ChronoUnit.HOURS;
+import static java.time.temporal.ChronoUnit.MINUTES;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SampledBackfillEstimatorTest {
+
+    private static final Duration SIX_HOURS = Duration.ofHours(6);
+    private static final Duration TWENTY_FOUR_HOURS = Duration.ofHours(24);
+
+    private Block createBlock(long height, ZonedDateTime now) {
+        Block block = new Block();
+        block.setHeight(height);
+        block.setHash("hash" + height);
+        block.setMinerAddress("miner" + (long) (height * 1.6180339887) % 4);  // equidistributed, but not periodic
+        block.setTimestamp(now.minus(1000 - height, MINUTES).plusSeconds(30));  // one block per minute
+        block.setNumberOfTransactions(100 + (int) (50 * Math.sin(height / 37.0)));
+        block.setDifficulty(1000 + 50 * Math.sin(height / 53.0));
+        return block;
+    }
+
+    private Map<Duration, SlidingBlockWindow.Snapshot> snapshot(SlidingBlockWindow sixHours,
+                                                                SlidingBlockWindow twentyFourHours,
+                                                                ZonedDateTime now) {
+        sixHours.evict(now);
+        twentyFourHours.evict(now);
+        Map<Duration, SlidingBlockWindow.Snapshot> windows = new LinkedHashMap<>();
+        windows.put(SIX_HOURS, sixHours.snapshot());
+        windows.put(TWENTY_FOUR_HOURS, twentyFourHours.snapshot());
+        return windows;
+    }
+
+    @Test
+    public void testPartialStratifiedBackfill_shouldEstimateWithinBoundsAndConverge() throws Exception {
+        ZonedDateTime now = ZonedDateTime.now();
+        SlidingBlockWindow sixHours = new SlidingBlockWindow(6, HOURS);
+        SlidingBlockWindow twentyFourHours = new SlidingBlockWindow(24, HOURS);
+        BackfillCoordinator coordinator = new BackfillCoordinator(1, 1000, 10, 1, 10);
+        SampledBackfillEstimator estimator = new SampledBackfillEstimator(TWENTY_FOUR_HOURS);
+        estimator.start(coordinator);
+        AtomicInteger fetchedRanges = new AtomicInteger();
+        BackfillCoordinator.RangeTask task = (fromHeight, toHeight) -> {
+            if (fetchedRanges.incrementAndGet() == 31) {
+                throw new IllegalStateException("Node unavailable");
+            }
+            for (long height = fromHeight; height <= toHeight; height++) {
+                sixHours.add(createBlock(height, now));
+                twentyFourHours.add(createBlock(height, now));
+            }
+            return true;
+        };
+
+        // stop after 30 of 100 ranges
+        assertThrows(IllegalStateException.class, () -> coordinator.execute(new AdaptiveFetchExecutor(1, 1, 1), task,
+                1, TimeUnit.MINUTES));
+        Map<Duration, IBlockStatistics> estimates = estimator.estimate(snapshot(sixHours, twentyFourHours, now));
+
+        coordinator.execute(new AdaptiveFetchExecutor(1, 1, 1), task, 1, TimeUnit.MINUTES);
+        Map<Duration, SlidingBlockWindow.Snapshot> windows = snapshot(sixHours, twentyFourHours, now);
+        for (Duration horizon : windows.keySet()) {
+            IBlockStatistics estimate = estimates.get(horizon);
+            IBlockStatistics exact = windows.get(horizon);
+            assertTrue(estimate.isApproximate(), "Estimate not flagged as approximate!");
+            assertTrue(estimate.getCoverage() < 0.5, "Wrong coverage: " + estimate.getCoverage());
+            assertTrue(estimate.getBlockRateInterval().contains(exact.getBlockRate()),
+                    "Block rate " + exact.getBlockRate() + " not within " + estimate.getBlockRateInterval());
+            assertTrue(estimate.getTransactionRateInterval().contains(exact.getTransactionRate()),
+                    "Transaction rate " + exact.getTransactionRate() + " not within " +
+                            estimate.getTransactionRateInterval());
+            assertTrue(estimate.getDifficultyRateInterval().contains(exact.getDifficultyRate()),
+                    "Difficulty rate " + exact.getDifficultyRate() + " not within " +
+                            estimate.getDifficultyRateInterval());
+            double exactPercentage = exact.getMiningDistribution(true).get("miner0");
+            assertTrue(estimate.getMinerPercentageInterval("miner0", true).contains(exactPercentage),
+                    "Percentage " + exactPercentage + " not within " +
+                            estimate.getMinerPercentageInterval("miner0", true));
+        }
+        assertEquals(1000.0 / TWENTY_FOUR_HOURS.getSeconds(), estimates.get(TWENTY_FOUR_HOURS).getBlockRate(), 0.0001,
+                "Number of blocks of the whole backfill not exact!");
+
+        Map<Duration, IBlockStatistics> statistics = estimator.estimate(windows);
+        assertSame(windows.get(SIX_HOURS), statistics.get(SIX_HOURS), "Exact window not passed on!");
+        assertFalse(statistics.get(TWENTY_FOUR_HOURS).isApproximate(), "Complete window flagged as approximate!");
+        assertFalse(estimator.isActive(), "Estimator still active after complete backfill!");
+    }
+
+}
@@ -0,0 +1,84 @@
+package com.ieee19.bc.interop.pf.core;
+
+import com.ieee19.bc.interop.pf.core.model.Block;
+import com.ieee19.bc.interop.pf.core.model.BlockEvent;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static java.time.temporal.ChronoUnit.HOURS;
+import static java.time.temporal.ChronoUnit.MINUTES;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SharedBlockStoreTest {
+
+    private Block createBlock(long height, String hash, ZonedDateTime timestamp) {
+        Block block = new Block();
+        block.setHeight(height);
+        block.setHash(hash);
+        block.setTimestamp(timestamp);
+        return block;
+    }
+
+    @Test
+    public void testAcquire_shouldShareStorePerNodeUntilLastRelease() {
+        SharedBlockStore store = SharedBlockStore.acquire("http://node-a");
+        SharedBlockStore sameStore = SharedBlockStore.acquire("http://node-a");
+        SharedBlockStore otherStore = SharedBlockStore.acquire("http://node-b");
+
+        assertSame(store, sameStore, "Store not shared!");
+        assertNotSame(store, otherStore, "Store shared between nodes!");
+        assertEquals(2, store.getReferenceCount(), "Wrong reference count!");
+
+        store.release();
+        sameStore.release();
+        otherStore.release();
+        SharedBlockStore newStore = SharedBlockStore.acquire("http://node-a");
+        assertNotSame(store, newStore, "Released store not discarded!");
+        newStore.release();
+    }
+
+    @Test
+    public void testOnBlockEvent_shouldStoreAddedAndRemoveRetractedBlocks() {
+        SharedBlockStore store = SharedBlockStore.acquire("http://node-c");
+        try {
+            ZonedDateTime now = ZonedDateTime.now();
+            Block block1 = createBlock(1, "a1", now.minus(3, HOURS));
+            Block block2 = createBlock(2, "a2", now.minus(2, HOURS));
+            Block branchBlock2 = createBlock(2, "b2", now.minus(2, HOURS));
+            Block outdatedBlock = createBlock(0, "a0", now.minus(25, HOURS));
+            store.onBlockEvent(BlockEvent.add(outdatedBlock));
+            store.onBlockEvent(BlockEvent.add(block1));
+            store.onBlockEvent(BlockEvent.add(block2));
+            store.onBlockEvent(BlockEvent.retract(block2));
+            store.onBlockEvent(BlockEvent.add(branchBlock2));
+
+            assertEquals(Arrays.asList(block1, branchBlock2), store.getBlocks(now.minus(30, HOURS), now),
+                    "Wrong blocks!");
+            assertEquals(Collections.singletonList(branchBlock2), store.getBlocks(now.minus(150, MINUTES), now),
+                    "Wrong blocks!");
+            assertEquals(2, store.getTipHeight(), "Wrong tip height!");
+        } finally {
+            store.release();
+        }
+    }
+
+    @Test
+    public void testIsCompleteSince_shouldOnlyCoverTimesAfterCompletion() {
+        SharedBlockStore store = SharedBlockStore.acquire("http://node-d");
+        try {
+            ZonedDateTime completeSince = ZonedDateTime.now().minus(24, HOURS);
+            assertFalse(store.isCompleteSince(completeSince), "Store complete before any block has been stored!");
+
+            store.setCompleteSince(completeSince);
+
+            assertTrue(store.isCompleteSince(ZonedDateTime.now().minus(1, HOURS)), "Store not complete!");
+            assertFalse(store.isCompleteSince(completeSince.minus(1, HOURS)), "Store complete for older blocks!");
+        } finally {
+            store.release();
+        }
+    }
+
+}
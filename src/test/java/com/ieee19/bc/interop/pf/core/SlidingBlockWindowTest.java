@@ -0,0 +1,182 @@
+package com.ieee19.bc.interop.pf.core;
+
+import com.ieee19.bc.interop.pf.core.model.Block;
+import com.ieee19.bc.interop.pf.core.model.BlockEvent;
+import com.ieee19.bc.interop.pf.core.model.MiningDistribution;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import static java.time.temporal.ChronoUnit.HOURS;
+import static java.time.temporal.ChronoUnit.MINUTES;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SlidingBlockWindowTest {
+
+    private Block createBlock(long height, String minerAddress, ZonedDateTime timestamp) {
+        Block block = new Block();
+        block.setHeight(height);
+        block.setHash("hash" + height);
+        block.setMinerAddress(minerAddress);
+        block.setTimestamp(timestamp);
+        block.setNumberOfTransactions(10);
+        block.setDifficulty(2.0);
+        return block;
+    }
+
+    @Test
+    public void testAddOutOfOrder_shouldKeepBlocksOrderedByTimestamp() {
+        ZonedDateTime now = ZonedDateTime.now();
+        SlidingBlockWindow window = new SlidingBlockWindow(24, HOURS);
+
+        // backfill from the tip downwards, then new blocks at the tip and one with a skewed timestamp
+        for (long height = 100; height >= 1; height--) {
+            window.add(createBlock(height, "miner" + height % 3, now.minus(200 - height, MINUTES)));
+        }
+        window.add(createBlock(101, "miner0", now.minus(50, MINUTES)));
+        window.add(createBlock(102, "miner1", now.minus(150, MINUTES)));
+
+        List<Long> heights = window.snapshot().getBlocks().stream().map(Block::getHeight).collect(Collectors.toList());
+        assertEquals(102, heights.size(), "Wrong number of blocks!");
+        assertEquals(Long.valueOf(102), heights.get(50), "Out-of-order block not moved into place!");
+        assertEquals(Long.valueOf(101), heights.get(heights.size() - 1), "Wrong newest block!");
+        assertEquals(1020, window.snapshot().getNumberOfTransactions(), "Wrong number of transactions!");
+    }
+
+    @Test
+    public void testEvictAndRetract_shouldUpdateAggregates() {
+        ZonedDateTime now = ZonedDateTime.now();
+        SlidingBlockWindow window = new SlidingBlockWindow(24, HOURS);
+        Block oldBlock = createBlock(1, "minerA", now.minus(25, HOURS));
+        Block block2 = createBlock(2, "minerA", now.minus(2, HOURS));
+        Block block3 = createBlock(3, "minerB", now.minus(1, HOURS));
+        block3.getUncleBlocks().add(createBlock(2, "minerC", now.minus(1, HOURS)));
+        window.apply(BlockEvent.add(oldBlock));
+        window.apply(BlockEvent.add(block2));
+        window.apply(BlockEvent.add(block3));
+
+        assertTrue(window.evict(now), "Old block not evicted!");
+        assertFalse(window.evict(now), "Evicted twice!");
+        assertTrue(window.apply(BlockEvent.retract(block3)), "Block not retracted!");
+        assertFalse(window.apply(BlockEvent.retract(block3)), "Block retracted twice!");
+
+        SlidingBlockWindow.Snapshot snapshot = window.snapshot();
+        assertEquals(1, snapshot.getNumberOfBlocks(), "Wrong number of blocks!");
+        assertEquals(10, snapshot.getNumberOfTransactions(), "Wrong number of transactions!");
+        assertEquals(2.0, snapshot.getDifficultySum(), 0.0001, "Wrong difficulty sum!");
+        assertEquals(0, snapshot.getNumberOfUncleBlocks(), "Wrong number of uncle blocks!");
+        assertEquals(1, snapshot.getBlockCountPerMiner().size(), "Miner without blocks not removed!");
+        assertEquals(Integer.valueOf(1), snapshot.getBlockCountPerMiner().get("minerA"), "Wrong block count!");
+        assertTrue(snapshot.getUncleCountPerMiner().isEmpty(), "Uncle miner not removed!");
+        assertEquals(block2, snapshot.getNewestBlock(), "Wrong newest block!");
+    }
+
+    @Test
+    public void testSnapshotWithPackedHashes_shouldRestoreBlocks() {
+        ZonedDateTime now = ZonedDateTime.now();
+        SlidingBlockWindow window = new SlidingBlockWindow(24, HOURS);
+        String bitcoinHash = "00000000000000000024fb37364cbf81fd49cc2d51c09c75c35433c3a1945d04";
+        Block bitcoinBlock = createBlock(1, "minerA", now.minus(2, HOURS));
+        bitcoinBlock.setHash(bitcoinHash);
+        Block ethereumBlock = createBlock(2, "minerB", now.minus(1, HOURS));
+        ethereumBlock.setHash("0x" + bitcoinHash);
+        ethereumBlock.getUncleBlocks().add(createBlock(1, "minerA", now.minus(1, HOURS)));
+        window.add(bitcoinBlock);
+        window.add(ethereumBlock);
+
+        List<Block> blocks = window.snapshot().getBlocks();
+        assertEquals(bitcoinHash, blocks.get(0).getHash(), "Wrong hash!");
+        assertEquals("0x" + bitcoinHash, blocks.get(1).getHash(), "Wrong hash with prefix!");
+        assertEquals(now.minus(1, HOURS).toEpochSecond(), blocks.get(1).getTimestamp().toEpochSecond(),
+                "Wrong timestamp!");
+        assertEquals("minerB", blocks.get(1).getMinerAddress(), "Wrong miner address!");
+        assertEquals(2, blocks.get(1).getHeight(), "Wrong height!");
+        assertEquals("minerA", blocks.get(1).getUncleBlocks().get(0).getMinerAddress(), "Wrong uncle miner address!");
+
+        assertFalse(window.remove(createBlock(2, "minerB", now.minus(1, HOURS))), "Block with other hash removed!");
+        assertTrue(window.remove(ethereumBlock), "Block not removed!");
+        assertEquals(1, window.snapshot().getNumberOfBlocks(), "Wrong number of blocks!");
+        assertEquals(bitcoinHash, window.snapshot().getNewestBlock().getHash(), "Wrong block removed!");
+    }
+
+    @Test
+    public void testMiningDistribution_shouldSummarizeAndDetectChangesByVersion() {
+        ZonedDateTime now = ZonedDateTime.now();
+        SlidingBlockWindow window = new SlidingBlockWindow(24, HOURS);
+        for (long height = 1; height <= 6; height++) {
+            window.add(createBlock(height, height <= 3 ? "minerA" : height <= 5 ? "minerB" : "minerC",
+                    now.minus(60 - height, MINUTES)));
+        }
+        Block blockWithUncle = createBlock(7, "minerC", now.minus(10, MINUTES));
+        blockWithUncle.getUncleBlocks().add(createBlock(6, "minerC", now.minus(10, MINUTES)));
+        window.add(blockWithUncle);
+
+        MiningDistribution distribution = window.snapshot().getMiningDistribution(true);
+        assertEquals(Arrays.asList("minerA", "minerC", "minerB"), Arrays.asList(distribution.keySet().toArray()),
+                "Miners not ordered by percentage!");
+        assertEquals(37.5, distribution.get("minerA"), 0.0001, "Wrong percentage!");
+        assertEquals(25, distribution.get("minerB"), 0.0001, "Wrong percentage!");
+        assertNull(distribution.get("minerD"), "Percentage of a miner without blocks!");
+        assertTrue(distribution.containsKey("minerC"), "Miner not contained!");
+        assertFalse(distribution.containsKey("minerD"), "Miner without blocks contained!");
+        assertEquals(37.5 * 37.5 * 2 + 25 * 25, distribution.getHerfindahlHirschmanIndex(), 0.0001, "Wrong HHI!");
+        assertEquals(2, distribution.getTopMiners(2).size(), "Wrong number of top miners!");
+        assertEquals(75, distribution.getTopMinersPercentage(2), 0.0001, "Wrong percentage of top miners!");
+        assertEquals(3.0 / 7 * 100, window.snapshot().getMiningDistribution(false).get("minerA"), 0.0001,
+                "Wrong percentage without uncle blocks!");
+
+        assertTrue(MiningDistribution.isUnchanged(distribution, window.snapshot().getMiningDistribution(true)),
+                "Change detected without change!");
+        window.remove(blockWithUncle);
+        MiningDistribution nextDistribution = window.snapshot().getMiningDistribution(true);
+        assertFalse(MiningDistribution.isUnchanged(distribution, nextDistribution), "Change not detected!");
+        assertEquals(50, nextDistribution.get("minerA"), 0.0001, "Wrong percentage after removal!");
+    }
+
+    @Test
+    public void testSnapshotsSharingChunks_shouldNotSeeLaterChanges() {
+        ZonedDateTime now = ZonedDateTime.now();
+        SlidingBlockWindow window = new SlidingBlockWindow(10, HOURS);
+        TreeSet<Long> heights = new TreeSet<>();
+        List<SlidingBlockWindow.Snapshot> snapshots = new ArrayList<>();
+        List<List<Long>> expectedHeights = new ArrayList<>();
+
+        // new blocks at the tip, a backfill downwards, orphaned blocks in the middle and evicted blocks at the head
+        for (long i = 0; i < 200; i++) {
+            for (long height : new long[]{500 + i, 499 - i}) {
+                window.add(createBlock(height, "miner" + height % 3, now.minus(1000 - height, MINUTES)));
+                heights.add(height);
+            }
+            if (i % 7 == 0) {
+                long height = new ArrayList<>(heights).get(heights.size() / 2);
+                assertTrue(window.remove(createBlock(height, "", now.minus(1000 - height, MINUTES))),
+                        "Block not removed!");
+                heights.remove(height);
+            }
+            if (i % 3 == 0) {
+                window.evict(now);
+                heights.headSet(400L, true).clear();
+            }
+            if (i % 10 == 0) {
+                snapshots.add(window.snapshot());
+                expectedHeights.add(new ArrayList<>(heights));
+            }
+        }
+
+        for (int i = 0; i < snapshots.size(); i++) {
+            List<Long> snapshotHeights = snapshots.get(i).getBlocks().stream()
+                    .map(Block::getHeight)
+                    .collect(Collectors.toList());
+            assertEquals(expectedHeights.get(i), snapshotHeights, "Snapshot " + i + " changed!");
+            assertEquals(10L * snapshotHeights.size(), snapshots.get(i).getNumberOfTransactions(),
+                    "Wrong number of transactions of snapshot " + i + "!");
+        }
+        assertSame(window.snapshot(), window.snapshot(), "Snapshot of unchanged window not reused!");
+    }
+
+}
@@ -2,9 +2,16 @@ package com.ieee19.bc.interop.pf.core;
 
 import io.reactivex.Observable;
 import io.reactivex.observers.TestObserver;
+import io.reactivex.schedulers.TestScheduler;
+import io.reactivex.subjects.PublishSubject;
 import org.junit.jupiter.api.Test;
 
 import java.time.temporal.ChronoUnit;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class ThresholdViolationOperatorTest {
 
@@ -139,4 +146,66 @@ public class ThresholdViolationOperatorTest {
                 .assertNoErrors();
     }
 
+    @Test
+    public void testVirtualTime_shouldEmitViolationsOfEachSubscriptionAtTheirDeadline() {
+        TestScheduler scheduler = new TestScheduler();
+        ThresholdViolationOperator operator = new ThresholdViolationOperator(3, ChronoUnit.SECONDS, scheduler);
+        PublishSubject<Boolean> metric1 = PublishSubject.create();
+        PublishSubject<Boolean> metric2 = PublishSubject.create();
+        TestObserver<Boolean> testObserver1 = metric1.compose(operator).test();
+        TestObserver<Boolean> testObserver2 = metric2.compose(operator).test();
+
+        metric1.onNext(false);
+        scheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+        metric2.onNext(false);
+        scheduler.advanceTimeBy(2, TimeUnit.SECONDS);
+        testObserver1.assertValues(true, false);
+        testObserver2.assertValues(true);
+
+        metric2.onNext(true);  // cancels the deadline of the second subscription only
+        scheduler.advanceTimeBy(10, TimeUnit.SECONDS);
+        testObserver2.assertValues(true);
+
+        metric1.onNext(true);
+        metric2.onNext(false);
+        metric2.onComplete();  // completes once the pending deadline has elapsed
+        testObserver2.assertNotComplete();
+        scheduler.advanceTimeBy(3, TimeUnit.SECONDS);
+        testObserver1.assertValues(true, false, true);
+        testObserver2
+                .assertValues(true, false)
+                .assertComplete();
+    }
+
+    @Test
+    public void testBlockingSubscriber_shouldNotDelayDeadlinesOfOtherOperators() throws Exception {
+        CountDownLatch blockingSubscriberEntered = new CountDownLatch(1);
+        CountDownLatch releaseBlockingSubscriber = new CountDownLatch(1);
+        PublishSubject<Boolean> metric1 = PublishSubject.create();
+        PublishSubject<Boolean> metric2 = PublishSubject.create();
+        metric1
+                .compose(new ThresholdViolationOperator(100, ChronoUnit.MILLIS))
+                .subscribe(next -> {
+                    if (!next) {
+                        // e.g. a switchover performed by the subscriber
+                        blockingSubscriberEntered.countDown();
+                        releaseBlockingSubscriber.await();
+                    }
+                });
+        TestObserver<Boolean> testObserver = metric2
+                .compose(new ThresholdViolationOperator(100, ChronoUnit.MILLIS))
+                .test();
+
+        try {
+            metric1.onNext(false);
+            assertTrue(blockingSubscriberEntered.await(5, TimeUnit.SECONDS), "Violation not emitted!");
+            metric2.onNext(false);
+            testObserver.awaitCount(2);
+            assertFalse(testObserver.isTimeout(), "Deadline delayed by the blocking subscriber!");
+            testObserver.assertValues(true, false);
+        } finally {
+            releaseBlockingSubscriber.countDown();
+        }
+    }
+
 }
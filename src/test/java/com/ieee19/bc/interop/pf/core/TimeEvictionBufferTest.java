@@ -1,17 +1,28 @@
 package com.ieee19.bc.interop.pf.core;
 
 import com.ieee19.bc.interop.pf.core.model.Block;
+import com.ieee19.bc.interop.pf.core.model.BlockEvent;
 import io.reactivex.BackpressureStrategy;
 import io.reactivex.Flowable;
+import io.reactivex.processors.PublishProcessor;
+import io.reactivex.schedulers.TestScheduler;
 import io.reactivex.subscribers.TestSubscriber;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import static java.time.temporal.ChronoUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.*;
 
 public class TimeEvictionBufferTest {
 
@@ -83,4 +94,94 @@ public class TimeEvictionBufferTest {
                 .assertNoErrors();
     }
 
+    @Test
+    public void testBufferWithSeveralHorizons_shouldKeepOneWindowPerHorizon() {
+        Duration shortHorizon = Duration.ofSeconds(60);
+        Duration longHorizon = Duration.ofSeconds(120);
+        TimeEvictionBuffer buffer = new TimeEvictionBuffer(Arrays.asList(longHorizon, shortHorizon));
+        List<Block> blocks = createBlocks(5, ZonedDateTime.now().minus(90, SECONDS));
+        blocks.addAll(createBlocks(3, ZonedDateTime.now()));
+        TestSubscriber<Map<Duration, SlidingBlockWindow.Snapshot>> testObserver = new TestSubscriber<>();
+        Flowable
+                .create(emitter -> {
+                    blocks.stream().forEach(block -> emitter.onNext(BlockEvent.add(block)));
+                    Thread.sleep(7000);
+                    emitter.onComplete();
+                }, BackpressureStrategy.BUFFER)
+                .map(event -> (BlockEvent) event)
+                .compose(buffer.forBlockEventsAsWindows())
+                .subscribe(testObserver);
+        testObserver
+                .assertValueCount(1)
+                .assertNoErrors();
+
+        Map<Duration, SlidingBlockWindow.Snapshot> windows = testObserver.values().get(0);
+        assertEquals(Arrays.asList(shortHorizon, longHorizon), Arrays.asList(windows.keySet().toArray()),
+                "Windows not ordered by horizon!");
+        assertEquals(3, windows.get(shortHorizon).getNumberOfBlocks(), "Wrong number of blocks in short window!");
+        assertEquals(8, windows.get(longHorizon).getNumberOfBlocks(), "Wrong number of blocks in long window!");
+        assertEquals(longHorizon, windows.get(longHorizon).getTimespan(), "Wrong timespan!");
+    }
+
+    @Test
+    public void testVirtualTime_shouldEvictByWatermarkDeterministically() {
+        Duration shortHorizon = Duration.ofSeconds(60);
+        Duration longHorizon = Duration.ofSeconds(120);
+        TestScheduler scheduler = new TestScheduler();
+        TimeEvictionBuffer buffer = new TimeEvictionBuffer(Arrays.asList(shortHorizon, longHorizon), scheduler,
+                Duration.ofSeconds(1))
+                .setClockTolerance(null);
+        ZonedDateTime start = ZonedDateTime.ofInstant(Instant.ofEpochSecond(3600), ZoneOffset.UTC);
+        PublishProcessor<BlockEvent> events = PublishProcessor.create();
+        TestSubscriber<Map<Duration, SlidingBlockWindow.Snapshot>> testObserver = events
+                .compose(buffer.forBlockEventsAsWindows())
+                .test();
+
+        // the virtual clock is still before the blocks, so only the block timestamps advance the watermark
+        createBlocks(5, start.minus(90, SECONDS)).forEach(block -> events.onNext(BlockEvent.add(block)));
+        createBlocks(3, start).forEach(block -> events.onNext(BlockEvent.add(block)));
+        testObserver.assertNoValues();
+        scheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+        testObserver.assertValueCount(1);
+        assertEquals(3, testObserver.values().get(0).get(shortHorizon).getNumberOfBlocks(), "Wrong short window!");
+        assertEquals(8, testObserver.values().get(0).get(longHorizon).getNumberOfBlocks(), "Wrong long window!");
+
+        events.onNext(BlockEvent.add(createBlocks(1, start.plus(100, SECONDS)).get(0)));
+        scheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+        testObserver.assertValueCount(2);
+        assertEquals(1, testObserver.values().get(1).get(shortHorizon).getNumberOfBlocks(), "Wrong short window!");
+        assertEquals(4, testObserver.values().get(1).get(longHorizon).getNumberOfBlocks(), "Wrong long window!");
+
+        // without new blocks, the virtual clock advances the watermark and evicts the blocks one timestamp at a time
+        scheduler.advanceTimeTo(start.plus(300, SECONDS).toInstant().toEpochMilli(), TimeUnit.MILLISECONDS);
+        events.onComplete();
+        testObserver
+                .assertValueCount(5)
+                .assertComplete();
+        assertEquals(1, testObserver.values().get(2).get(longHorizon).getNumberOfBlocks(), "Wrong long window!");
+        assertEquals(0, testObserver.values().get(4).get(longHorizon).getNumberOfBlocks(), "Window not evicted!");
+    }
+
+    @Test
+    public void testFutureDatedBlock_shouldNotAdvanceWatermarkBeyondClockTolerance() {
+        Duration horizon = Duration.ofSeconds(120);
+        TestScheduler scheduler = new TestScheduler();
+        ZonedDateTime start = ZonedDateTime.ofInstant(Instant.ofEpochSecond(3600), ZoneOffset.UTC);
+        scheduler.advanceTimeTo(start.toInstant().toEpochMilli(), TimeUnit.MILLISECONDS);
+        TimeEvictionBuffer buffer = new TimeEvictionBuffer(Collections.singletonList(horizon), scheduler,
+                Duration.ofSeconds(1));
+        PublishProcessor<BlockEvent> events = PublishProcessor.create();
+        TestSubscriber<Map<Duration, SlidingBlockWindow.Snapshot>> testObserver = events
+                .compose(buffer.forBlockEventsAsWindows())
+                .test();
+
+        createBlocks(3, start.minus(30, SECONDS)).forEach(block -> events.onNext(BlockEvent.add(block)));
+        events.onNext(BlockEvent.add(createBlocks(1, start.plusHours(1)).get(0)));
+        scheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+
+        testObserver.assertValueCount(1);
+        assertEquals(4, testObserver.values().get(0).get(horizon).getNumberOfBlocks(),
+                "Blocks evicted by a future-dated block!");
+    }
+
 }
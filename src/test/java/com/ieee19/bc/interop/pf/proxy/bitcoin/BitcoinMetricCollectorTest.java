@@ -1,18 +1,27 @@
 package com.ieee19.bc.interop.pf.proxy.bitcoin;
 
-import com.ieee19.bc.interop.pf.proxy.bitcoin.exception.BitcoinException;
 import com.ieee19.bc.interop.pf.proxy.currency.CryptocurrencyPriceService;
 import com.ieee19.bc.interop.pf.proxy.currency.Currency;
-import com.ieee19.bc.interop.pf.proxy.currency.CurrencyServiceException;
 import com.ieee19.bc.interop.pf.proxy.currency.interfaces.ICryptocurrencyPriceService;
+import com.ieee19.bc.interop.pf.core.model.Block;
+import io.reactivex.Observable;
+import io.reactivex.observers.BaseTestConsumer;
 import io.reactivex.observers.TestObserver;
+import io.reactivex.schedulers.Schedulers;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.client.HttpClientErrorException;
 
 import java.math.BigDecimal;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static java.time.temporal.ChronoUnit.MINUTES;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -30,14 +39,23 @@ public class BitcoinMetricCollectorTest {
         this.metricCollector = new BitcoinMetricCollector(bitcoinServiceMock, priceServiceMock, Currency.US_DOLLAR, 5);
     }
 
+    private static <T> CompletableFuture<T> failedFuture(Throwable error) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(error);
+        return future;
+    }
+
     @Test
-    public void testFailure_shouldThrowException() throws BitcoinException, CurrencyServiceException {
-        when(bitcoinServiceMock.getCurrentBlockHeight())
-                .thenReturn(5000L);
-        when(bitcoinServiceMock.getBlockByBlockNumber(anyLong()))
-                .thenThrow(new HttpClientErrorException(HttpStatus.NOT_FOUND));
-        when(priceServiceMock.getPrice(Currency.BITCOIN, Currency.US_DOLLAR))
-                .thenReturn(BigDecimal.ONE);
+    public void testFailure_shouldThrowException() {
+        when(bitcoinServiceMock.getCurrentBlockHeightAsync())
+                .thenReturn(CompletableFuture.completedFuture(5000L));
+        when(bitcoinServiceMock.getBlockTimestampAsync(anyLong()))
+                .thenReturn(CompletableFuture.completedFuture(ZonedDateTime.now()));
+        when(bitcoinServiceMock.getBlockByBlockNumberAsync(anyLong()))
+                .thenReturn(failedFuture(new HttpClientErrorException(HttpStatus.NOT_FOUND)));
+        when(priceServiceMock.getPriceAsync(Currency.BITCOIN, Currency.US_DOLLAR))
+                .thenReturn(CompletableFuture.completedFuture(BigDecimal.ONE));
+        metricCollector.setBackfillRetryDelay(10, TimeUnit.MILLISECONDS);
         TestObserver<Double> testObserver = new TestObserver<>();
 
         metricCollector
@@ -47,4 +65,50 @@ public class BitcoinMetricCollectorTest {
                 .assertError(HttpClientErrorException.class);
     }
 
+    @Test
+    public void testBackfillTimeout_shouldFetchMissingBlocksInBackgroundOnce() {
+        ZonedDateTime now = ZonedDateTime.now();
+        AtomicInteger requestsOfBlock5 = new AtomicInteger();
+        when(bitcoinServiceMock.getCurrentBlockHeightAsync())
+                .thenReturn(CompletableFuture.completedFuture(20L));
+        when(bitcoinServiceMock.getBlockTimestampAsync(anyLong()))
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(
+                        now.minus(20 - (long) invocation.getArgument(0), MINUTES)));
+        when(bitcoinServiceMock.getBlockByBlockNumberAsync(anyLong()))
+                .thenAnswer(invocation -> {
+                    long height = invocation.getArgument(0);
+                    Block block = new Block();
+                    block.setHeight(height);
+                    block.setHash("hash" + height);
+                    block.setMinerAddress("miner");
+                    block.setTimestamp(now.minus(20 - height, MINUTES));
+                    block.setNumberOfTransactions(10);
+                    block.setDifficulty(1000);
+                    if (height == 5) {
+                        // the first request of block 5 answers after the backfill timeout, while a second request
+                        // would answer within the next round
+                        CompletableFuture<Block> slowBlock = new CompletableFuture<>();
+                        Schedulers.io().scheduleDirect(() -> slowBlock.complete(block),
+                                requestsOfBlock5.incrementAndGet() == 1 ? 1400 : 600, TimeUnit.MILLISECONDS);
+                        return slowBlock;
+                    }
+                    return CompletableFuture.completedFuture(block);
+                });
+        metricCollector.setNewBlockNotifier(Observable::never);
+        metricCollector.setBackfillTimeout(1000, TimeUnit.MILLISECONDS);
+        metricCollector.setBackfillRetryDelay(10, TimeUnit.MILLISECONDS);
+
+        TestObserver<List<Block>> testObserver = metricCollector
+                .getBlockObservable()
+                .test();
+        testObserver.awaitCount(1, BaseTestConsumer.TestWaitStrategy.SLEEP_10MS, 10000);  // the first tick
+
+        testObserver.assertNoErrors();
+        assertEquals(1, requestsOfBlock5.get(), "Running range fetched again!");
+        List<Block> blocks = testObserver.values().get(testObserver.valueCount() - 1);
+        assertEquals(21, blocks.size(), "Wrong number of blocks!");
+        assertEquals(21, blocks.stream().map(Block::getHeight).distinct().count(), "Blocks emitted more than once!");
+        testObserver.dispose();
+    }
+
 }
@@ -24,8 +24,26 @@ public class BitcoinServiceTest {
     private static final String BLOCKCYPHER_BASE_URL = "https://api.blockcypher.com/v1/btc/main/";
     private static final String PRIVATE_KEY = "cNrm92vMehg1zAYy95nrbi5yjkUAMsZzFomyV2m5Ew3FZ2ej7SBo";
     private static final long EXPECTED_BLOCK_HEIGHT = 123456;
-    private static final String EXPECTED_BLOCK_HASH = "0000000000000000002589c00f688860f59eb806452c66c4a13887c22abf8f3c";
-    private static final String EXPECTED_TX_HASH = "92744aca720821cc6b8a8af6da9ebb7da8e9464bd9f094f9f99ef64f326e2cc5";
+    private static final String GENESIS_BLOCK_HASH = "000000000019d6689c085ae165831e934ff763ae46a2a6c172b3f1b60a8ce26f";
+    private static final String GENESIS_BLOCK = "0100000000000000000000000000000000000000000000000000000000000000000000003" +
+            "ba3edfd7a7b12b27ac72c3e67768f617fc81bc3888a51323a9fb8aa4b1e5e4a29ab5f49ffff001d1dac2b7c0101000000010000000000" +
+            "000000000000000000000000000000000000000000000000000000ffffffff4d04ffff001d0104455468652054696d65732030332f4a" +
+            "616e2f32303039204368616e63656c6c6f72206f6e206272696e6b206f66207365636f6e64206261696c6f757420666f722062616e" +
+            "6b73ffffffff0100f2052a01000000434104678afdb0fe5548271967f1a67130b7105cd6a828e03909a67962e0ea1f61deb649f6bc3f" +
+            "4cef38c4f35504e51ec112de5c384df7ba0b8d578a4c702b6bf11d5fac00000000";
+    private static final String BLOCK_1_HASH = "00000000839a8e6886ab5951d76f411475428afc90947ee320161bbf18eb6048";
+    private static final String BLOCK_1 = "010000006fe28c0ab6f1b372c1a6a246ae63f74f931e8365e15a089c68d619000000000098" +
+            "2051fd1e4ba744bbbe680e1fee14677ba1a3c3540bf7b1cdb606e857233e0e61bc6649ffff001d01e362990101000000010000000000" +
+            "000000000000000000000000000000000000000000000000000000ffffffff0704ffff001d0104ffffffff0100f2052a0100000043410" +
+            "496b538e853519c726a2c91e61ec11600ae1390813a627c66fb8be7947be63c52da7589379515d4e0a604f8141781e62294721166bf" +
+            "621e73a82cbf2342c858eeac00000000";
+    // synthetic block whose coinbase transaction has witness data and pays to a P2WPKH output
+    private static final String SEGWIT_BLOCK_HASH = "a6fee4c6e22676f33de0aad8028b4ae228a40005ea5686db7a9ea0bc1d601a56";
+    private static final String SEGWIT_BLOCK = "0000002000000000000000000000000000000000000000000000000000000000000000" +
+            "00000000000000000000000000000000000000000000000000000000000000000000105e5fffff001d00000000010100000000010100" +
+            "00000000000000000000000000000000000000000000000000000000000000ffffffff0403a08601ffffffff02000000000000000001" +
+            "6a00f2052a01000000160014751e76e8199196d454941c45d1b3a323f1433bd601200000000000000000000000000000000000000000" +
+            "00000000000000000000000000000000";
     private static final String EXPECTED_ADDRESS = "mzfXmtEUXF95Yp9NAytnZBMbPpVeoHgeFL";
 
     private BitcoinService bitcoinService;
@@ -64,36 +82,70 @@ public class BitcoinServiceTest {
         verify(restTemplate).getForObject(anyString(), any());
     }
 
+    private void mockRawBlock(long blockNumber, String blockHash, String rawBlockHex) {
+        when(restTemplateMock.getForObject(NODE_URL + "block-index/" + blockNumber, String.class))
+                .thenReturn("{ \"blockHash\": \"" + blockHash + "\" }");
+        BitcoinRawBlock rawBlock = new BitcoinRawBlock();
+        rawBlock.setRawBlock(rawBlockHex);
+        when(restTemplateMock.getForObject(NODE_URL + "rawblock/" + blockHash, BitcoinRawBlock.class))
+                .thenReturn(rawBlock);
+    }
+
     @Test
     public void testGetBlockByBlockNumber_shouldReturnCorrectBlock() throws BitcoinException {
-        String response = "{ \"blockHash\": \"" + EXPECTED_BLOCK_HASH + "\" }";
-        when(restTemplateMock.getForObject(NODE_URL + "block-index/" + EXPECTED_BLOCK_HEIGHT, String.class))
-                .thenReturn(response);
+        mockRawBlock(0, GENESIS_BLOCK_HASH, GENESIS_BLOCK);
 
-        BitcoinBlock expectedBitcoinBlock = new BitcoinBlock();
-        expectedBitcoinBlock.setHash(EXPECTED_BLOCK_HASH);
-        expectedBitcoinBlock.getTransactionHashes().add(EXPECTED_TX_HASH);
-        when(restTemplateMock.getForObject(NODE_URL + "block/" + EXPECTED_BLOCK_HASH, BitcoinBlock.class))
-                .thenReturn(expectedBitcoinBlock);
+        Block actualBlock = bitcoinService.getBlockByBlockNumber(0);
 
-        BitcoinScriptPubKey scriptPubKey = new BitcoinScriptPubKey();
-        scriptPubKey.getAddresses().add(EXPECTED_ADDRESS);
-        BitcoinTransactionOutput txOutput = new BitcoinTransactionOutput();
-        txOutput.setScriptPubKey(scriptPubKey);
-        BitcoinTransaction bitcoinTransaction = new BitcoinTransaction();
-        bitcoinTransaction.setBlockHash(EXPECTED_BLOCK_HASH);
-        bitcoinTransaction.setHash(EXPECTED_TX_HASH);
-        bitcoinTransaction.setCoinBase(true);
-        bitcoinTransaction.getTransactionOutputs().add(txOutput);
-        when(restTemplateMock.getForObject(NODE_URL + "tx/" + EXPECTED_TX_HASH, BitcoinTransaction.class))
-                .thenReturn(bitcoinTransaction);
+        verify(restTemplateMock, times(2)).getForObject(anyString(), any());
+        assertEquals(GENESIS_BLOCK_HASH, actualBlock.getHash(), "Block hashes differ!");
+        assertEquals("0000000000000000000000000000000000000000000000000000000000000000",
+                actualBlock.getPreviousBlockHash(), "Wrong previous block hash!");
+        assertEquals(1231006505, actualBlock.getTimestamp().toEpochSecond(), "Wrong timestamp!");
+        assertEquals(1.0, actualBlock.getDifficulty(), "Wrong difficulty!");
+        assertEquals("1A1zP1eP5QGefi2DMPTfTL5SLmv7DivfNa", actualBlock.getMinerAddress(), "Wrong miner address!");
+        assertEquals(1, actualBlock.getNumberOfTransactions(), "Wrong tx count!");
+    }
+
+    @Test
+    public void testGetBlockByBlockNumberOfPredecessor_shouldFetchRawBlockOnly() throws BitcoinException {
+        mockRawBlock(1, BLOCK_1_HASH, BLOCK_1);
+        mockRawBlock(0, GENESIS_BLOCK_HASH, GENESIS_BLOCK);
 
-        Block actualBlock = bitcoinService.getBlockByBlockNumber(EXPECTED_BLOCK_HEIGHT);
+        Block block = bitcoinService.getBlockByBlockNumber(1);
+        Block predecessor = bitcoinService.getBlockByBlockNumber(0);
 
         verify(restTemplateMock, times(3)).getForObject(anyString(), any());
-        assertEquals(EXPECTED_BLOCK_HASH, actualBlock.getHash(), "Block hashes differ!");
-        assertEquals(EXPECTED_ADDRESS, actualBlock.getMinerAddress(), "Wrong miner address!");
-        assertEquals(1, actualBlock.getNumberOfTransactions(), "Wrong tx count!");
+        verify(restTemplateMock, never()).getForObject(NODE_URL + "block-index/0", String.class);
+        assertEquals("12c6DSiU4Rq3P4ZxziKxzrL5LmMBrzjrJX", block.getMinerAddress(), "Wrong miner address!");
+        assertEquals(GENESIS_BLOCK_HASH, predecessor.getHash(), "Block hashes differ!");
+    }
+
+    @Test
+    public void testGetBlockByBlockNumberWithSegwitCoinbase_shouldReturnBech32MinerAddress() throws BitcoinException {
+        mockRawBlock(100000, SEGWIT_BLOCK_HASH, SEGWIT_BLOCK);
+
+        Block actualBlock = bitcoinService.getBlockByBlockNumber(100000);
+
+        assertEquals("bc1qw508d6qejxtdg4y5r3zarvary0c5xw7kv8f3t4", actualBlock.getMinerAddress(),
+                "Wrong miner address!");
+        assertEquals(1600000000, actualBlock.getTimestamp().toEpochSecond(), "Wrong timestamp!");
+    }
+
+    @Test
+    public void testGetBlockByBlockNumberWithWrongHash_shouldThrowException() {
+        mockRawBlock(1, GENESIS_BLOCK_HASH, BLOCK_1);
+
+        assertThrows(BitcoinException.class, () -> bitcoinService.getBlockByBlockNumber(1));
+    }
+
+    @Test
+    public void testGetBlockByBlockNumberWithMalformedScriptLength_shouldThrowException() {
+        // the length of the output script exceeds the block
+        mockRawBlock(0, GENESIS_BLOCK_HASH,
+                GENESIS_BLOCK.replace("0100f2052a0100000043", "0100f2052a01000000feffffff7f"));
+
+        assertThrows(BitcoinException.class, () -> bitcoinService.getBlockByBlockNumber(0));
     }
 
     @Test
@@ -1,10 +1,10 @@
 package com.ieee19.bc.interop.pf.proxy.ethereum;
 
+import com.ieee19.bc.interop.pf.core.model.Block;
+import com.ieee19.bc.interop.pf.core.model.MetricSnapshot;
 import com.ieee19.bc.interop.pf.proxy.currency.CryptocurrencyPriceService;
 import com.ieee19.bc.interop.pf.proxy.currency.Currency;
-import com.ieee19.bc.interop.pf.proxy.currency.CurrencyServiceException;
 import com.ieee19.bc.interop.pf.proxy.currency.interfaces.ICryptocurrencyPriceService;
-import com.ieee19.bc.interop.pf.proxy.ethereum.exception.EthereumException;
 import io.reactivex.observers.TestObserver;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -12,10 +12,18 @@ import org.springframework.http.HttpStatus;
 import org.springframework.web.client.HttpClientErrorException;
 
 import java.math.BigDecimal;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
+import static java.time.temporal.ChronoUnit.MINUTES;
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.any;
 
 public class EthereumMetricCollectorTest {
 
@@ -30,14 +38,25 @@ public class EthereumMetricCollectorTest {
         this.metricCollector = new EthereumMetricCollector(ethereumService, priceServiceMock, Currency.US_DOLLAR, 5);
     }
 
+    private static <T> CompletableFuture<T> failedFuture(Throwable error) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(error);
+        return future;
+    }
+
     @Test
-    public void testFailure_shouldThrowException() throws CurrencyServiceException, EthereumException {
-        when(ethereumService.getCurrentBlockNumber())
-                .thenReturn(5000L);
-        when(ethereumService.getBlockByNumberWithUncles(anyLong()))
-                .thenThrow(new HttpClientErrorException(HttpStatus.NOT_FOUND));
-        when(priceServiceMock.getPrice(Currency.BITCOIN, Currency.US_DOLLAR))
-                .thenReturn(BigDecimal.ONE);
+    public void testFailure_shouldThrowException() {
+        when(ethereumService.getCurrentBlockNumberAsync())
+                .thenReturn(CompletableFuture.completedFuture(5000L));
+        when(ethereumService.getBlockTimestampAsync(anyLong()))
+                .thenReturn(CompletableFuture.completedFuture(ZonedDateTime.now()));
+        when(ethereumService.getBlockByNumberWithUnclesAsync(anyLong()))
+                .thenReturn(failedFuture(new HttpClientErrorException(HttpStatus.NOT_FOUND)));
+        when(ethereumService.getBlocksByNumberWithUnclesAsync(anyLong(), anyLong()))
+                .thenReturn(failedFuture(new HttpClientErrorException(HttpStatus.NOT_FOUND)));
+        when(priceServiceMock.getPriceAsync(Currency.BITCOIN, Currency.US_DOLLAR))
+                .thenReturn(CompletableFuture.completedFuture(BigDecimal.ONE));
+        metricCollector.setBackfillRetryDelay(10, TimeUnit.MILLISECONDS);
         TestObserver<Double> testObserver = new TestObserver<>();
 
         metricCollector
@@ -47,4 +66,53 @@ public class EthereumMetricCollectorTest {
                 .assertError(HttpClientErrorException.class);
     }
 
+    @Test
+    public void testMetricSnapshot_shouldBeSharedAndFeedAllMetrics() {
+        ZonedDateTime now = ZonedDateTime.now();
+        when(ethereumService.getCurrentBlockNumberAsync())
+                .thenReturn(CompletableFuture.completedFuture(100L));
+        when(ethereumService.getBlockTimestampAsync(anyLong()))
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(
+                        now.minus((100 - (long) invocation.getArgument(0)) * 20, MINUTES)));
+        when(ethereumService.getBlocksByNumberWithUnclesAsync(anyLong(), anyLong()))
+                .thenAnswer(invocation -> {
+                    List<Block> blocks = new ArrayList<>();
+                    long toHeight = invocation.getArgument(1);
+                    for (long height = invocation.getArgument(0); height <= toHeight; height++) {
+                        Block block = new Block();
+                        block.setHeight(height);
+                        block.setHash("hash" + height);
+                        block.setMinerAddress(height % 2 == 0 ? "minerA" : "minerB");
+                        block.setTimestamp(now.minus((100 - height) * 20, MINUTES));
+                        block.setNumberOfTransactions(60);
+                        block.setDifficulty(1000);
+                        blocks.add(block);
+                    }
+                    return CompletableFuture.completedFuture(blocks);
+                });
+        when(priceServiceMock.getPriceAsync(any(), any()))
+                .thenReturn(CompletableFuture.completedFuture(BigDecimal.ONE));
+
+        // one block every 20 minutes, i.e. 72 blocks during the last 24 hours
+        MetricSnapshot metricSnapshot = metricCollector.getMetricSnapshotObservable().blockingFirst();
+
+        assertSame(metricSnapshot, metricCollector.getMetricSnapshotObservable().blockingFirst(),
+                "Snapshot computed again for second subscriber!");
+        assertEquals(72, metricSnapshot.getNumberOfBlocks(), "Wrong number of blocks!");
+        assertFalse(metricSnapshot.isApproximate(), "Exact snapshot flagged as approximate!");
+        assertEquals(1200, metricSnapshot.getAvgBlockTime(), 0.0001, "Wrong block time!");
+        assertEquals(metricSnapshot.getAvgBlockTime(),
+                (double) metricCollector.getAvgBlockTimeObservable().blockingFirst(),
+                "Block time not projected from snapshot!");
+        assertEquals(metricSnapshot.getTransactionThroughput(),
+                (double) metricCollector.getTransactionThroughputObservable().blockingFirst(),
+                "Throughput not projected from snapshot!");
+        assertEquals(metricSnapshot.getNetworkHashrate(),
+                (double) metricCollector.getNetworkHashrateObservable().blockingFirst(),
+                "Hashrate not projected from snapshot!");
+        assertSame(metricSnapshot.getMiningDistribution(),
+                metricCollector.getBlockPercentagePerMinerObservable().blockingFirst(),
+                "Mining distribution not projected from snapshot!");
+    }
+
 }
@@ -0,0 +1,145 @@
+package com.ieee19.bc.interop.pf.proxy.ethereum;
+
+import io.reactivex.observers.TestObserver;
+import io.reactivex.subjects.PublishSubject;
+import org.java_websocket.WebSocket;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.server.WebSocketServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class EthereumNewHeadsNotifierTest {
+
+    private NodeStandIn node;
+    private PublishSubject<Long> fallbackBlockHeights;
+    private EthereumNewHeadsNotifier notifier;
+
+    /**
+     * Stands in for the WebSocket endpoint of a node and answers subscriptions with a newHeads notification, or with an
+     * error if the subscription is rejected.
+     */
+    private static class NodeStandIn extends WebSocketServer {
+
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final AtomicInteger numberOfSubscriptions = new AtomicInteger();
+        private volatile String subscribeMessage;
+        private volatile boolean rejectSubscriptions;
+
+        private NodeStandIn(int port) {
+            super(new InetSocketAddress("localhost", port));
+        }
+
+        @Override
+        public void onOpen(WebSocket conn, ClientHandshake handshake) {
+        }
+
+        @Override
+        public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+        }
+
+        @Override
+        public void onMessage(WebSocket conn, String message) {
+            subscribeMessage = message;
+            numberOfSubscriptions.incrementAndGet();
+            if (rejectSubscriptions) {
+                conn.send("{\"jsonrpc\":\"2.0\",\"id\":1,\"error\":{\"code\":-32601,\"message\":" +
+                        "\"The method eth_subscribe does not exist/is not available\"}}");
+                return;
+            }
+            conn.send("{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":\"0xcd0c3e8af590364c09d0fa6a1210faf5\"}");
+            conn.send("{\"jsonrpc\":\"2.0\",\"method\":\"eth_subscription\",\"params\":{\"subscription\":" +
+                    "\"0xcd0c3e8af590364c09d0fa6a1210faf5\",\"result\":{\"number\":\"0x1b4\",\"hash\":" +
+                    "\"0x2c2a9a5f22f2fb0ae3e4e9d6d05a7c6eb52d1b6d4d76ba4ee4b5b1f6c1e5d1a7\"}}}");
+        }
+
+        @Override
+        public void onError(WebSocket conn, Exception ex) {
+        }
+
+        @Override
+        public void onStart() {
+            started.countDown();
+        }
+
+    }
+
+    @BeforeEach
+    public void setUp() throws IOException, InterruptedException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        node = new NodeStandIn(port);
+        node.start();
+        assertTrue(node.started.await(5, TimeUnit.SECONDS), "Node stand-in not started!");
+
+        fallbackBlockHeights = PublishSubject.create();
+        notifier = new EthereumNewHeadsNotifier(URI.create("ws://localhost:" + port), () -> fallbackBlockHeights,
+                100, TimeUnit.MILLISECONDS);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException, InterruptedException {
+        node.stop();
+    }
+
+    @Test
+    public void testNewHeads_shouldEmitBlockNumber() {
+        TestObserver<Long> testObserver = notifier.getNewBlockHeightObservable().test();
+
+        testObserver.awaitCount(1);
+
+        testObserver
+                .assertValue(436L)
+                .assertNoErrors();
+        assertEquals("{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"eth_subscribe\",\"params\":[\"newHeads\"]}",
+                node.subscribeMessage, "Wrong subscribe message!");
+        testObserver.dispose();
+    }
+
+    @Test
+    public void testDisconnect_shouldFallBackToPolling() throws IOException, InterruptedException {
+        TestObserver<Long> testObserver = notifier.getNewBlockHeightObservable().test();
+        testObserver.awaitCount(1);
+        Thread.sleep(200);
+        assertTrue(!fallbackBlockHeights.hasObservers(), "Polling while connected!");
+
+        node.stop();
+        Thread.sleep(500);
+        fallbackBlockHeights.onNext(437L);
+
+        testObserver
+                .assertValues(436L, 437L)
+                .assertNoErrors();
+        testObserver.dispose();
+    }
+
+    @Test
+    public void testRejectedSubscription_shouldFallBackToPollingAndReconnect() throws InterruptedException {
+        node.rejectSubscriptions = true;
+        TestObserver<Long> testObserver = notifier.getNewBlockHeightObservable().test();
+        Thread.sleep(500);
+        assertTrue(fallbackBlockHeights.hasObservers(), "Not polling after the subscription has been rejected!");
+
+        fallbackBlockHeights.onNext(437L);
+
+        testObserver
+                .assertValue(437L)
+                .assertNoErrors();
+        assertTrue(node.numberOfSubscriptions.get() > 1, "Not reconnected!");
+        testObserver.dispose();
+    }
+
+}
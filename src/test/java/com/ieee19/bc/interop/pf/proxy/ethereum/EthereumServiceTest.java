@@ -1,11 +1,14 @@
 package com.ieee19.bc.interop.pf.proxy.ethereum;
 
+import com.ieee19.bc.interop.pf.core.SharedBlockStore;
 import com.ieee19.bc.interop.pf.core.Utils;
 import com.ieee19.bc.interop.pf.core.model.Block;
+import com.ieee19.bc.interop.pf.core.model.BlockEvent;
 import com.ieee19.bc.interop.pf.proxy.ethereum.dto.rpc.JsonRpcRequest;
 import com.ieee19.bc.interop.pf.proxy.ethereum.dto.rpc.JsonRpcTransaction;
 import com.ieee19.bc.interop.pf.proxy.ethereum.dto.rpc.PendingTransactionResponse;
 import com.ieee19.bc.interop.pf.proxy.ethereum.exception.EthereumException;
+import com.ieee19.bc.interop.pf.proxy.ethereum.model.EthereumBlock;
 import com.ieee19.bc.interop.pf.proxy.ethereum.model.Transaction;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -180,6 +183,47 @@ public class EthereumServiceTest {
         assertEquals(Arrays.asList(EXPECTED_TX_DATA1, EXPECTED_TX_DATA2, EXPECTED_TX_DATA4), actualData, "Data not matching!");
     }
 
+    @Test
+    public void testGetDataWithSharedBlockStore_shouldNotFetchStoredBlocks() throws EthereumException, IOException {
+        JsonRpcRequest jsonRpcRequest = new JsonRpcRequest();
+        jsonRpcRequest.setId(1);
+        jsonRpcRequest.setMethod("parity_pendingTransactions");
+        jsonRpcRequest.setJsonrpc("2.0");
+        HttpEntity<JsonRpcRequest> request = new HttpEntity<>(jsonRpcRequest);
+        when(restTemplateMock.postForObject(NODE_URL, request, PendingTransactionResponse.class))
+                .thenReturn(createPendingTxResponse());
+
+        EthBlockNumber blockNumber = new EthBlockNumber();
+        blockNumber.setResult("0x" + Long.toHexString(EXPECTED_BLOCK_NUMBER));
+        Request<?, EthBlockNumber> blockNumberRequest = mock(Request.class);
+        when(blockNumberRequest.send()).thenReturn(blockNumber);
+        when(web3Mock.ethBlockNumber()).thenReturn((Request) blockNumberRequest);
+
+        // the block has already been collected by the metric collector
+        Transaction tx = new Transaction();
+        tx.setFromAddress(EXPECTED_ADDRESS);
+        tx.setData(EXPECTED_TX_DATA4_HEX);
+        EthereumBlock block = new EthereumBlock();
+        block.setHeight(EXPECTED_BLOCK_NUMBER);
+        block.setTimestamp(ZonedDateTime.now());
+        block.getDataTransactions().add(tx);
+        SharedBlockStore sharedBlockStore = SharedBlockStore.acquire(NODE_URL);
+        try {
+            sharedBlockStore.onBlockEvent(BlockEvent.add(block));
+            sharedBlockStore.setCompleteSince(ZonedDateTime.now().minus(2, HOURS));
+            ethereumService.setSharedBlockStore(sharedBlockStore);
+
+            List<String> actualData = ethereumService
+                    .getData(ZonedDateTime.now().minus(1, HOURS), ZonedDateTime.now().plus(1, HOURS));
+
+            assertEquals(Arrays.asList(EXPECTED_TX_DATA1, EXPECTED_TX_DATA2, EXPECTED_TX_DATA4), actualData, "Data not matching!");
+            verify(web3Mock, never()).ethGetBlockByNumber(any(), anyBoolean());
+            verify(restTemplateMock, never()).postForObject(eq(NODE_URL), any(HttpEntity.class), eq(String.class));
+        } finally {
+            sharedBlockStore.release();
+        }
+    }
+
     @Test
     public void testGetCurrentBlockNumber_shouldReturnCorrectResult() throws EthereumException, IOException {
         EthBlockNumber blockNumber = new EthBlockNumber();
@@ -267,4 +311,80 @@ public class EthereumServiceTest {
         assertEquals(expectedTimestamp, actualBlock.get().getTimestamp(), "Timestamp not matching!");
     }
 
+    private String createBlockJson(int id, long blockNumber, String hash, String... uncleHashes) {
+        StringBuilder uncles = new StringBuilder();
+        for (String uncleHash : uncleHashes) {
+            uncles.append(uncles.length() == 0 ? "" : ",").append('"').append(uncleHash).append('"');
+        }
+        return "{\"jsonrpc\":\"2.0\",\"id\":" + id + ",\"result\":{" +
+                "\"number\":\"0x" + Long.toHexString(blockNumber) + "\"," +
+                "\"hash\":\"" + hash + "\"," +
+                "\"parentHash\":\"" + EXPECTED_BLOCK_HASH + "\"," +
+                "\"timestamp\":\"0x" + Long.toHexString(System.currentTimeMillis() / 1000) + "\"," +
+                "\"difficulty\":\"0x" + Long.toHexString(EXPECTED_BLOCK_DIFFICTULTY) + "\"," +
+                "\"miner\":\"" + EXPECTED_ADDRESS + "\"," +
+                "\"transactions\":[\"0x01\",\"0x02\"]," +
+                "\"uncles\":[" + uncles + "]}}";
+    }
+
+    @Test
+    public void testGetBlocksByNumberWithUncles_shouldReturnCorrectResult() throws EthereumException {
+        // responses of a batch may arrive in any order
+        String blockBatchResponse = "[" +
+                createBlockJson(1, 11, "0x0b") + "," +
+                createBlockJson(0, 10, "0x0a", "0xa1", "0xa2") + "," +
+                "{\"jsonrpc\":\"2.0\",\"id\":2,\"result\":null}]";  // block 12 has not been mined yet
+        String uncleBatchResponse = "[" + createBlockJson(1, 9, "0xa2") + "," + createBlockJson(0, 9, "0xa1") + "]";
+        when(restTemplateMock.postForObject(eq(NODE_URL), any(HttpEntity.class), eq(String.class)))
+                .thenAnswer(invocation -> {
+                    List<JsonRpcRequest> requests = (List<JsonRpcRequest>) ((HttpEntity) invocation.getArgument(1)).getBody();
+                    if (requests.get(0).getMethod().equals("eth_getBlockByNumber")) {
+                        assertEquals(3, requests.size(), "All blocks must be requested in one batch!");
+                        return blockBatchResponse;
+                    }
+                    assertEquals("eth_getUncleByBlockHashAndIndex", requests.get(0).getMethod(), "Wrong method!");
+                    assertEquals(2, requests.size(), "All uncles must be requested in one batch!");
+                    return uncleBatchResponse;
+                });
+
+        List<Block> actualBlocks = ethereumService.getBlocksByNumberWithUncles(10, 12);
+
+        verify(restTemplateMock, times(2)).postForObject(eq(NODE_URL), any(HttpEntity.class), eq(String.class));
+        assertEquals(2, actualBlocks.size(), "Two blocks are expected!");
+        assertEquals(10, actualBlocks.get(0).getHeight(), "Blocks must be ordered by block number!");
+        assertEquals(11, actualBlocks.get(1).getHeight(), "Blocks must be ordered by block number!");
+        assertEquals(2, actualBlocks.get(0).getNumberOfTransactions(), "Tx number not matching!");
+        assertEquals(2, actualBlocks.get(0).getUncleBlocks().size(), "Uncles not matching!");
+        assertEquals("0xa1", actualBlocks.get(0).getUncleBlocks().get(0).getHash(), "Uncles must be ordered by index!");
+        assertEquals("0xa2", actualBlocks.get(0).getUncleBlocks().get(1).getHash(), "Uncles must be ordered by index!");
+        assertTrue(actualBlocks.get(1).getUncleBlocks().isEmpty(), "No uncles expected!");
+    }
+
+    @Test
+    public void testGetBlocksByNumberWithUncles_shouldSplitIntoBatches() throws EthereumException {
+        ethereumService.setBatchSize(2);
+        when(restTemplateMock.postForObject(eq(NODE_URL), any(HttpEntity.class), eq(String.class)))
+                .thenAnswer(invocation -> {
+                    List<JsonRpcRequest> requests = (List<JsonRpcRequest>) ((HttpEntity) invocation.getArgument(1)).getBody();
+                    StringBuilder response = new StringBuilder("[");
+                    for (JsonRpcRequest request : requests) {
+                        long blockNumber = Long.decode((String) request.getParams().get(0));
+                        response.append(response.length() == 1 ? "" : ",")
+                                .append(createBlockJson(request.getId(), blockNumber, "0x0" + blockNumber));
+                    }
+                    return response.append("]").toString();
+                });
+
+        List<Block> actualBlocks = ethereumService.getBlocksByNumberWithUncles(1, 5);
+
+        verify(restTemplateMock, times(3)).postForObject(eq(NODE_URL), any(HttpEntity.class), eq(String.class));
+        assertEquals(5, actualBlocks.size(), "Five blocks are expected!");
+        assertEquals(5, actualBlocks.get(4).getHeight(), "Blocks must be ordered by block number!");
+    }
+
+    @Test
+    public void testSetBatchSizeNotPositive_shouldThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> ethereumService.setBatchSize(0));
+    }
+
 }